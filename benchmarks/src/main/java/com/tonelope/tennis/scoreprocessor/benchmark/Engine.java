@@ -0,0 +1,102 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.CompiledScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+
+/**
+ * <p>
+ * The scoring engine configurations compared by the benchmarks.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public enum Engine {
+
+	/**
+	 * <p>
+	 * The strategy determined by <tt>MatchProcessor</tt> with its default
+	 * handler resolution.
+	 * </p>
+	 */
+	DEFAULT {
+		@Override
+		MatchStrategy createStrategy() {
+			return null;
+		}
+	},
+
+	/**
+	 * <p>
+	 * <tt>SinglesMatchStrategy</tt> resolving handlers through the compiled
+	 * dispatch table.
+	 * </p>
+	 */
+	COMPILED_DISPATCH {
+		@Override
+		MatchStrategy createStrategy() {
+			return new SinglesMatchStrategy(COMPILED_RESOLVER);
+		}
+	},
+
+	/**
+	 * <p>
+	 * <tt>SinglesMatchStrategy</tt> resolving handlers through the compiled
+	 * dispatch table, with points scored by the <tt>GameStateMachine</tt>
+	 * transition tables.
+	 * </p>
+	 */
+	STATE_MACHINE {
+		@Override
+		MatchStrategy createStrategy() {
+			return new SinglesMatchStrategy(STATE_MACHINE_RESOLVER);
+		}
+	},
+
+	/**
+	 * <p>
+	 * <tt>ScoreStateMatchStrategy</tt>, keeping the score in a packed
+	 * <tt>long</tt> without building the scoring object tree.
+	 * </p>
+	 */
+	PACKED_STATE {
+		@Override
+		MatchStrategy createStrategy() {
+			return new ScoreStateMatchStrategy();
+		}
+	};
+
+	private static final CompiledScoreCompletionStrategyHandler COMPILED_RESOLVER = new CompiledScoreCompletionStrategyHandler();
+
+	private static final CompiledScoreCompletionStrategyHandler STATE_MACHINE_RESOLVER = new CompiledScoreCompletionStrategyHandler(
+			DefaultScoreCompletionStrategyHandler.createStateMachineScoreCompletionHandlers());
+
+	abstract MatchStrategy createStrategy();
+
+	/**
+	 * @param match
+	 *            the match to process
+	 * @return a new processor for <tt>match</tt> using this engine.
+	 */
+	public MatchProcessor newProcessor(Match match) {
+		return new MatchProcessor(match, this.createStrategy());
+	}
+}
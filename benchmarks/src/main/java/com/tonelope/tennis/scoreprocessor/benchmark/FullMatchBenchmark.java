@@ -0,0 +1,114 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+
+/**
+ * <p>
+ * Measures the throughput of scoring complete matches from scratch, including
+ * creation of the <tt>Match</tt> and <tt>MatchProcessor</tt>. One operation is
+ * one complete match; the <tt>strokes</tt> and <tt>points</tt> secondary
+ * results report the equivalent per-stroke and per-point rates.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FullMatchBenchmark {
+
+	@Param
+	public MatchScenario scenario;
+
+	@Param
+	public Engine engine;
+
+	private MatchScript script;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class StrokeCounter {
+
+		public long strokes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.strokes = 0;
+		}
+	}
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class PointCounter {
+
+		public long points;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.points = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.script = MatchScript.record(this.scenario);
+	}
+
+	@Benchmark
+	public Match strokeByStroke(StrokeCounter counter) {
+		Match match = this.script.newMatch();
+		MatchProcessor processor = this.engine.newProcessor(match);
+		for (Stroke stroke : this.script.strokes(match)) {
+			processor.update(stroke);
+		}
+		counter.strokes += this.script.getStrokeCount();
+		return match;
+	}
+
+	@Benchmark
+	public Match pointByPoint(PointCounter counter) {
+		Match match = this.script.newMatch();
+		MatchProcessor processor = this.engine.newProcessor(match);
+		for (Point point : this.script.points(match)) {
+			processor.update(point);
+		}
+		counter.points += this.script.getPointCount();
+		return match;
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.journal.StrokeJournal;
+
+/**
+ * <p>
+ * Samples the latency of appending a stroke to a <tt>StrokeJournal</tt>, in
+ * nanoseconds. The journal is replaced by an empty one every million records
+ * to bound the size of the file.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JournalBenchmark {
+
+	private static final int RECORDS_PER_JOURNAL = 1_000_000;
+
+	private MatchScript script;
+	private Match match;
+	private Stroke[] strokes;
+	private Path file;
+	private StrokeJournal journal;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.script = MatchScript.record(MatchScenario.BEST_OF_5);
+		this.match = this.script.newMatch();
+		this.strokes = this.script.strokes(this.match);
+		this.file = Files.createTempFile("benchmark", ".journal");
+		this.reset();
+	}
+
+	private void reset() throws IOException {
+		if (null != this.journal) {
+			this.journal.close();
+		}
+		Files.deleteIfExists(this.file);
+		this.journal = new StrokeJournal(this.file, this.match.getMatchRules());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.journal.close();
+		Files.deleteIfExists(this.file);
+	}
+
+	@Benchmark
+	public long appendStroke() throws IOException {
+		if (this.journal.getRecordCount() == RECORDS_PER_JOURNAL) {
+			this.reset();
+		}
+		this.journal.onStroke(this.match, this.strokes[this.cursor++ % this.strokes.length]);
+		return this.journal.getRecordCount();
+	}
+}
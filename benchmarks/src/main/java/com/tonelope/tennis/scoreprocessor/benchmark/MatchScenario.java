@@ -0,0 +1,161 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.Random;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+
+/**
+ * <p>
+ * Describes the shape of the matches played by the benchmarks. Each scenario
+ * provides the <tt>MatchRules</tt> to play under and decides, point by point,
+ * which player wins. Decisions are made from the live <tt>Match</tt> and a
+ * seeded <tt>Random</tt> so that every recorded script is reproducible.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public enum MatchScenario {
+
+	/**
+	 * <p>
+	 * A best-of-3 match where the server wins 62% of points.
+	 * </p>
+	 */
+	BEST_OF_3 {
+		@Override
+		int pointWinner(Match match, int serverSlot, Random random) {
+			return this.serveBiased(serverSlot, random, 0.62);
+		}
+	},
+
+	/**
+	 * <p>
+	 * A best-of-5 match where the server wins 62% of points.
+	 * </p>
+	 */
+	BEST_OF_5 {
+		@Override
+		MatchRules createRules() {
+			MatchRules matchRules = new MatchRules();
+			matchRules.setNumberOfSets(5);
+			return matchRules;
+		}
+
+		@Override
+		int pointWinner(Match match, int serverSlot, Random random) {
+			return this.serveBiased(serverSlot, random, 0.62);
+		}
+	},
+
+	/**
+	 * <p>
+	 * A best-of-3 match where every service game passes through deuce six
+	 * times before the server holds.
+	 * </p>
+	 */
+	DEUCE_HEAVY {
+		@Override
+		int pointWinner(Match match, int serverSlot, Random random) {
+			if (match.getCurrentGame() instanceof TiebreakGame) {
+				return random.nextInt(2);
+			}
+			int pointIndex = match.getCurrentGame().getPoints().size() - 1;
+			if (pointIndex < 6 + (2 * DEUCE_CYCLES)) {
+				return pointIndex % 2 == 0 ? serverSlot : serverSlot ^ 1;
+			}
+			return serverSlot;
+		}
+	},
+
+	/**
+	 * <p>
+	 * A best-of-3 match where every service game is held to love so that every
+	 * set is decided by a tiebreak.
+	 * </p>
+	 */
+	TIEBREAKS {
+		@Override
+		int pointWinner(Match match, int serverSlot, Random random) {
+			if (match.getCurrentGame() instanceof TiebreakGame) {
+				return random.nextInt(2);
+			}
+			return serverSlot;
+		}
+	},
+
+	/**
+	 * <p>
+	 * A best-of-3 match without a final set tiebreak. The first two sets are
+	 * split and the final set is held to 68-68 before being broken, finishing
+	 * 70-68.
+	 * </p>
+	 */
+	LONG_FINAL_SET {
+		@Override
+		MatchRules createRules() {
+			MatchRules matchRules = new MatchRules();
+			matchRules.setFinalSetTiebreakDisabled(true);
+			return matchRules;
+		}
+
+		@Override
+		int pointWinner(Match match, int serverSlot, Random random) {
+			int setIndex = match.getSets().size() - 1;
+			if (setIndex < 2) {
+				return setIndex;
+			}
+			int gamesPlayed = match.getCurrentSet().getGames().size() - 1;
+			return gamesPlayed < 136 ? serverSlot : 0;
+		}
+	};
+
+	private static final int DEUCE_CYCLES = 6;
+
+	/**
+	 * <p>
+	 * Creates a new <tt>MatchRules</tt> instance for this scenario. A new
+	 * instance is returned on every call as <tt>MatchRules</tt> is mutable.
+	 * </p>
+	 *
+	 * @return the rules to play this scenario under.
+	 */
+	MatchRules createRules() {
+		return new MatchRules();
+	}
+
+	/**
+	 * <p>
+	 * Decides which player wins the next point of <tt>match</tt>.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match being recorded
+	 * @param serverSlot
+	 *            the index within <tt>match.getPlayers()</tt> of the player
+	 *            serving the next point
+	 * @param random
+	 *            the seeded random source for this recording
+	 * @return the index within <tt>match.getPlayers()</tt> of the winner.
+	 */
+	abstract int pointWinner(Match match, int serverSlot, Random random);
+
+	int serveBiased(int serverSlot, Random random, double serverWinProbability) {
+		return random.nextDouble() < serverWinProbability ? serverSlot : serverSlot ^ 1;
+	}
+}
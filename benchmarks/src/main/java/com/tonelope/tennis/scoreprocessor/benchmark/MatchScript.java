@@ -0,0 +1,216 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PlayerConfig;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.DefaultMatchFactory;
+import com.tonelope.tennis.scoreprocessor.processor.MatchFactory;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+
+/**
+ * <p>
+ * A pre-recorded, replayable sequence of strokes and points for a complete
+ * match of a given <tt>MatchScenario</tt>.
+ * </p>
+ *
+ * <p>
+ * Scripts are recorded once by driving a real <tt>MatchProcessor</tt> so that
+ * every stroke is legal (correct server, correct serve order). Strokes and
+ * points are stored as packed <tt>int</tt> values referencing players by their
+ * index within <tt>Match.getPlayers()</tt>, which allows the same script to be
+ * replayed against any number of freshly created matches.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public final class MatchScript {
+
+	private static final long SEED = 20180519L;
+	private static final StrokeType[] STROKE_TYPES = StrokeType.values();
+	private static final StrokeType[] RALLY_TYPES = { StrokeType.FOREHAND, StrokeType.BACKHAND,
+			StrokeType.FOREHAND_SLICE, StrokeType.BACKHAND_SLICE, StrokeType.FOREHAND_VOLLEY };
+
+	private static final MatchFactory MATCH_FACTORY = new DefaultMatchFactory();
+
+	private final MatchScenario scenario;
+	private final int[] strokes;
+	private final int[] points;
+
+	private MatchScript(MatchScenario scenario, int[] strokes, int[] points) {
+		this.scenario = scenario;
+		this.strokes = strokes;
+		this.points = points;
+	}
+
+	/**
+	 * <p>
+	 * Records a complete match of <tt>scenario</tt>.
+	 * </p>
+	 *
+	 * @param scenario
+	 *            the scenario to record
+	 * @return the recorded script.
+	 */
+	public static MatchScript record(MatchScenario scenario) {
+		Random random = new Random(SEED + scenario.ordinal());
+		Match match = newMatch(scenario);
+		MatchProcessor processor = new MatchProcessor(match);
+		List<Integer> strokes = new ArrayList<>();
+		List<Integer> points = new ArrayList<>();
+
+		while (!match.isCompleted()) {
+			Point currentPoint = match.getCurrentPoint();
+			int server = match.getPlayerIndex(currentPoint.getServer());
+			int winner = scenario.pointWinner(match, server, random);
+			points.add(packPoint(server, winner));
+			for (int stroke : rally(server, winner, random)) {
+				strokes.add(stroke);
+				processor.update(stroke(match, stroke));
+			}
+		}
+		return new MatchScript(scenario, toArray(strokes), toArray(points));
+	}
+
+	/**
+	 * @return a new, initialized match for this script's scenario.
+	 */
+	public Match newMatch() {
+		return newMatch(this.scenario);
+	}
+
+	/**
+	 * <p>
+	 * Materializes every stroke of this script for the players of
+	 * <tt>match</tt>.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match the strokes will be applied to
+	 * @return the strokes, in the order they must be applied.
+	 */
+	public Stroke[] strokes(Match match) {
+		Stroke[] result = new Stroke[this.strokes.length];
+		for (int i = 0; i < this.strokes.length; i++) {
+			result[i] = stroke(match, this.strokes[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Materializes every point of this script for the players of
+	 * <tt>match</tt>.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match the points will be applied to
+	 * @return the points, in the order they must be applied.
+	 */
+	public Point[] points(Match match) {
+		Point[] result = new Point[this.points.length];
+		for (int i = 0; i < this.points.length; i++) {
+			int packed = this.points[i];
+			Player server = match.getPlayers().get(packed & 1);
+			Player receiver = match.getPlayers().get((packed & 1) ^ 1);
+			result[i] = new SimplePoint(server, receiver, match.getPlayers().get((packed >> 1) & 1));
+		}
+		return result;
+	}
+
+	public int getStrokeCount() {
+		return this.strokes.length;
+	}
+
+	public int getPointCount() {
+		return this.points.length;
+	}
+
+	private static Match newMatch(MatchScenario scenario) {
+		List<Player> players = new ArrayList<>();
+		players.add(new Player("Roger", "Federer"));
+		players.add(new Player("Rafael", "Nadal"));
+		return MATCH_FACTORY.create(scenario.createRules(), new PlayerConfig(players, players.get(0), players.get(1)));
+	}
+
+	private static List<Integer> rally(int server, int winner, Random random) {
+		List<Integer> rally = new ArrayList<>();
+		int receiver = server ^ 1;
+		double roll = random.nextDouble();
+
+		if (winner == server && roll < 0.1) {
+			rally.add(packStroke(server, StrokeType.FIRST_SERVE, false, true));
+			return rally;
+		}
+		if (winner == receiver && roll < 0.05) {
+			rally.add(packStroke(server, StrokeType.FIRST_SERVE, true, false));
+			rally.add(packStroke(server, StrokeType.SECOND_SERVE, true, false));
+			return rally;
+		}
+
+		if (random.nextDouble() < 0.35) {
+			rally.add(packStroke(server, StrokeType.FIRST_SERVE, true, false));
+			rally.add(packStroke(server, StrokeType.SECOND_SERVE, false, false));
+		} else {
+			rally.add(packStroke(server, StrokeType.FIRST_SERVE, false, false));
+		}
+
+		// Shots alternate starting with the receiver. The final shot is either a
+		// winner by the point winner or an error by the point loser.
+		boolean endsWithWinner = random.nextBoolean();
+		int lastHitter = endsWithWinner ? winner : winner ^ 1;
+		int shots = 1 + random.nextInt(8);
+		if ((shots % 2 == 1) != (lastHitter == receiver)) {
+			shots++;
+		}
+		for (int i = 0; i < shots; i++) {
+			int hitter = i % 2 == 0 ? receiver : server;
+			StrokeType type = RALLY_TYPES[random.nextInt(RALLY_TYPES.length)];
+			boolean last = i == shots - 1;
+			rally.add(packStroke(hitter, type, last && !endsWithWinner, last && endsWithWinner));
+		}
+		return rally;
+	}
+
+	private static Stroke stroke(Match match, int packed) {
+		return new Stroke(match.getPlayers().get(packed & 1), STROKE_TYPES[(packed >> 1) & 0x1F],
+				(packed & 0x40) != 0, (packed & 0x80) != 0);
+	}
+
+	private static int packStroke(int player, StrokeType type, boolean out, boolean winner) {
+		return player | (type.ordinal() << 1) | (out ? 0x40 : 0) | (winner ? 0x80 : 0);
+	}
+
+	private static int packPoint(int server, int winner) {
+		return server | (winner << 1);
+	}
+
+	private static int[] toArray(List<Integer> values) {
+		int[] result = new int[values.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = values.get(i);
+		}
+		return result;
+	}
+}
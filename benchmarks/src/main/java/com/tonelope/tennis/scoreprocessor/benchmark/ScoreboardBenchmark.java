@@ -0,0 +1,91 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.scoreboard.ScoreboardRenderer;
+
+/**
+ * <p>
+ * Compares polling the score of a match half way through its recorded points
+ * with the <tt>toString</tt> methods of the <tt>Score</tt> model classes
+ * against <tt>ScoreboardRenderer</tt>, whose cached score is only rendered
+ * again once a point is completed.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ScoreboardBenchmark {
+
+	@Param
+	public MatchScenario scenario;
+
+	private Match match;
+	private ScoreboardRenderer renderer;
+	private ByteBuffer buffer;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		MatchScript script = MatchScript.record(this.scenario);
+		this.match = script.newMatch();
+		MatchProcessor processor = new MatchProcessor(this.match);
+		Point[] points = script.points(this.match);
+		for (int i = 0; i < points.length / 2; i++) {
+			processor.update(points[i]);
+		}
+		this.renderer = new ScoreboardRenderer(processor);
+		this.buffer = ByteBuffer.allocate(256);
+	}
+
+	@Benchmark
+	public String modelToString() {
+		return this.match.getScore() + " " + this.match.getCurrentSet().getScore() + " " + this.match.getCurrentGame().getScore();
+	}
+
+	@Benchmark
+	public String render() {
+		return this.renderer.render();
+	}
+
+	@Benchmark
+	public int renderToByteBuffer() {
+		this.buffer.clear();
+		return this.renderer.renderTo(this.buffer);
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+
+/**
+ * <p>
+ * A serializable mirror of the <tt>Match</tt> object tree, used as the Java
+ * serialization baseline of <tt>SnapshotBenchmark</tt> so that the model
+ * itself need not be <tt>Serializable</tt>.
+ * </p>
+ *
+ * <p>
+ * Each scoring object is mirrored field for field, and objects shared within
+ * the match (players, rules and the canonical strokes of its
+ * <tt>StrokeCache</tt>) are mirrored once and shared as well, so the
+ * serialized form has the same shape as that of the match itself.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public final class SerializableMatch implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String id;
+	private final Status status;
+	private final List<PlayerMirror> players = new ArrayList<>();
+	private final PlayerMirror startingServer;
+	private final PlayerMirror startingReceiver;
+	private final RulesMirror matchRules;
+	private final int startingServerSetsWon;
+	private final int startingReceiverSetsWon;
+	private final List<SetMirror> sets = new ArrayList<>();
+
+	private SerializableMatch(Match match, Mirrors mirrors) {
+		this.id = match.getId();
+		this.status = match.getStatus();
+		for (Player player : match.getPlayers()) {
+			this.players.add(mirrors.of(player));
+		}
+		this.startingServer = mirrors.of(match.getStartingServer());
+		this.startingReceiver = mirrors.of(match.getStartingReceiver());
+		this.matchRules = mirrors.rules;
+		this.startingServerSetsWon = match.getScore().getStartingServerSetsWon();
+		this.startingReceiverSetsWon = match.getScore().getStartingReceiverSetsWon();
+		for (Set set : match.getSets()) {
+			this.sets.add(new SetMirror(set, mirrors));
+		}
+	}
+
+	/**
+	 * @param match
+	 *            the match to mirror
+	 * @return the mirror of <tt>match</tt>.
+	 */
+	public static SerializableMatch of(Match match) {
+		return new SerializableMatch(match, new Mirrors(match.getMatchRules()));
+	}
+
+	/**
+	 * Mirrors shared objects once per match.
+	 */
+	private static final class Mirrors {
+
+		private final RulesMirror rules;
+		private final Map<Player, PlayerMirror> players = new IdentityHashMap<>();
+		private final Map<Stroke, StrokeMirror> strokes = new IdentityHashMap<>();
+
+		private Mirrors(MatchRules matchRules) {
+			this.rules = new RulesMirror(matchRules);
+		}
+
+		private PlayerMirror of(Player player) {
+			return null != player ? this.players.computeIfAbsent(player, PlayerMirror::new) : null;
+		}
+
+		private StrokeMirror of(Stroke stroke) {
+			return this.strokes.computeIfAbsent(stroke, s -> new StrokeMirror(s, this));
+		}
+	}
+
+	private static final class PlayerMirror implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String firstName;
+		private final String lastName;
+
+		private PlayerMirror(Player player) {
+			this.firstName = player.getFirstName();
+			this.lastName = player.getLastName();
+		}
+	}
+
+	private static final class RulesMirror implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int numberOfSets;
+		private final int numberOfGamesPerSet;
+		private final boolean finalSetTiebreakDisabled;
+		private final boolean noAdScoring;
+
+		private RulesMirror(MatchRules matchRules) {
+			this.numberOfSets = matchRules.getNumberOfSets();
+			this.numberOfGamesPerSet = matchRules.getNumberOfGamesPerSet();
+			this.finalSetTiebreakDisabled = matchRules.isFinalSetTiebreakDisabled();
+			this.noAdScoring = matchRules.isNoAdScoring();
+		}
+	}
+
+	private static final class SetMirror implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Status status;
+		private final RulesMirror matchRules;
+		private final PlayerMirror startingServer;
+		private final PlayerMirror startingReceiver;
+		private final int startingServerScore;
+		private final int startingReceiverScore;
+		private final List<GameMirror> games = new ArrayList<>();
+
+		private SetMirror(Set set, Mirrors mirrors) {
+			this.status = set.getStatus();
+			this.matchRules = mirrors.rules;
+			this.startingServer = mirrors.of(set.getStartingServer());
+			this.startingReceiver = mirrors.of(set.getStartingReceiver());
+			this.startingServerScore = set.getScore().getStartingServerScore();
+			this.startingReceiverScore = set.getScore().getStartingReceiverScore();
+			for (Game game : set.getGames()) {
+				this.games.add(new GameMirror(game, mirrors));
+			}
+		}
+	}
+
+	private static final class GameMirror implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Status status;
+		private final PlayerMirror server;
+		private final PlayerMirror receiver;
+		private PointValue serverScore;
+		private PointValue receiverScore;
+		private int serverTiebreakScore;
+		private int receiverTiebreakScore;
+		private PlayerMirror nextServer;
+		private PlayerMirror nextReceiver;
+		private final List<PointMirror> points = new ArrayList<>();
+
+		private GameMirror(Game game, Mirrors mirrors) {
+			this.status = game.getStatus();
+			this.server = mirrors.of(game.getServer());
+			this.receiver = mirrors.of(game.getReceiver());
+			if (game instanceof TiebreakGame) {
+				TiebreakGame tiebreakGame = (TiebreakGame) game;
+				TiebreakScore score = (TiebreakScore) game.getScore();
+				this.serverTiebreakScore = score.getServerScore();
+				this.receiverTiebreakScore = score.getReceiverScore();
+				this.nextServer = mirrors.of(tiebreakGame.getRotationServer());
+				this.nextReceiver = mirrors.of(tiebreakGame.getRotationReceiver());
+			} else {
+				GameScore score = (GameScore) game.getScore();
+				this.serverScore = score.getServerScore();
+				this.receiverScore = score.getReceiverScore();
+			}
+			for (Point point : game.getPoints()) {
+				this.points.add(new PointMirror(point, mirrors));
+			}
+		}
+	}
+
+	private static final class PointMirror implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Status status;
+		private final PlayerMirror server;
+		private final PlayerMirror receiver;
+		private final PlayerMirror winningPlayer;
+		private final List<StrokeMirror> strokes = new ArrayList<>();
+
+		private PointMirror(Point point, Mirrors mirrors) {
+			this.status = point.getStatus();
+			this.server = mirrors.of(point.getServer());
+			this.receiver = mirrors.of(point.getReceiver());
+			this.winningPlayer = point instanceof SimplePoint ? mirrors.of(point.getWinningPlayer()) : null;
+			for (Stroke stroke : point.getStrokes()) {
+				this.strokes.add(mirrors.of(stroke));
+			}
+		}
+	}
+
+	private static final class StrokeMirror implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Status status;
+		private final PlayerMirror player;
+		private final StrokeType strokeType;
+		private final boolean out;
+		private final boolean winner;
+
+		private StrokeMirror(Stroke stroke, Mirrors mirrors) {
+			this.status = stroke.getStatus();
+			this.player = mirrors.of(stroke.getPlayer());
+			this.strokeType = stroke.getStrokeType();
+			this.out = stroke.isOut();
+			this.winner = stroke.isWinner();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.simulation.MatchSimulator;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+/**
+ * <p>
+ * Measures the time <tt>MatchSimulator</tt> takes per simulated best of three
+ * match, on a single thread and on the common fork/join pool.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SimulationBenchmark {
+
+	private static final int MATCHES = 64 * MatchSimulator.CHUNK_SIZE;
+
+	private MatchSimulator simulator;
+	private ForkJoinPool single;
+	private long seed;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.simulator = new MatchSimulator(new MatchRules(), 0.64, 0.62);
+		this.single = new ForkJoinPool(1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.single.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MATCHES)
+	public double singleThread() {
+		return this.simulator.simulate(ScoreState.initial(0), MATCHES, this.seed++, this.single).getAveragePoints();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MATCHES)
+	public double commonPool() {
+		return this.simulator.simulate(ScoreState.initial(0), MATCHES, this.seed++, ForkJoinPool.commonPool()).getAveragePoints();
+	}
+}
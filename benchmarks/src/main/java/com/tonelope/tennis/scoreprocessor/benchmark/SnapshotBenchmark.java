@@ -0,0 +1,131 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchSnapshotCodec;
+
+/**
+ * <p>
+ * Compares <tt>MatchSnapshotCodec</tt> with Java serialization and a JSON
+ * baseline (Jackson, serializing fields) for encoding and decoding a match
+ * that is part-way through its final set. The encoded size of each format is
+ * printed once per trial.
+ * </p>
+ *
+ * <p>
+ * The model is not <tt>Serializable</tt>, so the Java serialization baseline
+ * encodes a <tt>SerializableMatch</tt> mirror of the match, including the
+ * cost of building the mirror, and decodes back to the mirror only. The
+ * model has no JSON creators either, so the JSON decode benchmark only
+ * parses the document into a tree. Both decode benchmarks are therefore a
+ * lower bound of the cost of decoding a <tt>Match</tt>.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SnapshotBenchmark {
+
+	public enum Format {
+		CODEC, JAVA_SERIALIZATION, JSON
+	}
+
+	@Param
+	public MatchScenario scenario;
+
+	@Param
+	public Format format;
+
+	private final MatchSnapshotCodec codec = new MatchSnapshotCodec();
+	private final ObjectMapper mapper = new ObjectMapper()
+			.setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+			.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+	private Match match;
+	private byte[] encoded;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		MatchScript script = MatchScript.record(this.scenario);
+		this.match = script.newMatch();
+		MatchProcessor processor = new MatchProcessor(this.match);
+		Stroke[] strokes = script.strokes(this.match);
+		for (int i = 0; i < strokes.length * 9 / 10; i++) {
+			processor.update(strokes[i]);
+		}
+		this.encoded = this.encode();
+		System.out.println(this.format + " snapshot: " + this.encoded.length + " bytes");
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		switch (this.format) {
+		case CODEC:
+			return this.codec.encode(this.match);
+		case JAVA_SERIALIZATION:
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(SerializableMatch.of(this.match));
+			}
+			return bytes.toByteArray();
+		default:
+			return this.mapper.writeValueAsBytes(this.match);
+		}
+	}
+
+	@Benchmark
+	public Object decode() throws IOException, ClassNotFoundException {
+		switch (this.format) {
+		case CODEC:
+			return this.codec.decode(this.encoded);
+		case JAVA_SERIALIZATION:
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(this.encoded))) {
+				return in.readObject();
+			}
+		default:
+			return this.mapper.readTree(this.encoded);
+		}
+	}
+}
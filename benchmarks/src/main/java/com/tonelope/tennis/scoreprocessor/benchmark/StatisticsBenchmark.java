@@ -0,0 +1,89 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.statistics.MatchStatistics;
+
+/**
+ * <p>
+ * Measures the cost <tt>MatchStatistics</tt> adds to each stroke. Each
+ * operation hands the next stroke of a recorded match straight to the
+ * statistics, without a processor; once the match is over new statistics are
+ * started and the strokes are replayed.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StatisticsBenchmark {
+
+	@Param
+	public MatchScenario scenario;
+
+	private Match match;
+	private MatchStatistics statistics;
+	private Stroke[] strokes;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		MatchScript script = MatchScript.record(this.scenario);
+		this.match = script.newMatch();
+		this.strokes = script.strokes(this.match);
+		this.reset();
+	}
+
+	/**
+	 * <p>
+	 * The match itself is never updated, so the statistics of the next match
+	 * start from the same score and replay the same strokes.
+	 * </p>
+	 */
+	private void reset() {
+		this.statistics = new MatchStatistics(this.match);
+		this.cursor = 0;
+	}
+
+	@Benchmark
+	public long onStroke() {
+		if (this.cursor == this.strokes.length) {
+			this.reset();
+		}
+		this.statistics.onStroke(this.match, this.strokes[this.cursor++]);
+		return this.statistics.getState();
+	}
+}
@@ -0,0 +1,232 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+
+/**
+ * <p>
+ * Measures single calls to <tt>MatchProcessor.update(Stroke)</tt> and
+ * <tt>MatchProcessor.update(Point)</tt>. Each operation applies the next
+ * pre-built stroke or point of a recorded match; once the match completes the
+ * next one is taken from a pool of matches built between iterations.
+ * </p>
+ *
+ * <p>
+ * The <tt>*Throughput</tt> benchmarks report updates per second, while the
+ * <tt>*Latency</tt> benchmarks sample the latency distribution of single
+ * updates (including p99) in nanoseconds.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UpdateLatencyBenchmark {
+
+	@State(Scope.Thread)
+	public static class StrokeFeed {
+
+		@Param
+		public MatchScenario scenario;
+
+		@Param
+		public Engine engine;
+
+		private MatchPool<Stroke> pool;
+		private MatchProcessor processor;
+		private Stroke[] strokes;
+		private int cursor;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.pool = new MatchPool<>(MatchScript.record(this.scenario), this.engine, MatchScript::strokes);
+		}
+
+		@Setup(Level.Iteration)
+		public void refill() {
+			this.pool.refill();
+			if (null == this.processor) {
+				this.next();
+			}
+		}
+
+		private void next() {
+			Replay<Stroke> replay = this.pool.next();
+			this.processor = replay.processor;
+			this.strokes = replay.updates;
+			this.cursor = 0;
+		}
+
+		Match update() {
+			if (this.cursor == this.strokes.length) {
+				this.next();
+			}
+			return this.processor.update(this.strokes[this.cursor++]);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class PointFeed {
+
+		@Param
+		public MatchScenario scenario;
+
+		@Param
+		public Engine engine;
+
+		private MatchPool<Point> pool;
+		private MatchProcessor processor;
+		private Point[] points;
+		private int cursor;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.pool = new MatchPool<>(MatchScript.record(this.scenario), this.engine, MatchScript::points);
+		}
+
+		@Setup(Level.Iteration)
+		public void refill() {
+			this.pool.refill();
+			if (null == this.processor) {
+				this.next();
+			}
+		}
+
+		private void next() {
+			Replay<Point> replay = this.pool.next();
+			this.processor = replay.processor;
+			this.points = replay.updates;
+			this.cursor = 0;
+		}
+
+		Match update() {
+			if (this.cursor == this.points.length) {
+				this.next();
+			}
+			return this.processor.update(this.points[this.cursor++]);
+		}
+	}
+
+	/**
+	 * <p>
+	 * New matches of a script, with the updates to apply to each, built
+	 * between iterations so that starting a match is not measured. Each
+	 * refill builds twice as many matches as were used in the previous
+	 * iteration. A match is only built while measuring if the pool runs out,
+	 * which is limited to the first warmup iterations.
+	 * </p>
+	 */
+	static final class MatchPool<T> {
+
+		private static final int MIN_MATCHES = 16;
+
+		private final MatchScript script;
+		private final Engine engine;
+		private final BiFunction<MatchScript, Match, T[]> updates;
+		private final Deque<Replay<T>> replays = new ArrayDeque<>();
+		private int used;
+
+		MatchPool(MatchScript script, Engine engine, BiFunction<MatchScript, Match, T[]> updates) {
+			this.script = script;
+			this.engine = engine;
+			this.updates = updates;
+		}
+
+		void refill() {
+			int target = Math.max(MIN_MATCHES, 2 * this.used);
+			while (this.replays.size() < target) {
+				this.replays.addLast(this.build());
+			}
+			this.used = 0;
+		}
+
+		Replay<T> next() {
+			this.used++;
+			return this.replays.isEmpty() ? this.build() : this.replays.removeFirst();
+		}
+
+		private Replay<T> build() {
+			Match match = this.script.newMatch();
+			return new Replay<>(this.engine.newProcessor(match), this.updates.apply(this.script, match));
+		}
+	}
+
+	/**
+	 * <p>
+	 * The processor of a new match and the updates to apply to it.
+	 * </p>
+	 */
+	static final class Replay<T> {
+
+		private final MatchProcessor processor;
+		private final T[] updates;
+
+		Replay(MatchProcessor processor, T[] updates) {
+			this.processor = processor;
+			this.updates = updates;
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public Match updateStrokeThroughput(StrokeFeed feed) {
+		return feed.update();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Match updateStrokeLatency(StrokeFeed feed) {
+		return feed.update();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public Match updatePointThroughput(PointFeed feed) {
+		return feed.update();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Match updatePointLatency(PointFeed feed) {
+		return feed.update();
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.processor.probability.WinProbabilityCalculator;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+/**
+ * <p>
+ * Measures <tt>WinProbabilityCalculator</tt>. <tt>lookup</tt> reads the win
+ * probability at each score of a recorded match from a cached calculator;
+ * <tt>build</tt> requests a calculator for new serve probabilities on every
+ * operation, so each one misses the cache and fills the tables.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WinProbabilityBenchmark {
+
+	@Param
+	public MatchScenario scenario;
+
+	private MatchRules matchRules;
+	private long[] states;
+	private int cursor;
+	private int builds;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		MatchScript script = MatchScript.record(this.scenario);
+		Match match = script.newMatch();
+		this.matchRules = match.getMatchRules();
+		Point[] points = script.points(match);
+		this.states = new long[points.length];
+		long state = ScoreState.fromMatch(match);
+		for (int i = 0; i < points.length; i++) {
+			this.states[i] = state;
+			state = ScoreState.pointWonBy(state, match.getSlot(points[i].getWinningPlayer()), this.matchRules);
+		}
+	}
+
+	@Benchmark
+	public double lookup() {
+		if (this.cursor == this.states.length) {
+			this.cursor = 0;
+		}
+		return WinProbabilityCalculator.of(this.matchRules, 0.64, 0.62).getMatchWinProbability(this.states[this.cursor++], 0);
+	}
+
+	@Benchmark
+	public double build() {
+		double serveWin = 0.5 + (++this.builds % 100000) * 1e-6;
+		return WinProbabilityCalculator.of(this.matchRules, serveWin, 0.62).getHoldProbability(0);
+	}
+}
@@ -82,6 +82,25 @@ public class Game extends Winnable {
 		}
 	}
 
+	/**
+	 * <p>
+	 * Collapses this completed game to its winner and score: its points are
+	 * replaced with a single <tt>SimplePoint</tt> won by the winner of the
+	 * game, so that <tt>getWinningPlayer()</tt> and <tt>getScore()</tt> are
+	 * unchanged.
+	 * </p>
+	 * 
+	 * @see com.tonelope.tennis.scoreprocessor.processor.RetentionPolicy
+	 */
+	public void collapse() {
+		if (!this.isCompleted()) {
+			throw new FrameworkException("Only a completed game can be collapsed: " + this);
+		}
+		Player winningPlayer = this.getWinningPlayer();
+		this.points.clear();
+		this.points.add(new SimplePoint(this.server, this.receiver, winningPlayer));
+	}
+
 	public void addPoint(Point point, MatchRules matchRules) {
 		this.validatePoint(point, matchRules);
 
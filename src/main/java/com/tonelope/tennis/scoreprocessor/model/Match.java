@@ -19,6 +19,7 @@ import java.util.List;
 import com.tonelope.tennis.scoreprocessor.utils.ListUtils;
 
 import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
 
 /**
@@ -52,9 +53,15 @@ import lombok.ToString;
  * @author Tony Lopez
  *
  */
-@Getter @ToString
+@Getter @ToString(exclude = "strokeCache")
 public class Match extends Winnable {
 
+	/**
+	 * The number of sides of a match, and so of player slots.
+	 */
+	public static final int SLOTS = 2;
+
+	@Setter
 	private String id;
 	private final List<Player> players;
 	private final Player startingServer;
@@ -62,9 +69,11 @@ public class Match extends Winnable {
 	private final MatchRules matchRules;
 	private final MatchScore score = new MatchScore();
 	private final List<Set> sets = new ArrayList<>();
+	private final StrokeCache strokeCache;
 
 	public Match(List<Player> players, MatchRules matchRules, boolean initialize) {
 		this.players = players;
+		this.strokeCache = new StrokeCache(players);
 		this.startingServer = players.get(0);
 		this.startingReceiver = players.get(1);
 		this.matchRules = matchRules;
@@ -140,6 +149,85 @@ public class Match extends Winnable {
 		return this.matchRules.getNumberOfSets() == this.sets.size();
 	}
 
+	/**
+	 * <p>
+	 * Returns the slot of <tt>player</tt> within this match. Players are
+	 * listed alternating sides, so that the slot is the index of the player
+	 * within <tt>players</tt> modulo <tt>SLOTS</tt>: the starting server is in
+	 * slot <tt>0</tt> and the starting receiver in slot <tt>1</tt>. A doubles
+	 * team listed as players <tt>0</tt> and <tt>2</tt> would thus share slot
+	 * <tt>0</tt>. Players are compared by identity.
+	 * </p>
+	 * 
+	 * @param player
+	 *            the player
+	 * @return the slot of <tt>player</tt>, or else a
+	 *         <tt>FrameworkException</tt> is thrown if it is not playing in
+	 *         this match.
+	 */
+	public int getSlot(Player player) {
+		return this.getPlayerIndex(player) % SLOTS;
+	}
+
+	/**
+	 * @param player
+	 *            the player, compared by identity
+	 * @return the index of <tt>player</tt> within <tt>players</tt>, or else a
+	 *         <tt>FrameworkException</tt> is thrown if it is not playing in
+	 *         this match.
+	 */
+	public int getPlayerIndex(Player player) {
+		int index = Player.indexOf(this.players, player);
+		if (index < 0) {
+			throw new FrameworkException("Player " + player + " is not playing in this match.");
+		}
+		return index;
+	}
+
+	/**
+	 * @param slot
+	 *            a player slot
+	 * @return the first player listed in <tt>slot</tt>.
+	 */
+	public Player getPlayer(int slot) {
+		return this.players.get(slot);
+	}
+
+	/**
+	 * @param player
+	 *            a player of this match
+	 * @return the first player listed in the slot opposing <tt>player</tt>.
+	 */
+	public Player getOpposingPlayer(Player player) {
+		return this.players.get(getOpposingSlot(this.getSlot(player)));
+	}
+
+	/**
+	 * @param slot
+	 *            a player slot
+	 * @return the slot of the opposing side.
+	 */
+	public static int getOpposingSlot(int slot) {
+		return slot ^ 1;
+	}
+
+	/**
+	 * <p>
+	 * Records a completed set won by <tt>winningPlayer</tt> within this
+	 * match's running score.
+	 * </p>
+	 * 
+	 * @param winningPlayer
+	 *            the player that won the completed set.
+	 */
+	public void addSetWon(Player winningPlayer) {
+		if (this.startingServer.equals(winningPlayer)) {
+			this.score.setStartingServerSetsWon(this.score.getStartingServerSetsWon() + 1);
+		} else {
+			this.score.setStartingReceiverSetsWon(this.score.getStartingReceiverSetsWon() + 1);
+		}
+	}
+
 	@Override
 	public void initialize() {
 		this.sets.add(new Set(this.matchRules, this.startingServer, this.startingReceiver, true));
@@ -148,7 +236,8 @@ public class Match extends Winnable {
 	/**
 	 * <p>
 	 * Adds the provided <tt>stroke</tt> object to the current point of this
-	 * match.
+	 * match. The stroke is replaced by its shared instance from this match's
+	 * <tt>StrokeCache</tt>, so that the provided object is not retained.
 	 * </p>
 	 * 
 	 * @param stroke
@@ -156,7 +245,7 @@ public class Match extends Winnable {
 	 * @see com.tonelope.tennis.scoreprocessor.model.Match#getCurrentPoint()
 	 */
 	public void addStroke(Stroke stroke) {
-		this.getCurrentPoint().addStroke(stroke, this.matchRules);
+		this.getCurrentPoint().addStroke(this.strokeCache.intern(stroke), this.matchRules);
 	}
 
 	/**
@@ -76,5 +76,13 @@ public enum MatchEventType {
 	 * required to win the match being played.
 	 * </p>
 	 */
-	ON_MATCH_COMPLETION;
+	ON_MATCH_COMPLETION,
+
+	/**
+	 * <p>
+	 * Describes the event when an update has been undone. The events of the
+	 * undone update are not retracted, so this event follows them.
+	 * </p>
+	 */
+	ON_UNDO;
 }
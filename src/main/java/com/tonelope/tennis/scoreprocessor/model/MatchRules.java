@@ -29,4 +29,17 @@ public class MatchRules {
 	private int numberOfGamesPerSet = 6;
 	private boolean finalSetTiebreakDisabled = false;
 	private boolean noAdScoring = false;
+
+	/**
+	 * <p>
+	 * Returns the number of sets a player must win to win the match (e.g. 2
+	 * for a best-of-3 match), that is half of <tt>numberOfSets</tt> rounded
+	 * up. A match of an even number of sets is won with half of them.
+	 * </p>
+	 * 
+	 * @return the number of sets needed to win the match.
+	 */
+	public int getNumberOfSetsToWin() {
+		return (this.numberOfSets + 1) / 2;
+	}
 }
@@ -31,6 +31,15 @@ public class MatchScore extends Score {
 
 	public static final String SEPARATOR = ", ";
 	private List<SetScore> setScores = new ArrayList<>();
+	private int startingServerSetsWon = 0;
+	private int startingReceiverSetsWon = 0;
+	
+	/**
+	 * @return the number of sets won by the player that has won the most sets.
+	 */
+	public int getMostSetsWon() {
+		return Math.max(this.startingServerSetsWon, this.startingReceiverSetsWon);
+	}
 	
 	@Override
 	public String toString() {
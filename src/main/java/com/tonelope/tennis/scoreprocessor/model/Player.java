@@ -14,7 +14,6 @@
 package com.tonelope.tennis.scoreprocessor.model;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -35,7 +34,41 @@ public class Player {
 	private String firstName;
 	private String lastName;
 	
+	/**
+	 * <p>
+	 * Returns the first player of <tt>players</tt> other than this player.
+	 * Within a match, prefer <tt>Match.getOpposingPlayer</tt>, which looks the
+	 * opponent up by slot.
+	 * </p>
+	 * 
+	 * @param players
+	 *            the players of the match
+	 * @return the opposing player.
+	 * @see com.tonelope.tennis.scoreprocessor.model.Match#getOpposingPlayer(Player)
+	 */
 	public Player getOpposingPlayer(List<Player> players) {
-		return players.stream().filter(p -> !p.equals(this)).collect(Collectors.toList()).get(0);
+		for (Player player : players) {
+			if (!player.equals(this)) {
+				return player;
+			}
+		}
+		throw new FrameworkException("Player " + this + " has no opponent in " + players);
+	}
+
+	/**
+	 * @param players
+	 *            the list to search
+	 * @param player
+	 *            the player to find, compared by identity
+	 * @return the index of <tt>player</tt> within <tt>players</tt>, or
+	 *         <tt>-1</tt> if it is not contained.
+	 */
+	public static int indexOf(List<Player> players, Player player) {
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i) == player) {
+				return i;
+			}
+		}
+		return -1;
 	}
 }
@@ -77,6 +77,21 @@ public class Point extends Winnable {
 		}
 	}
 	
+	/**
+	 * <p>
+	 * Removes every stroke following the first <tt>count</tt> strokes of this
+	 * point, e.g. to undo them. The status of the point is left unchanged.
+	 * </p>
+	 * 
+	 * @param count
+	 *            the number of strokes to keep
+	 */
+	public void truncateStrokes(int count) {
+		while (this.strokes.size() > count) {
+			this.strokes.remove(this.strokes.size() - 1);
+		}
+	}
+	
 	private boolean validateStroke(Stroke stroke, MatchRules matchRules) {
 
 		if (this.strokes.isEmpty()) {
@@ -0,0 +1,60 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.model;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * A completed <tt>Point</tt> collapsed to its winner, its number of strokes
+ * and the stroke that ended it. The strokes themselves are not retained, so
+ * <tt>getStrokes()</tt> is empty while <tt>getCurrentStroke()</tt> still
+ * returns the final stroke.
+ * </p>
+ * 
+ * @see com.tonelope.tennis.scoreprocessor.processor.RetentionPolicy
+ * @author Tony Lopez
+ *
+ */
+@Getter
+public class PointSummary extends SimplePoint {
+
+	private final int strokeCount;
+	private final Stroke finalStroke;
+
+	public PointSummary(Player server, Player receiver, Player winningPlayer, int strokeCount, Stroke finalStroke) {
+		super(server, receiver, winningPlayer);
+		this.strokeCount = strokeCount;
+		this.finalStroke = finalStroke;
+	}
+
+	/**
+	 * @param point
+	 *            a completed point
+	 * @return the summary of <tt>point</tt>, or else a
+	 *         <tt>FrameworkException</tt> is thrown if it is not completed.
+	 */
+	public static PointSummary of(Point point) {
+		if (!point.isCompleted()) {
+			throw new FrameworkException("Only a completed point can be summarized: " + point);
+		}
+		return new PointSummary(point.getServer(), point.getReceiver(), point.getWinningPlayer(),
+				point.getStrokes().size(), point.getCurrentStroke());
+	}
+
+	@Override
+	public Stroke getCurrentStroke() {
+		return this.finalStroke;
+	}
+}
@@ -62,6 +62,37 @@ public class Set extends Winnable {
 		this.games.add(new Game(startingServer, startingReceiver, true));
 	}
 
+	/**
+	 * <p>
+	 * Records a completed game won by <tt>winningPlayer</tt> within this set's
+	 * running score.
+	 * </p>
+	 * 
+	 * @param winningPlayer
+	 *            the player that won the completed game.
+	 */
+	public void addGameWon(Player winningPlayer) {
+		if (this.startingServer.equals(winningPlayer)) {
+			this.score.setStartingServerScore(this.score.getStartingServerScore() + 1);
+		} else {
+			this.score.setStartingReceiverScore(this.score.getStartingReceiverScore() + 1);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Returns the player that has won the most games within this set, based
+	 * on the running score. If the games are level, the starting receiver is
+	 * returned.
+	 * </p>
+	 * 
+	 * @return the player leading this set.
+	 */
+	public Player getLeadingPlayer() {
+		return this.score.getStartingServerScore() > this.score.getStartingReceiverScore() ? 
+				this.startingServer : this.startingReceiver;
+	}
+
 	public boolean isNextGameTiebreakEligible() {
 		return this.getGames().size() == (2 * this.matchRules.getNumberOfGamesPerSet());
 	}
@@ -0,0 +1,112 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.model;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Holds the canonical <tt>Stroke</tt> instances of a match. A stroke is
+ * identified by its player, stroke type and out and winner flags, so a singles
+ * match has a small, fixed number of distinct strokes. The cache creates each
+ * of them on first use and returns the same instance afterwards, so that
+ * points share strokes instead of each holding its own copies.
+ * </p>
+ * 
+ * <p>
+ * Shared strokes must be treated as immutable; their status is always
+ * <tt>COMPLETE</tt> and must not be changed. Like the <tt>Match</tt> owning
+ * it, a cache is not thread safe.
+ * </p>
+ * 
+ * @see com.tonelope.tennis.scoreprocessor.model.Match#getStrokeCache()
+ * @author Tony Lopez
+ *
+ */
+public final class StrokeCache {
+
+	private static final StrokeType[] STROKE_TYPES = StrokeType.values();
+
+	private final List<Player> players;
+	private final Stroke[] strokes;
+
+	/**
+	 * @param players
+	 *            the players of the match, indexed by slot
+	 */
+	public StrokeCache(List<Player> players) {
+		this.players = players;
+		this.strokes = new Stroke[players.size() * STROKE_TYPES.length * 4];
+	}
+
+	/**
+	 * @param slot
+	 *            the index of the player within the match's players
+	 * @param strokeType
+	 *            the stroke type
+	 * @param out
+	 *            true if the stroke landed out
+	 * @param winner
+	 *            true if the stroke is a winner
+	 * @return the shared stroke.
+	 */
+	public Stroke get(int slot, StrokeType strokeType, boolean out, boolean winner) {
+		int index = ((slot * STROKE_TYPES.length + strokeType.ordinal()) << 2) | (out ? 2 : 0) | (winner ? 1 : 0);
+		Stroke stroke = this.strokes[index];
+		if (null == stroke) {
+			stroke = new Stroke(this.players.get(slot), strokeType, out, winner);
+			this.strokes[index] = stroke;
+		}
+		return stroke;
+	}
+
+	/**
+	 * @param player
+	 *            the player hitting the stroke
+	 * @param strokeType
+	 *            the stroke type
+	 * @param out
+	 *            true if the stroke landed out
+	 * @param winner
+	 *            true if the stroke is a winner
+	 * @return the shared stroke, or else a <tt>FrameworkException</tt> is
+	 *         thrown if <tt>player</tt> is not playing in the match.
+	 */
+	public Stroke get(Player player, StrokeType strokeType, boolean out, boolean winner) {
+		int slot = Player.indexOf(this.players, player);
+		if (slot < 0) {
+			throw new FrameworkException("Player " + player + " is not playing in this match.");
+		}
+		return this.get(slot, strokeType, out, winner);
+	}
+
+	/**
+	 * <p>
+	 * Returns the shared instance equivalent to <tt>stroke</tt>. Strokes of
+	 * players that are not playing in the match, strokes without a stroke type
+	 * and strokes whose status is not <tt>COMPLETE</tt> are returned as is.
+	 * </p>
+	 * 
+	 * @param stroke
+	 *            the stroke to canonicalize
+	 * @return the shared stroke, or <tt>stroke</tt> itself.
+	 */
+	public Stroke intern(Stroke stroke) {
+		int slot = Player.indexOf(this.players, stroke.getPlayer());
+		if (slot < 0 || null == stroke.getStrokeType() || !stroke.isCompleted()) {
+			return stroke;
+		}
+		return this.get(slot, stroke.getStrokeType(), stroke.isOut(), stroke.isWinner());
+	}
+}
@@ -15,6 +15,7 @@ package com.tonelope.tennis.scoreprocessor.model;
 
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * 
@@ -24,10 +25,10 @@ import lombok.Getter;
 @Getter
 public class TiebreakGame extends Game {
 
-	@Getter(AccessLevel.NONE)
+	@Getter(AccessLevel.NONE) @Setter
 	private Player nextServer;
 	
-	@Getter(AccessLevel.NONE)
+	@Getter(AccessLevel.NONE) @Setter
 	private Player nextReceiver;
 	
 	@Getter(AccessLevel.NONE)
@@ -60,6 +61,26 @@ public class TiebreakGame extends Game {
 		return this.nextReceiver;
 	}
 	
+	/**
+	 * <p>
+	 * Returns the server of the most recently created point without advancing
+	 * the rotation, unlike <tt>getNextServer</tt>. Used to snapshot the
+	 * rotation, which is restored with <tt>setNextServer</tt>.
+	 * </p>
+	 * 
+	 * @return the server of the rotation.
+	 */
+	public Player getRotationServer() {
+		return this.nextServer;
+	}
+	
+	/**
+	 * @return the receiver of the rotation, see <tt>getRotationServer</tt>.
+	 */
+	public Player getRotationReceiver() {
+		return this.nextReceiver;
+	}
+	
 	private Player getNextAfterNumberOfPoints(Player current, Player a, Player b, int idx) {
 		if ((this.getPoints().size() + 1) % idx == 0) {
 			if (current == a) {
@@ -14,10 +14,13 @@
 package com.tonelope.tennis.scoreprocessor.processor;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,9 +28,14 @@ import org.slf4j.LoggerFactory;
 import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
 import com.tonelope.tennis.scoreprocessor.model.Match;
 import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.UpdateUndoneEvent;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandlerResolver;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
@@ -42,31 +50,220 @@ public abstract class AbstractMatchStrategy implements MatchStrategy {
 	
 	protected final ScoreCompletionHandlerResolver scoreCompletionHandlerResolver;
 	protected final Map<MatchEventType, List<Consumer<Match>>> events = new HashMap<>();
+	protected final Map<MatchEventType, List<Consumer<MatchEvent>>> eventListeners = new EnumMap<>(MatchEventType.class);
+	protected final MatchEventDispatcher eventDispatcher;
+	@Getter(AccessLevel.NONE)
+	private List<Runnable> deferredEvents;
+	@Getter(AccessLevel.NONE)
+	private EventDispatchException eventFailure;
 	
-	AbstractMatchStrategy(ScoreCompletionHandlerResolver scoreCompletionHandlerResolver) {
+	protected AbstractMatchStrategy(ScoreCompletionHandlerResolver scoreCompletionHandlerResolver) {
+		this(scoreCompletionHandlerResolver, null);
+	}
+	
+	protected AbstractMatchStrategy(ScoreCompletionHandlerResolver scoreCompletionHandlerResolver, MatchEventDispatcher eventDispatcher) {
 		if (null != scoreCompletionHandlerResolver) {
 			this.scoreCompletionHandlerResolver = scoreCompletionHandlerResolver;
 		} else {
 			this.scoreCompletionHandlerResolver = new DefaultScoreCompletionStrategyHandler();
 		}
+		if (null != eventDispatcher) {
+			this.eventDispatcher = eventDispatcher;
+		} else {
+			this.eventDispatcher = new SynchronousMatchEventDispatcher();
+		}
 	}
 	
+	/**
+	 * <p>
+	 * Registers <tt>event</tt> to be executed with the live <tt>match</tt>
+	 * following the completion of <tt>eventType</tt>. Rejected if the
+	 * dispatcher is asynchronous, as the match would be read while the
+	 * scoring thread updates it.
+	 * </p>
+	 */
+	@Override
 	public void registerEvent(MatchEventType eventType, Consumer<Match> event) {
+		if (this.eventDispatcher.isAsynchronous()) {
+			throw new FrameworkException("Events receiving the match can not be executed asynchronously, use addEventListener instead.");
+		}
 		this.events.putIfAbsent(eventType, new ArrayList<>());
 		this.events.get(eventType).add(event);
 	}
 	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <E extends MatchEvent> void addEventListener(Class<E> eventClass, Consumer<? super E> listener) {
+		// Only events of eventClass are published for its type.
+		this.eventListeners.computeIfAbsent(MatchEvent.getType(eventClass), k -> new ArrayList<>())
+				.add((Consumer<MatchEvent>) listener);
+	}
+	
+	protected void publishEvent(MatchEvent event) {
+		List<Consumer<MatchEvent>> listeners = this.eventListeners.get(event.getType());
+		if (null != listeners && !listeners.isEmpty()) {
+			LOG.debug("Publishing {}.", event);
+			if (null != this.deferredEvents) {
+				this.deferredEvents.add(() -> this.eventDispatcher.dispatch(event.getType(), event, listeners));
+			} else {
+				this.dispatch(event.getType(), event, listeners);
+			}
+		}
+	}
+	
+	@Override
+	public void publishUndo(Match match, UpdateUndoneEvent event) {
+		this.executeMatchEvents(MatchEventType.ON_UNDO, match);
+		this.publishEvent(event);
+		this.throwEventFailure();
+	}
+	
 	protected void executeMatchEvents(MatchEventType type, Match match) {
 		List<Consumer<Match>> eventMethods = this.events.get(type);
 		if (null != eventMethods && !eventMethods.isEmpty()) {
 			LOG.debug("Executing events for {}.", type);
-			for(Consumer<Match> eventMethod : eventMethods) {
-				try {
-					eventMethod.accept(match);
-				} catch (Exception e) {
-					throw new FrameworkException("Failed to execute an event", e);
+			if (null != this.deferredEvents) {
+				this.deferredEvents.add(() -> this.eventDispatcher.dispatch(type, match, eventMethods));
+			} else {
+				this.dispatch(type, match, eventMethods);
+			}
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Dispatches an event, holding back its failure until
+	 * <tt>throwEventFailure</tt> so that a failing consumer never leaves an
+	 * update half applied.
+	 * </p>
+	 */
+	private <T> void dispatch(MatchEventType type, T event, List<Consumer<T>> consumers) {
+		try {
+			this.eventDispatcher.dispatch(type, event, consumers);
+		} catch (RuntimeException e) {
+			if (null != this.eventFailure) {
+				this.eventFailure.addSuppressed(e);
+			} else {
+				this.eventFailure = e instanceof EventDispatchException ? (EventDispatchException) e
+						: new EventDispatchException("Failed to execute an event", e);
+			}
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Throws the first failure of the events dispatched since the last call,
+	 * with the later ones suppressed. Called by subclasses once an update has
+	 * been applied in full.
+	 * </p>
+	 */
+	protected void throwEventFailure() {
+		EventDispatchException failure = this.eventFailure;
+		if (null != failure) {
+			this.eventFailure = null;
+			throw failure;
+		}
+	}
+	
+	@Override
+	public BatchResult updateStrokes(Match match, Iterable<? extends Stroke> strokes, boolean deferEvents) {
+		return this.<Stroke>updateAll(match, strokes, deferEvents, this::update);
+	}
+	
+	@Override
+	public BatchResult updatePoints(Match match, Iterable<? extends Point> points, boolean deferEvents) {
+		return this.<Point>updateAll(match, points, deferEvents, this::update);
+	}
+	
+	/**
+	 * <p>
+	 * Applies every item of <tt>items</tt> to <tt>match</tt> with
+	 * <tt>update</tt> until the match is completed. An item that is rejected
+	 * stops the batch with a <tt>BatchUpdateException</tt> carrying the number
+	 * of items applied before it.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @param items
+	 *            the strokes or points to apply
+	 * @param deferEvents
+	 *            true to hold back events until the end of the batch
+	 * @param update
+	 *            applies a single item to the match
+	 * @return the outcome of the batch.
+	 * @see #updateAll(boolean, Supplier)
+	 */
+	protected <T> BatchResult updateAll(Match match, Iterable<? extends T> items, boolean deferEvents, BiConsumer<Match, T> update) {
+		return this.updateAll(deferEvents, () -> BatchResult.applyAll(match, items, update));
+	}
+	
+	/**
+	 * <p>
+	 * Runs <tt>batch</tt>, holding back its events when <tt>deferEvents</tt>
+	 * is true.
+	 * </p>
+	 * 
+	 * <p>
+	 * Deferred events are queued and executed in order once the batch ends,
+	 * including when an update fails part-way. Deferred
+	 * <tt>Consumer&lt;Match&gt;</tt> events therefore observe the match as it
+	 * is at the end of the batch. Every deferred event is executed even if
+	 * one fails: the failure of a rejected item is rethrown with those of the
+	 * events suppressed, and an event failing after a successful batch is
+	 * rethrown in a <tt>BatchUpdateException</tt> carrying the result of the
+	 * batch.
+	 * </p>
+	 * 
+	 * @param deferEvents
+	 *            true to hold back events until the end of the batch
+	 * @param batch
+	 *            applies the items of the batch
+	 * @return the outcome of the batch.
+	 */
+	protected BatchResult updateAll(boolean deferEvents, Supplier<BatchResult> batch) {
+		if (!deferEvents || null != this.deferredEvents) {
+			return batch.get();
+		}
+		
+		this.deferredEvents = new ArrayList<>();
+		BatchResult result;
+		try {
+			result = batch.get();
+		} catch (RuntimeException e) {
+			this.flushDeferredEvents(e);
+			throw e;
+		}
+		RuntimeException failure = this.flushDeferredEvents(null);
+		if (null != failure) {
+			throw new BatchUpdateException("Failed to execute deferred events", failure, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * <p>
+	 * Executes every deferred event. Failures are suppressed by
+	 * <tt>primary</tt>, or else by the first of them.
+	 * </p>
+	 * 
+	 * @return the first failure if <tt>primary</tt> is <tt>null</tt>.
+	 */
+	private RuntimeException flushDeferredEvents(RuntimeException primary) {
+		List<Runnable> events = this.deferredEvents;
+		this.deferredEvents = null;
+		RuntimeException failure = primary;
+		for (Runnable event : events) {
+			try {
+				event.run();
+			} catch (RuntimeException e) {
+				if (null == failure) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
 				}
 			}
 		}
+		return primary == failure ? null : failure;
 	}
 }
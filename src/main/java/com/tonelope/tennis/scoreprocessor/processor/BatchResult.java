@@ -0,0 +1,99 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * The outcome of a batch update made with <tt>updateStrokes</tt> or
+ * <tt>updatePoints</tt>.
+ * </p>
+ * 
+ * <p>
+ * A batch stops at the stroke or point completing the match. The items
+ * following it are not applied and <tt>isTruncated</tt> returns true, so that
+ * callers can tell a batch that ended with the match from one that overran
+ * it.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+@ToString(exclude = "match")
+public class BatchResult {
+
+	private final Match match;
+	private final int applied;
+	private final boolean truncated;
+
+	public BatchResult(Match match, int applied, boolean truncated) {
+		this.match = match;
+		this.applied = applied;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * @return true if the match was completed by the batch or before it.
+	 */
+	public boolean isMatchCompleted() {
+		return this.match.isCompleted();
+	}
+
+	/**
+	 * <p>
+	 * Applies every item of <tt>items</tt> to <tt>match</tt> with
+	 * <tt>update</tt> until the match is completed. An item that is rejected,
+	 * or applied with an event failing, stops the batch with a
+	 * <tt>BatchUpdateException</tt> carrying the number of items applied.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @param items
+	 *            the strokes or points to apply
+	 * @param update
+	 *            applies a single item to the match
+	 * @return the outcome of the batch.
+	 */
+	static <T> BatchResult applyAll(Match match, Iterable<? extends T> items, BiConsumer<Match, T> update) {
+		if (!match.isInProgress() && !match.isNotStarted()) {
+			throw new FrameworkException("Updating score when match status is " + match.getStatus() + " is not supported.");
+		}
+
+		int applied = 0;
+		Iterator<? extends T> iterator = items.iterator();
+		while (iterator.hasNext() && !match.isCompleted()) {
+			T item = iterator.next();
+			try {
+				update.accept(match, item);
+			} catch (EventDispatchException e) {
+				throw new BatchUpdateException("Failed to execute an event", e, new BatchResult(match, applied + 1, false));
+			} catch (RuntimeException e) {
+				throw new BatchUpdateException("Batch update rejected after " + applied + " applied: " + e.getMessage(), e,
+						new BatchResult(match, applied, false));
+			}
+			applied++;
+		}
+		return new BatchResult(match, applied, iterator.hasNext());
+	}
+}
@@ -0,0 +1,43 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * Thrown when a batch update made with <tt>updateStrokes</tt> or
+ * <tt>updatePoints</tt> fails part-way, either because an item was rejected
+ * or because a deferred event failed. <tt>getResult</tt> tells exactly how
+ * many items were applied to the match before the failure, which remain
+ * applied.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+public class BatchUpdateException extends FrameworkException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient BatchResult result;
+
+	public BatchUpdateException(String msg, Throwable t, BatchResult result) {
+		super(msg, t);
+		this.result = result;
+	}
+}
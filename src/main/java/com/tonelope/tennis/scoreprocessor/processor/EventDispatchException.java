@@ -0,0 +1,36 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+
+/**
+ * <p>
+ * Thrown when an event consumer fails. The update that executed the event
+ * was still applied in full: strategies keep scoring once a consumer fails
+ * and throw the failure at the end of the update, so that the match, its
+ * snapshot and its update listeners stay consistent with each other.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class EventDispatchException extends FrameworkException {
+
+	private static final long serialVersionUID = 1L;
+
+	public EventDispatchException(String msg, Throwable t) {
+		super(msg, t);
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointSummary;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+
+/**
+ * <p>
+ * Applies a <tt>RetentionPolicy</tt> to a match after each update. The
+ * position of the first set, game and point that may still change is kept
+ * between updates, so that every completed object is visited once.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+class MatchCompactor implements MatchUpdateListener {
+
+	private final RetentionPolicy retentionPolicy;
+	private int setIndex;
+	private int gameIndex;
+	private int pointIndex;
+
+	MatchCompactor(RetentionPolicy retentionPolicy) {
+		this.retentionPolicy = retentionPolicy;
+	}
+
+	@Override
+	public void onStroke(Match match, Stroke stroke) {
+		this.compact(match);
+	}
+
+	@Override
+	public void onPoint(Match match, Point point) {
+		this.compact(match);
+	}
+
+	void compact(Match match) {
+		List<Set> sets = match.getSets();
+		for (; this.setIndex < sets.size(); this.setIndex++, this.gameIndex = 0) {
+			Set set = sets.get(this.setIndex);
+			List<Game> games = set.getGames();
+			for (; this.gameIndex < games.size(); this.gameIndex++, this.pointIndex = 0) {
+				Game game = games.get(this.gameIndex);
+				if (game.isCompleted() && RetentionPolicy.COLLAPSE_GAMES.equals(this.retentionPolicy)) {
+					game.collapse();
+					continue;
+				}
+				this.compactPoints(game.getPoints());
+				if (!game.isCompleted()) {
+					return;
+				}
+			}
+			if (!set.isCompleted()) {
+				return;
+			}
+		}
+	}
+
+	private void compactPoints(List<Point> points) {
+		for (; this.pointIndex < points.size(); this.pointIndex++) {
+			Point point = points.get(this.pointIndex);
+			if (!point.isCompleted()) {
+				return;
+			}
+			if (!(point instanceof SimplePoint)) {
+				points.set(this.pointIndex, PointSummary.of(point));
+			}
+		}
+	}
+}
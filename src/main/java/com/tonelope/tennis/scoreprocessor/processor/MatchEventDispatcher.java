@@ -0,0 +1,64 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+
+/**
+ * <p>
+ * Executes the consumers registered for a match event on behalf of a
+ * <tt>MatchStrategy</tt>.
+ * </p>
+ *
+ * @see com.tonelope.tennis.scoreprocessor.processor.SynchronousMatchEventDispatcher
+ * @see com.tonelope.tennis.scoreprocessor.processor.concurrent.AsyncMatchEventDispatcher
+ * @author Tony Lopez
+ *
+ */
+public interface MatchEventDispatcher {
+
+	/**
+	 * <p>
+	 * Executes each of <tt>consumers</tt> with <tt>event</tt>.
+	 * </p>
+	 *
+	 * @param type
+	 *            the type of the event
+	 * @param event
+	 *            the event to provide to each consumer
+	 * @param consumers
+	 *            the consumers registered for <tt>type</tt>, never empty
+	 * @param <T>
+	 *            the event type
+	 */
+	<T> void dispatch(MatchEventType type, T event, List<Consumer<T>> consumers);
+
+	/**
+	 * <p>
+	 * Whether consumers may be executed after the update dispatching them has
+	 * returned. An asynchronous dispatcher only accepts immutable events, so
+	 * events receiving the live <tt>Match</tt> can not be registered with a
+	 * strategy using it.
+	 * </p>
+	 *
+	 * @return true if consumers are executed asynchronously, false by
+	 *         default.
+	 */
+	default boolean isAsynchronous() {
+		return false;
+	}
+}
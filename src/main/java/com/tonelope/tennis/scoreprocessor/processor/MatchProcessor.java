@@ -13,14 +13,26 @@
  */
 package com.tonelope.tennis.scoreprocessor.processor;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
 import com.tonelope.tennis.scoreprocessor.model.Match;
 import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
 import com.tonelope.tennis.scoreprocessor.model.Point;
 import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.UpdateUndoneEvent;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
@@ -44,6 +56,23 @@ import lombok.Getter;
  * <tt>SinglesMatchStrategy</tt> or <tt>DoublesMatchStrategy</tt> directly.)
  * </p>
  * 
+ * <p>
+ * Once a history limit is set with <tt>setHistoryLimit</tt>, the most recent
+ * updates can be reverted with <tt>undo</tt> and re-applied with
+ * <tt>redo</tt>, e.g. to correct a mis-keyed stroke.
+ * </p>
+ * 
+ * <p>
+ * Updates must be made from a single thread, or serialized by the caller.
+ * Other threads read the score with <tt>getSnapshot</tt>, which never
+ * blocks and never observes an update half applied.
+ * </p>
+ * 
+ * <p>
+ * The latency of updates is recorded once metrics are set with
+ * <tt>setMetrics</tt>.
+ * </p>
+ * 
  * @author Tony Lopez
  *
  */
@@ -52,14 +81,72 @@ public class MatchProcessor {
 
 	private final Match match;
 	private final MatchStrategy strategy;
+	@Getter(AccessLevel.NONE)
+	private final List<MatchUpdateListener> updateListeners = new ArrayList<>();
+	private RetentionPolicy retentionPolicy = RetentionPolicy.FULL;
+	@Getter(AccessLevel.NONE)
+	private MatchCompactor compactor;
+	private int historyLimit;
+	@Getter(AccessLevel.NONE)
+	private final Deque<Update> undoHistory = new ArrayDeque<>();
+	@Getter(AccessLevel.NONE)
+	private final Deque<Update> redoHistory = new ArrayDeque<>();
+	@Getter(AccessLevel.NONE)
+	private volatile MatchSnapshot snapshot;
+	private MatchMetrics metrics;
 
 	public MatchProcessor(Match match) {
+		this(match, null);
+	}
+
+	/**
+	 * <p>
+	 * Creates a processor for <tt>match</tt> that applies the provided
+	 * <tt>strategy</tt>. If <tt>strategy</tt> is <tt>null</tt>, the strategy is
+	 * determined from the <tt>match</tt> object.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object to process
+	 * @param strategy
+	 *            the strategy to apply, or <tt>null</tt> to determine it from
+	 *            <tt>match</tt>
+	 */
+	public MatchProcessor(Match match, MatchStrategy strategy) {
 		if (null == match) {
 			throw new FrameworkException("match can not be null.");
 		}
 		// TODO validate match
 		this.match = match;
-		this.strategy = this.determineStrategy(match);
+		this.strategy = null != strategy ? strategy : this.determineStrategy(match);
+		this.snapshot = MatchSnapshot.of(match, this.strategy.getState(match));
+	}
+
+	/**
+	 * <p>
+	 * Returns the snapshot of the score published after the last update. It
+	 * may be called from any thread; snapshots are immutable and replaced as a
+	 * whole, so the score read from one is always consistent.
+	 * </p>
+	 * 
+	 * @return the current snapshot of <tt>match</tt>.
+	 */
+	public MatchSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * <p>
+	 * Publishes a new snapshot if the score changed. Only the updating thread
+	 * writes the snapshot, so no lock or compare-and-set is needed.
+	 * </p>
+	 */
+	private void publish() {
+		MatchSnapshot current = this.snapshot;
+		MatchSnapshot next = current.next(this.match, this.strategy.getState(this.match));
+		if (next != current) {
+			this.snapshot = next;
+		}
 	}
 
 	/**
@@ -101,7 +188,9 @@ public class MatchProcessor {
 	 * @return the match object
 	 */
 	public Match update(Stroke stroke) {
-		return this.strategy.update(this.match, stroke);
+		Match result = this.apply(stroke);
+		this.redoHistory.clear();
+		return result;
 	}
 
 	/**
@@ -114,7 +203,286 @@ public class MatchProcessor {
 	 * @return the match object
 	 */
 	public Match update(Point point) {
-		return this.strategy.update(this.match, point);
+		Match result = this.apply(point);
+		this.redoHistory.clear();
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Applies <tt>stroke</tt>, then records it in the undo history and
+	 * notifies the update listeners. A failing event does not prevent the
+	 * stroke from being recorded, as the strategy applied it in full; the
+	 * <tt>EventDispatchException</tt> is rethrown afterwards.
+	 * </p>
+	 */
+	private Match apply(Stroke stroke) {
+		UpdateCheckpoint checkpoint = 0 != this.historyLimit ? this.strategy.checkpoint(this.match) : null;
+		EventDispatchException failure = this.applyUpdate(stroke);
+		this.record(stroke, checkpoint);
+		this.publish();
+		for (MatchUpdateListener listener : this.updateListeners) {
+			listener.onStroke(this.match, stroke);
+		}
+		if (null != failure) {
+			throw failure;
+		}
+		return this.match;
+	}
+
+	/**
+	 * <p>
+	 * Applies <tt>point</tt> like <tt>apply(Stroke)</tt>.
+	 * </p>
+	 */
+	private Match apply(Point point) {
+		UpdateCheckpoint checkpoint = 0 != this.historyLimit ? this.strategy.checkpoint(this.match) : null;
+		EventDispatchException failure = this.applyUpdate(point);
+		this.record(point, checkpoint);
+		this.publish();
+		for (MatchUpdateListener listener : this.updateListeners) {
+			listener.onPoint(this.match, point);
+		}
+		if (null != failure) {
+			throw failure;
+		}
+		return this.match;
+	}
+
+	/**
+	 * <p>
+	 * Updates the match with a stroke or point, timing the update if metrics
+	 * are set.
+	 * </p>
+	 * 
+	 * @return the failure of an event executed by the update, or
+	 *         <tt>null</tt>.
+	 */
+	private EventDispatchException applyUpdate(Object item) {
+		long start = null != this.metrics ? System.nanoTime() : 0;
+		EventDispatchException failure = null;
+		try {
+			if (item instanceof Stroke) {
+				this.strategy.update(this.match, (Stroke) item);
+			} else {
+				this.strategy.update(this.match, (Point) item);
+			}
+		} catch (EventDispatchException e) {
+			failure = e;
+		} catch (RuntimeException e) {
+			if (null != this.metrics) {
+				this.metrics.recordRejectedUpdate();
+			}
+			throw e;
+		}
+		if (null != this.metrics) {
+			this.metrics.recordUpdate(item instanceof Stroke, System.nanoTime() - start);
+		}
+		return failure;
+	}
+
+	/**
+	 * <p>
+	 * Updates this <tt>match</tt> object with every stroke of
+	 * <tt>strokes</tt>, in order. Events are executed as each stroke is
+	 * applied.
+	 * </p>
+	 * 
+	 * @param strokes
+	 *            the strokes to update within <tt>match</tt>.
+	 * @return the outcome of the batch.
+	 * @see #updateStrokes(Iterable, boolean)
+	 */
+	public BatchResult updateStrokes(Iterable<? extends Stroke> strokes) {
+		return this.updateStrokes(strokes, false);
+	}
+
+	/**
+	 * <p>
+	 * Updates this <tt>match</tt> object with every stroke of
+	 * <tt>strokes</tt>, in order, e.g. when backfilling a match.
+	 * </p>
+	 * 
+	 * <p>
+	 * The batch stops at the stroke completing the match; the remaining
+	 * strokes are not applied and the result is marked as truncated. If a
+	 * stroke is rejected, or a deferred event fails, the strokes applied
+	 * before remain applied and a <tt>BatchUpdateException</tt> is thrown
+	 * with their number. Update listeners are notified of each stroke as it
+	 * is applied.
+	 * </p>
+	 * 
+	 * @param strokes
+	 *            the strokes to update within <tt>match</tt>.
+	 * @param deferEvents
+	 *            true to hold back events until the end of the batch, at
+	 *            which point they are executed in order.
+	 * @return the outcome of the batch.
+	 */
+	public BatchResult updateStrokes(Iterable<? extends Stroke> strokes, boolean deferEvents) {
+		return this.updateAll(strokes, (l, stroke) -> l.onStroke(this.match, stroke),
+				items -> this.strategy.updateStrokes(this.match, items, deferEvents));
+	}
+
+	/**
+	 * <p>
+	 * Updates this <tt>match</tt> object with every point of <tt>points</tt>,
+	 * in order. Events are executed as each point is applied.
+	 * </p>
+	 * 
+	 * @param points
+	 *            the points to update within <tt>match</tt>.
+	 * @return the outcome of the batch.
+	 * @see #updatePoints(Iterable, boolean)
+	 */
+	public BatchResult updatePoints(Iterable<? extends Point> points) {
+		return this.updatePoints(points, false);
+	}
+
+	/**
+	 * <p>
+	 * Updates this <tt>match</tt> object with every point of <tt>points</tt>,
+	 * in order, with the same semantics as
+	 * <tt>updateStrokes(Iterable, boolean)</tt>.
+	 * </p>
+	 * 
+	 * @param points
+	 *            the points to update within <tt>match</tt>.
+	 * @param deferEvents
+	 *            true to hold back events until the end of the batch, at
+	 *            which point they are executed in order.
+	 * @return the outcome of the batch.
+	 */
+	public BatchResult updatePoints(Iterable<? extends Point> points, boolean deferEvents) {
+		return this.updateAll(points, (l, point) -> l.onPoint(this.match, point),
+				items -> this.strategy.updatePoints(this.match, items, deferEvents));
+	}
+
+	/**
+	 * <p>
+	 * Runs <tt>batch</tt> over <tt>items</tt>, publishing a snapshot, recording
+	 * the undo history and notifying the update listeners as each item is
+	 * applied, so that a batch failing part-way loses none of the items it
+	 * applied. The number of items applied by a failed batch is read from
+	 * its <tt>BatchUpdateException</tt>.
+	 * </p>
+	 */
+	private <T> BatchResult updateAll(Iterable<? extends T> items, BiConsumer<MatchUpdateListener, T> notification,
+			Function<Iterable<T>, BatchResult> batch) {
+		BatchRecorder<T> recorder = new BatchRecorder<>(items, notification);
+		int applied = Integer.MAX_VALUE;
+		try {
+			return batch.apply(recorder);
+		} catch (BatchUpdateException e) {
+			applied = e.getResult().getApplied();
+			throw e;
+		} finally {
+			this.publish();
+			this.redoHistory.clear();
+			recorder.stopTimer(applied);
+			recorder.commit(applied);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Wraps the items of a batch to publish a snapshot as each item is
+	 * consumed by the strategy, once the previous one was applied, and to
+	 * commit the previous one to the undo history and the update listeners.
+	 * If the undo history is enabled, a checkpoint of the match is taken
+	 * before each item is applied.
+	 * </p>
+	 * 
+	 * <p>
+	 * If metrics are set, each item is timed from the moment it is handed to
+	 * the strategy until the strategy moves on to the next one or the batch
+	 * ends, so that it is recorded like a single update.
+	 * </p>
+	 */
+	private final class BatchRecorder<T> implements Iterable<T> {
+
+		private final Iterable<? extends T> items;
+		private final BiConsumer<MatchUpdateListener, T> notification;
+		private final MatchMetrics metrics = MatchProcessor.this.metrics;
+		private T pending;
+		private long started;
+		private boolean timing;
+		private UpdateCheckpoint checkpoint;
+		private int consumed;
+		private int committed;
+
+		private BatchRecorder(Iterable<? extends T> items, BiConsumer<MatchUpdateListener, T> notification) {
+			this.items = items;
+			this.notification = notification;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			Iterator<? extends T> iterator = this.items.iterator();
+			return new Iterator<T>() {
+
+				@Override
+				public boolean hasNext() {
+					BatchRecorder.this.stopTimer(Integer.MAX_VALUE);
+					return iterator.hasNext();
+				}
+
+				@Override
+				public T next() {
+					BatchRecorder.this.stopTimer(Integer.MAX_VALUE);
+					MatchProcessor.this.publish();
+					BatchRecorder.this.commit(Integer.MAX_VALUE);
+					T item = iterator.next();
+					BatchRecorder.this.checkpoint = 0 != MatchProcessor.this.historyLimit
+							? MatchProcessor.this.strategy.checkpoint(MatchProcessor.this.match) : null;
+					BatchRecorder.this.pending = item;
+					BatchRecorder.this.consumed++;
+					if (null != BatchRecorder.this.metrics) {
+						BatchRecorder.this.timing = true;
+						BatchRecorder.this.started = System.nanoTime();
+					}
+					return item;
+				}
+			};
+		}
+
+		/**
+		 * <p>
+		 * Records the duration of the item being applied, or counts it as
+		 * rejected if it is not among the first <tt>applied</tt> items of the
+		 * batch.
+		 * </p>
+		 */
+		private void stopTimer(int applied) {
+			if (!this.timing) {
+				return;
+			}
+			this.timing = false;
+			if (this.consumed > applied) {
+				this.metrics.recordRejectedUpdate();
+			} else {
+				this.metrics.recordUpdate(this.pending instanceof Stroke, System.nanoTime() - this.started);
+			}
+		}
+
+		/**
+		 * <p>
+		 * Commits the pending item if it is among the first <tt>applied</tt>
+		 * items of the batch.
+		 * </p>
+		 */
+		private void commit(int applied) {
+			if (this.committed == this.consumed || this.consumed > applied) {
+				return;
+			}
+			T item = this.pending;
+			this.committed = this.consumed;
+			this.pending = null;
+			MatchProcessor.this.record(item, this.checkpoint);
+			for (MatchUpdateListener listener : MatchProcessor.this.updateListeners) {
+				this.notification.accept(listener, item);
+			}
+		}
 	}
 
 	/**
@@ -131,8 +499,255 @@ public class MatchProcessor {
 	 * @param event
 	 *            the consuming method to be executed. The provided parameter
 	 *            will be the updated <tt>match</tt> object.
+	 * @throws FrameworkException
+	 *             if the strategy dispatches events asynchronously, in which
+	 *             case typed events must be used instead, see
+	 *             <tt>addEventListener</tt>.
 	 */
 	public void registerEvent(MatchEventType eventType, Consumer<Match> event) {
 		this.strategy.registerEvent(eventType, event);
 	}
+
+	/**
+	 * <p>
+	 * Registers <tt>listener</tt> to receive the typed events of
+	 * <tt>eventClass</tt>. Unlike events registered with
+	 * <tt>registerEvent</tt>, typed events carry what changed and the new
+	 * score, and never expose the <tt>match</tt> object.
+	 * </p>
+	 * 
+	 * @param eventClass
+	 *            the class of events to listen to (e.g.
+	 *            <tt>PointCompletedEvent.class</tt>)
+	 * @param listener
+	 *            the listener to register
+	 */
+	public <E extends MatchEvent> void addEventListener(Class<E> eventClass, Consumer<? super E> listener) {
+		this.strategy.addEventListener(eventClass, listener);
+	}
+
+	/**
+	 * <p>
+	 * Sets how much detail of the completed parts of this <tt>match</tt> is
+	 * retained. Completed points and games are collapsed after each update, in
+	 * order, once any update listener registered before has been notified.
+	 * Parts completed before the policy is set are collapsed immediately.
+	 * Only <tt>RetentionPolicy.FULL</tt> can be used while the undo history is
+	 * enabled.
+	 * </p>
+	 * 
+	 * @param retentionPolicy
+	 *            the policy, or <tt>null</tt> to retain full detail
+	 */
+	public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+		if (0 != this.historyLimit && null != retentionPolicy && !RetentionPolicy.FULL.equals(retentionPolicy)) {
+			throw new FrameworkException("Retention policy " + retentionPolicy + " can not be used while undo history is enabled.");
+		}
+		if (null != this.compactor) {
+			this.updateListeners.remove(this.compactor);
+			this.compactor = null;
+		}
+		this.retentionPolicy = null != retentionPolicy ? retentionPolicy : RetentionPolicy.FULL;
+		if (!RetentionPolicy.FULL.equals(this.retentionPolicy)) {
+			this.compactor = new MatchCompactor(this.retentionPolicy);
+			this.compactor.compact(this.match);
+			this.updateListeners.add(this.compactor);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Records the duration of every stroke and point update, including the
+	 * events it executes synchronously, and counts rejected updates in
+	 * <tt>metrics</tt>. Each item of a batch update is recorded as a single
+	 * update; events deferred until the end of the batch are not included in
+	 * the duration of any item.
+	 * </p>
+	 * 
+	 * <p>
+	 * To also count completion checks and time event consumers, create the
+	 * strategy with a <tt>MeteredScoreCompletionHandlerResolver</tt> and a
+	 * dispatcher created with the same <tt>metrics</tt>.
+	 * </p>
+	 * 
+	 * @param metrics
+	 *            the metrics to record to, or <tt>null</tt> to stop recording
+	 */
+	public void setMetrics(MatchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * <p>
+	 * Enables undo of the last <tt>historyLimit</tt> updates, or disables it
+	 * when <tt>0</tt>, which is the default. Lowering the limit discards the
+	 * oldest updates from the history.
+	 * </p>
+	 * 
+	 * <p>
+	 * Before each update, the strategy captures the parts of the match the
+	 * update may change (see <tt>MatchStrategy.checkpoint</tt>), so that
+	 * undoing an update takes constant time regardless of the length of the
+	 * match. Undo requires <tt>RetentionPolicy.FULL</tt>, since collapsing
+	 * completed points and games can not be reverted.
+	 * </p>
+	 * 
+	 * @param historyLimit
+	 *            the number of updates that can be undone
+	 */
+	public void setHistoryLimit(int historyLimit) {
+		if (historyLimit < 0) {
+			throw new FrameworkException("historyLimit can not be negative.");
+		} else if (0 != historyLimit && !RetentionPolicy.FULL.equals(this.retentionPolicy)) {
+			throw new FrameworkException("Undo history requires retention policy FULL, found " + this.retentionPolicy);
+		}
+		this.historyLimit = historyLimit;
+		while (this.undoHistory.size() > historyLimit) {
+			this.undoHistory.removeFirst();
+		}
+		while (this.redoHistory.size() > historyLimit) {
+			this.redoHistory.removeFirst();
+		}
+	}
+
+	private void record(Object item, UpdateCheckpoint checkpoint) {
+		if (null == checkpoint) {
+			return;
+		}
+		this.undoHistory.addLast(new Update(item, checkpoint));
+		if (this.undoHistory.size() > this.historyLimit) {
+			this.undoHistory.removeFirst();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reverts the last update made to this <tt>match</tt> and notifies the
+	 * update listeners with <tt>onUndo</tt>. Its status, score, server
+	 * rotation and the strokes of the current point are restored as they were
+	 * before the update.
+	 * </p>
+	 * 
+	 * <p>
+	 * Events already dispatched for the update, e.g. still queued by an
+	 * <tt>AsyncMatchEventDispatcher</tt>, are not retracted. An
+	 * <tt>UpdateUndoneEvent</tt> is published after them through the same
+	 * dispatcher, and the events registered for <tt>ON_UNDO</tt> are
+	 * executed, so that consumers can reconcile. A failure of these events is
+	 * thrown once the update has been undone.
+	 * </p>
+	 * 
+	 * @return true if an update was undone, or false if the history is empty.
+	 */
+	public boolean undo() {
+		Update update = this.undoHistory.pollLast();
+		if (null == update) {
+			return false;
+		}
+		MatchSnapshot undone = this.snapshot;
+		update.checkpoint.restore(this.match);
+		this.publish();
+		for (MatchUpdateListener listener : this.updateListeners) {
+			if (update.item instanceof Stroke) {
+				listener.onUndo(this.match, (Stroke) update.item);
+			} else {
+				listener.onUndo(this.match, (Point) update.item);
+			}
+		}
+		this.redoHistory.addLast(update);
+		MatchSnapshot restored = this.snapshot;
+		this.strategy.publishUndo(this.match, new UpdateUndoneEvent(this.match.getId(),
+				this.getUndoneWinner(restored.getState(), undone.getState()), ScoreState.getSetsPlayed(restored.getState()),
+				undone.getState(), restored));
+		return true;
+	}
+
+	/**
+	 * @return the slot of the player whose point took the score from
+	 *         <tt>restored</tt> to <tt>undone</tt>, or <tt>-1</tt> if no point
+	 *         was completed.
+	 */
+	private int getUndoneWinner(long restored, long undone) {
+		for (int slot = 0; slot < Match.SLOTS && restored != undone; slot++) {
+			if (ScoreState.pointWonBy(restored, slot, this.match.getMatchRules()) == undone) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * <p>
+	 * Re-applies the last undone update, as if it was updated again; its
+	 * events are executed again. Any other update discards the updates that
+	 * can be redone.
+	 * </p>
+	 * 
+	 * @return true if an update was redone, or false if there is none.
+	 */
+	public boolean redo() {
+		Update update = this.redoHistory.pollLast();
+		if (null == update) {
+			return false;
+		}
+		if (update.item instanceof Stroke) {
+			this.apply((Stroke) update.item);
+		} else {
+			this.apply((Point) update.item);
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if <tt>undo</tt> would revert an update.
+	 */
+	public boolean canUndo() {
+		return !this.undoHistory.isEmpty();
+	}
+
+	/**
+	 * @return true if <tt>redo</tt> would re-apply an update.
+	 */
+	public boolean canRedo() {
+		return !this.redoHistory.isEmpty();
+	}
+
+	/**
+	 * <p>
+	 * Registers <tt>listener</tt> to be notified of every stroke and point
+	 * accepted by this processor, e.g. to persist them.
+	 * </p>
+	 * 
+	 * @param listener
+	 *            the listener to register
+	 */
+	public void addUpdateListener(MatchUpdateListener listener) {
+		this.updateListeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 *            the listener to remove
+	 * @return true if <tt>listener</tt> was registered.
+	 */
+	public boolean removeUpdateListener(MatchUpdateListener listener) {
+		return this.updateListeners.remove(listener);
+	}
+
+	/**
+	 * <p>
+	 * An update in the undo history: the stroke or point applied and the
+	 * checkpoint reverting it.
+	 * </p>
+	 */
+	private static final class Update {
+
+		private final Object item;
+		private final UpdateCheckpoint checkpoint;
+
+		private Update(Object item, UpdateCheckpoint checkpoint) {
+			this.item = item;
+			this.checkpoint = checkpoint;
+		}
+	}
 }
@@ -0,0 +1,266 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.PlayerConfig;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * Hosts the <tt>MatchProcessor</tt>s of many live matches, keyed by
+ * <tt>Match.getId()</tt>.
+ * </p>
+ *
+ * <p>
+ * Processors are held in a <tt>ConcurrentHashMap</tt>, so lookups never block
+ * and registering or retiring a match only locks the bin of its id. Updates
+ * made through the registry are serialized per match by locking its
+ * processor, which means that updates to different matches never contend
+ * with each other. Processors obtained with <tt>get</tt> and updated directly
+ * must be confined to a single thread by the caller.
+ * </p>
+ *
+ * <p>
+ * Bulk operations such as <tt>listActive</tt> and <tt>evictCompleted</tt> are
+ * weakly consistent: they reflect matches registered or completed
+ * concurrently on a best effort basis and never throw
+ * <tt>ConcurrentModificationException</tt>. They read the status of each match
+ * from its published <tt>MatchSnapshot</tt>.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class MatchRegistry {
+
+	@Getter
+	private final MatchFactory matchFactory;
+	private final ConcurrentMap<String, MatchProcessor> processors = new ConcurrentHashMap<>();
+
+	public MatchRegistry() {
+		this(null);
+	}
+
+	public MatchRegistry(MatchFactory matchFactory) {
+		if (null != matchFactory) {
+			this.matchFactory = matchFactory;
+		} else {
+			this.matchFactory = new DefaultMatchFactory();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Creates a new match with a generated id and registers a processor for
+	 * it.
+	 * </p>
+	 *
+	 * @param matchRules
+	 *            the rules of the match
+	 * @param playerConfig
+	 *            the player configurations for the match
+	 * @return the processor of the new match.
+	 */
+	public MatchProcessor create(MatchRules matchRules, PlayerConfig playerConfig) {
+		return this.create(UUID.randomUUID().toString(), matchRules, playerConfig, null);
+	}
+
+	/**
+	 * <p>
+	 * Creates a new match identified by <tt>id</tt> and registers a processor
+	 * for it.
+	 * </p>
+	 *
+	 * @param id
+	 *            the id of the new match
+	 * @param matchRules
+	 *            the rules of the match
+	 * @param playerConfig
+	 *            the player configurations for the match
+	 * @param strategy
+	 *            the strategy to apply, or <tt>null</tt> to determine it from
+	 *            the match
+	 * @return the processor of the new match, or else a
+	 *         <tt>FrameworkException</tt> is thrown if <tt>id</tt> is already
+	 *         registered.
+	 */
+	public MatchProcessor create(String id, MatchRules matchRules, PlayerConfig playerConfig, MatchStrategy strategy) {
+		Match match = this.matchFactory.create(matchRules, playerConfig);
+		match.setId(id);
+		return this.register(new MatchProcessor(match, strategy));
+	}
+
+	/**
+	 * <p>
+	 * Registers an existing <tt>processor</tt> under the id of its match.
+	 * </p>
+	 *
+	 * @param processor
+	 *            the processor to register
+	 * @return <tt>processor</tt>, or else a <tt>FrameworkException</tt> is
+	 *         thrown if its match has no id or the id is already registered.
+	 */
+	public MatchProcessor register(MatchProcessor processor) {
+		String id = processor.getMatch().getId();
+		if (null == id) {
+			throw new FrameworkException("Match id is required to register a match.");
+		}
+		if (null != this.processors.putIfAbsent(id, processor)) {
+			throw new FrameworkException("A match is already registered with id " + id);
+		}
+		return processor;
+	}
+
+	/**
+	 * @param id
+	 *            the match id
+	 * @return the processor registered for <tt>id</tt>, or <tt>null</tt> if
+	 *         there is none.
+	 */
+	public MatchProcessor get(String id) {
+		return this.processors.get(id);
+	}
+
+	/**
+	 * <p>
+	 * Removes the match identified by <tt>id</tt> from this registry.
+	 * </p>
+	 *
+	 * @param id
+	 *            the match id
+	 * @return the processor that was registered for <tt>id</tt>, or
+	 *         <tt>null</tt> if there was none.
+	 */
+	public MatchProcessor retire(String id) {
+		return this.processors.remove(id);
+	}
+
+	/**
+	 * <p>
+	 * Updates the match identified by <tt>id</tt> with the provided
+	 * <tt>stroke</tt>.
+	 * </p>
+	 *
+	 * @param id
+	 *            the match id
+	 * @param stroke
+	 *            the stroke object to update within the match
+	 * @return the match object
+	 */
+	public Match update(String id, Stroke stroke) {
+		MatchProcessor processor = this.getRequired(id);
+		synchronized (processor) {
+			return processor.update(stroke);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Updates the match identified by <tt>id</tt> with the provided
+	 * <tt>point</tt>.
+	 * </p>
+	 *
+	 * @param id
+	 *            the match id
+	 * @param point
+	 *            the point object to update within the match
+	 * @return the match object
+	 */
+	public Match update(String id, Point point) {
+		MatchProcessor processor = this.getRequired(id);
+		synchronized (processor) {
+			return processor.update(point);
+		}
+	}
+
+	private MatchProcessor getRequired(String id) {
+		MatchProcessor processor = this.processors.get(id);
+		if (null == processor) {
+			throw new FrameworkException("No match is registered with id " + id);
+		}
+		return processor;
+	}
+
+	/**
+	 * <p>
+	 * The registered matches keep being mutated by their updating threads, so
+	 * they are listed by their published snapshots rather than by the
+	 * <tt>Match</tt> objects themselves.
+	 * </p>
+	 *
+	 * @return the snapshots of the registered matches that are not yet
+	 *         complete.
+	 */
+	public List<MatchSnapshot> listActive() {
+		List<MatchSnapshot> snapshots = new ArrayList<>();
+		for (MatchProcessor processor : this.processors.values()) {
+			MatchSnapshot snapshot = processor.getSnapshot();
+			if (!snapshot.isCompleted()) {
+				snapshots.add(snapshot);
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * <p>
+	 * Removes every completed match from this registry.
+	 * </p>
+	 *
+	 * @return the number of matches removed.
+	 */
+	public int evictCompleted() {
+		int evicted = 0;
+		for (Map.Entry<String, MatchProcessor> entry : this.processors.entrySet()) {
+			if (isCompleted(entry.getValue()) && this.processors.remove(entry.getKey(), entry.getValue())) {
+				evicted++;
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * <p>
+	 * Reads the completion of the match of <tt>processor</tt> without taking
+	 * its lock. The status of the <tt>Match</tt> itself is a plain field
+	 * written by the updating thread, so reading it here could see a stale
+	 * value. The snapshot is instead published through a volatile field once
+	 * an update has been fully applied, which happens while the registry
+	 * holds the lock of the processor.
+	 * </p>
+	 */
+	private static boolean isCompleted(MatchProcessor processor) {
+		return processor.getSnapshot().isCompleted();
+	}
+
+	/**
+	 * @return the number of registered matches.
+	 */
+	public int size() {
+		return this.processors.size();
+	}
+}
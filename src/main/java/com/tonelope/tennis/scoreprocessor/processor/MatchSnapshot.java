@@ -0,0 +1,321 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * An immutable snapshot of the score of a match, published by
+ * <tt>MatchProcessor</tt> after every accepted update. Unlike the
+ * <tt>Match</tt> object tree, a snapshot can be read from any thread without
+ * locking and always describes a consistent score.
+ * </p>
+ * 
+ * <p>
+ * The live score is held as a packed <tt>ScoreState</tt>; the scores of the
+ * completed sets are held in an unmodifiable list that is shared by every
+ * snapshot taken until the next set is completed. Players are referred to by
+ * their slot, which is their index within <tt>getPlayers()</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+public final class MatchSnapshot {
+
+	private final String matchId;
+	private final List<Player> players;
+	/**
+	 * The packed <tt>ScoreState</tt> of the match.
+	 */
+	private final long state;
+	private final List<CompletedSet> completedSets;
+
+	private MatchSnapshot(String matchId, List<Player> players, long state, List<CompletedSet> completedSets) {
+		this.matchId = matchId;
+		this.players = players;
+		this.state = state;
+		this.completedSets = completedSets;
+	}
+
+	/**
+	 * <p>
+	 * Takes a snapshot of <tt>match</tt>, reading the scores of its completed
+	 * sets from the object tree.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @param state
+	 *            the packed <tt>ScoreState</tt> of <tt>match</tt>
+	 * @return the snapshot.
+	 */
+	public static MatchSnapshot of(Match match, long state) {
+		return new MatchSnapshot(match.getId(), Collections.unmodifiableList(new ArrayList<>(match.getPlayers())), state,
+				readCompletedSets(match, ScoreState.getSetsPlayed(state)));
+	}
+
+	/**
+	 * <p>
+	 * Returns the snapshot following this one once <tt>match</tt> has been
+	 * updated to <tt>state</tt>, or this snapshot if the score did not change.
+	 * A set completed by a single point is derived from the state of this
+	 * snapshot, so that the object tree is only read when several sets were
+	 * completed or reverted at once.
+	 * </p>
+	 */
+	MatchSnapshot next(Match match, long state) {
+		if (state == this.state) {
+			return this;
+		}
+		int played = ScoreState.getSetsPlayed(state);
+		int completed = this.completedSets.size();
+		List<CompletedSet> sets = this.completedSets;
+		if (played == completed + 1 && ScoreState.getSetsPlayed(this.state) == completed) {
+			List<CompletedSet> appended = new ArrayList<>(completed + 1);
+			appended.addAll(this.completedSets);
+			appended.add(CompletedSet.following(this.state, state));
+			sets = Collections.unmodifiableList(appended);
+		} else if (played < completed) {
+			sets = Collections.unmodifiableList(new ArrayList<>(this.completedSets.subList(0, played)));
+		} else if (played != completed) {
+			sets = readCompletedSets(match, played);
+		}
+		return new MatchSnapshot(match.getId(), this.players, state, sets);
+	}
+
+	private static List<CompletedSet> readCompletedSets(Match match, int played) {
+		List<SetScore> setScores = match.getScore().getSetScores();
+		List<CompletedSet> sets = new ArrayList<>(played);
+		for (int i = 0; i < Math.min(played, setScores.size()); i++) {
+			Set set = match.getSets().get(i);
+			sets.add(CompletedSet.of(match.getSlot(set.getStartingServer()), setScores.get(i)));
+		}
+		return Collections.unmodifiableList(sets);
+	}
+
+	public Status getStatus() {
+		return ScoreState.getStatus(this.state);
+	}
+
+	public boolean isCompleted() {
+		return ScoreState.isCompleted(this.state);
+	}
+
+	/**
+	 * @return the slot of the match winner, or <tt>-1</tt> if the match is not
+	 *         complete.
+	 */
+	public int getWinner() {
+		return ScoreState.getWinner(this.state);
+	}
+
+	public int getSetsWon(int slot) {
+		return ScoreState.getSetsWon(this.state, slot);
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the games won by <tt>slot</tt> within the current set.
+	 */
+	public int getGames(int slot) {
+		return ScoreState.getGames(this.state, slot);
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the points won by <tt>slot</tt> within the current tiebreak, or
+	 *         the <tt>PointValue</tt> ordinal within a regular game.
+	 */
+	public int getPoints(int slot) {
+		return ScoreState.getPoints(this.state, slot);
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the point value of <tt>slot</tt> within the current regular
+	 *         game.
+	 */
+	public PointValue getPointValue(int slot) {
+		return ScoreState.getPointValue(this.state, slot);
+	}
+
+	public boolean isTiebreak() {
+		return ScoreState.isTiebreak(this.state);
+	}
+
+	/**
+	 * @return the slot of the player serving the current game.
+	 */
+	public int getServer() {
+		return ScoreState.getServer(this.state);
+	}
+
+	/**
+	 * @return the slot of the player serving the next point.
+	 */
+	public int getPointServer() {
+		return ScoreState.getPointServer(this.state);
+	}
+
+	/**
+	 * <p>
+	 * Describes the score from the perspective of slot 0, listing the
+	 * completed sets followed by the current set and game (e.g.
+	 * <tt>6-4 6-7(5-7) 2-1 30-15</tt>).
+	 * </p>
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (CompletedSet set : this.completedSets) {
+			sb.append(set).append(' ');
+		}
+		if (this.isCompleted()) {
+			return sb.toString().trim();
+		}
+		sb.append(this.getGames(0)).append('-').append(this.getGames(1)).append(' ');
+		if (this.isTiebreak()) {
+			return sb.append('(').append(this.getPoints(0)).append('-').append(this.getPoints(1)).append(')').toString();
+		}
+		return sb.append(this.getPointValue(0).getValue()).append('-').append(this.getPointValue(1).getValue()).toString();
+	}
+
+	/**
+	 * <p>
+	 * The final score of a completed set.
+	 * </p>
+	 */
+	@Getter
+	public static final class CompletedSet {
+
+		private final int winner;
+		private final int winnerGames;
+		private final int loserGames;
+		private final boolean tiebreak;
+		private final int winnerTiebreakPoints;
+		private final int loserTiebreakPoints;
+
+		private CompletedSet(int winner, int winnerGames, int loserGames, boolean tiebreak, int winnerTiebreakPoints,
+				int loserTiebreakPoints) {
+			this.winner = winner;
+			this.winnerGames = winnerGames;
+			this.loserGames = loserGames;
+			this.tiebreak = tiebreak;
+			this.winnerTiebreakPoints = winnerTiebreakPoints;
+			this.loserTiebreakPoints = loserTiebreakPoints;
+		}
+
+		/**
+		 * @param winner
+		 *            the slot of the set winner
+		 * @param winnerGames
+		 *            the games won by the winner
+		 * @param loserGames
+		 *            the games won by the loser
+		 * @param tiebreak
+		 *            true if the set was decided by a tiebreak
+		 * @param winnerTiebreakPoints
+		 *            the tiebreak points won by the winner
+		 * @param loserTiebreakPoints
+		 *            the tiebreak points won by the loser
+		 * @return the completed set.
+		 */
+		public static CompletedSet of(int winner, int winnerGames, int loserGames, boolean tiebreak, int winnerTiebreakPoints,
+				int loserTiebreakPoints) {
+			return new CompletedSet(winner, winnerGames, loserGames, tiebreak, winnerTiebreakPoints, loserTiebreakPoints);
+		}
+
+		/**
+		 * <p>
+		 * Derives the set completed by the point between <tt>previous</tt> and
+		 * <tt>state</tt>.
+		 * </p>
+		 * 
+		 * @param previous
+		 *            the packed <tt>ScoreState</tt> before the point
+		 * @param state
+		 *            the packed <tt>ScoreState</tt> after the point
+		 * @return the completed set.
+		 */
+		public static CompletedSet following(long previous, long state) {
+			int winner = ScoreState.getSetsWon(state, 0) != ScoreState.getSetsWon(previous, 0) ? 0 : 1;
+			boolean tiebreak = ScoreState.isTiebreak(previous);
+			return new CompletedSet(winner, ScoreState.getGames(previous, winner) + 1, ScoreState.getGames(previous, winner ^ 1),
+					tiebreak, tiebreak ? ScoreState.getPoints(previous, winner) + 1 : 0,
+					tiebreak ? ScoreState.getPoints(previous, winner ^ 1) : 0);
+		}
+
+		private static CompletedSet of(int startingServer, SetScore setScore) {
+			int serverGames = setScore.getStartingServerScore();
+			int receiverGames = setScore.getStartingReceiverScore();
+			int winner = serverGames > receiverGames ? startingServer : startingServer ^ 1;
+			TiebreakScore tiebreakScore = setScore.getTiebreakScore();
+			if (null == tiebreakScore) {
+				return new CompletedSet(winner, Math.max(serverGames, receiverGames), Math.min(serverGames, receiverGames),
+						false, 0, 0);
+			}
+			return new CompletedSet(winner, Math.max(serverGames, receiverGames), Math.min(serverGames, receiverGames), true,
+					Math.max(tiebreakScore.getServerScore(), tiebreakScore.getReceiverScore()),
+					Math.min(tiebreakScore.getServerScore(), tiebreakScore.getReceiverScore()));
+		}
+
+		/**
+		 * @param slot
+		 *            the player slot
+		 * @return the games won by <tt>slot</tt>.
+		 */
+		public int getGames(int slot) {
+			return slot == this.winner ? this.winnerGames : this.loserGames;
+		}
+
+		/**
+		 * @param slot
+		 *            the player slot
+		 * @return the tiebreak points won by <tt>slot</tt>, or <tt>0</tt> if
+		 *         the set was not decided by a tiebreak.
+		 */
+		public int getTiebreakPoints(int slot) {
+			return slot == this.winner ? this.winnerTiebreakPoints : this.loserTiebreakPoints;
+		}
+
+		@Override
+		public String toString() {
+			String games = this.getGames(0) + SetScore.SEPARATOR + this.getGames(1);
+			if (!this.tiebreak) {
+				return games;
+			}
+			return games + TiebreakScore.LEFT_SEPARATOR + this.getTiebreakPoints(0) + TiebreakScore.SEPARATOR
+					+ this.getTiebreakPoints(1) + TiebreakScore.RIGHT_SEPARATOR;
+		}
+	}
+}
@@ -19,6 +19,9 @@ import com.tonelope.tennis.scoreprocessor.model.Match;
 import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
 import com.tonelope.tennis.scoreprocessor.model.Point;
 import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.UpdateUndoneEvent;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
 
 /**
  * 
@@ -32,4 +35,103 @@ public interface MatchStrategy {
 	Match update(Match match, Point point);
 	
 	void registerEvent(MatchEventType eventType, Consumer<Match> event);
+	
+	/**
+	 * <p>
+	 * Updates <tt>match</tt> with every stroke of <tt>strokes</tt>, in order,
+	 * stopping at the stroke completing the match. By default each stroke is
+	 * applied with <tt>update</tt>, executing its events as it goes.
+	 * </p>
+	 * 
+	 * <p>
+	 * If a stroke is rejected, the strokes before it remain applied and a
+	 * <tt>BatchUpdateException</tt> is thrown with their number.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @param strokes
+	 *            the strokes to apply
+	 * @param deferEvents
+	 *            true to hold back events until the end of the batch, if
+	 *            the strategy supports it
+	 * @return the outcome of the batch.
+	 */
+	default BatchResult updateStrokes(Match match, Iterable<? extends Stroke> strokes, boolean deferEvents) {
+		return BatchResult.<Stroke>applyAll(match, strokes, this::update);
+	}
+	
+	/**
+	 * <p>
+	 * Updates <tt>match</tt> with every point of <tt>points</tt>, in order,
+	 * with the same semantics as <tt>updateStrokes</tt>.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @param points
+	 *            the points to apply
+	 * @param deferEvents
+	 *            true to hold back events until the end of the batch, if
+	 *            the strategy supports it
+	 * @return the outcome of the batch.
+	 */
+	default BatchResult updatePoints(Match match, Iterable<? extends Point> points, boolean deferEvents) {
+		return BatchResult.<Point>applyAll(match, points, this::update);
+	}
+	
+	/**
+	 * <p>
+	 * Registers <tt>listener</tt> to receive the typed events of
+	 * <tt>eventClass</tt> (e.g. <tt>PointCompletedEvent.class</tt>).
+	 * </p>
+	 * 
+	 * @param eventClass
+	 *            the class of events to listen to
+	 * @param listener
+	 *            the listener to register
+	 */
+	<E extends MatchEvent> void addEventListener(Class<E> eventClass, Consumer<? super E> listener);
+	
+	/**
+	 * <p>
+	 * Captures the state of <tt>match</tt> that the next update may change,
+	 * so that the update can be reverted. Used by
+	 * <tt>MatchProcessor.undo</tt>.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object, before the update
+	 * @return the checkpoint to restore to revert the next update.
+	 */
+	UpdateCheckpoint checkpoint(Match match);
+
+	/**
+	 * <p>
+	 * Executes the events registered for <tt>ON_UNDO</tt> and publishes
+	 * <tt>event</tt> to its listeners, through the same dispatcher as the
+	 * events of the updates, once <tt>MatchProcessor.undo</tt> has restored
+	 * <tt>match</tt>.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object, after the update was undone
+	 * @param event
+	 *            the event describing the undone update
+	 */
+	void publishUndo(Match match, UpdateUndoneEvent event);
+
+	/**
+	 * <p>
+	 * Returns the live score of <tt>match</tt> as a packed
+	 * <tt>ScoreState</tt>, read by default from the object tree.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @return the packed state of <tt>match</tt>.
+	 */
+	default long getState(Match match) {
+		return ScoreState.fromMatch(match);
+	}
 }
@@ -0,0 +1,161 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchScore;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+
+/**
+ * <p>
+ * An <tt>UpdateCheckpoint</tt> of a match scored with the <tt>Set</tt>,
+ * <tt>Game</tt> and <tt>Point</tt> object tree. An update only changes the
+ * statuses and scores of the current point, game and set and of the match,
+ * appends strokes to the current point, and appends the next point, game or
+ * set. A <tt>SimplePoint</tt> also replaces the placeholder point created for
+ * it. Restoring removes what was appended, puts back the placeholder and
+ * resets the captured fields, including the server rotation of a tiebreak.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+final class MatchTreeCheckpoint implements UpdateCheckpoint {
+
+	private final Status matchStatus;
+	private final int startingServerSetsWon;
+	private final int startingReceiverSetsWon;
+	private final int setScores;
+	private final int sets;
+
+	private final Set set;
+	private final Status setStatus;
+	private final int setStartingServerScore;
+	private final int setStartingReceiverScore;
+	private final TiebreakScore setTiebreakScore;
+	private final int games;
+
+	private final Game game;
+	private final Status gameStatus;
+	private final PointValue gameServerScore;
+	private final PointValue gameReceiverScore;
+	private final int tiebreakServerScore;
+	private final int tiebreakReceiverScore;
+	private final Player rotationServer;
+	private final Player rotationReceiver;
+	private final int points;
+
+	private final Point point;
+	private final Status pointStatus;
+	private final int strokes;
+
+	MatchTreeCheckpoint(Match match) {
+		MatchScore matchScore = match.getScore();
+		this.matchStatus = match.getStatus();
+		this.startingServerSetsWon = matchScore.getStartingServerSetsWon();
+		this.startingReceiverSetsWon = matchScore.getStartingReceiverSetsWon();
+		this.setScores = matchScore.getSetScores().size();
+		this.sets = match.getSets().size();
+
+		this.set = match.getCurrentSet();
+		SetScore setScore = this.set.getScore();
+		this.setStatus = this.set.getStatus();
+		this.setStartingServerScore = setScore.getStartingServerScore();
+		this.setStartingReceiverScore = setScore.getStartingReceiverScore();
+		this.setTiebreakScore = setScore.getTiebreakScore();
+		this.games = this.set.getGames().size();
+
+		this.game = this.set.getCurrentGame();
+		this.gameStatus = this.game.getStatus();
+		this.points = this.game.getPoints().size();
+		if (this.game instanceof TiebreakGame) {
+			TiebreakGame tiebreak = (TiebreakGame) this.game;
+			TiebreakScore score = (TiebreakScore) tiebreak.getScore();
+			this.tiebreakServerScore = score.getServerScore();
+			this.tiebreakReceiverScore = score.getReceiverScore();
+			this.rotationServer = tiebreak.getRotationServer();
+			this.rotationReceiver = tiebreak.getRotationReceiver();
+			this.gameServerScore = null;
+			this.gameReceiverScore = null;
+		} else {
+			GameScore score = (GameScore) this.game.getScore();
+			this.gameServerScore = score.getServerScore();
+			this.gameReceiverScore = score.getReceiverScore();
+			this.tiebreakServerScore = 0;
+			this.tiebreakReceiverScore = 0;
+			this.rotationServer = null;
+			this.rotationReceiver = null;
+		}
+
+		this.point = this.game.getCurrentPoint();
+		this.pointStatus = this.point.getStatus();
+		this.strokes = this.point.getStrokes().size();
+	}
+
+	@Override
+	public void restore(Match match) {
+		MatchScore matchScore = match.getScore();
+		truncate(match.getSets(), this.sets);
+		truncate(matchScore.getSetScores(), this.setScores);
+		match.setStatus(this.matchStatus);
+		matchScore.setStartingServerSetsWon(this.startingServerSetsWon);
+		matchScore.setStartingReceiverSetsWon(this.startingReceiverSetsWon);
+
+		SetScore setScore = this.set.getScore();
+		truncate(this.set.getGames(), this.games);
+		this.set.setStatus(this.setStatus);
+		setScore.setStartingServerScore(this.setStartingServerScore);
+		setScore.setStartingReceiverScore(this.setStartingReceiverScore);
+		setScore.setTiebreakScore(this.setTiebreakScore);
+
+		List<Point> gamePoints = this.game.getPoints();
+		truncate(gamePoints, this.points);
+		if (this.point != gamePoints.get(this.points - 1)) {
+			gamePoints.set(this.points - 1, this.point);
+		}
+		this.game.setStatus(this.gameStatus);
+		if (this.game instanceof TiebreakGame) {
+			TiebreakGame tiebreak = (TiebreakGame) this.game;
+			TiebreakScore score = (TiebreakScore) tiebreak.getScore();
+			score.setServerScore(this.tiebreakServerScore);
+			score.setReceiverScore(this.tiebreakReceiverScore);
+			tiebreak.setNextServer(this.rotationServer);
+			tiebreak.setNextReceiver(this.rotationReceiver);
+		} else {
+			GameScore score = (GameScore) this.game.getScore();
+			score.setServerScore(this.gameServerScore);
+			score.setReceiverScore(this.gameReceiverScore);
+		}
+
+		this.point.truncateStrokes(this.strokes);
+		this.point.setStatus(this.pointStatus);
+	}
+
+	private static void truncate(List<?> list, int size) {
+		while (list.size() > size) {
+			list.remove(list.size() - 1);
+		}
+	}
+}
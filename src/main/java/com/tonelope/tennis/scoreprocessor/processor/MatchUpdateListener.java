@@ -0,0 +1,70 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+
+/**
+ * <p>
+ * Notified by a <tt>MatchProcessor</tt> of every stroke and point it has
+ * accepted, in the order they were applied. Updates rejected with a
+ * <tt>FrameworkException</tt> are not notified.
+ * </p>
+ * 
+ * <p>
+ * Listeners are called on the updating thread, after the match has been
+ * updated and its events executed.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public interface MatchUpdateListener {
+
+	void onStroke(Match match, Stroke stroke);
+
+	void onPoint(Match match, Point point);
+
+	/**
+	 * <p>
+	 * Called when <tt>stroke</tt>, the last stroke notified to this listener,
+	 * has been undone with <tt>MatchProcessor.undo</tt>. Redoing it notifies
+	 * <tt>onStroke</tt> again. Listeners keeping state derived from the
+	 * updates should revert it; the default does nothing.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object, after the stroke was undone
+	 * @param stroke
+	 *            the stroke that was undone
+	 */
+	default void onUndo(Match match, Stroke stroke) {
+	}
+
+	/**
+	 * <p>
+	 * Called when <tt>point</tt>, the last point notified to this listener,
+	 * has been undone, see <tt>onUndo(Match, Stroke)</tt>.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object, after the point was undone
+	 * @param point
+	 *            the point that was undone
+	 */
+	default void onUndo(Match match, Point point) {
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+/**
+ * <p>
+ * Determines how much detail a <tt>MatchProcessor</tt> retains of the parts of
+ * its match that are completed. Collapsing completed points and games keeps
+ * the heap of a long running match bounded; scores and winners are never
+ * lost.
+ * </p>
+ * 
+ * @see com.tonelope.tennis.scoreprocessor.processor.MatchProcessor#setRetentionPolicy(RetentionPolicy)
+ * @author Tony Lopez
+ *
+ */
+public enum RetentionPolicy {
+
+	/**
+	 * Every point keeps its strokes and every game keeps its points.
+	 */
+	FULL,
+
+	/**
+	 * Completed points are replaced with a <tt>PointSummary</tt> holding the
+	 * winner, the number of strokes and the final stroke.
+	 */
+	COLLAPSE_POINTS,
+
+	/**
+	 * Completed points are collapsed as with <tt>COLLAPSE_POINTS</tt>, and
+	 * completed games are collapsed to their winner and score with
+	 * <tt>Game.collapse()</tt>.
+	 */
+	COLLAPSE_GAMES
+}
@@ -21,11 +21,19 @@ import com.tonelope.tennis.scoreprocessor.model.MatchRules;
 import com.tonelope.tennis.scoreprocessor.model.Player;
 import com.tonelope.tennis.scoreprocessor.model.Point;
 import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
 import com.tonelope.tennis.scoreprocessor.model.Status;
 import com.tonelope.tennis.scoreprocessor.model.Stroke;
 import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
 import com.tonelope.tennis.scoreprocessor.model.Winnable;
+import com.tonelope.tennis.scoreprocessor.processor.event.GameCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.SetCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.TiebreakCompletedEvent;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandlerResolver;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
 
 /**
  * <p>
@@ -54,6 +62,18 @@ public class SinglesMatchStrategy extends AbstractMatchStrategy {
 		super(scoreCompletionHandlerResolver);
 	}
 
+	/**
+	 * @param scoreCompletionHandlerResolver
+	 *            the resolver of score completion handlers, or <tt>null</tt>
+	 *            for the default
+	 * @param eventDispatcher
+	 *            the dispatcher executing registered events, or <tt>null</tt>
+	 *            to execute them synchronously
+	 */
+	public SinglesMatchStrategy(ScoreCompletionHandlerResolver scoreCompletionHandlerResolver, MatchEventDispatcher eventDispatcher) {
+		super(scoreCompletionHandlerResolver, eventDispatcher);
+	}
+
 	/**
 	 * <p>
 	 * Creates a new instance of <tt>Game</tt> or <tt>TiebreakGame</tt>
@@ -86,6 +106,8 @@ public class SinglesMatchStrategy extends AbstractMatchStrategy {
 	 * current score of <tt>match</tt>.
 	 * </p>
 	 * 
+	 * @param resolver
+	 *            the resolver of the handlers
 	 * @param scoringObject
 	 *            the <tt>ScoringObject</tt> to check
 	 * @param match
@@ -93,26 +115,32 @@ public class SinglesMatchStrategy extends AbstractMatchStrategy {
 	 * @return true if the <tt>scoringObject</tt> is in a completed status,
 	 *         false otherwise
 	 */
-	private boolean isComplete(Winnable scoringObject, Match match) {
-		return this.scoreCompletionHandlerResolver.resolve(scoringObject, match);
+	private boolean isComplete(ScoreCompletionHandlerResolver resolver, Winnable scoringObject, Match match) {
+		return resolver.resolve(scoringObject, match);
 	}
 
-	private Match process(Match match) {
+	private Match process(Match match, ScoreCompletionHandlerResolver resolver) {
 
 		Set currentSet = match.getCurrentSet();
 		Game currentGame = currentSet.getCurrentGame();
 		Point currentPoint = currentGame.getCurrentPoint();
 
-		if (this.isComplete(currentPoint, match)) {
+		if (this.isComplete(resolver, currentPoint, match)) {
+			int setIndex = match.getSets().size() - 1;
+			int gameIndex = currentSet.getGames().size() - 1;
+			int pointIndex = currentGame.getPoints().size() - 1;
 			this.executeMatchEvents(MatchEventType.ON_POINT_COMPLETION, match);
-			if (this.isComplete(currentGame, match)) {
+			if (this.isComplete(resolver, currentGame, match)) {
 				this.executeMatchEvents(MatchEventType.ON_GAME_COMPLETION, match);
-				if (this.isComplete(currentSet, match)) {
+				if (currentGame instanceof TiebreakGame) {
+					this.executeMatchEvents(MatchEventType.ON_TIEBREAK_COMPLETION, match);
+				}
+				if (this.isComplete(resolver, currentSet, match)) {
 					this.executeMatchEvents(MatchEventType.ON_SET_COMPLETION, match);
-					if (this.isComplete(match, match)) {
+					if (this.isComplete(resolver, match, match)) {
 						this.executeMatchEvents(MatchEventType.ON_MATCH_COMPLETION, match);
 					} else {
-						Player server = currentGame.getServer().getOpposingPlayer(match.getPlayers());
+						Player server = match.getOpposingPlayer(currentGame.getServer());
 						match.getSets().add(new Set(match.getMatchRules(), server, currentGame.getServer(), true));
 					}
 				} else {
@@ -121,11 +149,58 @@ public class SinglesMatchStrategy extends AbstractMatchStrategy {
 			} else {
 				currentGame.getPoints().add(new Point(currentGame.getNextServer(), currentGame.getNextReceiver()));
 			}
+			this.publishEvents(match, currentSet, currentGame, currentPoint, setIndex, gameIndex, pointIndex);
+			this.throwEventFailure();
 		}
 
 		return match;
 	}
 
+	/**
+	 * <p>
+	 * Publishes the typed events of a completed point once <tt>match</tt> has
+	 * been fully updated, so that every event carries the score following the
+	 * point. The score is only packed when a typed listener is registered.
+	 * </p>
+	 */
+	private void publishEvents(Match match, Set set, Game game, Point point, int setIndex, int gameIndex,
+			int pointIndex) {
+		if (this.eventListeners.isEmpty()) {
+			return;
+		}
+
+		String matchId = match.getId();
+		long score = ScoreState.fromMatch(match);
+		this.publishEvent(new PointCompletedEvent(matchId, match.getSlot(point.getWinningPlayer()), setIndex, gameIndex,
+				pointIndex, match.getSlot(point.getServer()), score));
+		if (!game.isCompleted()) {
+			return;
+		}
+		Player gameWinner = game.getWinningPlayer();
+		int winner = match.getSlot(gameWinner);
+		int server = match.getSlot(game.getServer());
+		boolean tiebreak = game instanceof TiebreakGame;
+		this.publishEvent(new GameCompletedEvent(matchId, winner, setIndex, gameIndex, server, tiebreak, score));
+		if (tiebreak) {
+			TiebreakScore tiebreakScore = (TiebreakScore) game.getScore();
+			boolean serverWon = gameWinner == game.getServer();
+			this.publishEvent(new TiebreakCompletedEvent(matchId, winner, setIndex, gameIndex, server,
+					serverWon ? tiebreakScore.getServerScore() : tiebreakScore.getReceiverScore(),
+					serverWon ? tiebreakScore.getReceiverScore() : tiebreakScore.getServerScore(), score));
+		}
+		if (!set.isCompleted()) {
+			return;
+		}
+		SetScore setScore = set.getScore();
+		boolean startingServerWon = gameWinner == set.getStartingServer();
+		this.publishEvent(new SetCompletedEvent(matchId, winner, setIndex,
+				startingServerWon ? setScore.getStartingServerScore() : setScore.getStartingReceiverScore(),
+				startingServerWon ? setScore.getStartingReceiverScore() : setScore.getStartingServerScore(), score));
+		if (match.isCompleted()) {
+			this.publishEvent(new MatchCompletedEvent(matchId, winner, setIndex, score));
+		}
+	}
+
 	/**
 	 * <p>
 	 * Adds <tt>point</tt> into the <tt>match</tt> object.
@@ -164,7 +239,7 @@ public class SinglesMatchStrategy extends AbstractMatchStrategy {
 	public Match update(Match match, Point point) {
 		this.validateAndPrepare(match);
 		match.addPoint(point);
-		return this.process(match);
+		return this.process(match, this.scoreCompletionHandlerResolver);
 	}
 
 	/**
@@ -209,7 +284,58 @@ public class SinglesMatchStrategy extends AbstractMatchStrategy {
 	public Match update(Match match, Stroke stroke) {
 		this.validateAndPrepare(match);
 		match.addStroke(stroke);
-		return this.process(match);
+		return this.process(match, this.scoreCompletionHandlerResolver);
+	}
+
+	/**
+	 * <p>
+	 * Adds every stroke of <tt>strokes</tt> into the <tt>match</tt> object.
+	 * The match is validated and the batch resolver of the score completion
+	 * handlers is obtained once for the whole batch rather than for each
+	 * stroke, see <tt>ScoreCompletionHandlerResolver.forBatch</tt>.
+	 * </p>
+	 * 
+	 * @see AbstractMatchStrategy#updateAll(Match, Iterable, boolean, java.util.function.BiConsumer)
+	 */
+	@Override
+	public BatchResult updateStrokes(Match match, Iterable<? extends Stroke> strokes, boolean deferEvents) {
+		this.validateAndPrepare(match);
+		ScoreCompletionHandlerResolver resolver = this.scoreCompletionHandlerResolver.forBatch();
+		return this.<Stroke>updateAll(match, strokes, deferEvents, (m, stroke) -> {
+			m.addStroke(stroke);
+			this.process(m, resolver);
+		});
+	}
+
+	/**
+	 * <p>
+	 * Adds every point of <tt>points</tt> into the <tt>match</tt> object, with
+	 * the same semantics as <tt>updateStrokes</tt>.
+	 * </p>
+	 * 
+	 * @see AbstractMatchStrategy#updateAll(Match, Iterable, boolean, java.util.function.BiConsumer)
+	 */
+	@Override
+	public BatchResult updatePoints(Match match, Iterable<? extends Point> points, boolean deferEvents) {
+		this.validateAndPrepare(match);
+		ScoreCompletionHandlerResolver resolver = this.scoreCompletionHandlerResolver.forBatch();
+		return this.<Point>updateAll(match, points, deferEvents, (m, point) -> {
+			m.addPoint(point);
+			this.process(m, resolver);
+		});
+	}
+
+	/**
+	 * <p>
+	 * Captures the current point, game and set and the match, which are the
+	 * only parts of the object tree an update changes.
+	 * </p>
+	 * 
+	 * @see MatchTreeCheckpoint
+	 */
+	@Override
+	public UpdateCheckpoint checkpoint(Match match) {
+		return new MatchTreeCheckpoint(match);
 	}
 
 	/**
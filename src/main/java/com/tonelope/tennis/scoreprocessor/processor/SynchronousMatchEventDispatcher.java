@@ -0,0 +1,75 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics;
+
+/**
+ * <p>
+ * The default <tt>MatchEventDispatcher</tt>. Executes consumers inline on the
+ * scoring thread, in registration order. A failing consumer aborts the
+ * dispatch with an <tt>EventDispatchException</tt>, which is thrown by the
+ * update being processed once it has been applied.
+ * </p>
+ *
+ * <p>
+ * If created with a <tt>MatchMetrics</tt>, the duration of each consumer and
+ * each failing consumer are recorded by event type.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class SynchronousMatchEventDispatcher implements MatchEventDispatcher {
+
+	private final MatchMetrics metrics;
+
+	public SynchronousMatchEventDispatcher() {
+		this(null);
+	}
+
+	/**
+	 * @param metrics
+	 *            the metrics to record consumers to, or <tt>null</tt> to not
+	 *            record them
+	 */
+	public SynchronousMatchEventDispatcher(MatchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.MatchEventDispatcher#dispatch(com.tonelope.tennis.scoreprocessor.model.MatchEventType, java.lang.Object, java.util.List)
+	 */
+	@Override
+	public <T> void dispatch(MatchEventType type, T event, List<Consumer<T>> consumers) {
+		for (Consumer<T> consumer : consumers) {
+			long start = null != this.metrics ? System.nanoTime() : 0;
+			try {
+				consumer.accept(event);
+			} catch (Exception e) {
+				if (null != this.metrics) {
+					this.metrics.recordEventFailure(type);
+				}
+				throw new EventDispatchException("Failed to execute an event", e);
+			}
+			if (null != this.metrics) {
+				this.metrics.recordEvent(type, System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+
+/**
+ * <p>
+ * The state a single update of a match may change, captured by
+ * <tt>MatchStrategy.checkpoint</tt> before the update is applied. Restoring
+ * the checkpoint reverts the update.
+ * </p>
+ * 
+ * <p>
+ * A checkpoint only holds the state of the current point, game and set and
+ * of the match itself, so that capturing and restoring it takes constant time
+ * however long the match is. It is only valid while it is the most recent
+ * checkpoint that has not been restored.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FunctionalInterface
+public interface UpdateCheckpoint {
+
+	/**
+	 * <p>
+	 * Reverts <tt>match</tt> to the state it was in when this checkpoint was
+	 * captured.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 */
+	void restore(Match match);
+}
@@ -0,0 +1,132 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.processor.MatchEventDispatcher;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics;
+
+/**
+ * <p>
+ * A <tt>MatchEventDispatcher</tt> that hands events to an <tt>Executor</tt>
+ * so that the scoring thread never waits on consumers.
+ * </p>
+ *
+ * <p>
+ * Only immutable payloads, such as the typed events of
+ * <tt>MatchProcessor.addEventListener</tt>, can be handed to the executor.
+ * Events registered with <tt>registerEvent</tt> would receive the live
+ * <tt>Match</tt>, which the scoring thread keeps mutating, so a strategy
+ * using this dispatcher rejects them; typed events carry the score following
+ * the update instead.
+ * </p>
+ *
+ * <p>
+ * Events are executed one at a time and in the order they were dispatched
+ * through a <tt>SerialExecutor</tt>, so one instance should be created per
+ * match to keep per-match ordering without serializing unrelated matches. Any
+ * number of instances may share the same <tt>executor</tt>.
+ * </p>
+ *
+ * <p>
+ * A failing consumer is logged and counted, and does not prevent the
+ * remaining consumers and events from being executed, nor does it affect
+ * scoring. If created with a <tt>MatchMetrics</tt>, failures are also
+ * recorded there along with the duration of each consumer, by event type.
+ * </p>
+ *
+ * <p>
+ * The consumers of an event are copied when it is dispatched, so consumers
+ * may be registered while earlier events are still being executed.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class AsyncMatchEventDispatcher implements MatchEventDispatcher {
+
+	public static final Logger LOG = LoggerFactory.getLogger(AsyncMatchEventDispatcher.class);
+
+	private final SerialExecutor executor;
+	private final AtomicLong failureCount = new AtomicLong();
+	private final MatchMetrics metrics;
+
+	public AsyncMatchEventDispatcher(Executor executor) {
+		this(executor, null);
+	}
+
+	/**
+	 * @param executor
+	 *            the executor running the consumers
+	 * @param metrics
+	 *            the metrics to record consumers to, or <tt>null</tt> to not
+	 *            record them
+	 */
+	public AsyncMatchEventDispatcher(Executor executor, MatchMetrics metrics) {
+		this.executor = new SerialExecutor(executor);
+		this.metrics = metrics;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.MatchEventDispatcher#dispatch(com.tonelope.tennis.scoreprocessor.model.MatchEventType, java.lang.Object, java.util.List)
+	 */
+	@Override
+	public <T> void dispatch(MatchEventType type, T event, List<Consumer<T>> consumers) {
+		List<Consumer<T>> copy = new ArrayList<>(consumers);
+		this.executor.execute(() -> this.execute(type, event, copy));
+	}
+
+	/**
+	 * @return true, as consumers are executed by the executor.
+	 */
+	@Override
+	public boolean isAsynchronous() {
+		return true;
+	}
+
+	private <T> void execute(MatchEventType type, T event, List<Consumer<T>> consumers) {
+		for (Consumer<T> consumer : consumers) {
+			long start = null != this.metrics ? System.nanoTime() : 0;
+			try {
+				consumer.accept(event);
+			} catch (Exception e) {
+				this.failureCount.incrementAndGet();
+				if (null != this.metrics) {
+					this.metrics.recordEventFailure(type);
+				}
+				LOG.error("Failed to execute an event for {}.", type, e);
+				continue;
+			}
+			if (null != this.metrics) {
+				this.metrics.recordEvent(type, System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of consumer executions that have failed.
+	 */
+	public long getFailureCount() {
+		return this.failureCount.get();
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * A single-writer mailbox for one match. Any thread may submit strokes and
+ * points; they are applied to the <tt>MatchProcessor</tt> one at a time and in
+ * submission order by a <tt>SerialExecutor</tt>, so neither the processor nor
+ * the match object need any locking.
+ * </p>
+ *
+ * <p>
+ * Each submission returns a <tt>CompletableFuture</tt> that completes once the
+ * update has been applied, or completes exceptionally with whatever was
+ * thrown while applying it. A rejected update does not prevent later updates
+ * from being applied.
+ * </p>
+ *
+ * <p>
+ * The match object keeps being mutated by later updates, so it should only be
+ * read on the mailbox thread. <tt>submit</tt> completes with the immutable
+ * <tt>MatchSnapshot</tt> published by the update; use the variants accepting
+ * a <tt>reader</tt> to read anything else from the match (e.g.
+ * <tt>m -&gt; m.getScore().toString()</tt>) right after the update has been
+ * applied.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class MatchMailbox {
+
+	@Getter
+	private final MatchProcessor matchProcessor;
+	private final Executor executor;
+
+	/**
+	 * @param matchProcessor
+	 *            the processor of the match
+	 * @param executor
+	 *            the executor providing the threads of the mailbox. May be
+	 *            shared by any number of mailboxes.
+	 */
+	public MatchMailbox(MatchProcessor matchProcessor, Executor executor) {
+		this.matchProcessor = matchProcessor;
+		this.executor = new SerialExecutor(executor);
+	}
+
+	/**
+	 * @param stroke
+	 *            the stroke object to update within the match
+	 * @return a future of the snapshot published by the update.
+	 */
+	public CompletableFuture<MatchSnapshot> submit(Stroke stroke) {
+		return this.enqueue(() -> {
+			this.matchProcessor.update(stroke);
+			return this.matchProcessor.getSnapshot();
+		});
+	}
+
+	/**
+	 * @param point
+	 *            the point object to update within the match
+	 * @return a future of the snapshot published by the update.
+	 */
+	public CompletableFuture<MatchSnapshot> submit(Point point) {
+		return this.enqueue(() -> {
+			this.matchProcessor.update(point);
+			return this.matchProcessor.getSnapshot();
+		});
+	}
+
+	/**
+	 * <p>
+	 * Queues <tt>stroke</tt> to be applied to the match, after which
+	 * <tt>reader</tt> is executed on the mailbox thread.
+	 * </p>
+	 *
+	 * @param stroke
+	 *            the stroke object to update within the match
+	 * @param reader
+	 *            reads the result from the updated match
+	 * @param <T>
+	 *            the result type
+	 * @return a future of the result of <tt>reader</tt>.
+	 */
+	public <T> CompletableFuture<T> submit(Stroke stroke, Function<Match, T> reader) {
+		return this.enqueue(() -> reader.apply(this.matchProcessor.update(stroke)));
+	}
+
+	/**
+	 * <p>
+	 * Queues <tt>point</tt> to be applied to the match, after which
+	 * <tt>reader</tt> is executed on the mailbox thread.
+	 * </p>
+	 *
+	 * @param point
+	 *            the point object to update within the match
+	 * @param reader
+	 *            reads the result from the updated match
+	 * @param <T>
+	 *            the result type
+	 * @return a future of the result of <tt>reader</tt>.
+	 */
+	public <T> CompletableFuture<T> submit(Point point, Function<Match, T> reader) {
+		return this.enqueue(() -> reader.apply(this.matchProcessor.update(point)));
+	}
+
+	/**
+	 * <p>
+	 * Queues <tt>reader</tt> to be executed on the mailbox thread, after all
+	 * updates submitted before it.
+	 * </p>
+	 *
+	 * @param reader
+	 *            reads the result from the match
+	 * @param <T>
+	 *            the result type
+	 * @return a future of the result of <tt>reader</tt>.
+	 */
+	public <T> CompletableFuture<T> read(Function<Match, T> reader) {
+		return this.enqueue(() -> reader.apply(this.matchProcessor.getMatch()));
+	}
+
+	private <T> CompletableFuture<T> enqueue(Supplier<T> update) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		this.executor.execute(() -> {
+			try {
+				future.complete(update.get());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		});
+		return future;
+	}
+}
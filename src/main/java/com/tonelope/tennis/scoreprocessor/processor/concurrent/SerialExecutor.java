@@ -0,0 +1,130 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * An <tt>Executor</tt> that runs submitted tasks one at a time, in submission
+ * order, on the threads of a shared <tt>delegate</tt> executor.
+ * </p>
+ *
+ * <p>
+ * Tasks are queued in a lock-free queue. The submitting thread that finds the
+ * executor idle schedules a single drain of the queue on <tt>delegate</tt>;
+ * all other submissions only enqueue. Consecutive drains may run on
+ * different threads of <tt>delegate</tt>, but never overlap, and every task
+ * sees the effects of the tasks that ran before it.
+ * </p>
+ *
+ * <p>
+ * If <tt>delegate</tt> rejects the drain, the task submitted is withdrawn
+ * before the rejection is rethrown, so a task is either run or reported as
+ * rejected, never both. Tasks queued concurrently by other threads were
+ * already accepted, so the rejected thread drains them itself. Likewise, a
+ * drain whose hand-off to a new drain is rejected keeps running the queue on
+ * its current thread.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class SerialExecutor implements Executor {
+
+	public static final Logger LOG = LoggerFactory.getLogger(SerialExecutor.class);
+
+	private static final int MAX_TASKS_PER_DRAIN = 1024;
+
+	private final Executor delegate;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	public SerialExecutor(Executor delegate) {
+		this.delegate = delegate;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(Runnable task) {
+		this.tasks.offer(task);
+		if (this.scheduled.compareAndSet(false, true)) {
+			try {
+				this.delegate.execute(this::drain);
+			} catch (RuntimeException e) {
+				// No drain runs while the executor is scheduled, so the task is still queued.
+				this.tasks.remove(task);
+				this.drain();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Runs queued tasks until the queue is empty. After
+	 * <tt>MAX_TASKS_PER_DRAIN</tt> tasks the remaining ones are handed to a new
+	 * drain on <tt>delegate</tt> so that its other work is not starved, or run
+	 * on the current thread if <tt>delegate</tt> rejects that drain.
+	 * </p>
+	 */
+	private void drain() {
+		boolean draining = true;
+		try {
+			while (draining) {
+				this.runTasks();
+				if (!this.tasks.isEmpty()) {
+					draining = !this.reschedule();
+				} else {
+					this.scheduled.set(false);
+					draining = !this.tasks.isEmpty() && this.scheduled.compareAndSet(false, true);
+				}
+			}
+		} finally {
+			if (draining) {
+				this.scheduled.set(false);
+			}
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		int ran = 0;
+		while (ran++ < MAX_TASKS_PER_DRAIN && null != (task = this.tasks.poll())) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				LOG.error("Serial task failed.", e);
+			}
+		}
+	}
+
+	private boolean reschedule() {
+		try {
+			this.delegate.execute(this::drain);
+			return true;
+		} catch (RuntimeException e) {
+			LOG.warn("Serial drain rejected, continuing on the current thread.", e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.event;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+
+import lombok.ToString;
+
+/**
+ * <p>
+ * Published when a match has been completed. The final number of sets won by
+ * each player is available through <tt>getSetsWon</tt>.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@ToString(callSuper = true)
+public class MatchCompletedEvent extends MatchEvent {
+
+	public MatchCompletedEvent(String matchId, int winner, int setIndex, long score) {
+		super(matchId, winner, setIndex, score);
+	}
+
+	@Override
+	public MatchEventType getType() {
+		return MatchEventType.ON_MATCH_COMPLETION;
+	}
+}
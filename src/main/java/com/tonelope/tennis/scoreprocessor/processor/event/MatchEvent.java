@@ -0,0 +1,108 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * Base class of the typed, immutable events published by a
+ * <tt>MatchStrategy</tt> to listeners registered with
+ * <tt>addEventListener</tt>.
+ * </p>
+ *
+ * <p>
+ * Each event carries what changed (the winner and the indices of the
+ * completed scoring object) and the score of the match after the update as a
+ * packed <tt>ScoreState</tt>, so listeners never need to read the
+ * <tt>Match</tt> object and can safely run on other threads. Players are
+ * identified by their slot, as returned by <tt>Match.getSlot</tt>, rather
+ * than by the mutable <tt>Player</tt> objects.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@Getter
+@ToString
+public abstract class MatchEvent {
+
+	private static final Map<Class<?>, MatchEventType> TYPES = new HashMap<>();
+
+	static {
+		TYPES.put(PointCompletedEvent.class, MatchEventType.ON_POINT_COMPLETION);
+		TYPES.put(GameCompletedEvent.class, MatchEventType.ON_GAME_COMPLETION);
+		TYPES.put(TiebreakCompletedEvent.class, MatchEventType.ON_TIEBREAK_COMPLETION);
+		TYPES.put(SetCompletedEvent.class, MatchEventType.ON_SET_COMPLETION);
+		TYPES.put(MatchCompletedEvent.class, MatchEventType.ON_MATCH_COMPLETION);
+		TYPES.put(UpdateUndoneEvent.class, MatchEventType.ON_UNDO);
+	}
+
+	private final String matchId;
+	private final int winner;
+	private final int setIndex;
+	private final long score;
+
+	protected MatchEvent(String matchId, int winner, int setIndex, long score) {
+		this.matchId = matchId;
+		this.winner = winner;
+		this.setIndex = setIndex;
+		this.score = score;
+	}
+
+	/**
+	 * @return the type of this event.
+	 */
+	public abstract MatchEventType getType();
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the number of sets won by <tt>slot</tt> after this event.
+	 */
+	public int getSetsWon(int slot) {
+		return ScoreState.getSetsWon(this.score, slot);
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the number of games won by <tt>slot</tt> in the set in
+	 *         progress after this event.
+	 */
+	public int getGames(int slot) {
+		return ScoreState.getGames(this.score, slot);
+	}
+
+	/**
+	 * @param eventClass
+	 *            a typed event class
+	 * @return the <tt>MatchEventType</tt> of <tt>eventClass</tt>.
+	 */
+	public static MatchEventType getType(Class<? extends MatchEvent> eventClass) {
+		MatchEventType type = TYPES.get(eventClass);
+		if (null == type) {
+			throw new FrameworkException("Unsupported event class " + eventClass);
+		}
+		return type;
+	}
+}
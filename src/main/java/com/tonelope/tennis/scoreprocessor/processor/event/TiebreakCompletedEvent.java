@@ -0,0 +1,52 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.event;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * Published when a tiebreak has been completed, after the
+ * <tt>GameCompletedEvent</tt> of the tiebreak.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@Getter
+@ToString(callSuper = true)
+public class TiebreakCompletedEvent extends MatchEvent {
+
+	private final int gameIndex;
+	private final int firstServer;
+	private final int winnerPoints;
+	private final int loserPoints;
+
+	public TiebreakCompletedEvent(String matchId, int winner, int setIndex, int gameIndex, int firstServer,
+			int winnerPoints, int loserPoints, long score) {
+		super(matchId, winner, setIndex, score);
+		this.gameIndex = gameIndex;
+		this.firstServer = firstServer;
+		this.winnerPoints = winnerPoints;
+		this.loserPoints = loserPoints;
+	}
+
+	@Override
+	public MatchEventType getType() {
+		return MatchEventType.ON_TIEBREAK_COMPLETION;
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.event;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * Published when an update has been undone with <tt>MatchProcessor.undo</tt>.
+ * The events already published for the undone update are not retracted;
+ * this event follows them through the same dispatcher, so that listeners can
+ * reconcile what they derived from them.
+ * </p>
+ *
+ * <p>
+ * The winner is the slot of the player who won the point completed by the
+ * undone update, or <tt>-1</tt> if the update completed no point. The score
+ * and the snapshot are those restored by the undo, and the set index is the
+ * index of the set in progress after it.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+@Getter
+@ToString(callSuper = true)
+public class UpdateUndoneEvent extends MatchEvent {
+
+	private final long undoneScore;
+	private final MatchSnapshot snapshot;
+
+	public UpdateUndoneEvent(String matchId, int winner, int setIndex, long undoneScore, MatchSnapshot snapshot) {
+		super(matchId, winner, setIndex, snapshot.getState());
+		this.undoneScore = undoneScore;
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public MatchEventType getType() {
+		return MatchEventType.ON_UNDO;
+	}
+}
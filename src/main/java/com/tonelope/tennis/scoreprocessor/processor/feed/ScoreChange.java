@@ -0,0 +1,152 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.feed;
+
+import java.nio.ByteBuffer;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * An encoded change published by a <tt>ScoreChangeFeed</tt>: either a delta
+ * describing a single point, or a keyframe holding the full score. Every
+ * change starts with a header byte followed by its version as an unsigned
+ * variable length integer.
+ * </p>
+ * 
+ * <p>
+ * The header of a delta holds the slot of the point winner (<tt>0x01</tt>)
+ * and whether the point completed a game (<tt>0x02</tt>), a set
+ * (<tt>0x04</tt>), a tiebreak (<tt>0x08</tt>) or the match (<tt>0x10</tt>),
+ * and whether the game now in progress is a tiebreak (<tt>0x20</tt>). Unless
+ * the match is complete, the score of the game in progress follows: the
+ * <tt>PointValue</tt> ordinals of slot 0 and slot 1 in the high and low
+ * nibble of one byte, or the tiebreak points of each slot as variable length
+ * integers. A delta is typically 3 bytes long.
+ * </p>
+ * 
+ * <p>
+ * The header of a keyframe is <tt>0x80</tt>. It is followed by the
+ * <tt>MatchRules</tt> (number of sets, number of games per set and flags, one
+ * byte each), the packed <tt>ScoreState</tt> (8 bytes) and the number of
+ * completed sets, each encoded as a flags byte (winner slot <tt>0x01</tt>,
+ * tiebreak <tt>0x02</tt>) and the games, then tiebreak points, of the winner
+ * and the loser as variable length integers.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public final class ScoreChange {
+
+	static final int WINNER = 0x01;
+	static final int GAME = 0x02;
+	static final int SET = 0x04;
+	static final int TIEBREAK_COMPLETED = 0x08;
+	static final int MATCH = 0x10;
+	static final int TIEBREAK = 0x20;
+	static final int KEYFRAME = 0x80;
+
+	static final int NO_AD_SCORING = 0x01;
+	static final int FINAL_SET_TIEBREAK_DISABLED = 0x02;
+
+	@Getter
+	private final long version;
+	private final byte[] bytes;
+
+	ScoreChange(long version, byte[] bytes) {
+		this.version = version;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @return true if this change is a keyframe rather than a delta.
+	 */
+	public boolean isKeyframe() {
+		return 0 != (this.bytes[0] & KEYFRAME);
+	}
+
+	/**
+	 * @return the length of the encoded change in bytes.
+	 */
+	public int getSize() {
+		return this.bytes.length;
+	}
+
+	/**
+	 * @return a read-only buffer over the encoded change.
+	 */
+	public ByteBuffer getEncoded() {
+		return ByteBuffer.wrap(this.bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * <p>
+	 * Writes the encoded change to <tt>out</tt>.
+	 * </p>
+	 * 
+	 * @param out
+	 *            the destination
+	 */
+	public void writeTo(ByteBuffer out) {
+		out.put(this.bytes);
+	}
+
+	/**
+	 * <p>
+	 * Computes the header of the delta of a point won by <tt>winner</tt>,
+	 * from the packed states before and after the point.
+	 * </p>
+	 */
+	static int deltaHeader(long previous, long state, int winner) {
+		boolean matchCompleted = ScoreState.isCompleted(state);
+		boolean setCompleted = matchCompleted || ScoreState.getSetsPlayed(state) != ScoreState.getSetsPlayed(previous);
+		boolean gameCompleted = setCompleted || ScoreState.getGames(state, winner) != ScoreState.getGames(previous, winner);
+		return winner
+				| (gameCompleted ? GAME : 0)
+				| (setCompleted ? SET : 0)
+				| (gameCompleted && ScoreState.isTiebreak(previous) ? TIEBREAK_COMPLETED : 0)
+				| (matchCompleted ? MATCH : 0)
+				| (!matchCompleted && ScoreState.isTiebreak(state) ? TIEBREAK : 0);
+	}
+
+	static void writeVarLong(ByteBuffer out, long value) {
+		while (0 != (value & ~0x7FL)) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	static long readVarLong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (0 == (b & 0x80)) {
+				return value;
+			}
+		}
+		throw new FrameworkException("Malformed variable length integer in score change.");
+	}
+
+	@Override
+	public String toString() {
+		return (this.isKeyframe() ? "ScoreChange(keyframe, version=" : "ScoreChange(delta, version=") + this.version
+				+ ", size=" + this.bytes.length + ")";
+	}
+}
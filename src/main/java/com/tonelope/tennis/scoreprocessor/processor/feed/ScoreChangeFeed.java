@@ -0,0 +1,242 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.feed;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot.CompletedSet;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.UpdateUndoneEvent;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+/**
+ * <p>
+ * Publishes the score of a match to any number of subscribers as a feed of
+ * versioned <tt>ScoreChange</tt>s, e.g. to push it to remote clients. Each
+ * completed point is published as a delta of a few bytes, encoded once and
+ * shared by every subscriber. Game, set, tiebreak and match transitions are
+ * derived from the score carried by the <tt>PointCompletedEvent</tt>, so the
+ * feed works with any <tt>MatchStrategy</tt> publishing typed events.
+ * </p>
+ * 
+ * <p>
+ * A keyframe holding the full score is published after every
+ * <tt>keyframeInterval</tt> deltas, and sent to each new subscriber, so that
+ * clients can join at any point and recover from missed deltas with
+ * <tt>ScoreFeedDecoder</tt>. Undoing a point with
+ * <tt>MatchProcessor.undo</tt> publishes a keyframe with a new version.
+ * </p>
+ * 
+ * <p>
+ * The score restored by an undo is read from the <tt>UpdateUndoneEvent</tt>,
+ * which the event dispatcher of the strategy, e.g. an
+ * <tt>AsyncMatchEventDispatcher</tt>, delivers after the events of the
+ * updates made before the undo.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class ScoreChangeFeed {
+
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+	private static final int MAX_DELTA_SIZE = 16;
+
+	private final Match match;
+	private final int keyframeInterval;
+	private final List<ScoreFeedSubscriber> subscribers = new CopyOnWriteArrayList<>();
+	private final List<CompletedSet> completedSets = new ArrayList<>();
+	private long state;
+	private long version;
+	private int deltasSinceKeyframe;
+	private ScoreChange keyframe;
+
+	private ScoreChangeFeed(MatchProcessor processor, int keyframeInterval) {
+		if (keyframeInterval < 1) {
+			throw new FrameworkException("keyframeInterval must be positive.");
+		}
+		this.match = processor.getMatch();
+		this.keyframeInterval = keyframeInterval;
+		this.resync(processor.getSnapshot());
+	}
+
+	/**
+	 * @param processor
+	 *            the processor of the match
+	 * @return a feed of the match, publishing a keyframe every
+	 *         <tt>DEFAULT_KEYFRAME_INTERVAL</tt> deltas.
+	 * @see #attach(MatchProcessor, int)
+	 */
+	public static ScoreChangeFeed attach(MatchProcessor processor) {
+		return attach(processor, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * <p>
+	 * Creates a feed of the match of <tt>processor</tt>, starting at its
+	 * current score, and registers it with <tt>processor</tt>.
+	 * </p>
+	 * 
+	 * @param processor
+	 *            the processor of the match
+	 * @param keyframeInterval
+	 *            the number of deltas between keyframes
+	 * @return the feed.
+	 */
+	public static ScoreChangeFeed attach(MatchProcessor processor, int keyframeInterval) {
+		ScoreChangeFeed feed = new ScoreChangeFeed(processor, keyframeInterval);
+		processor.addEventListener(PointCompletedEvent.class, feed::onPointCompleted);
+		processor.addEventListener(UpdateUndoneEvent.class, feed::onUndo);
+		return feed;
+	}
+
+	/**
+	 * <p>
+	 * Registers <tt>subscriber</tt>, which first receives a keyframe of the
+	 * current score and then every change that follows.
+	 * </p>
+	 * 
+	 * @param subscriber
+	 *            the subscriber to register
+	 */
+	public synchronized void subscribe(ScoreFeedSubscriber subscriber) {
+		subscriber.onChange(this.getKeyframe());
+		this.subscribers.add(subscriber);
+	}
+
+	/**
+	 * @param subscriber
+	 *            the subscriber to remove
+	 * @return true if <tt>subscriber</tt> was registered.
+	 */
+	public boolean unsubscribe(ScoreFeedSubscriber subscriber) {
+		return this.subscribers.remove(subscriber);
+	}
+
+	/**
+	 * @return the version of the last published change.
+	 */
+	public synchronized long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @return a keyframe of the current score, at the current version.
+	 */
+	public synchronized ScoreChange getKeyframe() {
+		if (null == this.keyframe || this.keyframe.getVersion() != this.version) {
+			this.keyframe = this.encodeKeyframe();
+		}
+		return this.keyframe;
+	}
+
+	private synchronized void onPointCompleted(PointCompletedEvent event) {
+		long previous = this.state;
+		this.state = event.getScore();
+		int header = ScoreChange.deltaHeader(previous, this.state, event.getWinner());
+		if (0 != (header & ScoreChange.SET)) {
+			this.completedSets.add(CompletedSet.following(previous, this.state));
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(MAX_DELTA_SIZE);
+		out.put((byte) header);
+		ScoreChange.writeVarLong(out, ++this.version);
+		if (0 == (header & ScoreChange.MATCH)) {
+			writePoints(out, this.state);
+		}
+		this.publish(new ScoreChange(this.version, Arrays.copyOf(out.array(), out.position())));
+
+		if (++this.deltasSinceKeyframe == this.keyframeInterval) {
+			this.publish(this.getKeyframe());
+		}
+	}
+
+	/**
+	 * <p>
+	 * Publishes a keyframe of the score restored by an undo, unless the undone
+	 * update did not change the score, e.g. a stroke in the middle of a point.
+	 * </p>
+	 */
+	private synchronized void onUndo(UpdateUndoneEvent event) {
+		long previous = this.state;
+		this.resync(event.getSnapshot());
+		if (previous != this.state) {
+			this.version++;
+			this.publish(this.getKeyframe());
+		}
+	}
+
+	private void resync(MatchSnapshot snapshot) {
+		this.state = snapshot.getState();
+		this.completedSets.clear();
+		this.completedSets.addAll(snapshot.getCompletedSets());
+	}
+
+	private void publish(ScoreChange change) {
+		if (change.isKeyframe()) {
+			this.deltasSinceKeyframe = 0;
+		}
+		for (ScoreFeedSubscriber subscriber : this.subscribers) {
+			subscriber.onChange(change);
+		}
+	}
+
+	private ScoreChange encodeKeyframe() {
+		MatchRules matchRules = this.match.getMatchRules();
+		ByteBuffer out = ByteBuffer.allocate(32 + this.completedSets.size() * 24);
+		out.put((byte) ScoreChange.KEYFRAME);
+		ScoreChange.writeVarLong(out, this.version);
+		out.put((byte) matchRules.getNumberOfSets());
+		out.put((byte) matchRules.getNumberOfGamesPerSet());
+		out.put((byte) ((matchRules.isNoAdScoring() ? ScoreChange.NO_AD_SCORING : 0)
+				| (matchRules.isFinalSetTiebreakDisabled() ? ScoreChange.FINAL_SET_TIEBREAK_DISABLED : 0)));
+		out.putLong(this.state);
+		out.put((byte) this.completedSets.size());
+		for (CompletedSet set : this.completedSets) {
+			int winner = set.getWinner();
+			out.put((byte) (winner | (set.isTiebreak() ? 0x02 : 0)));
+			ScoreChange.writeVarLong(out, set.getGames(winner));
+			ScoreChange.writeVarLong(out, set.getGames(winner ^ 1));
+			if (set.isTiebreak()) {
+				ScoreChange.writeVarLong(out, set.getTiebreakPoints(winner));
+				ScoreChange.writeVarLong(out, set.getTiebreakPoints(winner ^ 1));
+			}
+		}
+		return new ScoreChange(this.version, Arrays.copyOf(out.array(), out.position()));
+	}
+
+	/**
+	 * <p>
+	 * Writes the score of the game in progress in <tt>state</tt>.
+	 * </p>
+	 */
+	static void writePoints(ByteBuffer out, long state) {
+		if (ScoreState.isTiebreak(state)) {
+			ScoreChange.writeVarLong(out, ScoreState.getPoints(state, 0));
+			ScoreChange.writeVarLong(out, ScoreState.getPoints(state, 1));
+		} else {
+			out.put((byte) ((ScoreState.getPoints(state, 0) << 4) | ScoreState.getPoints(state, 1)));
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.feed;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot.CompletedSet;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * Rebuilds the score of a match on the subscriber side of a
+ * <tt>ScoreChangeFeed</tt> by applying its changes in order. Deltas are
+ * applied with <tt>ScoreState.pointWonBy</tt> and the rules carried by the
+ * last keyframe, and checked against the score they carry.
+ * </p>
+ * 
+ * <p>
+ * Deltas are ignored until the first keyframe is applied. If a delta does not
+ * follow the last applied version, e.g. after a change was lost, the decoder
+ * is out of sync and ignores deltas until the next keyframe.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+public class ScoreFeedDecoder {
+
+	private MatchRules matchRules;
+	/**
+	 * The packed <tt>ScoreState</tt> of the match.
+	 */
+	private long state;
+	private long version = -1;
+	private boolean inSync;
+	private final List<CompletedSet> completedSets = new ArrayList<>();
+
+	/**
+	 * @param change
+	 *            the change to apply
+	 * @return true if the change was applied, or false if it was ignored.
+	 * @see #apply(ByteBuffer)
+	 */
+	public boolean apply(ScoreChange change) {
+		return this.apply(change.getEncoded());
+	}
+
+	/**
+	 * <p>
+	 * Applies the encoded change read from <tt>in</tt>.
+	 * </p>
+	 * 
+	 * @param in
+	 *            the encoded change
+	 * @return true if the change was applied, or false if it was ignored.
+	 */
+	public boolean apply(ByteBuffer in) {
+		int header = in.get() & 0xFF;
+		long version = ScoreChange.readVarLong(in);
+		if (0 != (header & ScoreChange.KEYFRAME)) {
+			this.applyKeyframe(in);
+		} else if (!this.inSync || version != this.version + 1) {
+			this.inSync = false;
+			return false;
+		} else {
+			this.applyDelta(header, version, in);
+		}
+		this.version = version;
+		this.inSync = true;
+		return true;
+	}
+
+	private void applyKeyframe(ByteBuffer in) {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(in.get());
+		matchRules.setNumberOfGamesPerSet(in.get());
+		int flags = in.get();
+		matchRules.setNoAdScoring(0 != (flags & ScoreChange.NO_AD_SCORING));
+		matchRules.setFinalSetTiebreakDisabled(0 != (flags & ScoreChange.FINAL_SET_TIEBREAK_DISABLED));
+		this.matchRules = matchRules;
+		this.state = in.getLong();
+		this.completedSets.clear();
+		for (int i = in.get(); i > 0; i--) {
+			int setFlags = in.get();
+			int winner = setFlags & 0x01;
+			int winnerGames = (int) ScoreChange.readVarLong(in);
+			int loserGames = (int) ScoreChange.readVarLong(in);
+			boolean tiebreak = 0 != (setFlags & 0x02);
+			int winnerTiebreakPoints = tiebreak ? (int) ScoreChange.readVarLong(in) : 0;
+			int loserTiebreakPoints = tiebreak ? (int) ScoreChange.readVarLong(in) : 0;
+			this.completedSets.add(CompletedSet.of(winner, winnerGames, loserGames, tiebreak, winnerTiebreakPoints,
+					loserTiebreakPoints));
+		}
+	}
+
+	private void applyDelta(int header, long version, ByteBuffer in) {
+		long previous = this.state;
+		int winner = header & ScoreChange.WINNER;
+		long state = ScoreState.pointWonBy(previous, winner, this.matchRules);
+		boolean matches = header == ScoreChange.deltaHeader(previous, state, winner);
+		if (matches && !ScoreState.isCompleted(state)) {
+			if (ScoreState.isTiebreak(state)) {
+				matches = ScoreChange.readVarLong(in) == ScoreState.getPoints(state, 0)
+						&& ScoreChange.readVarLong(in) == ScoreState.getPoints(state, 1);
+			} else {
+				matches = (in.get() & 0xFF) == ((ScoreState.getPoints(state, 0) << 4) | ScoreState.getPoints(state, 1));
+			}
+		}
+		if (!matches) {
+			throw new FrameworkException("Score change " + version + " does not match the score " + ScoreState.toString(previous));
+		}
+		if (0 != (header & ScoreChange.SET)) {
+			this.completedSets.add(CompletedSet.following(previous, state));
+		}
+		this.state = state;
+	}
+
+	/**
+	 * @return the scores of the completed sets.
+	 */
+	public List<CompletedSet> getCompletedSets() {
+		return Collections.unmodifiableList(this.completedSets);
+	}
+}
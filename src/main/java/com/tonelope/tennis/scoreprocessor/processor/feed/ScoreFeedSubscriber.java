@@ -0,0 +1,34 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.feed;
+
+/**
+ * <p>
+ * Receives the changes published by a <tt>ScoreChangeFeed</tt>, in version
+ * order. Subscribers are called on the thread updating the match and should
+ * hand the change off rather than block.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FunctionalInterface
+public interface ScoreFeedSubscriber {
+
+	/**
+	 * @param change
+	 *            the published change, shared by every subscriber
+	 */
+	void onChange(ScoreChange change);
+}
@@ -0,0 +1,329 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchUpdateListener;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * Keeps one <tt>StrokeJournal</tt> per match in a directory, named after the
+ * id of the match, and rebuilds the journaled matches on startup.
+ * </p>
+ * 
+ * <p>
+ * Replaying a long journal can be avoided with <tt>checkpoint</tt>, which
+ * writes a snapshot of the match next to its journal. A match with a snapshot
+ * is recovered by decoding the snapshot and replaying only the records
+ * journaled after it. Undoing updates recorded by the snapshot deletes the
+ * snapshot, so that the match is then recovered from its whole journal.
+ * </p>
+ * 
+ * <p>
+ * A typical lifecycle is to call <tt>recover</tt> once on startup, to
+ * <tt>attach</tt> every match created afterwards and to <tt>remove</tt> the
+ * journal of a match once it no longer needs to survive a restart. Match ids
+ * must be valid file names, which is the case for the ids generated by
+ * <tt>MatchRegistry</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class MatchJournalStore implements Closeable {
+
+	public static final String EXTENSION = ".journal";
+	public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+	@Getter
+	private final Path directory;
+	private final ConcurrentMap<String, StrokeJournal> journals = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, SnapshotGuard> guards = new ConcurrentHashMap<>();
+	private final MatchSnapshotCodec codec = new MatchSnapshotCodec();
+
+	public MatchJournalStore(Path directory) {
+		this.directory = directory;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to create journal directory " + directory, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Journals every stroke and point accepted by <tt>processor</tt> from now
+	 * on, appending to an existing journal of the match if there is one.
+	 * </p>
+	 * 
+	 * @param processor
+	 *            the processor of the match to journal
+	 * @return the journal of the match.
+	 */
+	public StrokeJournal attach(MatchProcessor processor) {
+		String id = processor.getMatch().getId();
+		if (null == id) {
+			throw new FrameworkException("Match id is required to journal a match.");
+		}
+		StrokeJournal journal = new StrokeJournal(this.getFile(id), processor.getMatch().getMatchRules());
+		if (null != this.journals.putIfAbsent(id, journal)) {
+			this.closeJournal(journal);
+			throw new FrameworkException("A journal is already attached for match " + id);
+		}
+		SnapshotGuard guard = new SnapshotGuard(id, journal);
+		this.guards.put(id, guard);
+		processor.addUpdateListener(journal);
+		processor.addUpdateListener(guard);
+		return journal;
+	}
+
+	/**
+	 * <p>
+	 * Writes a snapshot of the match of <tt>processor</tt>, replacing the
+	 * previous one. Must be called by the thread updating the match, as for
+	 * any other read of the match.
+	 * </p>
+	 * 
+	 * @param processor
+	 *            the processor of an attached match
+	 * @return the size of the snapshot in bytes.
+	 */
+	public int checkpoint(MatchProcessor processor) {
+		String id = processor.getMatch().getId();
+		StrokeJournal journal = this.journals.get(id);
+		if (null == journal) {
+			throw new FrameworkException("No journal is attached for match " + id);
+		}
+		byte[] snapshot = this.codec.encode(processor.getMatch());
+		long records = journal.getRecordCount();
+		ByteBuffer content = ByteBuffer.allocate(Long.BYTES + snapshot.length);
+		content.putLong(records).put(snapshot);
+		Path file = this.getSnapshotFile(id);
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.write(temporary, content.array());
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to write snapshot " + file, e);
+		}
+		this.guards.get(id).records = records;
+		return snapshot.length;
+	}
+
+	/**
+	 * <p>
+	 * Stops journaling <tt>processor</tt> and deletes the journal and snapshot
+	 * of its match.
+	 * </p>
+	 * 
+	 * @param processor
+	 *            the processor of the match
+	 * @return true if a journal was attached for the match.
+	 */
+	public boolean remove(MatchProcessor processor) {
+		StrokeJournal journal = this.journals.remove(processor.getMatch().getId());
+		if (null == journal) {
+			return false;
+		}
+		processor.removeUpdateListener(journal);
+		processor.removeUpdateListener(this.guards.remove(processor.getMatch().getId()));
+		this.closeJournal(journal);
+		try {
+			Files.deleteIfExists(journal.getFile());
+			Files.deleteIfExists(this.getSnapshotFile(processor.getMatch().getId()));
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to delete journal " + journal.getFile(), e);
+		}
+		return true;
+	}
+
+	/**
+	 * <p>
+	 * Rebuilds the match of every journal in the directory, restoring the
+	 * matches with a snapshot with <tt>new MatchProcessor(match)</tt>.
+	 * </p>
+	 * 
+	 * @param factory
+	 *            creates the processor of a match from its id and rules
+	 * @return the processors of the rebuilt matches.
+	 * @see #recover(BiFunction, Function)
+	 */
+	public List<MatchProcessor> recover(BiFunction<String, MatchRules, MatchProcessor> factory) {
+		return this.recover(factory, MatchProcessor::new);
+	}
+
+	/**
+	 * <p>
+	 * Rebuilds the match of every journal in the directory. For a journal
+	 * without a snapshot, <tt>factory</tt> creates a processor for a new match
+	 * from the id and the <tt>MatchRules</tt> of the journaled match and the
+	 * whole journal is replayed through it. Otherwise the snapshot is decoded,
+	 * <tt>restore</tt> creates a processor for the decoded match and only the
+	 * records journaled after the snapshot are replayed. Every processor is
+	 * then attached to keep journaling.
+	 * </p>
+	 * 
+	 * <p>
+	 * A snapshot recording more records than its journal holds, as left by
+	 * an undo racing with a crash, is ignored and the whole journal is
+	 * replayed.
+	 * </p>
+	 * 
+	 * @param factory
+	 *            creates the processor of a match from its id and rules
+	 * @param restore
+	 *            creates the processor of a match decoded from a snapshot
+	 * @return the processors of the rebuilt matches.
+	 */
+	public List<MatchProcessor> recover(BiFunction<String, MatchRules, MatchProcessor> factory,
+			Function<Match, MatchProcessor> restore) {
+		List<MatchProcessor> processors = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				String id = name.substring(0, name.length() - EXTENSION.length());
+				Path snapshotFile = this.getSnapshotFile(id);
+				ByteBuffer content = Files.exists(snapshotFile) ? ByteBuffer.wrap(Files.readAllBytes(snapshotFile)) : null;
+				long records = null != content ? content.getLong() : -1;
+				MatchProcessor processor;
+				if (null != content && records <= StrokeJournal.countRecords(file)) {
+					byte[] snapshot = new byte[content.remaining()];
+					content.get(snapshot);
+					processor = restore.apply(this.codec.decode(snapshot));
+					StrokeJournal.replay(file, processor, records);
+				} else {
+					Files.deleteIfExists(snapshotFile);
+					records = -1;
+					processor = factory.apply(id, StrokeJournal.readMatchRules(file));
+					StrokeJournal.replay(file, processor);
+				}
+				this.attach(processor);
+				this.guards.get(id).records = records;
+				processors.add(processor);
+			}
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to list journals in " + this.directory, e);
+		}
+		return processors;
+	}
+
+	/**
+	 * @param id
+	 *            the match id
+	 * @return the journal attached for <tt>id</tt>, or <tt>null</tt> if there
+	 *         is none.
+	 */
+	public StrokeJournal get(String id) {
+		return this.journals.get(id);
+	}
+
+	private Path getFile(String id) {
+		return this.directory.resolve(id + EXTENSION);
+	}
+
+	private Path getSnapshotFile(String id) {
+		return this.directory.resolve(id + SNAPSHOT_EXTENSION);
+	}
+
+	private void deleteSnapshot(String id) {
+		Path file = this.getSnapshotFile(id);
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to delete snapshot " + file, e);
+		}
+	}
+
+	private void closeJournal(StrokeJournal journal) {
+		try {
+			journal.close();
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to close journal " + journal.getFile(), e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (StrokeJournal journal : this.journals.values()) {
+			journal.close();
+		}
+		this.journals.clear();
+		this.guards.clear();
+	}
+
+	/**
+	 * <p>
+	 * Deletes the snapshot of a match once an undo erases records of the
+	 * journal that the snapshot includes. Registered after the journal, so
+	 * that the records are already erased when it is notified.
+	 * </p>
+	 */
+	private final class SnapshotGuard implements MatchUpdateListener {
+
+		private final String id;
+		private final StrokeJournal journal;
+		private long records = -1;
+
+		private SnapshotGuard(String id, StrokeJournal journal) {
+			this.id = id;
+			this.journal = journal;
+		}
+
+		@Override
+		public void onStroke(Match match, Stroke stroke) {
+		}
+
+		@Override
+		public void onPoint(Match match, Point point) {
+		}
+
+		@Override
+		public void onUndo(Match match, Stroke stroke) {
+			this.check();
+		}
+
+		@Override
+		public void onUndo(Match match, Point point) {
+			this.check();
+		}
+
+		private void check() {
+			if (this.records > this.journal.getRecordCount()) {
+				MatchJournalStore.this.deleteSnapshot(this.id);
+				this.records = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,364 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.MatchScore;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointSummary;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeCache;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+
+/**
+ * <p>
+ * Encodes a <tt>Match</tt>, completed or in progress, to a compact binary
+ * snapshot and decodes it back to an equivalent <tt>Match</tt> that can keep
+ * being processed.
+ * </p>
+ * 
+ * <p>
+ * A snapshot holds the <tt>MatchRules</tt>, the players, every set, game,
+ * point and stroke with its <tt>Status</tt>, all scores and the server
+ * rotation of tiebreaks. Players are written once and referred to by their
+ * index within <tt>Match.getPlayers()</tt>, so a stroke takes two bytes and
+ * counts are written as variable length integers. Scores shared between
+ * objects, such as the <tt>SetScore</tt>s listed in the <tt>MatchScore</tt>
+ * and the <tt>TiebreakScore</tt> of a set, are shared again once decoded.
+ * Points collapsed to a <tt>PointSummary</tt> are decoded as summaries.
+ * </p>
+ * 
+ * <p>
+ * Only the object tree is captured. Matches processed by
+ * <tt>ScoreStateMatchStrategy</tt> keep their score outside of the tree and
+ * are not supported. Instances are stateless and thread safe.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class MatchSnapshotCodec {
+
+	private static final int MAGIC = 0x54435331;
+	private static final int VERSION = 1;
+
+	private static final int NO_AD_SCORING = 0x01;
+	private static final int FINAL_SET_TIEBREAK_DISABLED = 0x02;
+	private static final int TIEBREAK = 0x04;
+	private static final int SIMPLE_POINT = 0x04;
+	private static final int POINT_SUMMARY = 0x80;
+	private static final int SET_TIEBREAK_SCORE = 0x40;
+	private static final int OUT = 0x04;
+	private static final int WINNER = 0x08;
+
+	private static final Status[] STATUSES = Status.values();
+	private static final StrokeType[] STROKE_TYPES = StrokeType.values();
+	private static final PointValue[] POINT_VALUES = PointValue.values();
+
+	/**
+	 * @param match
+	 *            the match to encode
+	 * @return the snapshot of <tt>match</tt>.
+	 */
+	public byte[] encode(Match match) {
+		Writer out = new Writer();
+		List<Player> players = match.getPlayers();
+		MatchRules matchRules = match.getMatchRules();
+		out.writeInt(MAGIC);
+		out.write(VERSION);
+		out.writeString(match.getId());
+		out.write(match.getStatus().ordinal());
+		out.writeVarInt(matchRules.getNumberOfSets());
+		out.writeVarInt(matchRules.getNumberOfGamesPerSet());
+		out.write((matchRules.isNoAdScoring() ? NO_AD_SCORING : 0)
+				| (matchRules.isFinalSetTiebreakDisabled() ? FINAL_SET_TIEBREAK_DISABLED : 0));
+		out.writeVarInt(players.size());
+		for (Player player : players) {
+			out.writeString(player.getFirstName());
+			out.writeString(player.getLastName());
+		}
+
+		MatchScore matchScore = match.getScore();
+		out.writeVarInt(matchScore.getStartingServerSetsWon());
+		out.writeVarInt(matchScore.getStartingReceiverSetsWon());
+		List<SetScore> setScores = matchScore.getSetScores();
+		out.writeVarInt(setScores.size());
+		for (int i = 0; i < setScores.size(); i++) {
+			if (i >= match.getSets().size() || setScores.get(i) != match.getSets().get(i).getScore()) {
+				throw new FrameworkException("Set scores of the match score must be the scores of its sets.");
+			}
+		}
+
+		out.writeVarInt(match.getSets().size());
+		for (Set set : match.getSets()) {
+			this.encodeSet(out, set, match);
+		}
+		return out.toByteArray();
+	}
+
+	private void encodeSet(Writer out, Set set, Match match) {
+		SetScore score = set.getScore();
+		TiebreakScore tiebreakScore = score.getTiebreakScore();
+		if (null != tiebreakScore && tiebreakScore != set.getCurrentGame().getScore()) {
+			throw new FrameworkException("Tiebreak score of a set must be the score of its last game.");
+		}
+		out.write(set.getStatus().ordinal() | (match.getPlayerIndex(set.getStartingServer()) << 2)
+				| (match.getPlayerIndex(set.getStartingReceiver()) << 4) | (null != tiebreakScore ? SET_TIEBREAK_SCORE : 0));
+		out.writeVarInt(score.getStartingServerScore());
+		out.writeVarInt(score.getStartingReceiverScore());
+		out.writeVarInt(set.getGames().size());
+		for (Game game : set.getGames()) {
+			this.encodeGame(out, game, match);
+		}
+	}
+
+	private void encodeGame(Writer out, Game game, Match match) {
+		boolean tiebreak = game instanceof TiebreakGame;
+		out.write(game.getStatus().ordinal() | (tiebreak ? TIEBREAK : 0) | (match.getPlayerIndex(game.getServer()) << 3)
+				| (match.getPlayerIndex(game.getReceiver()) << 5));
+		if (tiebreak) {
+			TiebreakGame tiebreakGame = (TiebreakGame) game;
+			TiebreakScore score = (TiebreakScore) game.getScore();
+			out.writeVarInt(score.getServerScore());
+			out.writeVarInt(score.getReceiverScore());
+			out.write(match.getPlayerIndex(tiebreakGame.getRotationServer())
+					| (match.getPlayerIndex(tiebreakGame.getRotationReceiver()) << 2));
+		} else {
+			GameScore score = (GameScore) game.getScore();
+			out.write(score.getServerScore().ordinal() | (score.getReceiverScore().ordinal() << 4));
+		}
+		out.writeVarInt(game.getPoints().size());
+		for (Point point : game.getPoints()) {
+			this.encodePoint(out, point, match);
+		}
+	}
+
+	private void encodePoint(Writer out, Point point, Match match) {
+		boolean simple = point instanceof SimplePoint;
+		boolean summary = point instanceof PointSummary;
+		out.write(point.getStatus().ordinal() | (simple ? SIMPLE_POINT : 0) | (summary ? POINT_SUMMARY : 0)
+				| (match.getPlayerIndex(point.getServer()) << 3) | (match.getPlayerIndex(point.getReceiver()) << 5));
+		if (simple) {
+			out.write(match.getPlayerIndex(point.getWinningPlayer()));
+		}
+		if (summary) {
+			PointSummary pointSummary = (PointSummary) point;
+			out.writeVarInt(pointSummary.getStrokeCount());
+			this.encodeStroke(out, pointSummary.getFinalStroke(), match);
+			return;
+		}
+		out.writeVarInt(point.getStrokes().size());
+		for (Stroke stroke : point.getStrokes()) {
+			this.encodeStroke(out, stroke, match);
+		}
+	}
+
+	private void encodeStroke(Writer out, Stroke stroke, Match match) {
+		out.write(stroke.getStatus().ordinal() | (stroke.isOut() ? OUT : 0) | (stroke.isWinner() ? WINNER : 0)
+				| (match.getPlayerIndex(stroke.getPlayer()) << 4));
+		out.write(stroke.getStrokeType().ordinal());
+	}
+
+	/**
+	 * @param snapshot
+	 *            a snapshot created by <tt>encode</tt>
+	 * @return the decoded match.
+	 */
+	public Match decode(byte[] snapshot) {
+		ByteBuffer in = ByteBuffer.wrap(snapshot);
+		if (snapshot.length < 5 || MAGIC != in.getInt() || VERSION != in.get()) {
+			throw new FrameworkException("Data is not a match snapshot.");
+		}
+		String id = readString(in);
+		Status status = STATUSES[in.get()];
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(readVarInt(in));
+		matchRules.setNumberOfGamesPerSet(readVarInt(in));
+		int flags = in.get();
+		matchRules.setNoAdScoring(0 != (flags & NO_AD_SCORING));
+		matchRules.setFinalSetTiebreakDisabled(0 != (flags & FINAL_SET_TIEBREAK_DISABLED));
+		int playerCount = readVarInt(in);
+		List<Player> players = new ArrayList<>(playerCount);
+		for (int i = 0; i < playerCount; i++) {
+			players.add(new Player(readString(in), readString(in)));
+		}
+
+		Match match = new Match(players, matchRules, false);
+		match.setId(id);
+		match.setStatus(status);
+		MatchScore matchScore = match.getScore();
+		matchScore.setStartingServerSetsWon(readVarInt(in));
+		matchScore.setStartingReceiverSetsWon(readVarInt(in));
+		int setScores = readVarInt(in);
+		int sets = readVarInt(in);
+		for (int i = 0; i < sets; i++) {
+			match.getSets().add(this.decodeSet(in, matchRules, players, match.getStrokeCache()));
+		}
+		for (int i = 0; i < setScores; i++) {
+			matchScore.getSetScores().add(match.getSets().get(i).getScore());
+		}
+		return match;
+	}
+
+	private Set decodeSet(ByteBuffer in, MatchRules matchRules, List<Player> players, StrokeCache strokes) {
+		int header = in.get();
+		Set set = new Set(matchRules, players.get((header >> 2) & 3), players.get((header >> 4) & 3));
+		set.setStatus(STATUSES[header & 3]);
+		SetScore score = set.getScore();
+		score.setStartingServerScore(readVarInt(in));
+		score.setStartingReceiverScore(readVarInt(in));
+		int games = readVarInt(in);
+		for (int i = 0; i < games; i++) {
+			set.getGames().add(this.decodeGame(in, matchRules, players, strokes));
+		}
+		if (0 != (header & SET_TIEBREAK_SCORE)) {
+			score.setTiebreakScore((TiebreakScore) set.getCurrentGame().getScore());
+		}
+		return set;
+	}
+
+	private Game decodeGame(ByteBuffer in, MatchRules matchRules, List<Player> players, StrokeCache strokes) {
+		int header = in.get();
+		Player server = players.get((header >> 3) & 3);
+		Player receiver = players.get((header >> 5) & 3);
+		Game game;
+		if (0 != (header & TIEBREAK)) {
+			TiebreakGame tiebreakGame = new TiebreakGame(server, receiver);
+			TiebreakScore score = (TiebreakScore) tiebreakGame.getScore();
+			score.setServerScore(readVarInt(in));
+			score.setReceiverScore(readVarInt(in));
+			int rotation = in.get();
+			tiebreakGame.setNextServer(players.get(rotation & 3));
+			tiebreakGame.setNextReceiver(players.get((rotation >> 2) & 3));
+			game = tiebreakGame;
+		} else {
+			game = new Game(server, receiver);
+			GameScore score = (GameScore) game.getScore();
+			int values = in.get();
+			score.setServerScore(POINT_VALUES[values & 0xF]);
+			score.setReceiverScore(POINT_VALUES[(values >> 4) & 0xF]);
+		}
+		game.setStatus(STATUSES[header & 3]);
+		int points = readVarInt(in);
+		for (int i = 0; i < points; i++) {
+			game.getPoints().add(this.decodePoint(in, matchRules, players, strokes));
+		}
+		return game;
+	}
+
+	private Point decodePoint(ByteBuffer in, MatchRules matchRules, List<Player> players, StrokeCache strokes) {
+		int header = in.get();
+		Player server = players.get((header >> 3) & 3);
+		Player receiver = players.get((header >> 5) & 3);
+		if (0 != (header & POINT_SUMMARY)) {
+			Player winningPlayer = players.get(in.get());
+			int strokeCount = readVarInt(in);
+			return new PointSummary(server, receiver, winningPlayer, strokeCount, this.decodeStroke(in, strokes));
+		}
+		Point point = 0 != (header & SIMPLE_POINT) ? new SimplePoint(server, receiver, players.get(in.get()))
+				: new Point(server, receiver);
+		int count = readVarInt(in);
+		for (int i = 0; i < count; i++) {
+			point.addStroke(this.decodeStroke(in, strokes), matchRules);
+		}
+		point.setStatus(STATUSES[header & 3]);
+		return point;
+	}
+
+	private Stroke decodeStroke(ByteBuffer in, StrokeCache strokes) {
+		int flags = in.get();
+		Stroke stroke = strokes.get((flags >> 4) & 3, STROKE_TYPES[in.get()], 0 != (flags & OUT), 0 != (flags & WINNER));
+		if (!stroke.getStatus().equals(STATUSES[flags & 3])) {
+			stroke = new Stroke(stroke.getPlayer(), stroke.getStrokeType(), stroke.isOut(), stroke.isWinner());
+			stroke.setStatus(STATUSES[flags & 3]);
+		}
+		return stroke;
+	}
+
+	private static int readVarInt(ByteBuffer in) {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (0 != (b & 0x80));
+		return value;
+	}
+
+	/**
+	 * Strings are written as their UTF-8 length plus one, so that zero
+	 * encodes <tt>null</tt>, followed by their UTF-8 bytes.
+	 */
+	private static String readString(ByteBuffer in) {
+		int length = readVarInt(in) - 1;
+		if (length < 0) {
+			return null;
+		}
+		String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	private static class Writer extends ByteArrayOutputStream {
+
+		Writer() {
+			super(256);
+		}
+
+		void writeInt(int value) {
+			this.write(value >>> 24);
+			this.write(value >>> 16);
+			this.write(value >>> 8);
+			this.write(value);
+		}
+
+		void writeVarInt(int value) {
+			while (0 != (value & ~0x7F)) {
+				this.write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.write(value);
+		}
+
+		void writeString(String value) {
+			if (null == value) {
+				this.writeVarInt(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			this.writeVarInt(bytes.length + 1);
+			this.write(bytes, 0, bytes.length);
+		}
+	}
+}
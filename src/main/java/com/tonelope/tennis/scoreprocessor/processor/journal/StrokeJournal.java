@@ -0,0 +1,351 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeCache;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchUpdateListener;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * An append-only binary journal of the strokes and points accepted for a
+ * single match. Register it with <tt>MatchProcessor.addUpdateListener</tt> to
+ * journal a live match, and rebuild the match after a restart with
+ * <tt>replay</tt>.
+ * </p>
+ * 
+ * <p>
+ * The file starts with a 16 byte header holding the <tt>MatchRules</tt> of the
+ * match, followed by fixed width 4 byte records:
+ * </p>
+ * 
+ * <ul>
+ * <li>byte 0: flags. <tt>0x80</tt> marks a written record, <tt>0x40</tt> a
+ * <tt>SimplePoint</tt> rather than a <tt>Stroke</tt>, <tt>0x01</tt> an out
+ * stroke and <tt>0x02</tt> a winner.</li>
+ * <li>byte 1: the index within <tt>Match.getPlayers()</tt> of the hitter of a
+ * stroke or the server of a point.</li>
+ * <li>byte 2: the <tt>StrokeType</tt> ordinal of a stroke or the index of the
+ * winner of a point.</li>
+ * <li>byte 3: reserved.</li>
+ * </ul>
+ * 
+ * <p>
+ * Records are written into a memory mapped region of the file, so an append is
+ * a single store into memory that survives a crash of the JVM. The file is
+ * extended one region at a time; the unwritten remainder of the last region
+ * is zero filled, which is how the end of the journal is found on recovery.
+ * Call <tt>force</tt> to also survive a crash of the operating system.
+ * </p>
+ * 
+ * <p>
+ * Points containing strokes are journaled as their strokes. Undone updates are
+ * erased from the end of the journal. Instances are not
+ * thread safe and must be updated by the thread updating the match.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class StrokeJournal implements MatchUpdateListener, Closeable {
+
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 4;
+
+	private static final int MAGIC = 0x54434A31;
+	private static final int VERSION = 1;
+	private static final int REGION_SIZE = 64 * 1024;
+
+	private static final int WRITTEN = 0x80;
+	private static final int SIMPLE_POINT = 0x40;
+	private static final int WINNER = 0x02;
+	private static final int OUT = 0x01;
+
+	private static final int NO_AD_SCORING = 0x01;
+	private static final int FINAL_SET_TIEBREAK_DISABLED = 0x02;
+
+	private static final StrokeType[] STROKE_TYPES = StrokeType.values();
+
+	@Getter
+	private final Path file;
+	private final FileChannel channel;
+	private MappedByteBuffer region;
+	private long regionStart;
+	private long position;
+
+	/**
+	 * <p>
+	 * Opens the journal stored in <tt>file</tt> for appending, or creates it
+	 * with a header for <tt>matchRules</tt> if it does not exist yet.
+	 * </p>
+	 * 
+	 * @param file
+	 *            the journal file
+	 * @param matchRules
+	 *            the rules of the journaled match
+	 */
+	public StrokeJournal(Path file, MatchRules matchRules) {
+		this.file = file;
+		try {
+			boolean exists = Files.exists(file) && Files.size(file) >= HEADER_SIZE;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.map(0);
+			if (exists) {
+				readHeader(this.region, file);
+				this.position = findEnd(this.channel, file);
+				this.map(this.position - this.position % REGION_SIZE);
+			} else {
+				writeHeader(this.region, matchRules);
+				this.position = HEADER_SIZE;
+			}
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to open journal " + file, e);
+		}
+	}
+
+	private void map(long start) throws IOException {
+		this.region = this.channel.map(MapMode.READ_WRITE, start, REGION_SIZE);
+		this.regionStart = start;
+	}
+
+	@Override
+	public void onStroke(Match match, Stroke stroke) {
+		this.append(match, stroke);
+	}
+
+	@Override
+	public void onPoint(Match match, Point point) {
+		if (point instanceof SimplePoint) {
+			this.append((SIMPLE_POINT << 24) | (match.getPlayerIndex(point.getServer()) << 16)
+					| (match.getPlayerIndex(point.getWinningPlayer()) << 8));
+		} else {
+			for (Stroke stroke : point.getStrokes()) {
+				this.append(match, stroke);
+			}
+		}
+	}
+
+	@Override
+	public void onUndo(Match match, Stroke stroke) {
+		this.erase(1);
+	}
+
+	@Override
+	public void onUndo(Match match, Point point) {
+		this.erase(point instanceof SimplePoint ? 1 : point.getStrokes().size());
+	}
+
+	private void append(Match match, Stroke stroke) {
+		int flags = (stroke.isOut() ? OUT : 0) | (stroke.isWinner() ? WINNER : 0);
+		this.append((flags << 24) | (match.getPlayerIndex(stroke.getPlayer()) << 16) | (stroke.getStrokeType().ordinal() << 8));
+	}
+
+	private void append(int record) {
+		try {
+			if (this.position - this.regionStart == REGION_SIZE) {
+				this.map(this.position);
+			}
+			this.region.putInt((int) (this.position - this.regionStart), record | (WRITTEN << 24));
+			this.position += RECORD_SIZE;
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to extend journal " + this.file, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Clears the last <tt>records</tt> records, so that recovery ends before
+	 * them.
+	 * </p>
+	 */
+	private void erase(int records) {
+		try {
+			for (int i = 0; i < records && this.position > HEADER_SIZE; i++) {
+				if (this.position == this.regionStart) {
+					this.map(this.regionStart - REGION_SIZE);
+				}
+				this.position -= RECORD_SIZE;
+				this.region.putInt((int) (this.position - this.regionStart), 0);
+			}
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to erase from journal " + this.file, e);
+		}
+	}
+
+	/**
+	 * @return the number of records written to this journal.
+	 */
+	public long getRecordCount() {
+		return (this.position - HEADER_SIZE) / RECORD_SIZE;
+	}
+
+	/**
+	 * <p>
+	 * Flushes the written records to the storage device.
+	 * </p>
+	 */
+	public void force() {
+		this.region.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.force();
+		this.channel.close();
+	}
+
+	/**
+	 * @param file
+	 *            the journal file
+	 * @return the <tt>MatchRules</tt> stored in the header of <tt>file</tt>.
+	 */
+	public static MatchRules readMatchRules(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return readHeader(channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE), file);
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to read journal " + file, e);
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the journal file
+	 * @return the number of records written to <tt>file</tt>.
+	 */
+	public static long countRecords(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return (findEnd(channel, file) - HEADER_SIZE) / RECORD_SIZE;
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to read journal " + file, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Rebuilds a match by applying every record of <tt>file</tt> to
+	 * <tt>processor</tt>, whose match must have been created with the same
+	 * players, in the same order, as the journaled match.
+	 * </p>
+	 * 
+	 * @param file
+	 *            the journal file
+	 * @param processor
+	 *            the processor of the match to rebuild
+	 * @return the number of records applied.
+	 */
+	public static long replay(Path file, MatchProcessor processor) {
+		return replay(file, processor, 0);
+	}
+
+	/**
+	 * <p>
+	 * Applies the records of <tt>file</tt> following the first
+	 * <tt>fromRecord</tt> records to <tt>processor</tt>, e.g. the tail of the
+	 * journal written after a snapshot of the match was taken.
+	 * </p>
+	 * 
+	 * @param file
+	 *            the journal file
+	 * @param processor
+	 *            the processor of the match to update
+	 * @param fromRecord
+	 *            the number of records to skip
+	 * @return the number of records applied.
+	 */
+	public static long replay(Path file, MatchProcessor processor, long fromRecord) {
+		List<Player> players = processor.getMatch().getPlayers();
+		StrokeCache strokes = processor.getMatch().getStrokeCache();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long end = findEnd(channel, file);
+			long start = HEADER_SIZE + fromRecord * RECORD_SIZE;
+			if (start > end) {
+				throw new FrameworkException("Journal " + file + " has less than " + fromRecord + " records.");
+			}
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, end);
+			for (int position = (int) start; position < end; position += RECORD_SIZE) {
+				int record = buffer.getInt(position);
+				int flags = record >>> 24;
+				Player player = players.get((record >>> 16) & 0xFF);
+				int value = (record >>> 8) & 0xFF;
+				if (0 != (flags & SIMPLE_POINT)) {
+					processor.update(new SimplePoint(player, processor.getMatch().getOpposingPlayer(player), players.get(value)));
+				} else {
+					processor.update(strokes.get(player, STROKE_TYPES[value], 0 != (flags & OUT), 0 != (flags & WINNER)));
+				}
+			}
+			return (end - start) / RECORD_SIZE;
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to replay journal " + file, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Finds the end of the written records, which is the first record without
+	 * the written flag or the end of the file.
+	 * </p>
+	 */
+	private static long findEnd(FileChannel channel, Path file) throws IOException {
+		long size = channel.size();
+		MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+		long position = HEADER_SIZE;
+		while (position + RECORD_SIZE <= size && 0 != (buffer.get((int) position) & WRITTEN)) {
+			position += RECORD_SIZE;
+		}
+		return position;
+	}
+
+	private static void writeHeader(MappedByteBuffer buffer, MatchRules matchRules) {
+		int flags = (matchRules.isNoAdScoring() ? NO_AD_SCORING : 0)
+				| (matchRules.isFinalSetTiebreakDisabled() ? FINAL_SET_TIEBREAK_DISABLED : 0);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.put(8, (byte) matchRules.getNumberOfSets());
+		buffer.put(9, (byte) matchRules.getNumberOfGamesPerSet());
+		buffer.put(10, (byte) flags);
+	}
+
+	private static MatchRules readHeader(MappedByteBuffer buffer, Path file) {
+		if (MAGIC != buffer.getInt(0) || VERSION != buffer.getInt(4)) {
+			throw new FrameworkException("File " + file + " is not a stroke journal.");
+		}
+		int flags = buffer.get(10);
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(buffer.get(8));
+		matchRules.setNumberOfGamesPerSet(buffer.get(9));
+		matchRules.setNoAdScoring(0 != (flags & NO_AD_SCORING));
+		matchRules.setFinalSetTiebreakDisabled(0 != (flags & FINAL_SET_TIEBREAK_DISABLED));
+		return matchRules;
+	}
+}
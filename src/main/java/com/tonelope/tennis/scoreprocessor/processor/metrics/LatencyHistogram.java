@@ -0,0 +1,141 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A fixed size, log-linear histogram of durations in nanoseconds. Each power
+ * of two is split into four buckets, so a recorded value is reported with an
+ * error of at most 25%.
+ * </p>
+ * 
+ * <p>
+ * Recording is lock-free and allocation-free: it increments one bucket and
+ * the count and sum, and raises the maximum with a compare-and-set loop. The
+ * histogram may be recorded to and read from any number of threads; reads are
+ * weakly consistent with concurrent recordings.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos
+	 *            the duration to record, negative durations are recorded as
+	 *            <tt>0</tt>
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		this.buckets.incrementAndGet(bucketOf(value));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(value);
+		long current = this.max.get();
+		while (value > current && !this.max.compareAndSet(current, value)) {
+			current = this.max.get();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Values below <tt>SUB_BUCKETS</tt> have a bucket each; larger values are
+	 * bucketed by their highest bit and the two bits that follow it.
+	 * </p>
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return ((exponent + 1) << SUB_BUCKET_BITS) | (int) ((value >>> exponent) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * @return the largest value of <tt>bucket</tt>.
+	 */
+	private static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = (bucket >>> SUB_BUCKET_BITS) - 1;
+		long base = (long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1))) << exponent;
+		return base + (1L << exponent) - 1;
+	}
+
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * @return the sum of the recorded durations.
+	 */
+	public long getTotalNanos() {
+		return this.sum.get();
+	}
+
+	public long getMaxNanos() {
+		return this.max.get();
+	}
+
+	/**
+	 * @return the mean of the recorded durations, or <tt>0</tt> if none were
+	 *         recorded.
+	 */
+	public double getMeanNanos() {
+		long count = this.count.get();
+		return 0 == count ? 0 : (double) this.sum.get() / count;
+	}
+
+	/**
+	 * @param percentile
+	 *            the percentile, from <tt>0</tt> to <tt>100</tt>
+	 * @return the upper bound of the bucket holding <tt>percentile</tt>, never
+	 *         above the maximum, or <tt>0</tt> if nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += this.buckets.get(i);
+		}
+		long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.buckets.get(i);
+			if (seen >= rank && 0 != seen) {
+				return Math.min(upperBoundOf(i), this.max.get());
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + this.getCount() + ", mean=" + Math.round(this.getMeanNanos()) + "ns, p50="
+				+ this.getValueAtPercentile(50) + "ns, p99=" + this.getValueAtPercentile(99) + "ns, max=" + this.getMaxNanos()
+				+ "ns";
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A <tt>MetricsReporter</tt> that logs each metric at info level. Histograms
+ * and counters that have not recorded anything are skipped.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class LoggingMetricsReporter implements MetricsReporter {
+
+	public static final Logger LOG = LoggerFactory.getLogger(LoggingMetricsReporter.class);
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.metrics.MetricsReporter#reportHistogram(java.lang.String, com.tonelope.tennis.scoreprocessor.processor.metrics.LatencyHistogram)
+	 */
+	@Override
+	public void reportHistogram(String name, LatencyHistogram histogram) {
+		if (0 != histogram.getCount()) {
+			LOG.info("{}: {}", name, histogram);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.metrics.MetricsReporter#reportCounter(java.lang.String, long)
+	 */
+	@Override
+	public void reportCounter(String name, long count) {
+		if (0 != count) {
+			LOG.info("{}: {}", name, count);
+		}
+	}
+}
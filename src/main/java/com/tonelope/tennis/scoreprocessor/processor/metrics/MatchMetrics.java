@@ -0,0 +1,230 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.Winnable;
+
+/**
+ * <p>
+ * Collects the latency and throughput metrics of scoring:
+ * </p>
+ * 
+ * <ul>
+ * <li>the duration of each stroke and point update, including the items of
+ * batch updates, and the number of rejected updates, recorded by
+ * <tt>MatchProcessor</tt> once <tt>setMetrics</tt> is called.</li>
+ * <li>the number of completion checks by scoring level and outcome, recorded
+ * by <tt>MeteredScoreCompletionHandlerResolver</tt>.</li>
+ * <li>the duration of each event consumer by <tt>MatchEventType</tt>, and the
+ * number of consumers that failed, recorded by
+ * <tt>SynchronousMatchEventDispatcher</tt> and
+ * <tt>AsyncMatchEventDispatcher</tt> when created with metrics.</li>
+ * </ul>
+ * 
+ * <p>
+ * Every metric is allocated up front and recorded to with atomic operations
+ * only, so recording neither locks nor allocates, and one instance may be
+ * shared by any number of matches and threads. Metrics are exported with
+ * <tt>report</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class MatchMetrics {
+
+	/**
+	 * The scoring level of a completion check.
+	 */
+	public enum Level {
+		POINT, GAME, SET, MATCH;
+
+		/**
+		 * @param scoringObject
+		 *            the scoring object checked
+		 * @return the level of <tt>scoringObject</tt>.
+		 */
+		public static Level of(Winnable scoringObject) {
+			if (scoringObject instanceof Point) {
+				return POINT;
+			} else if (scoringObject instanceof Game) {
+				return GAME;
+			} else if (scoringObject instanceof Set) {
+				return SET;
+			}
+			return MATCH;
+		}
+	}
+
+	/**
+	 * The outcome of a completion check.
+	 */
+	public enum Outcome {
+		COMPLETED, NOT_COMPLETED, FAILED
+	}
+
+	private static final Level[] LEVELS = Level.values();
+	private static final Outcome[] OUTCOMES = Outcome.values();
+	private static final MatchEventType[] EVENT_TYPES = MatchEventType.values();
+
+	private final LatencyHistogram strokeUpdates = new LatencyHistogram();
+	private final LatencyHistogram pointUpdates = new LatencyHistogram();
+	private final AtomicLong rejectedUpdates = new AtomicLong();
+	private final AtomicLongArray resolutions = new AtomicLongArray(LEVELS.length * OUTCOMES.length);
+	private final LatencyHistogram[] eventDurations = new LatencyHistogram[EVENT_TYPES.length];
+	private final AtomicLongArray eventFailures = new AtomicLongArray(EVENT_TYPES.length);
+
+	public MatchMetrics() {
+		for (int i = 0; i < this.eventDurations.length; i++) {
+			this.eventDurations[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * @param stroke
+	 *            true for a stroke update, false for a point update
+	 * @param nanos
+	 *            the duration of the update
+	 */
+	public void recordUpdate(boolean stroke, long nanos) {
+		(stroke ? this.strokeUpdates : this.pointUpdates).record(nanos);
+	}
+
+	/**
+	 * <p>
+	 * Counts an update rejected with an exception.
+	 * </p>
+	 */
+	public void recordRejectedUpdate() {
+		this.rejectedUpdates.incrementAndGet();
+	}
+
+	/**
+	 * @param level
+	 *            the level of the scoring object checked
+	 * @param outcome
+	 *            the outcome of the check
+	 */
+	public void recordResolution(Level level, Outcome outcome) {
+		this.resolutions.incrementAndGet(level.ordinal() * OUTCOMES.length + outcome.ordinal());
+	}
+
+	/**
+	 * @param type
+	 *            the type of the event
+	 * @param nanos
+	 *            the duration of a single consumer
+	 */
+	public void recordEvent(MatchEventType type, long nanos) {
+		this.eventDurations[type.ordinal()].record(nanos);
+	}
+
+	/**
+	 * <p>
+	 * Counts a consumer of <tt>type</tt> that failed.
+	 * </p>
+	 * 
+	 * @param type
+	 *            the type of the event
+	 */
+	public void recordEventFailure(MatchEventType type) {
+		this.eventFailures.incrementAndGet(type.ordinal());
+	}
+
+	/**
+	 * @return the durations of stroke updates.
+	 */
+	public LatencyHistogram getStrokeUpdates() {
+		return this.strokeUpdates;
+	}
+
+	/**
+	 * @return the durations of point updates.
+	 */
+	public LatencyHistogram getPointUpdates() {
+		return this.pointUpdates;
+	}
+
+	public long getRejectedUpdates() {
+		return this.rejectedUpdates.get();
+	}
+
+	/**
+	 * @param level
+	 *            the scoring level
+	 * @param outcome
+	 *            the outcome
+	 * @return the number of completion checks at <tt>level</tt> with
+	 *         <tt>outcome</tt>.
+	 */
+	public long getResolutions(Level level, Outcome outcome) {
+		return this.resolutions.get(level.ordinal() * OUTCOMES.length + outcome.ordinal());
+	}
+
+	/**
+	 * @param type
+	 *            the type of the event
+	 * @return the durations of the consumers of <tt>type</tt>.
+	 */
+	public LatencyHistogram getEventDurations(MatchEventType type) {
+		return this.eventDurations[type.ordinal()];
+	}
+
+	/**
+	 * @param type
+	 *            the type of the event
+	 * @return the number of consumers of <tt>type</tt> that failed.
+	 */
+	public long getEventFailures(MatchEventType type) {
+		return this.eventFailures.get(type.ordinal());
+	}
+
+	/**
+	 * <p>
+	 * Reports every metric to <tt>reporter</tt>: <tt>update.stroke</tt>,
+	 * <tt>update.point</tt> and <tt>update.rejected</tt>, then
+	 * <tt>resolution.&lt;level&gt;.&lt;outcome&gt;</tt> (e.g.
+	 * <tt>resolution.game.completed</tt>), then
+	 * <tt>event.&lt;type&gt;</tt> and <tt>event.&lt;type&gt;.failed</tt> for
+	 * each <tt>MatchEventType</tt>. Metrics keep accumulating after being
+	 * reported.
+	 * </p>
+	 * 
+	 * @param reporter
+	 *            the reporter to export to
+	 */
+	public void report(MetricsReporter reporter) {
+		reporter.reportHistogram("update.stroke", this.strokeUpdates);
+		reporter.reportHistogram("update.point", this.pointUpdates);
+		reporter.reportCounter("update.rejected", this.getRejectedUpdates());
+		for (Level level : LEVELS) {
+			for (Outcome outcome : OUTCOMES) {
+				reporter.reportCounter("resolution." + level.name().toLowerCase(Locale.ROOT) + "."
+						+ outcome.name().toLowerCase(Locale.ROOT), this.getResolutions(level, outcome));
+			}
+		}
+		for (MatchEventType type : EVENT_TYPES) {
+			reporter.reportHistogram("event." + type, this.getEventDurations(type));
+			reporter.reportCounter("event." + type + ".failed", this.getEventFailures(type));
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.metrics;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Winnable;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics.Level;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics.Outcome;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandlerResolver;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * A <tt>ScoreCompletionHandlerResolver</tt> that counts the completion checks
+ * of another resolver in a <tt>MatchMetrics</tt>, by scoring level and
+ * outcome. A check that throws is counted as failed and the exception is
+ * rethrown.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+public class MeteredScoreCompletionHandlerResolver implements ScoreCompletionHandlerResolver {
+
+	private final ScoreCompletionHandlerResolver delegate;
+	private final MatchMetrics metrics;
+
+	/**
+	 * @param delegate
+	 *            the resolver to count, or <tt>null</tt> for
+	 *            <tt>DefaultScoreCompletionStrategyHandler</tt>
+	 * @param metrics
+	 *            the metrics to record to
+	 */
+	public MeteredScoreCompletionHandlerResolver(ScoreCompletionHandlerResolver delegate, MatchMetrics metrics) {
+		if (null == metrics) {
+			throw new FrameworkException("metrics can not be null.");
+		}
+		this.delegate = null != delegate ? delegate : new DefaultScoreCompletionStrategyHandler();
+		this.metrics = metrics;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandlerResolver#resolve(com.tonelope.tennis.scoreprocessor.model.Winnable, com.tonelope.tennis.scoreprocessor.model.Match)
+	 */
+	@Override
+	public boolean resolve(Winnable scoringObject, Match match) {
+		Level level = Level.of(scoringObject);
+		boolean completed;
+		try {
+			completed = this.delegate.resolve(scoringObject, match);
+		} catch (RuntimeException e) {
+			this.metrics.recordResolution(level, Outcome.FAILED);
+			throw e;
+		}
+		this.metrics.recordResolution(level, completed ? Outcome.COMPLETED : Outcome.NOT_COMPLETED);
+		return completed;
+	}
+
+	/**
+	 * @return a resolver counting the checks of the batch resolver of the
+	 *         delegate.
+	 */
+	@Override
+	public ScoreCompletionHandlerResolver forBatch() {
+		ScoreCompletionHandlerResolver batchDelegate = this.delegate.forBatch();
+		return batchDelegate == this.delegate ? this : new MeteredScoreCompletionHandlerResolver(batchDelegate, this.metrics);
+	}
+}
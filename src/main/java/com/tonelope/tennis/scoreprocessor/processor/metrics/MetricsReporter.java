@@ -0,0 +1,44 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.metrics;
+
+/**
+ * <p>
+ * Receives the metrics of a <tt>MatchMetrics</tt> when it is reported, e.g.
+ * to publish them to a monitoring system. Metrics are reported in a fixed
+ * order, once per call to <tt>MatchMetrics.report</tt>.
+ * </p>
+ * 
+ * @see com.tonelope.tennis.scoreprocessor.processor.metrics.LoggingMetricsReporter
+ * @author Tony Lopez
+ *
+ */
+public interface MetricsReporter {
+
+	/**
+	 * @param name
+	 *            the name of the metric (e.g. <tt>update.stroke</tt>)
+	 * @param histogram
+	 *            the durations recorded, which may still be recorded to
+	 */
+	void reportHistogram(String name, LatencyHistogram histogram);
+
+	/**
+	 * @param name
+	 *            the name of the metric (e.g. <tt>update.rejected</tt>)
+	 * @param count
+	 *            the value of the counter
+	 */
+	void reportCounter(String name, long count);
+}
@@ -0,0 +1,400 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.probability;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+/**
+ * <p>
+ * Computes the exact probability of each player winning a match from its
+ * current score, assuming every point is won by its server with a fixed
+ * probability per player (the Markov chain model of tennis scoring).
+ * </p>
+ * 
+ * <p>
+ * The probabilities are computed recursively over the states of a game, a
+ * tiebreak and the sets and games of the match, memoized in primitive arrays.
+ * The recursions end on deuce, on a tied tiebreak from 6-6 and on a tied
+ * advantage set with closed forms, so scores of any length are supported. All
+ * tables are filled when a calculator is created, after which a lookup is a
+ * handful of array reads. Calculators are immutable and shared through
+ * <tt>of</tt>, which caches them per rules and probabilities.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public final class WinProbabilityCalculator {
+
+	private static final int MAX_CACHED = 1024;
+	private static final ConcurrentMap<Key, WinProbabilityCalculator> CACHE = new ConcurrentHashMap<>();
+
+	private static final int FORTY = PointValue.FORTY.ordinal();
+	private static final int ADVANTAGE = PointValue.ADVANTAGE.ordinal();
+	private static final int GAME_WIDTH = ADVANTAGE + 1;
+	private static final int TIEBREAK_POINTS_NEEDED = 7;
+	private static final int TIEBREAK_WIDTH = TIEBREAK_POINTS_NEEDED + 2;
+
+	private final MatchRules matchRules;
+	private final double[] serveWin;
+	private final int setsToWin;
+	private final int gamesNeeded;
+	private final int setWidth;
+
+	/**
+	 * Probability of the server winning a game, by server slot and the point
+	 * indices of the server and the receiver.
+	 */
+	private final double[] games = new double[2 * GAME_WIDTH * GAME_WIDTH];
+	/**
+	 * Probability of slot <tt>0</tt> winning a tiebreak, by first server and
+	 * the points of both slots.
+	 */
+	private final double[] tiebreaks = new double[2 * TIEBREAK_WIDTH * TIEBREAK_WIDTH];
+	/**
+	 * Probability of slot <tt>0</tt> winning the match, by sets won, games of
+	 * the current set and server of the next game.
+	 */
+	private final double[] matches;
+
+	private WinProbabilityCalculator(MatchRules matchRules, double serveWin0, double serveWin1) {
+		this.matchRules = copy(matchRules);
+		this.serveWin = new double[] { serveWin0, serveWin1 };
+		this.setsToWin = matchRules.getNumberOfSetsToWin();
+		this.gamesNeeded = matchRules.getNumberOfGamesPerSet();
+		this.setWidth = this.gamesNeeded + 2;
+		this.matches = new double[this.setsToWin * this.setsToWin * this.setWidth * this.setWidth * 2];
+		Arrays.fill(this.games, Double.NaN);
+		Arrays.fill(this.tiebreaks, Double.NaN);
+		Arrays.fill(this.matches, Double.NaN);
+
+		// Fill every table up front, lookups then only read them.
+		for (int slot = 0; slot < 2; slot++) {
+			for (int a = 0; a < GAME_WIDTH; a++) {
+				for (int b = 0; b < GAME_WIDTH; b++) {
+					if (this.isGameState(a, b)) {
+						this.game(slot, a, b);
+					}
+				}
+			}
+			for (int a = 0; a < TIEBREAK_WIDTH; a++) {
+				for (int b = 0; b < TIEBREAK_WIDTH; b++) {
+					this.tiebreak(a, b, slot);
+				}
+			}
+		}
+		for (int s0 = 0; s0 < this.setsToWin; s0++) {
+			for (int s1 = 0; s1 < this.setsToWin; s1++) {
+				for (int g0 = 0; g0 < this.setWidth; g0++) {
+					for (int g1 = 0; g1 < this.setWidth; g1++) {
+						if (this.isSetState(s0 + s1, g0, g1)) {
+							this.match(s0, s1, g0, g1, 0);
+							this.match(s0, s1, g0, g1, 1);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isGameState(int a, int b) {
+		if (a == ADVANTAGE || b == ADVANTAGE) {
+			return !this.matchRules.isNoAdScoring() && (a == FORTY || b == FORTY);
+		}
+		return true;
+	}
+
+	private boolean isSetState(int setsPlayed, int g0, int g1) {
+		if (Math.max(g0, g1) >= this.gamesNeeded && Math.abs(g0 - g1) > 1) {
+			return false;
+		}
+		return this.isWinByTwo(setsPlayed) || Math.max(g0, g1) <= this.gamesNeeded;
+	}
+
+	private boolean isWinByTwo(int setsPlayed) {
+		return setsPlayed == this.matchRules.getNumberOfSets() - 1 && this.matchRules.isFinalSetTiebreakDisabled();
+	}
+
+	/**
+	 * <p>
+	 * Returns the calculator for <tt>matchRules</tt> and the provided serve
+	 * probabilities, creating it on first use. At most <tt>1024</tt>
+	 * calculators are cached; the cache is cleared when it is full.
+	 * </p>
+	 * 
+	 * @param matchRules
+	 *            the rules being played
+	 * @param serveWin0
+	 *            the probability of the player in slot <tt>0</tt> winning a
+	 *            point on serve
+	 * @param serveWin1
+	 *            the probability of the player in slot <tt>1</tt> winning a
+	 *            point on serve
+	 * @return the calculator, or else a <tt>FrameworkException</tt> is thrown
+	 *         if a probability is not strictly between <tt>0</tt> and
+	 *         <tt>1</tt>.
+	 */
+	public static WinProbabilityCalculator of(MatchRules matchRules, double serveWin0, double serveWin1) {
+		if (!(serveWin0 > 0 && serveWin0 < 1 && serveWin1 > 0 && serveWin1 < 1)) {
+			throw new FrameworkException(
+					"Serve win probabilities must be between 0 and 1 exclusive. Found: " + serveWin0 + ", " + serveWin1);
+		}
+		Key key = new Key(matchRules.getNumberOfSets(), matchRules.getNumberOfGamesPerSet(),
+				matchRules.isFinalSetTiebreakDisabled(), matchRules.isNoAdScoring(), serveWin0, serveWin1);
+		WinProbabilityCalculator calculator = CACHE.get(key);
+		if (null == calculator) {
+			if (CACHE.size() >= MAX_CACHED) {
+				CACHE.clear();
+			}
+			calculator = CACHE.computeIfAbsent(key, k -> new WinProbabilityCalculator(matchRules, serveWin0, serveWin1));
+		}
+		return calculator;
+	}
+
+	/**
+	 * @param match
+	 *            the match, scored with the <tt>Set</tt>, <tt>Game</tt> and
+	 *            <tt>Point</tt> object tree
+	 * @param player
+	 *            a player of the match
+	 * @return the probability of <tt>player</tt> winning the match.
+	 */
+	public double getMatchWinProbability(Match match, Player player) {
+		return this.getMatchWinProbability(ScoreState.fromMatch(match), match.getSlot(player));
+	}
+
+	/**
+	 * @param state
+	 *            the packed <tt>ScoreState</tt> of the match
+	 * @param slot
+	 *            the player slot
+	 * @return the probability of the player in <tt>slot</tt> winning the
+	 *         match.
+	 */
+	public double getMatchWinProbability(long state, int slot) {
+		double probability = this.getMatchWinProbability(state);
+		return 0 == slot ? probability : 1 - probability;
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the probability of the player in <tt>slot</tt> winning a game
+	 *         on serve.
+	 */
+	public double getHoldProbability(int slot) {
+		return this.game(slot, 0, 0);
+	}
+
+	private double getMatchWinProbability(long state) {
+		if (ScoreState.isCompleted(state)) {
+			return 0 == ScoreState.getWinner(state) ? 1 : 0;
+		}
+		int s0 = ScoreState.getSetsWon(state, 0);
+		int s1 = ScoreState.getSetsWon(state, 1);
+		int g0 = ScoreState.getGames(state, 0);
+		int g1 = ScoreState.getGames(state, 1);
+		int server = ScoreState.getServer(state);
+		int p0 = ScoreState.getPoints(state, 0);
+		int p1 = ScoreState.getPoints(state, 1);
+		if (ScoreState.isTiebreak(state)) {
+			// Only even numbers of points are removed, which keeps the serve rotation.
+			int excess = Math.min(p0, p1) - (TIEBREAK_POINTS_NEEDED - 1);
+			if (excess > 1) {
+				p0 -= excess & ~1;
+				p1 -= excess & ~1;
+			}
+			double win = this.tiebreak(p0, p1, server);
+			return win * this.match(s0 + 1, s1, 0, 0, server ^ 1) + (1 - win) * this.match(s0, s1 + 1, 0, 0, server ^ 1);
+		}
+		double win = 0 == server ? this.game(0, p0, p1) : 1 - this.game(1, p1, p0);
+		return win * this.afterGame(s0, s1, g0 + 1, g1, server ^ 1) + (1 - win) * this.afterGame(s0, s1, g0, g1 + 1, server ^ 1);
+	}
+
+	/**
+	 * <p>
+	 * Probability of the server in <tt>slot</tt> winning a regular game from
+	 * point indices <tt>a</tt> (server) and <tt>b</tt> (receiver).
+	 * </p>
+	 */
+	private double game(int slot, int a, int b) {
+		int index = (slot * GAME_WIDTH + a) * GAME_WIDTH + b;
+		double memo = this.games[index];
+		if (!Double.isNaN(memo)) {
+			return memo;
+		}
+		double p = this.serveWin[slot];
+		double q = 1 - p;
+		double deuce = this.matchRules.isNoAdScoring() ? p : p * p / (p * p + q * q);
+		double result;
+		if (a == ADVANTAGE) {
+			result = p + q * deuce;
+		} else if (b == ADVANTAGE) {
+			result = p * deuce;
+		} else if (a == FORTY && b == FORTY) {
+			result = deuce;
+		} else if (a == FORTY) {
+			result = p + q * this.game(slot, a, b + 1);
+		} else if (b == FORTY) {
+			result = p * this.game(slot, a + 1, b);
+		} else {
+			result = p * this.game(slot, a + 1, b) + q * this.game(slot, a, b + 1);
+		}
+		this.games[index] = result;
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Probability of slot <tt>0</tt> winning a tiebreak first served by
+	 * <tt>server</tt>, with <tt>a</tt> and <tt>b</tt> points won by slots
+	 * <tt>0</tt> and <tt>1</tt>.
+	 * </p>
+	 */
+	private double tiebreak(int a, int b, int server) {
+		if (a >= TIEBREAK_POINTS_NEEDED && a - b > 1) {
+			return 1;
+		} else if (b >= TIEBREAK_POINTS_NEEDED && b - a > 1) {
+			return 0;
+		}
+		int index = (server * TIEBREAK_WIDTH + a) * TIEBREAK_WIDTH + b;
+		double memo = this.tiebreaks[index];
+		if (!Double.isNaN(memo)) {
+			return memo;
+		}
+		int pointsPlayed = a + b;
+		double x = this.pointWin(((pointsPlayed + 1) / 2) % 2 == 0 ? server : server ^ 1);
+		double result;
+		if (a == b && a >= TIEBREAK_POINTS_NEEDED - 1) {
+			// The next two points are served by different players, either both are won or the tie remains.
+			double y = this.pointWin(((pointsPlayed + 2) / 2) % 2 == 0 ? server : server ^ 1);
+			result = x * y / (x * y + (1 - x) * (1 - y));
+		} else {
+			result = x * this.tiebreak(a + 1, b, server) + (1 - x) * this.tiebreak(a, b + 1, server);
+		}
+		this.tiebreaks[index] = result;
+		return result;
+	}
+
+	/**
+	 * @return the probability of slot <tt>0</tt> winning a point served by
+	 *         <tt>server</tt>.
+	 */
+	private double pointWin(int server) {
+		return 0 == server ? this.serveWin[0] : 1 - this.serveWin[1];
+	}
+
+	/**
+	 * @return the probability of slot <tt>0</tt> winning a game from 0-0
+	 *         served by <tt>server</tt>.
+	 */
+	private double gameWin(int server) {
+		return 0 == server ? this.game(0, 0, 0) : 1 - this.game(1, 0, 0);
+	}
+
+	/**
+	 * <p>
+	 * Probability of slot <tt>0</tt> winning the match once a game of the
+	 * current set has been played, completing the set if <tt>g0</tt> or
+	 * <tt>g1</tt> reached the games needed with a lead of two.
+	 * </p>
+	 */
+	private double afterGame(int s0, int s1, int g0, int g1, int server) {
+		if (g0 >= this.gamesNeeded && g0 - g1 > 1) {
+			return this.match(s0 + 1, s1, 0, 0, server);
+		} else if (g1 >= this.gamesNeeded && g1 - g0 > 1) {
+			return this.match(s0, s1 + 1, 0, 0, server);
+		}
+		return this.match(s0, s1, g0, g1, server);
+	}
+
+	/**
+	 * <p>
+	 * Probability of slot <tt>0</tt> winning the match with <tt>s0</tt> and
+	 * <tt>s1</tt> sets won, <tt>g0</tt> and <tt>g1</tt> games won in the
+	 * current set and <tt>server</tt> serving the next game.
+	 * </p>
+	 */
+	private double match(int s0, int s1, int g0, int g1, int server) {
+		if (s0 >= this.setsToWin) {
+			return 1;
+		} else if (s1 >= this.setsToWin) {
+			return 0;
+		}
+		boolean winByTwo = this.isWinByTwo(s0 + s1);
+		if (winByTwo) {
+			// Only even numbers of games are removed, which keeps the serve rotation.
+			int excess = Math.min(g0, g1) - (this.gamesNeeded - 1);
+			if (excess > 1) {
+				g0 -= excess & ~1;
+				g1 -= excess & ~1;
+			}
+		}
+		int index = (((s0 * this.setsToWin + s1) * this.setWidth + g0) * this.setWidth + g1) * 2 + server;
+		double memo = this.matches[index];
+		if (!Double.isNaN(memo)) {
+			return memo;
+		}
+
+		double result;
+		if (g0 == this.gamesNeeded && g1 == this.gamesNeeded && !winByTwo) {
+			double win = this.tiebreak(0, 0, server);
+			result = win * this.match(s0 + 1, s1, 0, 0, server ^ 1) + (1 - win) * this.match(s0, s1 + 1, 0, 0, server ^ 1);
+		} else if (winByTwo && g0 == g1 && g0 >= this.gamesNeeded - 1) {
+			// The next two games are served by different players, either both are won or the tie remains.
+			double x = this.gameWin(server);
+			double y = this.gameWin(server ^ 1);
+			double win = x * y / (x * y + (1 - x) * (1 - y));
+			result = win * this.match(s0 + 1, s1, 0, 0, server) + (1 - win) * this.match(s0, s1 + 1, 0, 0, server);
+		} else {
+			double win = this.gameWin(server);
+			result = win * this.afterGame(s0, s1, g0 + 1, g1, server ^ 1)
+					+ (1 - win) * this.afterGame(s0, s1, g0, g1 + 1, server ^ 1);
+		}
+		this.matches[index] = result;
+		return result;
+	}
+
+	private static MatchRules copy(MatchRules matchRules) {
+		MatchRules copy = new MatchRules();
+		copy.setNumberOfSets(matchRules.getNumberOfSets());
+		copy.setNumberOfGamesPerSet(matchRules.getNumberOfGamesPerSet());
+		copy.setFinalSetTiebreakDisabled(matchRules.isFinalSetTiebreakDisabled());
+		copy.setNoAdScoring(matchRules.isNoAdScoring());
+		return copy;
+	}
+
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	private static final class Key {
+		private final int numberOfSets;
+		private final int numberOfGamesPerSet;
+		private final boolean finalSetTiebreakDisabled;
+		private final boolean noAdScoring;
+		private final double serveWin0;
+		private final double serveWin1;
+	}
+}
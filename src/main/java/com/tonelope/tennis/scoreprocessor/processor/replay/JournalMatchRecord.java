@@ -0,0 +1,64 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+import java.nio.file.Path;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchJournalStore;
+import com.tonelope.tennis.scoreprocessor.processor.journal.StrokeJournal;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * A <tt>MatchRecord</tt> stored as a <tt>StrokeJournal</tt> file. The id of
+ * the match is the name of the file without the
+ * <tt>MatchJournalStore.EXTENSION</tt>, as written by
+ * <tt>MatchJournalStore</tt>. The file is only opened when the match is
+ * replayed.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class JournalMatchRecord implements MatchRecord {
+
+	@Getter
+	private final Path file;
+	@Getter
+	private final String id;
+	private MatchRules matchRules;
+
+	public JournalMatchRecord(Path file) {
+		String name = file.getFileName().toString();
+		this.file = file;
+		this.id = name.endsWith(MatchJournalStore.EXTENSION)
+				? name.substring(0, name.length() - MatchJournalStore.EXTENSION.length()) : name;
+	}
+
+	@Override
+	public MatchRules getMatchRules() {
+		if (null == this.matchRules) {
+			this.matchRules = StrokeJournal.readMatchRules(this.file);
+		}
+		return this.matchRules;
+	}
+
+	@Override
+	public long replay(MatchProcessor processor) {
+		return StrokeJournal.replay(this.file, processor);
+	}
+}
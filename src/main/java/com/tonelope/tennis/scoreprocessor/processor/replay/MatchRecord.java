@@ -0,0 +1,57 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+
+/**
+ * <p>
+ * An archived match to be re-scored by a <tt>ReplayPipeline</tt>.
+ * </p>
+ * 
+ * <p>
+ * Records are read on the thread of the caller of <tt>ReplayPipeline.run</tt>
+ * and replayed on a worker thread, so implementations should defer reading
+ * the strokes and points of the match to <tt>replay</tt> and hold as little
+ * as possible until then.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public interface MatchRecord {
+
+	/**
+	 * @return the id of the archived match.
+	 */
+	String getId();
+
+	/**
+	 * @return the rules the archived match was played with.
+	 */
+	MatchRules getMatchRules();
+
+	/**
+	 * <p>
+	 * Applies every stroke and point of the archived match to
+	 * <tt>processor</tt>.
+	 * </p>
+	 * 
+	 * @param processor
+	 *            the processor of a new match created for this record
+	 * @return the number of strokes and points applied.
+	 */
+	long replay(MatchProcessor processor);
+}
@@ -0,0 +1,324 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchJournalStore;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * Re-scores archived matches in bulk. A run has three stages connected by
+ * bounded queues:
+ * </p>
+ * 
+ * <ul>
+ * <li><tt>read</tt>: the calling thread pulls <tt>MatchRecord</tt>s from the
+ * source.</li>
+ * <li><tt>replay</tt>: a fixed pool of worker threads creates a processor for
+ * each record with the factory and replays the record through it.</li>
+ * <li><tt>sink</tt>: a single thread hands every <tt>ReplayResult</tt> to the
+ * <tt>ReplaySink</tt>.</li>
+ * </ul>
+ * 
+ * <p>
+ * A stage blocks when the queue to the next stage is full, so a slow sink or
+ * slow workers hold the source back. At most
+ * <tt>2 * capacity + workers + 2</tt> matches are in flight at any time,
+ * whatever the size of the archive. Throughput and blocked time of each stage
+ * are reported in the <tt>ReplayReport</tt>.
+ * </p>
+ * 
+ * <p>
+ * A record that fails to replay, with any <tt>Throwable</tt>, is handed to
+ * the sink as a failed result and the run carries on. A failure of the source
+ * or of the sink, including an <tt>Error</tt> thrown by the sink, aborts the
+ * run: the records in flight are discarded and <tt>run</tt> throws a
+ * <tt>FrameworkException</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class ReplayPipeline {
+
+	private static final MatchRecord END_OF_RECORDS = new MatchRecord() {
+
+		@Override
+		public String getId() {
+			return null;
+		}
+
+		@Override
+		public MatchRules getMatchRules() {
+			return null;
+		}
+
+		@Override
+		public long replay(MatchProcessor processor) {
+			return 0;
+		}
+	};
+	private static final ReplayResult END_OF_RESULTS = new ReplayResult(null, null, 0, null);
+
+	private final BiFunction<String, MatchRules, MatchProcessor> factory;
+	@Getter
+	private final int workers;
+	@Getter
+	private final int capacity;
+
+	/**
+	 * @param factory
+	 *            creates the processor of a new match from the id and rules of
+	 *            a record
+	 */
+	public ReplayPipeline(BiFunction<String, MatchRules, MatchProcessor> factory) {
+		this(factory, 0, 0);
+	}
+
+	/**
+	 * @param factory
+	 *            creates the processor of a new match from the id and rules of
+	 *            a record
+	 * @param workers
+	 *            the number of replay threads, or <tt>0</tt> for one per
+	 *            available processor
+	 * @param capacity
+	 *            the capacity of each queue between stages, or <tt>0</tt> for
+	 *            twice the number of workers
+	 */
+	public ReplayPipeline(BiFunction<String, MatchRules, MatchProcessor> factory, int workers, int capacity) {
+		this.factory = factory;
+		this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+		this.capacity = capacity > 0 ? capacity : 2 * this.workers;
+	}
+
+	/**
+	 * <p>
+	 * Replays a single journal file, or every journal in a directory as
+	 * written by <tt>MatchJournalStore</tt>. Directory entries are listed
+	 * lazily as the pipeline makes room for them.
+	 * </p>
+	 * 
+	 * @param path
+	 *            a <tt>StrokeJournal</tt> file or a directory of them
+	 * @param sink
+	 *            receives the result of every journal
+	 * @return the report of the run.
+	 */
+	public ReplayReport run(Path path, ReplaySink sink) {
+		if (!Files.isDirectory(path)) {
+			return this.run(Collections.<MatchRecord> singletonList(new JournalMatchRecord(path)).iterator(), sink);
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*" + MatchJournalStore.EXTENSION)) {
+			Iterator<Path> iterator = files.iterator();
+			return this.run(new Iterator<MatchRecord>() {
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public MatchRecord next() {
+					return new JournalMatchRecord(iterator.next());
+				}
+			}, sink);
+		} catch (IOException e) {
+			throw new FrameworkException("Failed to list journals in " + path, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Replays every record of <tt>source</tt>, which is only read from the
+	 * calling thread.
+	 * </p>
+	 * 
+	 * @param source
+	 *            the records to replay
+	 * @param sink
+	 *            receives the result of every record
+	 * @return the report of the run, or else a <tt>FrameworkException</tt> is
+	 *         thrown if the source or the sink failed.
+	 */
+	public ReplayReport run(Iterator<? extends MatchRecord> source, ReplaySink sink) {
+		long start = System.nanoTime();
+		StageStatistics read = new StageStatistics("read");
+		StageStatistics replay = new StageStatistics("replay");
+		StageStatistics drain = new StageStatistics("sink");
+		BlockingQueue<MatchRecord> records = new ArrayBlockingQueue<>(this.capacity);
+		BlockingQueue<ReplayResult> results = new ArrayBlockingQueue<>(this.capacity);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger running = new AtomicInteger(this.workers);
+
+		ExecutorService executor = Executors.newFixedThreadPool(this.workers + 1);
+		try {
+			for (int i = 0; i < this.workers; i++) {
+				executor.execute(() -> this.replay(records, results, replay, failure, running));
+			}
+			Future<Totals> totals = executor.submit(() -> drain(results, sink, drain, failure));
+			read(source, records, read, failure);
+			for (int i = 0; i < this.workers; i++) {
+				records.put(END_OF_RECORDS);
+			}
+
+			Totals result = totals.get();
+			if (null != failure.get()) {
+				throw new FrameworkException("Replay aborted: " + failure.get().getMessage(), failure.get());
+			}
+			long elapsed = System.nanoTime() - start;
+			read.finish(elapsed);
+			replay.finish(elapsed);
+			drain.finish(elapsed);
+			return new ReplayReport(result.matches, result.failures, result.updates, elapsed, read, replay, drain);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FrameworkException("Replay was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new FrameworkException("Replay sink stopped unexpectedly.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void read(Iterator<? extends MatchRecord> source, BlockingQueue<MatchRecord> records,
+			StageStatistics statistics, AtomicReference<Throwable> failure) throws InterruptedException {
+		try {
+			while (null == failure.get()) {
+				long started = System.nanoTime();
+				if (!source.hasNext()) {
+					return;
+				}
+				MatchRecord record = source.next();
+				long produced = System.nanoTime();
+				statistics.record(produced - started);
+				records.put(record);
+				statistics.blocked(System.nanoTime() - produced);
+			}
+		} catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Replays records until the end of the records is reached. Once the run
+	 * has failed the remaining records are discarded. The last worker to
+	 * finish marks the end of the results.
+	 * </p>
+	 */
+	private void replay(BlockingQueue<MatchRecord> records, BlockingQueue<ReplayResult> results,
+			StageStatistics statistics, AtomicReference<Throwable> failure, AtomicInteger running) {
+		try {
+			for (MatchRecord record = records.take(); END_OF_RECORDS != record; record = records.take()) {
+				if (null != failure.get()) {
+					continue;
+				}
+				long started = System.nanoTime();
+				ReplayResult result = this.replay(record);
+				long replayed = System.nanoTime();
+				statistics.record(replayed - started);
+				results.put(result);
+				statistics.blocked(System.nanoTime() - replayed);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			finish(results, running);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Replays a single record. Any <tt>Throwable</tt>, including an
+	 * <tt>Error</tt> raised by the record or the factory, is reported as a
+	 * failed result so the worker carries on with the next record.
+	 * </p>
+	 */
+	private ReplayResult replay(MatchRecord record) {
+		MatchProcessor processor = null;
+		try {
+			processor = this.factory.apply(record.getId(), record.getMatchRules());
+			return new ReplayResult(record.getId(), processor, record.replay(processor), null);
+		} catch (Throwable t) {
+			return new ReplayResult(record.getId(), processor, 0, t);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Called once by every worker however it stops, so the sink is always
+	 * told the results have ended.
+	 * </p>
+	 */
+	private static void finish(BlockingQueue<ReplayResult> results, AtomicInteger running) {
+		if (0 != running.decrementAndGet()) {
+			return;
+		}
+		try {
+			results.put(END_OF_RESULTS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Totals drain(BlockingQueue<ReplayResult> results, ReplaySink sink, StageStatistics statistics,
+			AtomicReference<Throwable> failure) throws InterruptedException {
+		Totals totals = new Totals();
+		for (ReplayResult result = results.take(); END_OF_RESULTS != result; result = results.take()) {
+			if (null != failure.get()) {
+				continue;
+			}
+			long started = System.nanoTime();
+			try {
+				sink.accept(result);
+			} catch (Throwable t) {
+				// Keep draining, so that the workers are never blocked on a full queue.
+				failure.compareAndSet(null, t);
+				continue;
+			}
+			statistics.record(System.nanoTime() - started);
+			totals.matches++;
+			totals.failures += result.isFailed() ? 1 : 0;
+			totals.updates += result.getUpdates();
+		}
+		return totals;
+	}
+
+	private static final class Totals {
+		private long matches;
+		private long failures;
+		private long updates;
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * Summarizes a <tt>ReplayPipeline</tt> run, with the throughput of each of
+ * its stages: reading the records from the source, replaying them, and
+ * handing the results to the sink.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+@ToString
+public class ReplayReport {
+
+	private final long matches;
+	private final long failures;
+	private final long updates;
+	private final long elapsedNanos;
+	private final StageStatistics read;
+	private final StageStatistics replay;
+	private final StageStatistics sink;
+
+	public ReplayReport(long matches, long failures, long updates, long elapsedNanos, StageStatistics read,
+			StageStatistics replay, StageStatistics sink) {
+		this.matches = matches;
+		this.failures = failures;
+		this.updates = updates;
+		this.elapsedNanos = elapsedNanos;
+		this.read = read;
+		this.replay = replay;
+		this.sink = sink;
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * The outcome of replaying one <tt>MatchRecord</tt>: the processor of the
+ * rebuilt match, or the error that stopped the replay. The processor of a
+ * failed replay holds the match as far as it was replayed, or is
+ * <tt>null</tt> if it could not be created. A failed replay does not stop the
+ * pipeline.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+@ToString(exclude = "processor")
+public class ReplayResult {
+
+	private final String id;
+	private final MatchProcessor processor;
+	private final long updates;
+	private final Throwable error;
+
+	public ReplayResult(String id, MatchProcessor processor, long updates, Throwable error) {
+		this.id = id;
+		this.processor = processor;
+		this.updates = updates;
+		this.error = error;
+	}
+
+	/**
+	 * @return true if the record could not be replayed, in which case
+	 *         <tt>getError</tt> holds the cause.
+	 */
+	public boolean isFailed() {
+		return null != this.error;
+	}
+}
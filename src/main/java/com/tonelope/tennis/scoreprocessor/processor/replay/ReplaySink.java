@@ -0,0 +1,40 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+/**
+ * <p>
+ * Receives the matches re-scored by a <tt>ReplayPipeline</tt>.
+ * </p>
+ * 
+ * <p>
+ * A sink is called by a single thread, in the order the matches finish
+ * replaying rather than the order of the source, so implementations need not
+ * be thread safe. A slow sink slows the whole pipeline down instead of
+ * letting results pile up in memory. Throwing from <tt>accept</tt> aborts the
+ * pipeline.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FunctionalInterface
+public interface ReplaySink {
+
+	/**
+	 * @param result
+	 *            the outcome of replaying one match record
+	 */
+	void accept(ReplayResult result);
+}
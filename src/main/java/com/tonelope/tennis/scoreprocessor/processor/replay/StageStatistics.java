@@ -0,0 +1,106 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.replay;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * The throughput of one stage of a <tt>ReplayPipeline</tt> run. Time spent
+ * processing items is reported as busy time, and time spent waiting for the
+ * next stage to make room as blocked time. A stage with a high blocked time
+ * is held back by a slower stage after it.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class StageStatistics {
+
+	@Getter
+	private final String name;
+	private final LongAdder items = new LongAdder();
+	private final LongAdder busyNanos = new LongAdder();
+	private final LongAdder blockedNanos = new LongAdder();
+	private volatile long elapsedNanos;
+
+	StageStatistics(String name) {
+		this.name = name;
+	}
+
+	void record(long busyNanos) {
+		this.items.increment();
+		this.busyNanos.add(busyNanos);
+	}
+
+	void blocked(long blockedNanos) {
+		this.blockedNanos.add(blockedNanos);
+	}
+
+	void finish(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return the number of items processed by this stage.
+	 */
+	public long getItems() {
+		return this.items.sum();
+	}
+
+	/**
+	 * @return the time spent processing items, summed over the threads of
+	 *         this stage.
+	 */
+	public long getBusyNanos() {
+		return this.busyNanos.sum();
+	}
+
+	/**
+	 * @return the time spent waiting for the next stage, summed over the
+	 *         threads of this stage.
+	 */
+	public long getBlockedNanos() {
+		return this.blockedNanos.sum();
+	}
+
+	/**
+	 * @return the items processed per second over the whole run.
+	 */
+	public double getThroughput() {
+		return perSecond(this.getItems(), this.elapsedNanos);
+	}
+
+	/**
+	 * @return the items processed per second of busy time, which is the
+	 *         throughput of a single thread of this stage.
+	 */
+	public double getThroughputPerThread() {
+		return perSecond(this.getItems(), this.getBusyNanos());
+	}
+
+	private static double perSecond(long items, long nanos) {
+		return 0 == nanos ? 0 : items * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d items, %.1f/s, %.1f/s per thread, busy %d ms, blocked %d ms", this.name,
+				this.getItems(), this.getThroughput(), this.getThroughputPerThread(),
+				TimeUnit.NANOSECONDS.toMillis(this.getBusyNanos()), TimeUnit.NANOSECONDS.toMillis(this.getBlockedNanos()));
+	}
+}
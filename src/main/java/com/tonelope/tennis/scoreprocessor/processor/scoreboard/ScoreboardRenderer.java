@@ -0,0 +1,220 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.scoreboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.MatchScore;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot.CompletedSet;
+
+/**
+ * <p>
+ * Renders the score of a match for a scoreboard from the
+ * <tt>MatchSnapshot</tt>s published by its processor, from the perspective of
+ * the first player (e.g. <tt>6-4, 6-7(5-7), 2-1 30 - 15</tt>). The separators
+ * are those of the <tt>Score</tt> model classes.
+ * </p>
+ * 
+ * <p>
+ * The rendered score is cached per level: the completed sets, the games of
+ * the current set and the points of the current game. When a new snapshot is
+ * published, only the levels that changed are rendered again; the completed
+ * sets are only rendered when a set is completed, and the points of a regular
+ * game are looked up in a precomputed table. Until the next snapshot, every
+ * call returns or copies the cached score without allocating.
+ * </p>
+ * 
+ * <p>
+ * Instances may be shared by any number of reader threads. Readers racing on
+ * a new snapshot may each render it; the results are identical.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class ScoreboardRenderer {
+
+	private static final PointValue[] POINT_VALUES = PointValue.values();
+	private static final String[] GAME_POINTS = new String[POINT_VALUES.length * POINT_VALUES.length];
+
+	static {
+		for (PointValue a : POINT_VALUES) {
+			for (PointValue b : POINT_VALUES) {
+				GAME_POINTS[a.ordinal() * POINT_VALUES.length + b.ordinal()] = a.getValue() + GameScore.SEPARATOR + b.getValue();
+			}
+		}
+	}
+
+	private final MatchProcessor processor;
+	private volatile Rendering rendering;
+
+	/**
+	 * @param processor
+	 *            the processor of the match to render
+	 */
+	public ScoreboardRenderer(MatchProcessor processor) {
+		this.processor = processor;
+		this.rendering = new Rendering(processor.getSnapshot(), null);
+	}
+
+	/**
+	 * @return the score of the match.
+	 */
+	public String render() {
+		return this.current().score;
+	}
+
+	/**
+	 * @return the scores of the completed sets, separated with
+	 *         <tt>MatchScore.SEPARATOR</tt>.
+	 */
+	public String renderSets() {
+		return this.current().sets;
+	}
+
+	/**
+	 * @return the games of the current set, or an empty string once the match
+	 *         is complete.
+	 */
+	public String renderGames() {
+		return this.current().games;
+	}
+
+	/**
+	 * @return the points of the current game, or an empty string once the
+	 *         match is complete.
+	 */
+	public String renderPoints() {
+		return this.current().points;
+	}
+
+	/**
+	 * <p>
+	 * Appends the score of the match to <tt>out</tt>.
+	 * </p>
+	 * 
+	 * @param out
+	 *            the destination
+	 * @throws IOException
+	 *             if <tt>out</tt> fails
+	 */
+	public void renderTo(Appendable out) throws IOException {
+		out.append(this.current().score);
+	}
+
+	/**
+	 * <p>
+	 * Writes the score of the match to <tt>out</tt> as US-ASCII bytes.
+	 * </p>
+	 * 
+	 * @param out
+	 *            the destination
+	 * @return the number of bytes written.
+	 * @throws java.nio.BufferOverflowException
+	 *             if <tt>out</tt> does not have enough space remaining
+	 */
+	public int renderTo(ByteBuffer out) {
+		byte[] bytes = this.current().bytes;
+		out.put(bytes);
+		return bytes.length;
+	}
+
+	/**
+	 * @return the rendering of the last published snapshot.
+	 */
+	private Rendering current() {
+		Rendering rendering = this.rendering;
+		MatchSnapshot snapshot = this.processor.getSnapshot();
+		if (rendering.snapshot != snapshot) {
+			rendering = new Rendering(snapshot, rendering);
+			this.rendering = rendering;
+		}
+		return rendering;
+	}
+
+	/**
+	 * <p>
+	 * The immutable rendering of a snapshot, reusing the levels of the
+	 * previous rendering that did not change.
+	 * </p>
+	 */
+	private static final class Rendering {
+
+		private final MatchSnapshot snapshot;
+		private final String sets;
+		private final String games;
+		private final String points;
+		private final String score;
+		private final byte[] bytes;
+
+		private Rendering(MatchSnapshot snapshot, Rendering previous) {
+			this.snapshot = snapshot;
+			List<CompletedSet> completedSets = snapshot.getCompletedSets();
+			if (null != previous && previous.snapshot.getCompletedSets() == completedSets) {
+				this.sets = previous.sets;
+			} else {
+				this.sets = renderSets(completedSets);
+			}
+
+			if (snapshot.isCompleted()) {
+				this.games = "";
+				this.points = "";
+				this.score = this.sets;
+			} else {
+				if (null != previous && !previous.snapshot.isCompleted()
+						&& previous.snapshot.getGames(0) == snapshot.getGames(0)
+						&& previous.snapshot.getGames(1) == snapshot.getGames(1)) {
+					this.games = previous.games;
+				} else {
+					this.games = snapshot.getGames(0) + SetScore.SEPARATOR + snapshot.getGames(1);
+				}
+				this.points = renderPoints(snapshot);
+				StringBuilder sb = new StringBuilder(this.sets.length() + this.games.length() + this.points.length() + 3);
+				if (!this.sets.isEmpty()) {
+					sb.append(this.sets).append(MatchScore.SEPARATOR);
+				}
+				this.score = sb.append(this.games).append(' ').append(this.points).toString();
+			}
+			this.bytes = this.score.getBytes(StandardCharsets.US_ASCII);
+		}
+
+		private static String renderSets(List<CompletedSet> completedSets) {
+			StringBuilder sb = new StringBuilder();
+			for (CompletedSet set : completedSets) {
+				if (0 != sb.length()) {
+					sb.append(MatchScore.SEPARATOR);
+				}
+				sb.append(set);
+			}
+			return sb.toString();
+		}
+
+		private static String renderPoints(MatchSnapshot snapshot) {
+			if (snapshot.isTiebreak()) {
+				return TiebreakScore.LEFT_SEPARATOR + snapshot.getPoints(0) + TiebreakScore.SEPARATOR + snapshot.getPoints(1)
+						+ TiebreakScore.RIGHT_SEPARATOR;
+			}
+			return GAME_POINTS[snapshot.getPoints(0) * POINT_VALUES.length + snapshot.getPoints(1)];
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.scoring;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.Winnable;
+
+/**
+ * <p>
+ * A <tt>ScoreCompletionHandlerResolver</tt> that compiles the handler
+ * selection of <tt>DefaultScoreCompletionStrategyHandler</tt> into a dispatch
+ * table.
+ * </p>
+ *
+ * <p>
+ * The handler for a scoring object is selected once per combination of the
+ * scoring object's type, the <tt>MatchRules</tt> flags and the current match
+ * phase (final set, tiebreak game, beyond the regulation number of games).
+ * Every combination that can occur in a match is compiled when this object is
+ * constructed, against a representative match in that phase, so a handler set
+ * that does not have exactly one handler for each of them fails with a
+ * <tt>FrameworkException</tt> on construction. Each resolution is then a
+ * constant time, allocation free array lookup.
+ * </p>
+ *
+ * <p>
+ * Only the scoring object types of the framework (<tt>Match</tt>,
+ * <tt>Set</tt>, <tt>Game</tt>, <tt>TiebreakGame</tt>, <tt>Point</tt> and
+ * <tt>SimplePoint</tt>) can be compiled. Handlers registered for other types
+ * are resolved on each call, as by
+ * <tt>DefaultScoreCompletionStrategyHandler</tt>.
+ * </p>
+ *
+ * <p>
+ * Registered handlers must therefore base their <tt>test</tt> decision solely
+ * on the inputs listed above, which is the case for all of the framework's
+ * default handlers. Handlers whose <tt>test</tt> depends on anything else
+ * (e.g. the current score) should be resolved with
+ * <tt>DefaultScoreCompletionStrategyHandler</tt> instead.
+ * </p>
+ *
+ * <p>
+ * Instances are safe to share between matches and threads.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class CompiledScoreCompletionStrategyHandler extends DefaultScoreCompletionStrategyHandler {
+
+	private static final int NO_AD_SCORING = 1;
+	private static final int FINAL_SET_TIEBREAK_DISABLED = 1 << 1;
+	private static final int IN_FINAL_SET = 1 << 2;
+	private static final int IN_TIEBREAK_GAME = 1 << 3;
+	private static final int BEYOND_REGULATION_GAMES = 1 << 4;
+	private static final int PHASES = 1 << 5;
+
+	private final Map<Class<?>, ScoreCompletionHandler<?>[]> dispatchTable = new HashMap<>();
+
+	public CompiledScoreCompletionStrategyHandler() {
+		this(null);
+	}
+
+	public CompiledScoreCompletionStrategyHandler(Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> scoreCompletionStrategies) {
+		super(scoreCompletionStrategies);
+		for (int phase = 0; phase < PHASES; phase++) {
+			if (isReachable(phase)) {
+				this.compile(phase);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Selects the handler of every registered type for <tt>phase</tt>, using
+	 * the scoring objects of a representative match in that phase.
+	 * </p>
+	 */
+	private void compile(int phase) {
+		Match match = createMatch(phase);
+		Game game = match.getCurrentGame();
+		List<Winnable> scoringObjects = Arrays.asList(match, match.getCurrentSet(), game, game.getCurrentPoint(),
+				new SimplePoint(game.getServer(), game.getReceiver(), game.getServer()));
+		for (Winnable scoringObject : scoringObjects) {
+			List<ScoreCompletionHandler<Winnable>> handlers = this.getScoreCompletionHandlers().get(scoringObject.getClass());
+			if (null != handlers) {
+				this.dispatchTable.computeIfAbsent(scoringObject.getClass(), k -> new ScoreCompletionHandler<?>[PHASES])[phase] = 
+						this.selectHandler(handlers, scoringObject, match);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Determines whether a match can be in <tt>phase</tt>: a tiebreak is
+	 * always the game following the regulation number of games of a set that
+	 * is not an advantage final set, and only an advantage final set is
+	 * played beyond the regulation number of games otherwise.
+	 * </p>
+	 */
+	private static boolean isReachable(int phase) {
+		boolean advantageFinalSet = 0 != (phase & IN_FINAL_SET) && 0 != (phase & FINAL_SET_TIEBREAK_DISABLED);
+		boolean beyondRegulationGames = 0 != (phase & BEYOND_REGULATION_GAMES);
+		if (0 != (phase & IN_TIEBREAK_GAME)) {
+			return !advantageFinalSet && beyondRegulationGames;
+		}
+		return advantageFinalSet || !beyondRegulationGames;
+	}
+
+	/**
+	 * @return a match whose current state is in <tt>phase</tt>.
+	 */
+	private static Match createMatch(int phase) {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNoAdScoring(0 != (phase & NO_AD_SCORING));
+		matchRules.setFinalSetTiebreakDisabled(0 != (phase & FINAL_SET_TIEBREAK_DISABLED));
+		Player server = new Player();
+		Player receiver = new Player();
+		Match match = new Match(Arrays.asList(server, receiver), matchRules, false);
+		int sets = 0 != (phase & IN_FINAL_SET) ? matchRules.getNumberOfSets() : 1;
+		for (int i = 0; i < sets; i++) {
+			match.getSets().add(new Set(matchRules, server, receiver));
+		}
+
+		Set set = match.getCurrentSet();
+		int games = 0 != (phase & BEYOND_REGULATION_GAMES) ? 2 * matchRules.getNumberOfGamesPerSet() + 1 : 1;
+		for (int i = 1; i < games; i++) {
+			set.getGames().add(new Game(server, receiver));
+		}
+		Game game = 0 != (phase & IN_TIEBREAK_GAME) ? new TiebreakGame(server, receiver) : new Game(server, receiver);
+		game.getPoints().add(new Point(server, receiver));
+		set.getGames().add(game);
+		return match;
+	}
+
+	/**
+	 * @return this resolver, as its resolutions are already constant time.
+	 */
+	@Override
+	public ScoreCompletionHandlerResolver forBatch() {
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler#getHandler(com.tonelope.tennis.scoreprocessor.model.Winnable, com.tonelope.tennis.scoreprocessor.model.Match)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected ScoreCompletionHandler<Winnable> getHandler(Winnable scoringObject, Match match) {
+		// Generic arrays can not be created, but every entry was selected from the registered handlers.
+		ScoreCompletionHandler<?>[] handlers = this.dispatchTable.get(scoringObject.getClass());
+		ScoreCompletionHandler<Winnable> handler = null != handlers ? (ScoreCompletionHandler<Winnable>) handlers[this.getPhase(match)] : null;
+		if (null == handler) {
+			return super.getHandler(scoringObject, match);
+		}
+		return handler;
+	}
+
+	/**
+	 * <p>
+	 * Computes the dispatch table column for the current state of
+	 * <tt>match</tt>.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match object
+	 * @return a bit set of the rules flags and phase of <tt>match</tt>.
+	 */
+	protected int getPhase(Match match) {
+		MatchRules matchRules = match.getMatchRules();
+		int phase = 0;
+		if (matchRules.isNoAdScoring()) {
+			phase |= NO_AD_SCORING;
+		}
+		if (matchRules.isFinalSetTiebreakDisabled()) {
+			phase |= FINAL_SET_TIEBREAK_DISABLED;
+		}
+		if (match.isCurrentlyInFinalSet()) {
+			phase |= IN_FINAL_SET;
+		}
+
+		Set currentSet = match.getCurrentSet();
+		if (null != currentSet) {
+			if (currentSet.getCurrentGame() instanceof TiebreakGame) {
+				phase |= IN_TIEBREAK_GAME;
+			}
+			if (currentSet.getGames().size() > 2 * matchRules.getNumberOfGamesPerSet()) {
+				phase |= BEYOND_REGULATION_GAMES;
+			}
+		}
+		return phase;
+	}
+}
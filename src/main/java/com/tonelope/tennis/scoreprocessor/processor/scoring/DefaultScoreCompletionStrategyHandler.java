@@ -32,10 +32,12 @@ import com.tonelope.tennis.scoreprocessor.processor.scoring.game.NoAdGameComplet
 import com.tonelope.tennis.scoreprocessor.processor.scoring.game.TiebreakGameCompletionHandler;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.match.DefaultMatchCompletionHandler;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.point.DefaultPointCompletionHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.point.StateMachinePointCompletionHandler;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.point.TiebreakPointCompletionHandler;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.set.DefaultSetCompletionHandler;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.set.NoFinalSetTiebreakSetCompletionHandler;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
@@ -47,6 +49,8 @@ import lombok.Getter;
 public class DefaultScoreCompletionStrategyHandler implements ScoreCompletionHandlerResolver {
 
 	private final Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> scoreCompletionHandlers;
+	@Getter(AccessLevel.NONE)
+	private final boolean defaultHandlers;
 	
 	public DefaultScoreCompletionStrategyHandler() {
 		this(null);
@@ -58,6 +62,7 @@ public class DefaultScoreCompletionStrategyHandler implements ScoreCompletionHan
 		} else {
 			this.scoreCompletionHandlers = this.createDefaultScoreCompletionHandlers();
 		}
+		this.defaultHandlers = null == scoreCompletionStrategies;
 	}
 	
 	/**
@@ -76,8 +81,67 @@ public class DefaultScoreCompletionStrategyHandler implements ScoreCompletionHan
 		return map;
 	}
 
-	private ScoreCompletionHandler<Winnable> getHandler(Winnable scoringObject, Match match) {
-		List<ScoreCompletionHandler<Winnable>> acceptableHandlers = this.scoreCompletionHandlers.get(scoringObject.getClass()).stream()
+	/**
+	 * <p>
+	 * Creates the default handlers, except that points are scored with the
+	 * precomputed transition tables of <tt>GameStateMachine</tt> by a single
+	 * <tt>StateMachinePointCompletionHandler</tt>. Pass the result to the
+	 * constructor of this class or of
+	 * <tt>CompiledScoreCompletionStrategyHandler</tt> to score in state machine
+	 * mode.
+	 * </p>
+	 * 
+	 * @return a new map of score completion handlers.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> createStateMachineScoreCompletionHandlers() {
+		Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> map = new DefaultScoreCompletionStrategyHandler().getScoreCompletionHandlers();
+		ScoreCompletionHandler<Winnable> pointHandler = (ScoreCompletionHandler<Winnable>) (ScoreCompletionHandler<?>) new StateMachinePointCompletionHandler();
+		map.put(SimplePoint.class, Stream.of(pointHandler).collect(Collectors.toList()));
+		map.put(Point.class, Stream.of(pointHandler).collect(Collectors.toList()));
+		return map;
+	}
+
+	/**
+	 * <p>
+	 * Returns the single registered handler that accepts <tt>scoringObject</tt>
+	 * in the current state of <tt>match</tt>.
+	 * </p>
+	 * 
+	 * @param scoringObject
+	 *            the scoring object to find a handler for
+	 * @param match
+	 *            the match object
+	 * @return the handler to apply, or else a <tt>FrameworkException</tt> is
+	 *         thrown.
+	 */
+	protected ScoreCompletionHandler<Winnable> getHandler(Winnable scoringObject, Match match) {
+		return this.selectHandler(this.scoreCompletionHandlers.get(scoringObject.getClass()), scoringObject, match);
+	}
+
+	/**
+	 * <p>
+	 * Tests every handler within <tt>handlers</tt> against
+	 * <tt>scoringObject</tt> and returns the only one that accepts it. Exactly
+	 * one handler is expected to accept.
+	 * </p>
+	 * 
+	 * @param handlers
+	 *            the candidate handlers registered for the scoring object's type
+	 * @param scoringObject
+	 *            the scoring object to find a handler for
+	 * @param match
+	 *            the match object
+	 * @return the accepting handler, or else a <tt>FrameworkException</tt> is
+	 *         thrown.
+	 */
+	protected ScoreCompletionHandler<Winnable> selectHandler(List<ScoreCompletionHandler<Winnable>> handlers, 
+			Winnable scoringObject, Match match) {
+		if (null == handlers) {
+			throw new FrameworkException("Failed to find score completion strategy for " + scoringObject);
+		}
+		
+		List<ScoreCompletionHandler<Winnable>> acceptableHandlers = handlers.stream()
 				.filter(s -> s.test(scoringObject, match))
 				.collect(Collectors.toList());
 		
@@ -90,6 +154,22 @@ public class DefaultScoreCompletionStrategyHandler implements ScoreCompletionHan
 		}
 	}
 
+	/**
+	 * <p>
+	 * Returns a <tt>CompiledScoreCompletionStrategyHandler</tt> of the default
+	 * handlers, shared by every batch, if this resolver uses the default
+	 * handlers, so that batches do not select a handler for each item. Other
+	 * handlers are selected for each item, as their <tt>test</tt> may depend
+	 * on more than the match phase.
+	 * </p>
+	 * 
+	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandlerResolver#forBatch()
+	 */
+	@Override
+	public ScoreCompletionHandlerResolver forBatch() {
+		return this.defaultHandlers ? CompiledDefaultHandlers.INSTANCE : this;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandlerResolver#resolve(com.tonelope.tennis.scoreprocessor.model.Winnable, com.tonelope.tennis.scoreprocessor.model.Match)
 	 */
@@ -97,4 +177,14 @@ public class DefaultScoreCompletionStrategyHandler implements ScoreCompletionHan
 	public boolean resolve(Winnable scoringObject, Match match) {
 		return this.getHandler(scoringObject, match).apply(scoringObject, match);
 	}
+
+	/**
+	 * <p>
+	 * Compiles the default handlers on first use.
+	 * </p>
+	 */
+	private static final class CompiledDefaultHandlers {
+
+		private static final ScoreCompletionHandlerResolver INSTANCE = new CompiledScoreCompletionStrategyHandler();
+	}
 }
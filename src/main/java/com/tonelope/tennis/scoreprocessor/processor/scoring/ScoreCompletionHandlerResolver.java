@@ -24,4 +24,16 @@ import com.tonelope.tennis.scoreprocessor.model.Winnable;
 public interface ScoreCompletionHandlerResolver {
 
 	boolean resolve(Winnable scoringObject, Match match);
+
+	/**
+	 * <p>
+	 * Returns the resolver to apply to the items of a batch update, obtained
+	 * once per batch. It must resolve the same handlers as this resolver.
+	 * </p>
+	 * 
+	 * @return this resolver by default.
+	 */
+	default ScoreCompletionHandlerResolver forBatch() {
+		return this;
+	}
 }
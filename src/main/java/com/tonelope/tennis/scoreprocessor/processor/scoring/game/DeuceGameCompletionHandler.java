@@ -36,7 +36,7 @@ public class DeuceGameCompletionHandler extends GameCompletionHandler<Game> {
 	@Override
 	public boolean test(Game scoringObject, Match match) {
 		Set currentSet = match.getCurrentSet();
-		if (currentSet.getGames().size() < 13 || this.isFinalSetWinByTwo(currentSet, match)) {
+		if (this.isRegulationGame(currentSet, match) || this.isFinalSetWinByTwo(currentSet, match)) {
 			return !match.getMatchRules().isNoAdScoring();
 		}
 		return false;
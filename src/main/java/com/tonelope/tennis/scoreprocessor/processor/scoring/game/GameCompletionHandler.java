@@ -39,22 +39,34 @@ public abstract class GameCompletionHandler<T extends Game> implements ScoreComp
 	}
 
 	protected boolean isFinalSetWinByTwo(Set currentSet, Match match) {
-		return currentSet.getGames().size() >= 13 && 
+		return !this.isRegulationGame(currentSet, match) && 
 				match.isCurrentlyInFinalSet() && 
 				match.getMatchRules().isFinalSetTiebreakDisabled();
 	}
+
+	/**
+	 * <p>
+	 * Determines whether the current game of <tt>currentSet</tt> is within the
+	 * regulation number of games of a set, that is, not beyond the point at
+	 * which a tiebreak would be played.
+	 * </p>
+	 * 
+	 * @param currentSet
+	 *            the current set of <tt>match</tt>
+	 * @param match
+	 *            the match object
+	 * @return true if the current game is a regulation game, false otherwise.
+	 */
+	protected boolean isRegulationGame(Set currentSet, Match match) {
+		return currentSet.getGames().size() <= 2 * match.getMatchRules().getNumberOfGamesPerSet();
+	}
 	
 	/* (non-Javadoc)
 	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandler#updateScore(com.tonelope.tennis.scoreprocessor.model.ScoringObject, com.tonelope.tennis.scoreprocessor.model.Match, com.tonelope.tennis.scoreprocessor.model.Player)
 	 */
 	@Override
 	public void updateScore(T scoringObject, Match match, Player winningPlayer) {
-		Set set = match.getCurrentSet();
-		if (set.getStartingServer().equals(winningPlayer)) {
-			set.getScore().setStartingServerScore(set.getScore().getStartingServerScore() + 1);
-		} else {
-			set.getScore().setStartingReceiverScore(set.getScore().getStartingReceiverScore() + 1);
-		}
+		match.getCurrentSet().addGameWon(winningPlayer);
 	}
 	
 	protected abstract boolean isComplete(Score score);
@@ -30,7 +30,9 @@ public class NoAdGameCompletionHandler extends GameCompletionHandler<Game> {
 	@Override
 	protected boolean isComplete(Score score) {
 		GameScore gameScore = (GameScore) score;
-		if (PointValue.ADVANTAGE.equals(gameScore.getServerScore())) {
+		if (PointValue.GAME.equals(gameScore.getServerScore()) || PointValue.GAME.equals(gameScore.getReceiverScore())) {
+			return true;
+		} else if (PointValue.ADVANTAGE.equals(gameScore.getServerScore())) {
 			gameScore.setServerScore(PointValue.GAME);
 			return true;
 		} else if (PointValue.ADVANTAGE.equals(gameScore.getReceiverScore())) {
@@ -43,7 +45,7 @@ public class NoAdGameCompletionHandler extends GameCompletionHandler<Game> {
 	@Override
 	public boolean test(Game scoringObject, Match match) {
 		Set currentSet = match.getCurrentSet();
-		if (currentSet.getGames().size() < 13 || this.isFinalSetWinByTwo(currentSet, match)) {
+		if (this.isRegulationGame(currentSet, match) || this.isFinalSetWinByTwo(currentSet, match)) {
 			return match.getMatchRules().isNoAdScoring();
 		}
 		return false;
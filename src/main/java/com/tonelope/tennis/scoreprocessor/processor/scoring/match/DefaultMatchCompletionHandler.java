@@ -13,15 +13,8 @@
  */
 package com.tonelope.tennis.scoreprocessor.processor.scoring.match;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-
 import com.tonelope.tennis.scoreprocessor.model.Match;
 import com.tonelope.tennis.scoreprocessor.model.Player;
-import com.tonelope.tennis.scoreprocessor.model.Set;
 import com.tonelope.tennis.scoreprocessor.model.Status;
 
 /**
@@ -31,29 +24,17 @@ import com.tonelope.tennis.scoreprocessor.model.Status;
  */
 public class DefaultMatchCompletionHandler implements MatchCompletionHandler {
 
+	/**
+	 * <p>
+	 * Determines whether <tt>scoringObject</tt> is complete from the running
+	 * sets won counts kept within its <tt>MatchScore</tt>.
+	 * </p>
+	 */
 	@Override
 	public boolean apply(Match scoringObject, Match match) {
-		Map<Player, Integer> setsWonMap = new HashMap<>();
-		for(Set set : scoringObject.getSets()) {
-			Player winningPlayer = set.getWinningPlayer();
-			
-			if (null == winningPlayer) {
-				return false;
-			}
-			
-			setsWonMap.put(winningPlayer, Optional.ofNullable(setsWonMap.get(winningPlayer)).orElse(0) + 1);
-			List<Player> players = new ArrayList<>(setsWonMap.keySet());
-			int p1Sets = setsWonMap.get(players.get(0));
-			int p2Sets = 0;
-			if (players.size() > 1) {
-				p2Sets = setsWonMap.get(players.get(1));
-			}
-			
-			final int setsNeeded = (int) Math.ceil(((double) match.getMatchRules().getNumberOfSets()) / 2);
-			if (p1Sets == setsNeeded || p2Sets == setsNeeded) {
-				scoringObject.setStatus(Status.COMPLETE);
-				return true;
-			}
+		if (scoringObject.getScore().getMostSetsWon() >= match.getMatchRules().getNumberOfSetsToWin()) {
+			scoringObject.setStatus(Status.COMPLETE);
+			return true;
 		}
 		return false;
 	}
@@ -46,7 +46,7 @@ public abstract class PointCompletionHandler implements ScoreCompletionHandler<P
 			} else if (stroke.isOutRallyShot()) {
 				winningPlayer = ListUtils.getLast(scoringObject.getStrokes(), 2).getPlayer();
 			} else if (stroke.isDoubleFault()) {
-				winningPlayer = stroke.getPlayer().getOpposingPlayer(match.getPlayers());
+				winningPlayer = match.getOpposingPlayer(stroke.getPlayer());
 			}
 		} else {
 			
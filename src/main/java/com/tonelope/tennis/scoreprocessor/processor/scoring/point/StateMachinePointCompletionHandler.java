@@ -0,0 +1,90 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.scoring.point;
+
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+import com.tonelope.tennis.scoreprocessor.processor.state.GameStateMachine;
+
+/**
+ * <p>
+ * Scores points of regular games and tiebreaks with the transition tables of
+ * <tt>GameStateMachine</tt> instead of comparing point values. A point that
+ * completes a regular game moves the winner's score to
+ * <tt>PointValue.GAME</tt>.
+ * </p>
+ * 
+ * <p>
+ * Replaces both <tt>DefaultPointCompletionHandler</tt> and
+ * <tt>TiebreakPointCompletionHandler</tt>, see
+ * <tt>DefaultScoreCompletionStrategyHandler.createStateMachineScoreCompletionHandlers()</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class StateMachinePointCompletionHandler extends PointCompletionHandler {
+
+	private static final PointValue[] POINT_VALUES = PointValue.values();
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandler#test(com.tonelope.tennis.scoreprocessor.model.Winnable, com.tonelope.tennis.scoreprocessor.model.Match)
+	 */
+	@Override
+	public boolean test(Point scoringObject, Match match) {
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.tonelope.tennis.scoreprocessor.processor.scoring.point.PointCompletionHandler#updateScore(com.tonelope.tennis.scoreprocessor.model.Point, com.tonelope.tennis.scoreprocessor.model.Match, com.tonelope.tennis.scoreprocessor.model.Player)
+	 */
+	@Override
+	public void updateScore(Point scoringObject, Match match, Player winningPlayer) {
+		Game game = match.getCurrentSet().getCurrentGame();
+		int winner = winningPlayer.equals(game.getServer()) ? 0 : 1;
+
+		if (game instanceof TiebreakGame) {
+			TiebreakScore score = (TiebreakScore) game.getScore();
+			if (0 == winner) {
+				score.setServerScore(score.getServerScore() + 1);
+			} else {
+				score.setReceiverScore(score.getReceiverScore() + 1);
+			}
+			return;
+		}
+
+		GameScore score = (GameScore) game.getScore();
+		GameStateMachine machine = GameStateMachine.of(match.getMatchRules(), false);
+		int transition = machine.transition(
+				machine.getState(score.getServerScore().ordinal(), score.getReceiverScore().ordinal()), winner);
+		if (GameStateMachine.isGameWon(transition)) {
+			if (0 == winner) {
+				score.setServerScore(PointValue.GAME);
+			} else {
+				score.setReceiverScore(PointValue.GAME);
+			}
+		} else {
+			int next = GameStateMachine.getNextState(transition);
+			score.setServerScore(POINT_VALUES[machine.getPointsA(next)]);
+			score.setReceiverScore(POINT_VALUES[machine.getPointsB(next)]);
+		}
+	}
+}
@@ -29,7 +29,7 @@ public class NoFinalSetTiebreakSetCompletionHandler extends SetCompletionHandler
 	}
 
 	@Override
-	protected boolean isComplete(Match match, Integer p1Games, Integer p2Games) {
+	protected boolean isComplete(Match match, int p1Games, int p2Games) {
 		final int gamesNeeded = match.getMatchRules().getNumberOfGamesPerSet();
 		if ((p1Games == gamesNeeded && p2Games < gamesNeeded - 1)) {
 			return true;
@@ -13,16 +13,10 @@
  */
 package com.tonelope.tennis.scoreprocessor.processor.scoring.set;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-
-import com.tonelope.tennis.scoreprocessor.model.Game;
 import com.tonelope.tennis.scoreprocessor.model.Match;
 import com.tonelope.tennis.scoreprocessor.model.Player;
 import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
 import com.tonelope.tennis.scoreprocessor.model.Status;
 import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandler;
 
@@ -34,31 +28,27 @@ import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandl
  */
 public abstract class SetCompletionHandler<T extends Set> implements ScoreCompletionHandler<T> {
 
+	/**
+	 * <p>
+	 * Determines whether <tt>scoringObject</tt> is complete from the running
+	 * game counts kept within its <tt>SetScore</tt>. The counts are updated as
+	 * each game completes, so this check does not depend on the number of
+	 * games played within the set.
+	 * </p>
+	 */
 	@Override
 	public boolean apply(T scoringObject, Match match) {
-		if (scoringObject.getGames().size() < match.getMatchRules().getNumberOfGamesPerSet()) {
+		SetScore score = scoringObject.getScore();
+		int p1Games = score.getStartingServerScore();
+		int p2Games = score.getStartingReceiverScore();
+		if (p1Games + p2Games < match.getMatchRules().getNumberOfGamesPerSet()) {
 			return false;
 		}
 		
-		Map<Player, Integer> gamesWonMap = new HashMap<>();
-		for(Game game : scoringObject.getGames()) {
-			Player winningPlayer = game.getWinningPlayer();
-			
-			if (null == winningPlayer) {
-				return false;
-			}
-			
-			gamesWonMap.put(winningPlayer, Optional.ofNullable(gamesWonMap.get(winningPlayer)).orElse(0) + 1);
-		}
-		
-		List<Player> players = new ArrayList<>(gamesWonMap.keySet());
-		int p1Games = gamesWonMap.get(players.get(0));
-		int p2Games = gamesWonMap.size() > 1 ? gamesWonMap.get(players.get(1)) : 0;
-		
 		boolean isComplete = this.isComplete(match, p1Games, p2Games);
 		if (isComplete) {
-			this.updateScore(scoringObject, match, ((Set) scoringObject).getWinningPlayer());
 			scoringObject.setStatus(Status.COMPLETE);
+			this.updateScore(scoringObject, match, scoringObject.getLeadingPlayer());
 		}
 		return isComplete;
 	}
@@ -73,7 +63,8 @@ public abstract class SetCompletionHandler<T extends Set> implements ScoreComple
 	@Override
 	public void updateScore(Set scoringObject, Match match, Player winningPlayer) {
 		match.getScore().getSetScores().add((scoringObject).getScore());
+		match.addSetWon(winningPlayer);
 	}
 	
-	protected abstract boolean isComplete(Match match, Integer p1Games, Integer p2Games);
+	protected abstract boolean isComplete(Match match, int p1Games, int p2Games);
 }
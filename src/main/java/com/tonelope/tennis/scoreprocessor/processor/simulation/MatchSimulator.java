@@ -0,0 +1,229 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * Simulates matches point by point with the scoring rules of
+ * <tt>ScoreState</tt>, the engine behind <tt>ScoreStateMatchStrategy</tt>.
+ * Each point is won by its server with a fixed probability per player.
+ * </p>
+ * 
+ * <p>
+ * Simulations are split into chunks of <tt>CHUNK_SIZE</tt> matches that run
+ * as fork/join tasks. Every chunk draws from its own
+ * <tt>SplittableRandom</tt>, split from the seed in chunk order before any
+ * task starts, and the counts of the chunks are summed. A result therefore
+ * only depends on the seed and the number of matches, whatever the pool and
+ * its parallelism.
+ * </p>
+ * 
+ * <p>
+ * A simulator is immutable and may be shared between threads.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+@Getter
+public class MatchSimulator {
+
+	public static final int CHUNK_SIZE = 4096;
+
+	private final MatchRules matchRules;
+	private final double serveWin0;
+	private final double serveWin1;
+
+	/**
+	 * @param matchRules
+	 *            the rules being played
+	 * @param serveWin0
+	 *            the probability of the player in slot <tt>0</tt> winning a
+	 *            point on serve
+	 * @param serveWin1
+	 *            the probability of the player in slot <tt>1</tt> winning a
+	 *            point on serve
+	 */
+	public MatchSimulator(MatchRules matchRules, double serveWin0, double serveWin1) {
+		if (!(serveWin0 > 0 && serveWin0 < 1 && serveWin1 > 0 && serveWin1 < 1)) {
+			throw new FrameworkException(
+					"Serve win probabilities must be between 0 and 1 exclusive. Found: " + serveWin0 + ", " + serveWin1);
+		}
+		this.matchRules = null != matchRules ? matchRules : new MatchRules();
+		this.serveWin0 = serveWin0;
+		this.serveWin1 = serveWin1;
+	}
+
+	/**
+	 * <p>
+	 * Simulates <tt>matches</tt> matches from the start, served first by the
+	 * player in slot <tt>0</tt>, on the common fork/join pool.
+	 * </p>
+	 * 
+	 * @param matches
+	 *            the number of matches to simulate
+	 * @param seed
+	 *            the seed of the simulation
+	 * @return the distributions of the simulated matches.
+	 */
+	public SimulationResult simulate(int matches, long seed) {
+		return this.simulate(ScoreState.initial(0), matches, seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * <p>
+	 * Simulates <tt>matches</tt> continuations of <tt>match</tt> from its
+	 * current score on the common fork/join pool.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match, scored with the <tt>Set</tt>, <tt>Game</tt> and
+	 *            <tt>Point</tt> object tree
+	 * @param matches
+	 *            the number of matches to simulate
+	 * @param seed
+	 *            the seed of the simulation
+	 * @return the distributions of the simulated matches.
+	 */
+	public SimulationResult simulate(Match match, int matches, long seed) {
+		return this.simulate(ScoreState.fromMatch(match), matches, seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * <p>
+	 * Simulates <tt>matches</tt> continuations of a match from its current
+	 * score. The points, games and tiebreaks counted are those played from
+	 * <tt>state</tt> on; the sets recorded are those completed from
+	 * <tt>state</tt> on.
+	 * </p>
+	 * 
+	 * @param state
+	 *            the packed <tt>ScoreState</tt> to simulate from
+	 * @param matches
+	 *            the number of matches to simulate
+	 * @param seed
+	 *            the seed of the simulation
+	 * @param pool
+	 *            the pool running the simulation
+	 * @return the distributions of the simulated matches, or else a
+	 *         <tt>FrameworkException</tt> is thrown if <tt>state</tt> is
+	 *         completed or <tt>matches</tt> is negative.
+	 */
+	public SimulationResult simulate(long state, int matches, long seed, ForkJoinPool pool) {
+		if (ScoreState.isCompleted(state)) {
+			throw new FrameworkException("Cannot simulate from a completed match.");
+		}
+		if (matches < 0) {
+			throw new FrameworkException("Number of matches must not be negative. Found: " + matches);
+		}
+
+		SplittableRandom[] randoms = new SplittableRandom[(matches + CHUNK_SIZE - 1) / CHUNK_SIZE];
+		SplittableRandom root = new SplittableRandom(seed);
+		for (int i = 0; i < randoms.length; i++) {
+			randoms[i] = root.split();
+		}
+		if (0 == randoms.length) {
+			return new SimulationResult(this.matchRules.getNumberOfSets());
+		}
+		return pool.invoke(new SimulationTask(state, matches, randoms, 0, randoms.length));
+	}
+
+	/**
+	 * <p>
+	 * Simulates a single match from <tt>state</tt> into <tt>result</tt>.
+	 * </p>
+	 */
+	private void simulate(long state, SplittableRandom random, SimulationResult result) {
+		int points = 0;
+		int games = 0;
+		int tiebreaks = 0;
+		while (!ScoreState.isCompleted(state)) {
+			int server = ScoreState.getPointServer(state);
+			double serveWin = 0 == server ? this.serveWin0 : this.serveWin1;
+			int winner = random.nextDouble() < serveWin ? server : server ^ 1;
+			long previous = state;
+			state = ScoreState.pointWonBy(previous, winner, this.matchRules);
+			points++;
+
+			if (ScoreState.getSetsPlayed(previous) != ScoreState.getSetsPlayed(state)) {
+				int winnerGames = ScoreState.getGames(previous, winner) + 1;
+				int loserGames = ScoreState.getGames(previous, winner ^ 1);
+				result.recordSet(0 == winner ? winnerGames : loserGames, 0 == winner ? loserGames : winnerGames);
+			} else if (ScoreState.getGames(previous, winner) == ScoreState.getGames(state, winner)) {
+				continue;
+			}
+			games++;
+			if (ScoreState.isTiebreak(previous)) {
+				tiebreaks++;
+			}
+		}
+		result.recordMatch(ScoreState.getWinner(state), ScoreState.getSetsWon(state, 0), ScoreState.getSetsWon(state, 1),
+				points, games, tiebreaks);
+	}
+
+	/**
+	 * <p>
+	 * Simulates the chunks <tt>from</tt> (inclusive) to <tt>to</tt>
+	 * (exclusive), halving the range until a single chunk remains.
+	 * </p>
+	 */
+	private final class SimulationTask extends RecursiveTask<SimulationResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long state;
+		private final int matches;
+		private final SplittableRandom[] randoms;
+		private final int from;
+		private final int to;
+
+		private SimulationTask(long state, int matches, SplittableRandom[] randoms, int from, int to) {
+			this.state = state;
+			this.matches = matches;
+			this.randoms = randoms;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected SimulationResult compute() {
+			if (this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+				SimulationTask left = new SimulationTask(this.state, this.matches, this.randoms, this.from, middle);
+				left.fork();
+				SimulationResult right = new SimulationTask(this.state, this.matches, this.randoms, middle, this.to).compute();
+				return left.join().merge(right);
+			}
+
+			SimulationResult result = new SimulationResult(MatchSimulator.this.matchRules.getNumberOfSets());
+			SplittableRandom random = this.randoms[this.from];
+			int end = Math.min(this.matches, (this.from + 1) * CHUNK_SIZE);
+			for (int i = this.from * CHUNK_SIZE; i < end; i++) {
+				MatchSimulator.this.simulate(this.state, random, result);
+			}
+			return result;
+		}
+	}
+}
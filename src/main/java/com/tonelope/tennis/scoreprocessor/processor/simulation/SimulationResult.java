@@ -0,0 +1,257 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.simulation;
+
+import java.util.Arrays;
+
+import com.tonelope.tennis.scoreprocessor.model.Match;
+
+import lombok.Getter;
+
+/**
+ * <p>
+ * The distributions collected by a <tt>MatchSimulator</tt> run: the winner
+ * and final score in sets of each match, the games score of each completed
+ * set, and the number of points, games and tiebreaks played per match.
+ * </p>
+ * 
+ * <p>
+ * Counts are kept in primitive arrays that grow as longer matches are seen.
+ * Counts outside the range seen are <tt>0</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class SimulationResult {
+
+	@Getter
+	private long matches;
+	private final long[] wins = new long[Match.SLOTS];
+	private final int matchScoreWidth;
+	private final long[] matchScores;
+	private long[][] setScores = new long[0][];
+	private long[] points = new long[0];
+	private long[] games = new long[0];
+	private long[] tiebreaks = new long[0];
+	private int maxPoints;
+	private long totalPoints;
+	private long totalGames;
+	private long totalTiebreaks;
+
+	SimulationResult(int numberOfSets) {
+		this.matchScoreWidth = numberOfSets + 1;
+		this.matchScores = new long[this.matchScoreWidth * this.matchScoreWidth];
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the number of matches won by the player in <tt>slot</tt>.
+	 */
+	public long getWins(int slot) {
+		return this.wins[slot];
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the fraction of matches won by the player in <tt>slot</tt>.
+	 */
+	public double getWinProbability(int slot) {
+		return 0 == this.matches ? 0 : (double) this.wins[slot] / this.matches;
+	}
+
+	/**
+	 * @param sets0
+	 *            the sets won by the player in slot <tt>0</tt>
+	 * @param sets1
+	 *            the sets won by the player in slot <tt>1</tt>
+	 * @return the number of matches ending with this score in sets.
+	 */
+	public long getMatchScoreCount(int sets0, int sets1) {
+		if (sets0 < 0 || sets1 < 0 || sets0 >= this.matchScoreWidth || sets1 >= this.matchScoreWidth) {
+			return 0;
+		}
+		return this.matchScores[sets0 * this.matchScoreWidth + sets1];
+	}
+
+	/**
+	 * @param games0
+	 *            the games won by the player in slot <tt>0</tt>
+	 * @param games1
+	 *            the games won by the player in slot <tt>1</tt>
+	 * @return the number of sets, over all matches, ending with this score in
+	 *         games. A set won in a tiebreak counts the tiebreak as a game.
+	 */
+	public long getSetScoreCount(int games0, int games1) {
+		if (games0 < 0 || games0 >= this.setScores.length) {
+			return 0;
+		}
+		return count(this.setScores[games0], games1);
+	}
+
+	/**
+	 * @param points
+	 *            a number of points
+	 * @return the number of matches lasting exactly <tt>points</tt> points.
+	 */
+	public long getPointsCount(int points) {
+		return count(this.points, points);
+	}
+
+	/**
+	 * @return the most points played in a match, or <tt>0</tt> if no match
+	 *         was recorded.
+	 */
+	public int getMaxPoints() {
+		return this.maxPoints;
+	}
+
+	/**
+	 * @return the average number of points played per match.
+	 */
+	public double getAveragePoints() {
+		return average(this.totalPoints);
+	}
+
+	/**
+	 * @param games
+	 *            a number of games
+	 * @return the number of matches lasting exactly <tt>games</tt> games,
+	 *         tiebreaks included.
+	 */
+	public long getGamesCount(int games) {
+		return count(this.games, games);
+	}
+
+	/**
+	 * @return the average number of games played per match.
+	 */
+	public double getAverageGames() {
+		return average(this.totalGames);
+	}
+
+	/**
+	 * @param tiebreaks
+	 *            a number of tiebreaks
+	 * @return the number of matches in which exactly <tt>tiebreaks</tt>
+	 *         tiebreaks were played.
+	 */
+	public long getTiebreaksCount(int tiebreaks) {
+		return count(this.tiebreaks, tiebreaks);
+	}
+
+	/**
+	 * @return the average number of tiebreaks played per match.
+	 */
+	public double getAverageTiebreaks() {
+		return average(this.totalTiebreaks);
+	}
+
+	/**
+	 * <p>
+	 * Records a completed set.
+	 * </p>
+	 */
+	void recordSet(int games0, int games1) {
+		this.addSets(games0, games1, 1);
+	}
+
+	private void addSets(int games0, int games1, long amount) {
+		if (games0 >= this.setScores.length) {
+			long[][] grown = Arrays.copyOf(this.setScores, Math.max(games0 + 1, this.setScores.length * 2));
+			for (int i = this.setScores.length; i < grown.length; i++) {
+				grown[i] = new long[0];
+			}
+			this.setScores = grown;
+		}
+		this.setScores[games0] = increment(this.setScores[games0], games1, amount);
+	}
+
+	/**
+	 * <p>
+	 * Records a completed match won by the player in <tt>winner</tt>.
+	 * </p>
+	 */
+	void recordMatch(int winner, int sets0, int sets1, int points, int games, int tiebreaks) {
+		this.matches++;
+		this.wins[winner]++;
+		this.matchScores[sets0 * this.matchScoreWidth + sets1]++;
+		this.points = increment(this.points, points, 1);
+		this.games = increment(this.games, games, 1);
+		this.tiebreaks = increment(this.tiebreaks, tiebreaks, 1);
+		this.maxPoints = Math.max(this.maxPoints, points);
+		this.totalPoints += points;
+		this.totalGames += games;
+		this.totalTiebreaks += tiebreaks;
+	}
+
+	/**
+	 * <p>
+	 * Adds the counts of <tt>other</tt> to this result. Counts are summed, so
+	 * the outcome does not depend on the order results are merged in.
+	 * </p>
+	 */
+	SimulationResult merge(SimulationResult other) {
+		this.matches += other.matches;
+		for (int slot = 0; slot < Match.SLOTS; slot++) {
+			this.wins[slot] += other.wins[slot];
+		}
+		for (int i = 0; i < this.matchScores.length; i++) {
+			this.matchScores[i] += other.matchScores[i];
+		}
+		for (int games0 = 0; games0 < other.setScores.length; games0++) {
+			long[] row = other.setScores[games0];
+			for (int games1 = 0; games1 < row.length; games1++) {
+				if (0 != row[games1]) {
+					this.addSets(games0, games1, row[games1]);
+				}
+			}
+		}
+		this.points = mergeCounts(this.points, other.points);
+		this.games = mergeCounts(this.games, other.games);
+		this.tiebreaks = mergeCounts(this.tiebreaks, other.tiebreaks);
+		this.maxPoints = Math.max(this.maxPoints, other.maxPoints);
+		this.totalPoints += other.totalPoints;
+		this.totalGames += other.totalGames;
+		this.totalTiebreaks += other.totalTiebreaks;
+		return this;
+	}
+
+	private double average(long total) {
+		return 0 == this.matches ? 0 : (double) total / this.matches;
+	}
+
+	private static long count(long[] counts, int index) {
+		return index < 0 || index >= counts.length ? 0 : counts[index];
+	}
+
+	private static long[] increment(long[] counts, int index, long amount) {
+		if (index >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+		}
+		counts[index] += amount;
+		return counts;
+	}
+
+	private static long[] mergeCounts(long[] counts, long[] other) {
+		for (int i = other.length - 1; i >= 0; i--) {
+			if (0 != other[i]) {
+				counts = increment(counts, i, other[i]);
+			}
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,228 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.state;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+
+/**
+ * <p>
+ * A table driven finite state machine for scoring a single game. The state of
+ * a game is the pair of point indices of its two sides (<tt>a</tt> and
+ * <tt>b</tt>), encoded as <tt>a * width + b</tt>. Each
+ * <tt>(state, point winner)</tt> pair maps to a precomputed transition holding
+ * the next state and whether the point completed the game, so that scoring a
+ * point is a single array lookup.
+ * </p>
+ *
+ * <p>
+ * Three machines are provided:
+ * </p>
+ *
+ * <ul>
+ * <li><tt>AD</tt>: regular games with advantage scoring. Point indices are the
+ * <tt>PointValue</tt> ordinals from <tt>LOVE</tt> to
+ * <tt>ADVANTAGE</tt>.</li>
+ * <li><tt>NO_AD</tt>: regular games where the point at 40-40 decides the
+ * game.</li>
+ * <li><tt>TIEBREAK</tt>: tiebreak games. Point indices are the number of
+ * points won, normalized to <tt>0..7</tt> with <tt>getState</tt> since only
+ * the difference matters once both sides have reached six.</li>
+ * </ul>
+ *
+ * <p>
+ * States that cannot be reached under a machine's rules have an invalid
+ * transition, on which <tt>transition</tt> throws a
+ * <tt>FrameworkException</tt>.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public final class GameStateMachine {
+
+	private static final int FORTY = PointValue.FORTY.ordinal();
+	private static final int ADVANTAGE = PointValue.ADVANTAGE.ordinal();
+	private static final int TIEBREAK_POINTS_NEEDED = 7;
+
+	private static final int GAME_WON = 1 << 7;
+	private static final int STATE_MASK = GAME_WON - 1;
+	private static final byte INVALID = -1;
+
+	public static final GameStateMachine AD = new GameStateMachine(ADVANTAGE + 1, false, false);
+	public static final GameStateMachine NO_AD = new GameStateMachine(ADVANTAGE + 1, true, false);
+	public static final GameStateMachine TIEBREAK = new GameStateMachine(TIEBREAK_POINTS_NEEDED + 1, false, true);
+
+	private final int width;
+	private final boolean tiebreak;
+	private final byte[] transitions;
+
+	private GameStateMachine(int width, boolean noAd, boolean tiebreak) {
+		this.width = width;
+		this.tiebreak = tiebreak;
+		this.transitions = new byte[width * width * 2];
+		for (int a = 0; a < width; a++) {
+			for (int b = 0; b < width; b++) {
+				int state = a * width + b;
+				this.transitions[state << 1] = this.compute(a, b, noAd);
+				byte mirrored = this.compute(b, a, noAd);
+				if (INVALID != mirrored && 0 == (mirrored & GAME_WON)) {
+					int next = mirrored & STATE_MASK;
+					mirrored = (byte) ((next % width) * width + next / width);
+				}
+				this.transitions[(state << 1) | 1] = mirrored;
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Computes the transition for side <tt>a</tt> winning the point with the
+	 * rules of this machine. Only used while building the table.
+	 * </p>
+	 */
+	private byte compute(int a, int b, boolean noAd) {
+		if (this.tiebreak) {
+			final int six = TIEBREAK_POINTS_NEEDED - 1;
+			if ((a > six || b > six) && Math.abs(a - b) != 1 || Math.min(a, b) > six) {
+				return INVALID;
+			} else if (a + 1 >= TIEBREAK_POINTS_NEEDED && a + 1 - b > 1) {
+				return (byte) GAME_WON;
+			} else if (a + 1 > six && b > six) {
+				// Beyond 6-6 only the lead matters, 7-7 is equivalent to 6-6.
+				return this.state(six, six);
+			}
+			return this.state(a + 1, b);
+		}
+
+		if ((a == ADVANTAGE && b != FORTY) || (b == ADVANTAGE && a != FORTY) || (noAd && (a == ADVANTAGE || b == ADVANTAGE))) {
+			return INVALID;
+		} else if (a == ADVANTAGE || (a == FORTY && (b < FORTY || noAd))) {
+			return (byte) GAME_WON;
+		} else if (b == ADVANTAGE) {
+			return this.state(FORTY, FORTY);
+		}
+		return this.state(a + 1, b);
+	}
+
+	private byte state(int a, int b) {
+		return (byte) (a * this.width + b);
+	}
+
+	/**
+	 * @param matchRules
+	 *            the rules being played
+	 * @param tiebreak
+	 *            true if the game is a tiebreak
+	 * @return the machine scoring a game under <tt>matchRules</tt>.
+	 */
+	public static GameStateMachine of(MatchRules matchRules, boolean tiebreak) {
+		if (tiebreak) {
+			return TIEBREAK;
+		}
+		return matchRules.isNoAdScoring() ? NO_AD : AD;
+	}
+
+	/**
+	 * <p>
+	 * Encodes the point indices of both sides as a state of this machine.
+	 * Tiebreak points are normalized so that any score beyond 6-6 maps to
+	 * 6-6, 7-6 or 6-7.
+	 * </p>
+	 *
+	 * @param a
+	 *            the point index of side <tt>a</tt>
+	 * @param b
+	 *            the point index of side <tt>b</tt>
+	 * @return the state.
+	 */
+	public int getState(int a, int b) {
+		if (this.tiebreak) {
+			int excess = Math.min(a, b) - (TIEBREAK_POINTS_NEEDED - 1);
+			if (excess > 0) {
+				a -= excess;
+				b -= excess;
+			}
+		}
+		return a * this.width + b;
+	}
+
+	/**
+	 * @param state
+	 *            a state of this machine
+	 * @return the point index of side <tt>a</tt>.
+	 */
+	public int getPointsA(int state) {
+		return state / this.width;
+	}
+
+	/**
+	 * @param state
+	 *            a state of this machine
+	 * @return the point index of side <tt>b</tt>.
+	 */
+	public int getPointsB(int state) {
+		return state % this.width;
+	}
+
+	/**
+	 * @return the number of states of this machine, including unreachable
+	 *         ones.
+	 */
+	public int getStateCount() {
+		return this.width * this.width;
+	}
+
+	/**
+	 * <p>
+	 * Looks up the transition for a point won in <tt>state</tt>.
+	 * </p>
+	 *
+	 * @param state
+	 *            the state of the game before the point
+	 * @param winner
+	 *            <tt>0</tt> if side <tt>a</tt> won the point, <tt>1</tt> if
+	 *            side <tt>b</tt> won it
+	 * @return the transition, read with <tt>isGameWon</tt> and
+	 *         <tt>getNextState</tt>.
+	 */
+	public int transition(int state, int winner) {
+		byte transition = this.transitions[(state << 1) | winner];
+		if (INVALID == transition) {
+			throw new FrameworkException("Game state " + this.getPointsA(state) + "-" + this.getPointsB(state) + " is not valid.");
+		}
+		return transition & 0xFF;
+	}
+
+	/**
+	 * @param transition
+	 *            a transition returned by <tt>transition</tt>
+	 * @return true if the point completed the game, in favor of the point
+	 *         winner.
+	 */
+	public static boolean isGameWon(int transition) {
+		return 0 != (transition & GAME_WON);
+	}
+
+	/**
+	 * @param transition
+	 *            a transition returned by <tt>transition</tt>
+	 * @return the state of the game after the point. Not applicable when the
+	 *         game was won.
+	 */
+	public static int getNextState(int transition) {
+		return transition & STATE_MASK;
+	}
+}
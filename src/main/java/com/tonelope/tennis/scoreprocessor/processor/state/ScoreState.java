@@ -0,0 +1,383 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.state;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.MatchScore;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+
+/**
+ * <p>
+ * Packs the complete live score of a singles match into a single
+ * <tt>long</tt>. Players are referred to by their slot, which is their index
+ * within <tt>Match.getPlayers()</tt> (<tt>0</tt> or <tt>1</tt>).
+ * </p>
+ *
+ * <p>
+ * The layout of the packed value is:
+ * </p>
+ *
+ * <ul>
+ * <li>bits 0-15: points of slot 0 and slot 1 within the current game (8 bits
+ * each). Regular games use the <tt>PointValue</tt> ordinal (<tt>LOVE</tt> to
+ * <tt>ADVANTAGE</tt>); tiebreaks use the number of points won.</li>
+ * <li>bits 16-31: games of slot 0 and slot 1 within the current set (8 bits
+ * each)</li>
+ * <li>bits 32-39: sets won by slot 0 and slot 1 (4 bits each)</li>
+ * <li>bit 40: set if the current game is a tiebreak</li>
+ * <li>bit 41: the slot serving the current game (the first server of a
+ * tiebreak)</li>
+ * <li>bits 42-43: the <tt>Status</tt> ordinal of the match</li>
+ * <li>bit 44: the slot of the match winner, once the match is complete</li>
+ * </ul>
+ *
+ * <p>
+ * All transitions are pure functions of the packed value and the
+ * <tt>MatchRules</tt> being played, which makes this class suitable for
+ * simulation and high volume ingest where building the <tt>Match</tt> object
+ * tree is not needed.
+ * </p>
+ *
+ * @see com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy
+ * @author Tony Lopez
+ *
+ */
+public final class ScoreState {
+
+	private static final int POINTS_SHIFT = 0;
+	private static final int GAMES_SHIFT = 16;
+	private static final int SETS_SHIFT = 32;
+	private static final int TIEBREAK_SHIFT = 40;
+	private static final int SERVER_SHIFT = 41;
+	private static final int STATUS_SHIFT = 42;
+	private static final int WINNER_SHIFT = 44;
+
+	private static final long BYTE_MASK = 0xFFL;
+	private static final long NIBBLE_MASK = 0xFL;
+	private static final long STATUS_MASK = 0x3L;
+
+	private static final int MAX_GAMES = 0xFF;
+	private static final int MAX_TIEBREAK_POINTS = 0xFF;
+
+	private static final Status[] STATUSES = Status.values();
+
+	private ScoreState() {}
+
+	/**
+	 * <p>
+	 * Returns the state of a match that has not yet started.
+	 * </p>
+	 *
+	 * @param startingServer
+	 *            the slot of the player serving the first game.
+	 * @return the initial state.
+	 */
+	public static long initial(int startingServer) {
+		return ((long) (startingServer & 1) << SERVER_SHIFT)
+				| ((long) Status.NOT_STARTED.ordinal() << STATUS_SHIFT);
+	}
+
+	/**
+	 * <p>
+	 * Packs the current score of a singles <tt>match</tt> maintained by the
+	 * <tt>Set</tt>, <tt>Game</tt> and <tt>Point</tt> object tree. Once the
+	 * match is complete, the games and points are cleared as they are by
+	 * <tt>pointWonBy</tt>.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match object
+	 * @return the packed state of <tt>match</tt>.
+	 */
+	public static long fromMatch(Match match) {
+		MatchScore matchScore = match.getScore();
+		long state = initial(match.getSlot(match.getStartingServer()));
+		state = withSetsWon(state, 0, matchScore.getStartingServerSetsWon());
+		state = withSetsWon(state, 1, matchScore.getStartingReceiverSetsWon());
+		state = withStatus(state, match.getStatus());
+		if (match.isCompleted()) {
+			return (state & ~(1L << WINNER_SHIFT)) | ((long) match.getSlot(match.getWinningPlayer()) << WINNER_SHIFT);
+		}
+
+		Set set = match.getCurrentSet();
+		SetScore setScore = set.getScore();
+		int setServer = match.getSlot(set.getStartingServer());
+		state = withGames(state, setServer, setScore.getStartingServerScore());
+		state = withGames(state, setServer ^ 1, setScore.getStartingReceiverScore());
+
+		Game game = set.getCurrentGame();
+		int gameServer = match.getSlot(game.getServer());
+		state = (state & ~(1L << SERVER_SHIFT)) | ((long) gameServer << SERVER_SHIFT);
+		if (game instanceof TiebreakGame) {
+			TiebreakScore score = (TiebreakScore) game.getScore();
+			state |= 1L << TIEBREAK_SHIFT;
+			state = withPoints(state, gameServer, score.getServerScore());
+			return withPoints(state, gameServer ^ 1, score.getReceiverScore());
+		}
+		GameScore score = (GameScore) game.getScore();
+		state = withPoints(state, gameServer, score.getServerScore().ordinal());
+		return withPoints(state, gameServer ^ 1, score.getReceiverScore().ordinal());
+	}
+
+	public static int getPoints(long state, int slot) {
+		return (int) ((state >>> (POINTS_SHIFT + 8 * slot)) & BYTE_MASK);
+	}
+
+	public static int getGames(long state, int slot) {
+		return (int) ((state >>> (GAMES_SHIFT + 8 * slot)) & BYTE_MASK);
+	}
+
+	public static int getSetsWon(long state, int slot) {
+		return (int) ((state >>> (SETS_SHIFT + 4 * slot)) & NIBBLE_MASK);
+	}
+
+	/**
+	 * @param state
+	 *            the packed state
+	 * @return the number of completed sets.
+	 */
+	public static int getSetsPlayed(long state) {
+		return getSetsWon(state, 0) + getSetsWon(state, 1);
+	}
+
+	public static boolean isTiebreak(long state) {
+		return ((state >>> TIEBREAK_SHIFT) & 1L) != 0;
+	}
+
+	/**
+	 * @param state
+	 *            the packed state
+	 * @return the slot of the player serving the current game. For a tiebreak,
+	 *         this is the player that served the first point.
+	 */
+	public static int getServer(long state) {
+		return (int) ((state >>> SERVER_SHIFT) & 1L);
+	}
+
+	/**
+	 * <p>
+	 * Returns the slot of the player serving the next point. Outside of a
+	 * tiebreak this is the server of the game. Within a tiebreak the first
+	 * server serves one point, after which the serve alternates every two
+	 * points.
+	 * </p>
+	 *
+	 * @param state
+	 *            the packed state
+	 * @return the slot of the player serving the next point.
+	 */
+	public static int getPointServer(long state) {
+		int server = getServer(state);
+		if (!isTiebreak(state)) {
+			return server;
+		}
+		int pointsPlayed = getPoints(state, 0) + getPoints(state, 1);
+		return ((pointsPlayed + 1) / 2) % 2 == 0 ? server : server ^ 1;
+	}
+
+	public static Status getStatus(long state) {
+		return STATUSES[(int) ((state >>> STATUS_SHIFT) & STATUS_MASK)];
+	}
+
+	public static boolean isCompleted(long state) {
+		return Status.COMPLETE == getStatus(state);
+	}
+
+	/**
+	 * @param state
+	 *            the packed state
+	 * @return the slot of the match winner, or <tt>-1</tt> if the match is not
+	 *         complete.
+	 */
+	public static int getWinner(long state) {
+		return isCompleted(state) ? (int) ((state >>> WINNER_SHIFT) & 1L) : -1;
+	}
+
+	/**
+	 * <p>
+	 * Returns the <tt>PointValue</tt> of <tt>slot</tt> within the current
+	 * regular game. Not applicable to tiebreaks, which are scored with
+	 * <tt>getPoints</tt>.
+	 * </p>
+	 *
+	 * @param state
+	 *            the packed state
+	 * @param slot
+	 *            the player slot
+	 * @return the point value of the player.
+	 */
+	public static PointValue getPointValue(long state, int slot) {
+		return PointValue.values()[getPoints(state, slot)];
+	}
+
+	/**
+	 * @param state
+	 *            the packed state
+	 * @param matchRules
+	 *            the rules being played
+	 * @return true if the current set is the last possible set of the match.
+	 */
+	public static boolean isInFinalSet(long state, MatchRules matchRules) {
+		return getSetsPlayed(state) == matchRules.getNumberOfSets() - 1;
+	}
+
+	/**
+	 * <p>
+	 * Returns the state following a point won by <tt>winner</tt>.
+	 * </p>
+	 *
+	 * @param state
+	 *            the packed state before the point
+	 * @param winner
+	 *            the slot of the player that won the point
+	 * @param matchRules
+	 *            the rules being played
+	 * @return the packed state after the point.
+	 */
+	public static long pointWonBy(long state, int winner, MatchRules matchRules) {
+		if (isCompleted(state)) {
+			throw new FrameworkException("Updating score when match status is " + Status.COMPLETE + " is not supported.");
+		}
+		state = withStatus(state, Status.IN_PROGRESS);
+
+		boolean tiebreak = isTiebreak(state);
+		GameStateMachine machine = GameStateMachine.of(matchRules, tiebreak);
+		int transition = machine.transition(machine.getState(getPoints(state, 0), getPoints(state, 1)), winner);
+		if (GameStateMachine.isGameWon(transition)) {
+			return gameWonBy(state, winner, matchRules);
+		}
+
+		if (tiebreak) {
+			// Tiebreak states are normalized, keep counting the actual points.
+			int winnerPoints = getPoints(state, winner);
+			if (winnerPoints == MAX_TIEBREAK_POINTS) {
+				throw new FrameworkException("Tiebreak exceeded the supported number of points.");
+			}
+			return withPoints(state, winner, winnerPoints + 1);
+		}
+		int next = GameStateMachine.getNextState(transition);
+		return withPoints(withPoints(state, 0, machine.getPointsA(next)), 1, machine.getPointsB(next));
+	}
+
+	/**
+	 * <p>
+	 * Returns the state following a game won by <tt>winner</tt>. Resets the
+	 * points, rotates the server and completes the set and match when
+	 * appropriate.
+	 * </p>
+	 *
+	 * @param state
+	 *            the packed state before the game was won
+	 * @param winner
+	 *            the slot of the player that won the game
+	 * @param matchRules
+	 *            the rules being played
+	 * @return the packed state after the game.
+	 */
+	static long gameWonBy(long state, int winner, MatchRules matchRules) {
+		boolean wasTiebreak = isTiebreak(state);
+		int loser = winner ^ 1;
+		int winnerGames = getGames(state, winner) + 1;
+		int loserGames = getGames(state, loser);
+		if (winnerGames > MAX_GAMES) {
+			throw new FrameworkException("Set exceeded the supported number of games.");
+		}
+
+		// Clear the points and tiebreak flag, the receiver serves next.
+		state &= ~((0xFFFFL << POINTS_SHIFT) | (1L << TIEBREAK_SHIFT));
+		state ^= 1L << SERVER_SHIFT;
+
+		boolean finalSetWinByTwo = isInFinalSet(state, matchRules) && matchRules.isFinalSetTiebreakDisabled();
+		final int gamesNeeded = matchRules.getNumberOfGamesPerSet();
+		if (wasTiebreak || (winnerGames >= gamesNeeded && winnerGames - loserGames > 1)) {
+			return setWonBy(state, winner, matchRules);
+		}
+
+		state = withGames(state, winner, winnerGames);
+		if (winnerGames == gamesNeeded && loserGames == gamesNeeded && !finalSetWinByTwo) {
+			state |= 1L << TIEBREAK_SHIFT;
+		}
+		return state;
+	}
+
+	private static long setWonBy(long state, int winner, MatchRules matchRules) {
+		int setsWon = getSetsWon(state, winner) + 1;
+		state &= ~(0xFFFFL << GAMES_SHIFT);
+		state = withSetsWon(state, winner, setsWon);
+		if (setsWon >= matchRules.getNumberOfSetsToWin()) {
+			state = withStatus(state, Status.COMPLETE);
+			state = (state & ~(1L << WINNER_SHIFT)) | ((long) winner << WINNER_SHIFT);
+		}
+		return state;
+	}
+
+	private static long withPoints(long state, int slot, int points) {
+		int shift = POINTS_SHIFT + 8 * slot;
+		return (state & ~(BYTE_MASK << shift)) | ((long) points << shift);
+	}
+
+	private static long withGames(long state, int slot, int games) {
+		int shift = GAMES_SHIFT + 8 * slot;
+		return (state & ~(BYTE_MASK << shift)) | ((long) games << shift);
+	}
+
+	private static long withSetsWon(long state, int slot, int sets) {
+		int shift = SETS_SHIFT + 4 * slot;
+		return (state & ~(NIBBLE_MASK << shift)) | ((long) sets << shift);
+	}
+
+	/**
+	 * @param state
+	 *            the packed state
+	 * @param status
+	 *            the status of the match
+	 * @return <tt>state</tt> with the status of the match replaced by
+	 *         <tt>status</tt>.
+	 */
+	public static long withStatus(long state, Status status) {
+		return (state & ~(STATUS_MASK << STATUS_SHIFT)) | ((long) status.ordinal() << STATUS_SHIFT);
+	}
+
+	/**
+	 * <p>
+	 * Returns a readable description of <tt>state</tt> in the form
+	 * <tt>sets games points</tt> from the perspective of slot 0 (e.g.
+	 * <tt>1-0 5-4 30-15</tt> or <tt>1-1 6-6 (5-4)</tt>).
+	 * </p>
+	 *
+	 * @param state
+	 *            the packed state
+	 * @return the description of the state.
+	 */
+	public static String toString(long state) {
+		StringBuilder sb = new StringBuilder()
+				.append(getSetsWon(state, 0)).append('-').append(getSetsWon(state, 1)).append(' ')
+				.append(getGames(state, 0)).append('-').append(getGames(state, 1)).append(' ');
+		if (isTiebreak(state)) {
+			sb.append('(').append(getPoints(state, 0)).append('-').append(getPoints(state, 1)).append(')');
+		} else {
+			sb.append(getPointValue(state, 0).getValue()).append('-').append(getPointValue(state, 1).getValue());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,289 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.state;
+
+import java.util.List;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.AbstractMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.MatchEventDispatcher;
+import com.tonelope.tennis.scoreprocessor.processor.UpdateCheckpoint;
+import com.tonelope.tennis.scoreprocessor.processor.event.GameCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.SetCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.TiebreakCompletedEvent;
+
+/**
+ * <p>
+ * A <tt>MatchStrategy</tt> for singles matches that keeps the live score in a
+ * packed <tt>ScoreState</tt> instead of the <tt>Set</tt>, <tt>Game</tt> and
+ * <tt>Point</tt> object tree.
+ * </p>
+ *
+ * <p>
+ * Only the status of the <tt>Match</tt> object is maintained; the scoring
+ * objects it contains are left as they were when the match was created. The
+ * score is read with <tt>getState()</tt> and the static accessors of
+ * <tt>ScoreState</tt>. Events are executed in the same order as
+ * <tt>SinglesMatchStrategy</tt>.
+ * </p>
+ *
+ * <p>
+ * An instance is bound to the first match it updates and is not thread safe.
+ * </p>
+ *
+ * @author Tony Lopez
+ *
+ */
+public class ScoreStateMatchStrategy extends AbstractMatchStrategy {
+
+	private Match match;
+	private long state;
+	private int strokesInPoint;
+	private int pointsInGame;
+
+	public ScoreStateMatchStrategy() {
+		this(null);
+	}
+
+	/**
+	 * @param eventDispatcher
+	 *            the dispatcher executing registered events, or <tt>null</tt>
+	 *            to execute them synchronously
+	 */
+	public ScoreStateMatchStrategy(MatchEventDispatcher eventDispatcher) {
+		super(null, eventDispatcher);
+	}
+
+	/**
+	 * @return the packed <tt>ScoreState</tt> of the bound match.
+	 */
+	public long getState() {
+		return this.state;
+	}
+
+	/**
+	 * <p>
+	 * Returns the packed state of the bound match, or the initial state if no
+	 * update has been applied yet. The status is read from <tt>match</tt>,
+	 * which is in progress as soon as its first stroke is applied.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @return the packed state of <tt>match</tt>.
+	 */
+	@Override
+	public long getState(Match match) {
+		long state = null != this.match ? this.state : ScoreState.initial(match.getSlot(match.getStartingServer()));
+		return ScoreState.withStatus(state, match.getStatus());
+	}
+
+	/**
+	 * <p>
+	 * Captures the packed state, which is an immutable value, along with the
+	 * progress of the current point and the status of the match.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match object
+	 * @return the checkpoint to restore to revert the next update.
+	 */
+	@Override
+	public UpdateCheckpoint checkpoint(Match match) {
+		final Match boundMatch = this.match;
+		final long state = this.state;
+		final int strokesInPoint = this.strokesInPoint;
+		final int pointsInGame = this.pointsInGame;
+		final Status status = match.getStatus();
+		return m -> {
+			this.match = boundMatch;
+			this.state = state;
+			this.strokesInPoint = strokesInPoint;
+			this.pointsInGame = pointsInGame;
+			m.setStatus(status);
+		};
+	}
+
+	/**
+	 * <p>
+	 * Applies <tt>stroke</tt> to the current point. The point is won by the
+	 * hitter of a winner and lost by the hitter of an out rally shot or a
+	 * double fault; any other stroke continues the point.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match object
+	 * @param stroke
+	 *            the stroke to apply
+	 * @return the match object
+	 */
+	@Override
+	public Match update(Match match, Stroke stroke) {
+		this.validateAndPrepare(match);
+		int hitter = this.match.getSlot(stroke.getPlayer());
+		if (0 == this.strokesInPoint) {
+			if (!StrokeType.FIRST_SERVE.equals(stroke.getStrokeType())) {
+				throw new FrameworkException("First stroke of a point must be a first serve. Found: " + stroke);
+			}
+			if (hitter != ScoreState.getPointServer(this.state)) {
+				throw new FrameworkException("First stroke server does not match starting server.");
+			}
+		}
+
+		if (stroke.isWinner()) {
+			this.pointWonBy(hitter);
+		} else if (stroke.isOutRallyShot() || stroke.isDoubleFault()) {
+			this.pointWonBy(hitter ^ 1);
+		} else {
+			this.strokesInPoint++;
+		}
+		return match;
+	}
+
+	/**
+	 * <p>
+	 * Applies a completed <tt>point</tt>.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match object
+	 * @param point
+	 *            the point to apply
+	 * @return the match object
+	 */
+	@Override
+	public Match update(Match match, Point point) {
+		this.validateAndPrepare(match);
+		if (0 != this.strokesInPoint) {
+			throw new FrameworkException("Attempted to add point while previous point is still in progress.");
+		}
+
+		Player winningPlayer = point instanceof SimplePoint ? point.getWinningPlayer() : this.getWinningPlayer(point);
+		if (null == winningPlayer) {
+			throw new FrameworkException("Point must be completed to be applied: " + point);
+		}
+		this.pointWonBy(this.match.getSlot(winningPlayer));
+		return match;
+	}
+
+	private Player getWinningPlayer(Point point) {
+		Stroke stroke = point.getCurrentStroke();
+		if (null == stroke) {
+			return null;
+		} else if (stroke.isWinner()) {
+			return stroke.getPlayer();
+		} else if (stroke.isOutRallyShot() || stroke.isDoubleFault()) {
+			return this.match.getOpposingPlayer(stroke.getPlayer());
+		}
+		return null;
+	}
+
+	private void pointWonBy(int winner) {
+		long previous = this.state;
+		this.state = ScoreState.pointWonBy(previous, winner, this.match.getMatchRules());
+		this.strokesInPoint = 0;
+
+		boolean setCompleted = ScoreState.getSetsPlayed(previous) != ScoreState.getSetsPlayed(this.state);
+		boolean gameCompleted = setCompleted || ScoreState.getGames(previous, winner) != ScoreState.getGames(this.state, winner);
+		this.executeMatchEvents(MatchEventType.ON_POINT_COMPLETION, this.match);
+		if (gameCompleted) {
+			this.executeMatchEvents(MatchEventType.ON_GAME_COMPLETION, this.match);
+			if (ScoreState.isTiebreak(previous)) {
+				this.executeMatchEvents(MatchEventType.ON_TIEBREAK_COMPLETION, this.match);
+			}
+			if (setCompleted) {
+				this.executeMatchEvents(MatchEventType.ON_SET_COMPLETION, this.match);
+				if (ScoreState.isCompleted(this.state)) {
+					this.match.setStatus(Status.COMPLETE);
+					this.executeMatchEvents(MatchEventType.ON_MATCH_COMPLETION, this.match);
+				}
+			}
+		}
+
+		if (!this.eventListeners.isEmpty()) {
+			this.publishEvents(previous, winner, gameCompleted, setCompleted);
+		}
+		this.pointsInGame = gameCompleted ? 0 : this.pointsInGame + 1;
+		this.throwEventFailure();
+	}
+
+	/**
+	 * <p>
+	 * Publishes the typed events of a point won by <tt>winner</tt>, derived
+	 * from the state before the point and the current state.
+	 * </p>
+	 */
+	private void publishEvents(long previous, int winner, boolean gameCompleted, boolean setCompleted) {
+		String matchId = this.match.getId();
+		int setIndex = ScoreState.getSetsPlayed(previous);
+		int gameIndex = ScoreState.getGames(previous, 0) + ScoreState.getGames(previous, 1);
+		this.publishEvent(new PointCompletedEvent(matchId, winner, setIndex, gameIndex, this.pointsInGame,
+				ScoreState.getPointServer(previous), this.state));
+		if (!gameCompleted) {
+			return;
+		}
+		int server = ScoreState.getServer(previous);
+		boolean tiebreak = ScoreState.isTiebreak(previous);
+		this.publishEvent(new GameCompletedEvent(matchId, winner, setIndex, gameIndex, server, tiebreak, this.state));
+		if (tiebreak) {
+			this.publishEvent(new TiebreakCompletedEvent(matchId, winner, setIndex, gameIndex, server,
+					ScoreState.getPoints(previous, winner) + 1, ScoreState.getPoints(previous, winner ^ 1), this.state));
+		}
+		if (!setCompleted) {
+			return;
+		}
+		this.publishEvent(new SetCompletedEvent(matchId, winner, setIndex, ScoreState.getGames(previous, winner) + 1,
+				ScoreState.getGames(previous, winner ^ 1), this.state));
+		if (ScoreState.isCompleted(this.state)) {
+			this.publishEvent(new MatchCompletedEvent(matchId, winner, setIndex, this.state));
+		}
+	}
+
+	/**
+	 * <p>
+	 * Binds this instance to <tt>match</tt> on first use and validates the
+	 * match can be updated.
+	 * </p>
+	 *
+	 * @param match
+	 *            the match object
+	 */
+	private void validateAndPrepare(Match match) {
+		if (null == this.match) {
+			this.match = match;
+			this.state = ScoreState.initial(match.getSlot(match.getStartingServer()));
+		} else if (this.match != match) {
+			throw new FrameworkException("ScoreStateMatchStrategy is bound to a different match.");
+		}
+
+		if (!match.isInProgress() && !match.isNotStarted()) {
+			throw new FrameworkException(
+					"Updating score when match status is " + match.getStatus() + " is not supported.");
+		}
+
+		if (match.isNotStarted()) {
+			match.setStatus(Status.IN_PROGRESS);
+		}
+	}
+}
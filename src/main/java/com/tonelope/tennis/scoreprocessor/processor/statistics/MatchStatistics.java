@@ -0,0 +1,401 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.statistics;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchUpdateListener;
+import com.tonelope.tennis.scoreprocessor.processor.state.GameStateMachine;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+/**
+ * <p>
+ * Keeps per player <tt>Statistic</tt> counters of a match, for the whole match
+ * and for each set, up to date as strokes and points are applied. Counters
+ * are read in constant time and the match tree is never traversed.
+ * </p>
+ * 
+ * <p>
+ * The statistics follow the score with their own <tt>ScoreState</tt>, so they
+ * work with any <tt>MatchStrategy</tt> and with any <tt>RetentionPolicy</tt>.
+ * Only the updates made once the statistics are attached are counted; the
+ * score at that point is read from the match. Points applied without strokes
+ * count towards points won, service points and break points only.
+ * </p>
+ * 
+ * <p>
+ * Statistics created with <tt>attach</tt> keep a log of the counters changed
+ * by the updates the processor can undo, a few integers per update, so that
+ * updates reverted with <tt>MatchProcessor.undo</tt> are subtracted again and
+ * the followed score is restored. The log is bounded by the history limit of
+ * the processor and is not kept while undo is disabled, nor by statistics
+ * created for a match alone.
+ * </p>
+ * 
+ * <p>
+ * Counters are updated on the updating thread and are not safe to read
+ * concurrently from other threads.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public class MatchStatistics implements MatchUpdateListener {
+
+	private static final Statistic[] STATISTICS = Statistic.values();
+	private static final int STRIDE = Match.SLOTS * STATISTICS.length;
+
+	private final Match match;
+	private final MatchRules matchRules;
+	private final GameStateMachine gameStateMachine;
+	/**
+	 * The number of updates that can be undone, which bounds the log.
+	 */
+	private final IntSupplier historyLimit;
+	/**
+	 * Match totals followed by the counters of each set, indexed by
+	 * <tt>(set + 1) * STRIDE + slot * STATISTICS.length + statistic</tt>.
+	 */
+	private final int[] counters;
+	private long state;
+	private int strokesInPoint;
+	private boolean secondServe;
+	/**
+	 * The changes made by each logged update, as pairs of the index of
+	 * the set counter changed and the value added.
+	 */
+	private int[] changes = new int[64];
+	private int changeCount;
+	/**
+	 * The state, progress of the point and start of the changes of each
+	 * update, to revert it on undo.
+	 */
+	private long[] frameStates = new long[16];
+	private int[] frameProgress = new int[16];
+	private int[] frameChanges = new int[16];
+	private int frameCount;
+
+	/**
+	 * <p>
+	 * Creates statistics for <tt>match</tt> that keep no log of the updates,
+	 * so that undone updates remain counted.
+	 * </p>
+	 * 
+	 * @param match
+	 *            the match to keep statistics of
+	 */
+	public MatchStatistics(Match match) {
+		this(match, () -> 0);
+	}
+
+	private MatchStatistics(Match match, IntSupplier historyLimit) {
+		this.match = match;
+		this.historyLimit = historyLimit;
+		this.matchRules = match.getMatchRules();
+		this.gameStateMachine = GameStateMachine.of(this.matchRules, false);
+		this.counters = new int[(this.matchRules.getNumberOfSets() + 1) * STRIDE];
+		this.state = ScoreState.fromMatch(match);
+	}
+
+	/**
+	 * <p>
+	 * Creates statistics for the match of <tt>processor</tt> and registers
+	 * them as one of its update listeners. The statistics revert the updates
+	 * undone by <tt>processor</tt>, following its history limit.
+	 * </p>
+	 * 
+	 * @param processor
+	 *            the processor of the match
+	 * @return the statistics.
+	 */
+	public static MatchStatistics attach(MatchProcessor processor) {
+		MatchStatistics statistics = new MatchStatistics(processor.getMatch(), processor::getHistoryLimit);
+		processor.addUpdateListener(statistics);
+		return statistics;
+	}
+
+	/**
+	 * @param statistic
+	 *            the statistic
+	 * @param slot
+	 *            the player slot
+	 * @return the value of <tt>statistic</tt> for the whole match.
+	 */
+	public int get(Statistic statistic, int slot) {
+		return this.counters[slot * STATISTICS.length + statistic.ordinal()];
+	}
+
+	/**
+	 * @param statistic
+	 *            the statistic
+	 * @param slot
+	 *            the player slot
+	 * @param set
+	 *            the index of the set
+	 * @return the value of <tt>statistic</tt> within the set.
+	 */
+	public int get(Statistic statistic, int slot, int set) {
+		return this.counters[(set + 1) * STRIDE + slot * STATISTICS.length + statistic.ordinal()];
+	}
+
+	/**
+	 * @param statistic
+	 *            the statistic
+	 * @param player
+	 *            a player of the match
+	 * @return the value of <tt>statistic</tt> for the whole match.
+	 */
+	public int get(Statistic statistic, Player player) {
+		return this.get(statistic, this.match.getSlot(player));
+	}
+
+	/**
+	 * @param slot
+	 *            the player slot
+	 * @return the share of first serves that landed in, from <tt>0</tt> to
+	 *         <tt>1</tt>, or <tt>0</tt> if none were hit.
+	 */
+	public double getFirstServePercentage(int slot) {
+		return ratio(this.get(Statistic.FIRST_SERVES_IN, slot), this.get(Statistic.FIRST_SERVES, slot));
+	}
+
+	/**
+	 * @return the average number of strokes of the points played with
+	 *         strokes, or <tt>0</tt> if there were none.
+	 */
+	public double getAverageRallyLength() {
+		return ratio(this.get(Statistic.RALLY_STROKES, 0) + this.get(Statistic.RALLY_STROKES, 1),
+				this.get(Statistic.RALLIES, 0) + this.get(Statistic.RALLIES, 1));
+	}
+
+	/**
+	 * @return the packed <tt>ScoreState</tt> the statistics are following.
+	 */
+	public long getState() {
+		return this.state;
+	}
+
+	@Override
+	public void onStroke(Match match, Stroke stroke) {
+		this.validate(match);
+		this.beginUpdate();
+		this.applyStroke(stroke);
+	}
+
+	@Override
+	public void onPoint(Match match, Point point) {
+		this.validate(match);
+		this.beginUpdate();
+		if (point instanceof SimplePoint) {
+			this.pointWonBy(this.match.getSlot(point.getWinningPlayer()));
+			return;
+		}
+		for (Stroke stroke : point.getStrokes()) {
+			this.applyStroke(stroke);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reverts the counters and the score changed by the last update.
+	 * </p>
+	 */
+	@Override
+	public void onUndo(Match match, Stroke stroke) {
+		this.validate(match);
+		this.revertUpdate();
+	}
+
+	/**
+	 * <p>
+	 * Reverts the counters and the score changed by the last update.
+	 * </p>
+	 */
+	@Override
+	public void onUndo(Match match, Point point) {
+		this.validate(match);
+		this.revertUpdate();
+	}
+
+	/**
+	 * <p>
+	 * Starts the log of an update. Once the log is full and holds at least
+	 * twice the history limit, the updates that can no longer be undone are
+	 * discarded at once, so that the log stays bounded at a constant
+	 * amortized cost.
+	 * </p>
+	 */
+	private void beginUpdate() {
+		int limit = this.historyLimit.getAsInt();
+		if (0 == limit) {
+			this.frameCount = 0;
+			this.changeCount = 0;
+			return;
+		}
+		if (this.frameCount == this.frameStates.length) {
+			if (this.frameCount - limit >= limit) {
+				this.discardFrames(this.frameCount - limit);
+			} else {
+				int length = this.frameCount * 2;
+				this.frameStates = Arrays.copyOf(this.frameStates, length);
+				this.frameProgress = Arrays.copyOf(this.frameProgress, length);
+				this.frameChanges = Arrays.copyOf(this.frameChanges, length);
+			}
+		}
+		this.frameStates[this.frameCount] = this.state;
+		this.frameProgress[this.frameCount] = this.secondServe ? ~this.strokesInPoint : this.strokesInPoint;
+		this.frameChanges[this.frameCount] = this.changeCount;
+		this.frameCount++;
+	}
+
+	/**
+	 * <p>
+	 * Discards the log of the oldest <tt>frames</tt> updates.
+	 * </p>
+	 */
+	private void discardFrames(int frames) {
+		int start = this.frameChanges[frames];
+		this.frameCount -= frames;
+		this.changeCount -= start;
+		System.arraycopy(this.changes, start, this.changes, 0, this.changeCount);
+		System.arraycopy(this.frameStates, frames, this.frameStates, 0, this.frameCount);
+		System.arraycopy(this.frameProgress, frames, this.frameProgress, 0, this.frameCount);
+		for (int i = 0; i < this.frameCount; i++) {
+			this.frameChanges[i] = this.frameChanges[i + frames] - start;
+		}
+	}
+
+	/**
+	 * <p>
+	 * Subtracts the changes of the last update, in reverse order, and
+	 * restores the score followed before it. An update missing from the log,
+	 * made before the statistics were attached or while undo was disabled,
+	 * can not be reverted, in which case only the score is read again from
+	 * the match.
+	 * </p>
+	 */
+	private void revertUpdate() {
+		if (0 == this.frameCount) {
+			this.state = ScoreState.fromMatch(this.match);
+			this.strokesInPoint = 0;
+			this.secondServe = false;
+			return;
+		}
+		this.frameCount--;
+		int start = this.frameChanges[this.frameCount];
+		while (this.changeCount > start) {
+			int value = this.changes[--this.changeCount];
+			int index = this.changes[--this.changeCount];
+			this.counters[index] -= value;
+			this.counters[index % STRIDE] -= value;
+		}
+		this.state = this.frameStates[this.frameCount];
+		int progress = this.frameProgress[this.frameCount];
+		this.secondServe = progress < 0;
+		this.strokesInPoint = progress < 0 ? ~progress : progress;
+	}
+
+	private void validate(Match match) {
+		if (this.match != match) {
+			throw new FrameworkException("MatchStatistics are bound to a different match.");
+		}
+	}
+
+	private void applyStroke(Stroke stroke) {
+		int hitter = this.match.getSlot(stroke.getPlayer());
+		int set = ScoreState.getSetsPlayed(this.state);
+		StrokeType strokeType = stroke.getStrokeType();
+		this.strokesInPoint++;
+		if (StrokeType.FIRST_SERVE.equals(strokeType)) {
+			this.increment(Statistic.FIRST_SERVES, hitter, set);
+			if (!stroke.isOut()) {
+				this.increment(Statistic.FIRST_SERVES_IN, hitter, set);
+			}
+		} else if (StrokeType.SECOND_SERVE.equals(strokeType)) {
+			this.secondServe = true;
+			if (stroke.isOut()) {
+				this.increment(Statistic.DOUBLE_FAULTS, hitter, set);
+			}
+		}
+
+		if (stroke.isWinner()) {
+			this.increment(stroke.isServe() ? Statistic.ACES : Statistic.WINNERS, hitter, set);
+			this.pointWonBy(hitter);
+		} else if (stroke.isOutRallyShot()) {
+			this.increment(Statistic.UNFORCED_ERRORS, hitter, set);
+			this.pointWonBy(hitter ^ 1);
+		} else if (stroke.isDoubleFault()) {
+			this.pointWonBy(hitter ^ 1);
+		}
+	}
+
+	private void pointWonBy(int winner) {
+		long previous = this.state;
+		int set = ScoreState.getSetsPlayed(previous);
+		int server = ScoreState.getPointServer(previous);
+		int receiver = server ^ 1;
+		this.increment(Statistic.POINTS_WON, winner, set);
+		this.increment(Statistic.SERVICE_POINTS, server, set);
+		if (winner == server) {
+			this.increment(Statistic.SERVICE_POINTS_WON, server, set);
+		}
+		if (0 != this.strokesInPoint) {
+			this.increment(Statistic.RALLIES, server, set);
+			this.add(Statistic.RALLY_STROKES, server, set, this.strokesInPoint);
+			if (winner == server) {
+				this.increment(this.secondServe ? Statistic.SECOND_SERVE_POINTS_WON : Statistic.FIRST_SERVE_POINTS_WON, server, set);
+			}
+		}
+		if (!ScoreState.isTiebreak(previous) && GameStateMachine.isGameWon(this.gameStateMachine.transition(
+				this.gameStateMachine.getState(ScoreState.getPoints(previous, 0), ScoreState.getPoints(previous, 1)), receiver))) {
+			this.increment(Statistic.BREAK_POINTS_FACED, server, set);
+			this.increment(Statistic.BREAK_POINT_OPPORTUNITIES, receiver, set);
+			this.increment(winner == server ? Statistic.BREAK_POINTS_SAVED : Statistic.BREAK_POINTS_CONVERTED, winner, set);
+		}
+
+		this.state = ScoreState.pointWonBy(previous, winner, this.matchRules);
+		this.strokesInPoint = 0;
+		this.secondServe = false;
+	}
+
+	private void increment(Statistic statistic, int slot, int set) {
+		this.add(statistic, slot, set, 1);
+	}
+
+	private void add(Statistic statistic, int slot, int set, int value) {
+		int offset = slot * STATISTICS.length + statistic.ordinal();
+		int index = (set + 1) * STRIDE + offset;
+		this.counters[offset] += value;
+		this.counters[index] += value;
+		if (this.changeCount + 2 > this.changes.length) {
+			this.changes = Arrays.copyOf(this.changes, this.changes.length * 2);
+		}
+		this.changes[this.changeCount++] = index;
+		this.changes[this.changeCount++] = value;
+	}
+
+	private static double ratio(int numerator, int denominator) {
+		return 0 == denominator ? 0 : (double) numerator / denominator;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.processor.statistics;
+
+/**
+ * <p>
+ * The counters kept per player by <tt>MatchStatistics</tt>.
+ * </p>
+ * 
+ * @author Tony Lopez
+ *
+ */
+public enum Statistic {
+
+	/** Serves won outright by the server. */
+	ACES,
+	/** Second serves that landed out. */
+	DOUBLE_FAULTS,
+	/** Points started with a first serve by the player. */
+	FIRST_SERVES,
+	/** First serves that landed in. */
+	FIRST_SERVES_IN,
+	/** Service points won after the first serve landed in. */
+	FIRST_SERVE_POINTS_WON,
+	/** Service points won after a second serve. */
+	SECOND_SERVE_POINTS_WON,
+	/** Points served, including points applied without strokes. */
+	SERVICE_POINTS,
+	/** Points won while serving. */
+	SERVICE_POINTS_WON,
+	/** Points won. */
+	POINTS_WON,
+	/** Rally shots won outright, serves excluded. */
+	WINNERS,
+	/**
+	 * Rally shots that landed out. The model does not tell forced from
+	 * unforced errors, so every error is counted.
+	 */
+	UNFORCED_ERRORS,
+	/** Points served that the receiver could win to break serve. */
+	BREAK_POINTS_FACED,
+	/** Break points faced that were won. */
+	BREAK_POINTS_SAVED,
+	/** Points received that would break serve if won. */
+	BREAK_POINT_OPPORTUNITIES,
+	/** Break point opportunities that were won. */
+	BREAK_POINTS_CONVERTED,
+	/** Points served that were played with strokes. */
+	RALLIES,
+	/** Strokes hit by both players within the player's rallies. */
+	RALLY_STROKES
+}
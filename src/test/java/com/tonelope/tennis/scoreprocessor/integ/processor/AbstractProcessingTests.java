@@ -34,6 +34,7 @@ import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
 import com.tonelope.tennis.scoreprocessor.processor.DefaultMatchFactory;
 import com.tonelope.tennis.scoreprocessor.processor.MatchFactory;
 import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchStrategy;
 
 /**
  * 
@@ -50,6 +51,10 @@ public class AbstractProcessingTests {
 	}
 	
 	protected Match createNewMatch(MatchRules matchRules) {
+		return this.createNewMatch(matchRules, null);
+	}
+	
+	protected Match createNewMatch(MatchRules matchRules, MatchStrategy strategy) {
 		PlayerConfig playerConfig = new PlayerConfig();
 		playerConfig.setPlayers(new ArrayList<Player>());
 		playerConfig.getPlayers().add(new Player());
@@ -62,7 +67,7 @@ public class AbstractProcessingTests {
 		playerConfig.setStartingReceiver(playerConfig.getPlayers().get(1));
 		
 		Match match = this.matchFactory.create(Optional.ofNullable(matchRules).orElse(new MatchRules()), playerConfig);
-		this.matchProcessor = new MatchProcessor(match);
+		this.matchProcessor = new MatchProcessor(match, strategy);
 		return match;
 	}
 	
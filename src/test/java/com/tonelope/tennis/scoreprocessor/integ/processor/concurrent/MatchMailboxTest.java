@@ -0,0 +1,222 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+import com.tonelope.tennis.scoreprocessor.processor.concurrent.MatchMailbox;
+import com.tonelope.tennis.scoreprocessor.processor.concurrent.SerialExecutor;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchMailboxTest extends AbstractProcessingTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+	
+	@Test
+	public void t1_concurrentSubmitters_singleWriter() throws Exception {
+		Match match = this.createNewMatch(null, null);
+		MatchMailbox mailbox = new MatchMailbox(this.matchProcessor, this.executor);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		// 48 points win the match 6-0, 6-0, submitted from 4 threads at once.
+		ExecutorService submitters = Executors.newFixedThreadPool(4);
+		CountDownLatch start = new CountDownLatch(1);
+		List<CompletableFuture<MatchSnapshot>> futures = new ArrayList<>();
+		try {
+			List<Future<List<CompletableFuture<MatchSnapshot>>>> submissions = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				submissions.add(submitters.submit(() -> {
+					start.await();
+					List<CompletableFuture<MatchSnapshot>> submitted = new ArrayList<>();
+					for (int i = 0; i < 12; i++) {
+						submitted.add(mailbox.submit(new SimplePoint(player1, player2, player1)));
+					}
+					return submitted;
+				}));
+			}
+			start.countDown();
+			for (Future<List<CompletableFuture<MatchSnapshot>>> submission : submissions) {
+				futures.addAll(submission.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			submitters.shutdownNow();
+		}
+		
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+		Assert.assertEquals(Status.COMPLETE, mailbox.read(Match::getStatus).get(10, TimeUnit.SECONDS));
+		Assert.assertEquals("6-0, 6-0", mailbox.read(m -> m.getScore().toString()).get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void t2_updatesAppliedInOrder() throws Exception {
+		Match match = this.createNewMatch(null, null);
+		MatchMailbox mailbox = new MatchMailbox(this.matchProcessor, this.executor);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		mailbox.submit(new Stroke(player1, StrokeType.FIRST_SERVE, false, false));
+		mailbox.submit(new Stroke(player2, StrokeType.FOREHAND, false, false));
+		CompletableFuture<String> score = mailbox.submit(new Stroke(player1, StrokeType.BACKHAND, false, true), 
+				m -> m.getCurrentSet().getCurrentGame().getScore().toString());
+		
+		Assert.assertEquals("15 - 0", score.get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void t3_rejectedUpdate_doesNotBlockMailbox() throws Exception {
+		Match match = this.createNewMatch(null, null);
+		MatchMailbox mailbox = new MatchMailbox(this.matchProcessor, this.executor);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		CompletableFuture<MatchSnapshot> rejected = mailbox.submit(new Stroke(player2, StrokeType.FIRST_SERVE, false, true));
+		CompletableFuture<MatchSnapshot> accepted = mailbox.submit(new Stroke(player1, StrokeType.FIRST_SERVE, false, true));
+		
+		try {
+			rejected.get(10, TimeUnit.SECONDS);
+			Assert.fail("Expected the stroke of the receiver to be rejected.");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof FrameworkException);
+		}
+		Assert.assertEquals(PointValue.FIFTEEN, accepted.get(10, TimeUnit.SECONDS).getPointValue(0));
+		Assert.assertEquals("15 - 0", mailbox.read(m -> m.getCurrentSet().getCurrentGame().getScore().toString()).get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void t4_rejectedDrain_taskWithdrawn() throws Exception {
+		List<String> ran = new ArrayList<>();
+		boolean[] reject = { true };
+		SerialExecutor serial = new SerialExecutor(task -> {
+			if (reject[0]) {
+				throw new RejectedExecutionException("saturated");
+			}
+			task.run();
+		});
+		
+		try {
+			serial.execute(() -> ran.add("rejected"));
+			Assert.fail("Expected the task to be rejected.");
+		} catch (RejectedExecutionException e) {
+			Assert.assertEquals("saturated", e.getMessage());
+		}
+		reject[0] = false;
+		serial.execute(() -> ran.add("accepted"));
+		
+		Assert.assertEquals(Collections.singletonList("accepted"), ran);
+	}
+	
+	@Test
+	public void t5_error_completesFutureExceptionally() throws Exception {
+		Match match = this.createNewMatch(null, null);
+		MatchMailbox mailbox = new MatchMailbox(this.matchProcessor, this.executor);
+		Player player1 = match.getPlayers().get(0);
+		this.matchProcessor.registerEvent(MatchEventType.ON_POINT_COMPLETION, m -> {
+			throw new AssertionError("consumer error");
+		});
+		
+		try {
+			mailbox.submit(new Stroke(player1, StrokeType.FIRST_SERVE, false, true)).get(10, TimeUnit.SECONDS);
+			Assert.fail("Expected the update to fail.");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof AssertionError);
+		}
+		Assert.assertEquals(Status.IN_PROGRESS, mailbox.read(Match::getStatus).get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void t6_rejectedReschedule_drainsOnCurrentThread() throws Exception {
+		List<Runnable> pending = new ArrayList<>();
+		SerialExecutor serial = new SerialExecutor(task -> {
+			if (!pending.isEmpty()) {
+				throw new RejectedExecutionException("saturated");
+			}
+			pending.add(task);
+		});
+		
+		// More tasks than a single drain runs before handing off to a new one.
+		int[] ran = { 0 };
+		for (int i = 0; i < 1500; i++) {
+			serial.execute(() -> ran[0]++);
+		}
+		pending.get(0).run();
+		
+		Assert.assertEquals(1500, ran[0]);
+		pending.clear();
+		serial.execute(() -> ran[0]++);
+		Assert.assertEquals(1, pending.size());
+	}
+	
+	@Test
+	public void t7_rejectedDrain_drainsConcurrentlyQueuedUpdates() throws Exception {
+		Match match = this.createNewMatch(null, null);
+		Player player1 = match.getPlayers().get(0);
+		MatchMailbox[] mailbox = new MatchMailbox[1];
+		List<CompletableFuture<MatchSnapshot>> queued = new ArrayList<>();
+		mailbox[0] = new MatchMailbox(this.matchProcessor, task -> {
+			// Submitted while the rejected drain is being scheduled, so only queued.
+			if (queued.isEmpty()) {
+				queued.add(mailbox[0].submit(new Stroke(player1, StrokeType.FIRST_SERVE, false, true)));
+			}
+			throw new RejectedExecutionException("shutdown");
+		});
+		
+		try {
+			mailbox[0].read(Match::getStatus);
+			Assert.fail("Expected the read to be rejected.");
+		} catch (RejectedExecutionException e) {
+			Assert.assertEquals("shutdown", e.getMessage());
+		}
+		Assert.assertEquals(1, queued.size());
+		Assert.assertTrue(queued.get(0).isDone());
+		Assert.assertEquals(PointValue.FIFTEEN, queued.get(0).get().getPointValue(0));
+	}
+}
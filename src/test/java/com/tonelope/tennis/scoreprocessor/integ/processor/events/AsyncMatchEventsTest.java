@@ -0,0 +1,123 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.concurrent.AsyncMatchEventDispatcher;
+import com.tonelope.tennis.scoreprocessor.processor.event.GameCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.SetCompletedEvent;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class AsyncMatchEventsTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+	
+	@Test
+	public void t1_scoringDoesNotWaitOnConsumers() throws Exception {
+		AsyncMatchEventDispatcher dispatcher = new AsyncMatchEventDispatcher(this.executor);
+		Match match = this.createNewMatch(null, new SinglesMatchStrategy(null, dispatcher));
+		Player player1 = match.getPlayers().get(0);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch matchCompleted = new CountDownLatch(1);
+		List<MatchEventType> events = Collections.synchronizedList(new ArrayList<>());
+		
+		this.matchProcessor.addEventListener(PointCompletedEvent.class, e -> {
+			try {
+				release.await();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		this.matchProcessor.addEventListener(GameCompletedEvent.class, e -> events.add(e.getType()));
+		this.matchProcessor.addEventListener(SetCompletedEvent.class, e -> events.add(e.getType()));
+		this.matchProcessor.addEventListener(MatchCompletedEvent.class, e -> matchCompleted.countDown());
+		
+		this.winSet(match, player1);
+		this.winSet(match, player1);
+		
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+		Assert.assertTrue(events.isEmpty());
+		release.countDown();
+		Assert.assertTrue(matchCompleted.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(14, events.size());
+		Assert.assertEquals(MatchEventType.ON_SET_COMPLETION, events.get(6));
+		Assert.assertEquals(MatchEventType.ON_SET_COMPLETION, events.get(13));
+	}
+	
+	@Test
+	public void t2_failingConsumer_isolated() throws Exception {
+		AsyncMatchEventDispatcher dispatcher = new AsyncMatchEventDispatcher(this.executor);
+		Match match = this.createNewMatch(null, new SinglesMatchStrategy(null, dispatcher));
+		Player player1 = match.getPlayers().get(0);
+		CountDownLatch gamesCompleted = new CountDownLatch(6);
+		
+		this.matchProcessor.addEventListener(GameCompletedEvent.class, e -> {
+			throw new IllegalStateException("Listener failure");
+		});
+		this.matchProcessor.addEventListener(GameCompletedEvent.class, e -> gamesCompleted.countDown());
+		
+		this.winSet(match, player1);
+		
+		Assert.assertTrue(gamesCompleted.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals(6, dispatcher.getFailureCount());
+		Assert.assertEquals(1, match.getScore().getStartingServerSetsWon());
+	}
+	
+	@Test
+	public void t3_matchConsumers_rejected() throws Exception {
+		AsyncMatchEventDispatcher dispatcher = new AsyncMatchEventDispatcher(this.executor);
+		this.createNewMatch(null, new SinglesMatchStrategy(null, dispatcher));
+		
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("can not be executed asynchronously");
+		this.matchProcessor.registerEvent(MatchEventType.ON_GAME_COMPLETION, m -> {});
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.processor.event.GameCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.SetCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.TiebreakCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TypedMatchEventsTest extends AbstractProcessingTests {
+
+	@Test
+	public void t1_typedEvents_carryDelta() {
+		Match match = this.createNewMatch(null);
+		match.setId("t1");
+		List<MatchEvent> events = this.listenToAll();
+		this.play(match, () -> ScoreState.fromMatch(match), (state, server) -> 0);
+
+		List<PointCompletedEvent> points = filter(events, PointCompletedEvent.class);
+		List<GameCompletedEvent> games = filter(events, GameCompletedEvent.class);
+		List<SetCompletedEvent> sets = filter(events, SetCompletedEvent.class);
+		Assert.assertEquals(48, points.size());
+		Assert.assertEquals(12, games.size());
+		Assert.assertEquals(2, sets.size());
+		Assert.assertEquals(1, filter(events, MatchCompletedEvent.class).size());
+		Assert.assertTrue(filter(events, TiebreakCompletedEvent.class).isEmpty());
+
+		PointCompletedEvent point = points.get(6);
+		Assert.assertEquals("t1", point.getMatchId());
+		Assert.assertEquals(0, point.getWinner());
+		Assert.assertEquals(1, point.getServer());
+		Assert.assertEquals(0, point.getSetIndex());
+		Assert.assertEquals(1, point.getGameIndex());
+		Assert.assertEquals(2, point.getPointIndex());
+		Assert.assertEquals("0-0 1-0 40-0", ScoreState.toString(point.getScore()));
+
+		Assert.assertEquals(5, games.get(11).getGameIndex());
+		Assert.assertEquals(1, sets.get(1).getSetIndex());
+		Assert.assertEquals(6, sets.get(1).getWinnerGames());
+		Assert.assertEquals(0, sets.get(1).getLoserGames());
+		Assert.assertEquals(2, sets.get(1).getSetsWon(0));
+		Assert.assertEquals(0, sets.get(1).getSetsWon(1));
+		Assert.assertSame(events.get(events.size() - 1), filter(events, MatchCompletedEvent.class).get(0));
+	}
+
+	@Test
+	public void t2_tiebreakCompletion_bothEngines() {
+		Match match = this.createNewMatch(null);
+		this.assertTiebreakEvents(match, () -> ScoreState.fromMatch(match));
+
+		ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+		Match packedMatch = this.createNewMatch(null, strategy);
+		this.assertTiebreakEvents(packedMatch, strategy::getState);
+	}
+
+	@Test
+	public void t3_enginesPublishSameEvents() {
+		Random random = new Random(7);
+		for (int i = 0; i < 10; i++) {
+			long seed = random.nextLong();
+			Match match = this.createNewMatch(null);
+			List<MatchEvent> events = this.listenToAll();
+			Random graphRandom = new Random(seed);
+			this.play(match, () -> ScoreState.fromMatch(match), (state, server) -> graphRandom.nextInt(100) < 65 ? server : server ^ 1);
+
+			ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+			Match packedMatch = this.createNewMatch(null, strategy);
+			List<MatchEvent> packedEvents = this.listenToAll();
+			Random packedRandom = new Random(seed);
+			this.play(packedMatch, strategy::getState, (state, server) -> packedRandom.nextInt(100) < 65 ? server : server ^ 1);
+
+			Assert.assertEquals(describe(events), describe(packedEvents));
+		}
+	}
+
+	private void assertTiebreakEvents(Match match, LongSupplier state) {
+		List<MatchEventType> tiebreaks = new ArrayList<>();
+		this.matchProcessor.registerEvent(MatchEventType.ON_TIEBREAK_COMPLETION, m -> tiebreaks.add(MatchEventType.ON_TIEBREAK_COMPLETION));
+		List<MatchEvent> events = this.listenToAll();
+		// Every service game is held, slot 0 wins the tiebreak.
+		while (0 == ScoreState.getSetsPlayed(state.getAsLong())) {
+			this.playPoint(match, state, (s, server) -> ScoreState.isTiebreak(s) ? 0 : server);
+		}
+
+		Assert.assertEquals(1, tiebreaks.size());
+		List<TiebreakCompletedEvent> tiebreakEvents = filter(events, TiebreakCompletedEvent.class);
+		Assert.assertEquals(1, tiebreakEvents.size());
+		TiebreakCompletedEvent tiebreak = tiebreakEvents.get(0);
+		Assert.assertEquals(0, tiebreak.getWinner());
+		Assert.assertEquals(0, tiebreak.getFirstServer());
+		Assert.assertEquals(12, tiebreak.getGameIndex());
+		Assert.assertEquals(7, tiebreak.getWinnerPoints());
+		Assert.assertEquals(0, tiebreak.getLoserPoints());
+
+		GameCompletedEvent game = filter(events, GameCompletedEvent.class).get(12);
+		Assert.assertTrue(game.isTiebreak());
+		Assert.assertEquals(events.indexOf(game) + 1, events.indexOf(tiebreak));
+		SetCompletedEvent set = filter(events, SetCompletedEvent.class).get(0);
+		Assert.assertEquals(7, set.getWinnerGames());
+		Assert.assertEquals(6, set.getLoserGames());
+		Assert.assertEquals(events.indexOf(tiebreak) + 1, events.indexOf(set));
+	}
+
+	private List<MatchEvent> listenToAll() {
+		List<MatchEvent> events = new ArrayList<>();
+		this.matchProcessor.addEventListener(PointCompletedEvent.class, events::add);
+		this.matchProcessor.addEventListener(GameCompletedEvent.class, events::add);
+		this.matchProcessor.addEventListener(TiebreakCompletedEvent.class, events::add);
+		this.matchProcessor.addEventListener(SetCompletedEvent.class, events::add);
+		this.matchProcessor.addEventListener(MatchCompletedEvent.class, events::add);
+		return events;
+	}
+
+	/**
+	 * Plays <tt>match</tt> to completion, the winner of each point is chosen
+	 * by <tt>winner</tt> from the state and the slot of the server.
+	 */
+	private void play(Match match, LongSupplier state, ToIntBiFunction<Long, Integer> winner) {
+		while (!match.isCompleted()) {
+			this.playPoint(match, state, winner);
+		}
+	}
+
+	private void playPoint(Match match, LongSupplier state, ToIntBiFunction<Long, Integer> winner) {
+		List<Player> players = match.getPlayers();
+		long current = state.getAsLong();
+		int server = ScoreState.getPointServer(current);
+		this.matchProcessor.update(new SimplePoint(players.get(server), players.get(server ^ 1),
+				players.get(winner.applyAsInt(current, server))));
+	}
+
+	private static <E extends MatchEvent> List<E> filter(List<MatchEvent> events, Class<E> eventClass) {
+		List<E> filtered = new ArrayList<>();
+		for (MatchEvent event : events) {
+			if (eventClass.isInstance(event)) {
+				filtered.add(eventClass.cast(event));
+			}
+		}
+		return filtered;
+	}
+
+	private static List<String> describe(List<MatchEvent> events) {
+		List<String> descriptions = new ArrayList<>();
+		for (MatchEvent event : events) {
+			StringBuilder sb = new StringBuilder().append(event.getType())
+					.append(' ').append(event.getWinner())
+					.append(' ').append(event.getSetIndex())
+					.append(' ').append(event.getSetsWon(0)).append('-').append(event.getSetsWon(1))
+					.append(' ').append(event.getGames(0)).append('-').append(event.getGames(1));
+			if (event instanceof PointCompletedEvent) {
+				PointCompletedEvent point = (PointCompletedEvent) event;
+				sb.append(' ').append(point.getGameIndex()).append(' ').append(point.getPointIndex())
+						.append(' ').append(point.getServer())
+						.append(' ').append(ScoreState.toString(point.getScore()));
+			} else if (event instanceof GameCompletedEvent) {
+				GameCompletedEvent game = (GameCompletedEvent) event;
+				sb.append(' ').append(game.getGameIndex()).append(' ').append(game.getServer())
+						.append(' ').append(game.isTiebreak());
+			} else if (event instanceof TiebreakCompletedEvent) {
+				TiebreakCompletedEvent tiebreak = (TiebreakCompletedEvent) event;
+				sb.append(' ').append(tiebreak.getWinnerPoints()).append('-').append(tiebreak.getLoserPoints());
+			} else if (event instanceof SetCompletedEvent) {
+				SetCompletedEvent set = (SetCompletedEvent) event;
+				sb.append(' ').append(set.getWinnerGames()).append('-').append(set.getLoserGames());
+			}
+			descriptions.add(sb.toString());
+		}
+		return descriptions;
+	}
+}
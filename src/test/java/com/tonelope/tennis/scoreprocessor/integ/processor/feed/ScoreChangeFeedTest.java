@@ -0,0 +1,211 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.concurrent.AsyncMatchEventDispatcher;
+import com.tonelope.tennis.scoreprocessor.processor.feed.ScoreChange;
+import com.tonelope.tennis.scoreprocessor.processor.feed.ScoreChangeFeed;
+import com.tonelope.tennis.scoreprocessor.processor.feed.ScoreFeedDecoder;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ScoreChangeFeedTest extends AbstractProcessingTests {
+
+	@Test
+	public void t1_decoder_followsMatch() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		Match match = this.createNewMatch(matchRules);
+		ScoreChangeFeed feed = ScoreChangeFeed.attach(this.matchProcessor, 16);
+		ScoreFeedDecoder decoder = new ScoreFeedDecoder();
+		List<ScoreChange> changes = new ArrayList<>();
+		feed.subscribe(change -> {
+			changes.add(change);
+			Assert.assertTrue(decoder.apply(change));
+		});
+
+		Random random = new Random(23);
+		while (!match.isCompleted()) {
+			this.playPoint(match, random);
+			this.assertSameScore(decoder);
+		}
+
+		int deltas = 0;
+		int deltaBytes = 0;
+		for (ScoreChange change : changes) {
+			if (!change.isKeyframe()) {
+				deltas++;
+				deltaBytes += change.getSize();
+				Assert.assertTrue(change.toString(), change.getSize() <= 5);
+			}
+		}
+		Assert.assertEquals(feed.getVersion(), deltas);
+		Assert.assertTrue(deltaBytes <= deltas * 4);
+		Assert.assertEquals(deltas / 16 + 1, changes.size() - deltas);
+		Assert.assertEquals(ScoreState.getWinner(this.matchProcessor.getSnapshot().getState()),
+				ScoreState.getWinner(decoder.getState()));
+	}
+
+	@Test
+	public void t2_lateAndLossySubscribers_recoverFromKeyframes() {
+		Match match = this.createNewMatch(null);
+		ScoreChangeFeed feed = ScoreChangeFeed.attach(this.matchProcessor, 8);
+		Random random = new Random(29);
+		for (int i = 0; i < 30; i++) {
+			this.playPoint(match, random);
+		}
+
+		ScoreFeedDecoder late = new ScoreFeedDecoder();
+		ScoreFeedDecoder lossy = new ScoreFeedDecoder();
+		int[] received = new int[1];
+		feed.subscribe(late::apply);
+		feed.subscribe(change -> {
+			if (0 != received[0]++ % 10 || change.isKeyframe()) {
+				lossy.apply(change);
+			}
+		});
+		Assert.assertTrue(late.isInSync());
+		this.assertSameScore(late);
+
+		boolean lostSync = false;
+		for (int i = 0; i < 40 && !match.isCompleted(); i++) {
+			this.playPoint(match, random);
+			this.assertSameScore(late);
+			lostSync |= !lossy.isInSync();
+		}
+		Assert.assertTrue(lostSync);
+		while (!lossy.isInSync() && !match.isCompleted()) {
+			this.playPoint(match, random);
+		}
+		Assert.assertEquals(feed.getVersion(), lossy.getVersion());
+		this.assertSameScore(lossy);
+	}
+
+	@Test
+	public void t3_undo_publishesKeyframe() {
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setHistoryLimit(5);
+		ScoreChangeFeed feed = ScoreChangeFeed.attach(this.matchProcessor);
+		ScoreFeedDecoder decoder = new ScoreFeedDecoder();
+		List<ScoreChange> changes = new ArrayList<>();
+		feed.subscribe(change -> {
+			changes.add(change);
+			decoder.apply(change);
+		});
+		Player player1 = match.getPlayers().get(0);
+		this.winServiceGame(match, player1);
+		this.hitFirstServeAce(match, match.getCurrentPoint().getServer());
+
+		Assert.assertTrue(this.matchProcessor.undo());
+		Assert.assertTrue(this.matchProcessor.undo());
+		Assert.assertTrue(changes.get(changes.size() - 1).isKeyframe());
+		Assert.assertEquals(7, feed.getVersion());
+		this.assertSameScore(decoder);
+		Assert.assertEquals("0-0 0-0 40-0", ScoreState.toString(decoder.getState()));
+
+		this.hitFirstServeAce(match, player1);
+		Assert.assertEquals(8, decoder.getVersion());
+		this.assertSameScore(decoder);
+	}
+
+	@Test
+	public void t4_scoreStateStrategy() {
+		Match match = this.createNewMatch(null, new ScoreStateMatchStrategy());
+		ScoreChangeFeed feed = ScoreChangeFeed.attach(this.matchProcessor, 10);
+		ScoreFeedDecoder decoder = new ScoreFeedDecoder();
+		feed.subscribe(decoder::apply);
+		Random random = new Random(31);
+		while (!match.isCompleted()) {
+			long state = this.matchProcessor.getSnapshot().getState();
+			Player server = match.getPlayers().get(ScoreState.getPointServer(state));
+			Player winner = random.nextBoolean() ? server : match.getOpposingPlayer(server);
+			this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), winner));
+			this.assertSameScore(decoder);
+		}
+		Assert.assertEquals(this.matchProcessor.getSnapshot().getState(), decoder.getState());
+	}
+
+	@Test
+	public void t5_undo_asyncDispatcher_appliedInOrder() {
+		List<Runnable> pending = new ArrayList<>();
+		Executor executor = pending::add;
+		MatchMetrics metrics = new MatchMetrics();
+		AsyncMatchEventDispatcher dispatcher = new AsyncMatchEventDispatcher(executor, metrics);
+		Match match = this.createNewMatch(null, new SinglesMatchStrategy(null, dispatcher));
+		this.matchProcessor.setHistoryLimit(5);
+		ScoreChangeFeed feed = ScoreChangeFeed.attach(this.matchProcessor);
+		ScoreFeedDecoder decoder = new ScoreFeedDecoder();
+		feed.subscribe(decoder::apply);
+		Player player1 = match.getPlayers().get(0);
+		for (int i = 0; i < 3; i++) {
+			this.hitFirstServeAce(match, player1);
+		}
+
+		// The events of all three points are still queued when the last one is undone.
+		Assert.assertTrue(this.matchProcessor.undo());
+		while (!pending.isEmpty()) {
+			pending.remove(0).run();
+		}
+		Assert.assertEquals(0, dispatcher.getFailureCount());
+		Assert.assertEquals(3, metrics.getEventDurations(MatchEventType.ON_POINT_COMPLETION).getCount());
+		Assert.assertEquals(1, metrics.getEventDurations(MatchEventType.ON_UNDO).getCount());
+		Assert.assertEquals(4, feed.getVersion());
+		Assert.assertEquals("0-0 0-0 30-0", ScoreState.toString(decoder.getState()));
+		this.assertSameScore(decoder);
+
+		ScoreFeedDecoder late = new ScoreFeedDecoder();
+		feed.subscribe(late::apply);
+		this.assertSameScore(late);
+	}
+
+	private void playPoint(Match match, Random random) {
+		Player server = match.getCurrentPoint().getServer();
+		Player winner = random.nextInt(100) < 70 ? server : match.getOpposingPlayer(server);
+		this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), winner));
+	}
+
+	private void assertSameScore(ScoreFeedDecoder decoder) {
+		MatchSnapshot snapshot = this.matchProcessor.getSnapshot();
+		if (!snapshot.isCompleted()) {
+			Assert.assertEquals(ScoreState.toString(snapshot.getState()), ScoreState.toString(decoder.getState()));
+			Assert.assertEquals(snapshot.getState(), decoder.getState());
+		}
+		Assert.assertEquals(snapshot.getCompletedSets().toString(), decoder.getCompletedSets().toString());
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.journal;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchSnapshotCodec;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchSnapshotCodecTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private final MatchSnapshotCodec codec = new MatchSnapshotCodec();
+
+	@Test
+	public void t1_roundTrip_everyUpdate() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		Match match = this.createNewMatch(matchRules);
+		match.setId("court-7");
+		Random random = new Random(11);
+		while (!match.isCompleted()) {
+			this.playPoint(this.matchProcessor, random, match.getCurrentGame() instanceof TiebreakGame ? 50 : 75);
+			Match decoded = this.codec.decode(this.codec.encode(match));
+			Assert.assertEquals(describe(match), describe(decoded));
+		}
+		Assert.assertEquals("court-7", this.codec.decode(this.codec.encode(match)).getId());
+	}
+
+	@Test
+	public void t2_decodedMatch_keepsProcessing() {
+		for (int seed = 0; seed < 20; seed++) {
+			Match match = this.createNewMatch(null);
+			Random random = new Random(seed);
+			// Servers hold until the first tiebreak, which is snapshotted part-way.
+			while (!(match.getCurrentGame() instanceof TiebreakGame) || match.getCurrentGame().getPoints().size() < 2 + seed % 5) {
+				this.playPoint(this.matchProcessor, random, match.getCurrentGame() instanceof TiebreakGame ? 50 : 100);
+			}
+			MatchProcessor original = this.matchProcessor;
+			MatchProcessor restored = new MatchProcessor(this.codec.decode(this.codec.encode(match)));
+
+			long continuation = random.nextLong();
+			Random originalRandom = new Random(continuation);
+			Random restoredRandom = new Random(continuation);
+			while (!match.isCompleted()) {
+				this.playPoint(original, originalRandom, 60);
+				this.playPoint(restored, restoredRandom, 60);
+				Assert.assertEquals(describe(match), describe(restored.getMatch()));
+			}
+			Assert.assertTrue(restored.getMatch().isCompleted());
+		}
+	}
+
+	@Test
+	public void t3_roundTrip_simplePointsAndPlayers() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		player2.setLastName("Nadal é");
+		player1.setFirstName(null);
+		this.matchProcessor.update(new SimplePoint(player1, player2, player2));
+		this.matchProcessor.update(new Stroke(player1, StrokeType.FIRST_SERVE, true, false));
+
+		byte[] snapshot = this.codec.encode(match);
+		Match decoded = this.codec.decode(snapshot);
+
+		Assert.assertEquals(describe(match), describe(decoded));
+		Assert.assertNull(decoded.getPlayers().get(0).getFirstName());
+		Assert.assertEquals("Nadal é", decoded.getPlayers().get(1).getLastName());
+		Assert.assertTrue(decoded.getCurrentGame().getPoints().get(0) instanceof SimplePoint);
+		Assert.assertSame(decoded.getPlayers().get(1), decoded.getCurrentGame().getPoints().get(0).getWinningPlayer());
+		Assert.assertTrue(snapshot.length < 64);
+	}
+
+	@Test
+	public void t4_notASnapshot() {
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Data is not a match snapshot.");
+		this.codec.decode(new byte[] { 1, 2, 3, 4, 5, 6 });
+	}
+
+	@Test
+	public void t5_size_fullMatch() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		Match match = this.createNewMatch(matchRules);
+		Random random = new Random(13);
+		while (!match.isCompleted()) {
+			this.playPoint(this.matchProcessor, random, 60);
+		}
+
+		byte[] snapshot = this.codec.encode(match);
+		// A full five set match of strokes encodes to under 2 KB.
+		Assert.assertTrue("Snapshot of " + snapshot.length + " bytes", snapshot.length < 2048);
+	}
+
+	/**
+	 * Plays a point with strokes. The server wins with an ace with a
+	 * probability of <tt>serverWins</tt> percent, otherwise the receiver
+	 * wins with a return winner or a double fault.
+	 */
+	private void playPoint(MatchProcessor processor, Random random, int serverWins) {
+		Match match = processor.getMatch();
+		Player server = match.getCurrentPoint().getServer();
+		Player receiver = server.getOpposingPlayer(match.getPlayers());
+		if (random.nextInt(100) < serverWins) {
+			processor.update(new Stroke(server, StrokeType.FIRST_SERVE, false, true));
+		} else if (random.nextBoolean()) {
+			processor.update(new Stroke(server, StrokeType.FIRST_SERVE, false, false));
+			processor.update(new Stroke(receiver, StrokeType.BACKHAND, false, true));
+		} else {
+			processor.update(new Stroke(server, StrokeType.FIRST_SERVE, true, false));
+			processor.update(new Stroke(server, StrokeType.SECOND_SERVE, true, false));
+		}
+	}
+
+	private static String describe(Match match) {
+		List<Player> players = match.getPlayers();
+		StringBuilder sb = new StringBuilder().append(match.getId()).append(match.getStatus())
+				.append(match.getMatchRules()).append(match.getScore().getSetScores().size()).append(match.getScore())
+				.append(match.getScore().getStartingServerSetsWon()).append(match.getScore().getStartingReceiverSetsWon());
+		for (Player player : players) {
+			sb.append(player);
+		}
+		for (int i = 0; i < match.getScore().getSetScores().size(); i++) {
+			Assert.assertSame(match.getSets().get(i).getScore(), match.getScore().getSetScores().get(i));
+		}
+		for (Set set : match.getSets()) {
+			sb.append("\n").append(set.getStatus()).append(players.indexOf(set.getStartingServer()))
+					.append(set.getScore());
+			if (null != set.getScore().getTiebreakScore()) {
+				Assert.assertSame(set.getCurrentGame().getScore(), set.getScore().getTiebreakScore());
+			}
+			for (Game game : set.getGames()) {
+				sb.append("\n ").append(game.getClass().getSimpleName()).append(game.getStatus())
+						.append(players.indexOf(game.getServer())).append(game.getScore());
+				if (game instanceof TiebreakGame) {
+					TiebreakGame tiebreak = (TiebreakGame) game;
+					sb.append(players.indexOf(tiebreak.getRotationServer())).append(players.indexOf(tiebreak.getRotationReceiver()));
+				}
+				for (Point point : game.getPoints()) {
+					sb.append(" ").append(point.getClass().getSimpleName()).append(point.getStatus())
+							.append(players.indexOf(point.getServer())).append(players.indexOf(point.getReceiver()))
+							.append(players.indexOf(point.getWinningPlayer()));
+					for (Stroke stroke : point.getStrokes()) {
+						sb.append(stroke.getStatus()).append(players.indexOf(stroke.getPlayer()))
+								.append(stroke.getStrokeType()).append(stroke.isOut()).append(stroke.isWinner());
+					}
+				}
+			}
+		}
+		return sb.toString();
+	}
+}
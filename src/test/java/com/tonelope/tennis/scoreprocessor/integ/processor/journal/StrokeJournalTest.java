@@ -0,0 +1,307 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.journal;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PlayerConfig;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.EventDispatchException;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchRegistry;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchJournalStore;
+import com.tonelope.tennis.scoreprocessor.processor.journal.StrokeJournal;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class StrokeJournalTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void t1_recover_rebuildsMatches() throws Exception {
+		MatchRules noAd = new MatchRules();
+		noAd.setNoAdScoring(true);
+		noAd.setNumberOfSets(5);
+		MatchRegistry registry = new MatchRegistry();
+		MatchJournalStore store = new MatchJournalStore(this.folder.getRoot().toPath());
+		MatchProcessor court1 = registry.create("court-1", new MatchRules(), createPlayerConfig(), null);
+		MatchProcessor court2 = registry.create("court-2", noAd, createPlayerConfig(), null);
+		store.attach(court1);
+		store.attach(court2);
+
+		this.playGames(court1, 3);
+		court1.update(new Stroke(court1.getMatch().getPlayers().get(1), StrokeType.FIRST_SERVE, true, false));
+		this.playGames(court2, 7);
+		court2.updatePoints(this.createPoints(court2.getMatch(), 3));
+		store.close();
+
+		MatchRegistry recovered = new MatchRegistry();
+		MatchJournalStore recoveredStore = new MatchJournalStore(this.folder.getRoot().toPath());
+		List<MatchProcessor> processors = recoveredStore.recover((id, rules) -> recovered.create(id, rules, createPlayerConfig(), null));
+
+		Assert.assertEquals(2, processors.size());
+		this.assertSameScore(court1.getMatch(), recovered.get("court-1").getMatch());
+		this.assertSameScore(court2.getMatch(), recovered.get("court-2").getMatch());
+		Assert.assertTrue(recovered.get("court-2").getMatch().getMatchRules().isNoAdScoring());
+		Assert.assertEquals(5, recovered.get("court-2").getMatch().getMatchRules().getNumberOfSets());
+		Assert.assertEquals(4 + 8 + 4 + 1, recoveredStore.get("court-1").getRecordCount());
+		recoveredStore.close();
+	}
+
+	@Test
+	public void t2_recover_keepsJournaling() throws Exception {
+		MatchRegistry registry = new MatchRegistry();
+		MatchJournalStore store = new MatchJournalStore(this.folder.getRoot().toPath());
+		store.attach(registry.create("court-1", new MatchRules(), createPlayerConfig(), null));
+		this.playGames(registry.get("court-1"), 5);
+		store.close();
+
+		for (int i = 0; i < 2; i++) {
+			MatchRegistry recovered = new MatchRegistry();
+			MatchJournalStore recoveredStore = new MatchJournalStore(this.folder.getRoot().toPath());
+			recoveredStore.recover((id, rules) -> recovered.create(id, rules, createPlayerConfig(), null));
+			MatchProcessor processor = recovered.get("court-1");
+			if (0 == i) {
+				this.playGames(processor, 7);
+			} else {
+				Match match = processor.getMatch();
+				Assert.assertEquals(Status.COMPLETE, match.getStatus());
+				Assert.assertSame(match.getPlayers().get(0), match.getWinningPlayer());
+				Assert.assertTrue(recoveredStore.remove(processor));
+				Assert.assertEquals(0, this.folder.getRoot().list().length);
+			}
+			recoveredStore.close();
+		}
+	}
+
+	@Test
+	public void t3_appends_spanRegions() throws Exception {
+		Path file = this.folder.getRoot().toPath().resolve("m" + MatchJournalStore.EXTENSION);
+		Match match = this.createNewMatch(null);
+		Stroke stroke = new Stroke(match.getPlayers().get(0), StrokeType.FIRST_SERVE, false, true);
+		try (StrokeJournal journal = new StrokeJournal(file, match.getMatchRules())) {
+			for (int i = 0; i < 40000; i++) {
+				journal.onStroke(match, stroke);
+			}
+		}
+		try (StrokeJournal journal = new StrokeJournal(file, match.getMatchRules())) {
+			Assert.assertEquals(40000, journal.getRecordCount());
+			journal.onStroke(match, stroke);
+			Assert.assertEquals(40001, journal.getRecordCount());
+		}
+		try (StrokeJournal journal = new StrokeJournal(file, match.getMatchRules())) {
+			Assert.assertEquals(40001, journal.getRecordCount());
+		}
+	}
+
+	@Test
+	public void t4_notAJournal() throws Exception {
+		File file = this.folder.newFile("other" + MatchJournalStore.EXTENSION);
+		Files.write(file.toPath(), "not a stroke journal".getBytes("UTF-8"));
+
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("is not a stroke journal.");
+		StrokeJournal.readMatchRules(file.toPath());
+	}
+
+	@Test
+	public void t5_checkpoint_replaysTail() throws Exception {
+		MatchRegistry registry = new MatchRegistry();
+		MatchJournalStore store = new MatchJournalStore(this.folder.getRoot().toPath());
+		MatchProcessor processor = registry.create("court-1", new MatchRules(), createPlayerConfig(), null);
+		processor.getMatch().getPlayers().get(0).setLastName("Federer");
+		store.attach(processor);
+		this.playGames(processor, 4);
+		Assert.assertTrue(store.checkpoint(processor) > 0);
+		this.playGames(processor, 2);
+		processor.update(new Stroke(processor.getMatch().getPlayers().get(0), StrokeType.FIRST_SERVE, true, false));
+		store.close();
+
+		MatchRegistry recovered = new MatchRegistry();
+		MatchJournalStore recoveredStore = new MatchJournalStore(this.folder.getRoot().toPath());
+		recoveredStore.recover((id, rules) -> {
+			throw new AssertionError("Expected to restore from the snapshot.");
+		}, match -> recovered.register(new MatchProcessor(match)));
+
+		Match match = recovered.get("court-1").getMatch();
+		this.assertSameScore(processor.getMatch(), match);
+		Assert.assertEquals("Federer", match.getPlayers().get(0).getLastName());
+		this.playGames(recovered.get("court-1"), 12);
+		Assert.assertSame(match.getPlayers().get(0), match.getWinningPlayer());
+		Assert.assertTrue(recoveredStore.remove(recovered.get("court-1")));
+		Assert.assertEquals(0, this.folder.getRoot().list().length);
+		recoveredStore.close();
+	}
+
+	@Test
+	public void t6_failingEvent_updateStillJournaled() throws Exception {
+		Path file = this.folder.getRoot().toPath().resolve("m" + MatchJournalStore.EXTENSION);
+		Match match = this.createNewMatch(null);
+		StrokeJournal journal = new StrokeJournal(file, match.getMatchRules());
+		this.matchProcessor.addUpdateListener(journal);
+		this.matchProcessor.registerEvent(MatchEventType.ON_GAME_COMPLETION, m -> {
+			throw new IllegalStateException("consumer failure");
+		});
+
+		try {
+			this.playGames(this.matchProcessor, 1);
+			Assert.fail("Expected the game completion event to fail.");
+		} catch (EventDispatchException e) {
+			Assert.assertEquals("Failed to execute an event", e.getMessage());
+		}
+		Assert.assertEquals(4, journal.getRecordCount());
+		Assert.assertEquals(2, match.getCurrentSet().getGames().size());
+		Assert.assertEquals(match.getPlayers().get(1), match.getCurrentGame().getServer());
+		journal.close();
+
+		Match recovered = this.createNewMatch(null);
+		StrokeJournal.replay(file, this.matchProcessor);
+		this.assertSameScore(match, recovered);
+	}
+
+	@Test
+	public void t7_checkpoint_undo_replaysWholeJournal() throws Exception {
+		Path snapshotFile = this.folder.getRoot().toPath().resolve("court-1" + MatchJournalStore.SNAPSHOT_EXTENSION);
+		MatchRegistry registry = new MatchRegistry();
+		MatchJournalStore store = new MatchJournalStore(this.folder.getRoot().toPath());
+		MatchProcessor processor = registry.create("court-1", new MatchRules(), createPlayerConfig(), null);
+		processor.setHistoryLimit(5);
+		store.attach(processor);
+		this.playGames(processor, 3);
+		store.checkpoint(processor);
+		processor.update(new Stroke(processor.getMatch().getPlayers().get(1), StrokeType.FIRST_SERVE, false, true));
+		Assert.assertTrue(processor.undo());
+		Assert.assertTrue(Files.exists(snapshotFile));
+		Assert.assertTrue(processor.undo());
+		Assert.assertFalse(Files.exists(snapshotFile));
+		processor.update(new Stroke(processor.getMatch().getPlayers().get(0), StrokeType.FIRST_SERVE, true, false));
+		store.close();
+
+		MatchRegistry recovered = new MatchRegistry();
+		MatchJournalStore recoveredStore = new MatchJournalStore(this.folder.getRoot().toPath());
+		recoveredStore.recover((id, rules) -> recovered.create(id, rules, createPlayerConfig(), null), match -> {
+			throw new AssertionError("Expected the snapshot to be deleted.");
+		});
+
+		this.assertSameScore(processor.getMatch(), recovered.get("court-1").getMatch());
+		Assert.assertEquals(4 + 8 + 4, recoveredStore.get("court-1").getRecordCount());
+		recoveredStore.close();
+	}
+
+	@Test
+	public void t8_staleSnapshot_replaysWholeJournal() throws Exception {
+		Path snapshotFile = this.folder.getRoot().toPath().resolve("court-1" + MatchJournalStore.SNAPSHOT_EXTENSION);
+		MatchRegistry registry = new MatchRegistry();
+		MatchJournalStore store = new MatchJournalStore(this.folder.getRoot().toPath());
+		MatchProcessor processor = registry.create("court-1", new MatchRules(), createPlayerConfig(), null);
+		processor.setHistoryLimit(5);
+		store.attach(processor);
+		this.playGames(processor, 3);
+		store.checkpoint(processor);
+		byte[] snapshot = Files.readAllBytes(snapshotFile);
+		Assert.assertTrue(processor.undo());
+		store.close();
+		// As if the process crashed before the undo deleted the snapshot.
+		Files.write(snapshotFile, snapshot);
+
+		MatchRegistry recovered = new MatchRegistry();
+		MatchJournalStore recoveredStore = new MatchJournalStore(this.folder.getRoot().toPath());
+		recoveredStore.recover((id, rules) -> recovered.create(id, rules, createPlayerConfig(), null), match -> {
+			throw new AssertionError("Expected the stale snapshot to be ignored.");
+		});
+
+		this.assertSameScore(processor.getMatch(), recovered.get("court-1").getMatch());
+		Assert.assertFalse(Files.exists(snapshotFile));
+		recoveredStore.close();
+	}
+
+	/**
+	 * Plays <tt>games</tt> games with strokes, every game being won by the
+	 * first player.
+	 */
+	private void playGames(MatchProcessor processor, int games) {
+		Player player1 = processor.getMatch().getPlayers().get(0);
+		Player player2 = processor.getMatch().getPlayers().get(1);
+		for (int game = 0; game < games && !processor.getMatch().isCompleted(); game++) {
+			Player server = processor.getMatch().getCurrentGame().getServer();
+			for (int point = 0; point < 4; point++) {
+				if (server == player1) {
+					processor.update(new Stroke(player1, StrokeType.FIRST_SERVE, false, true));
+				} else {
+					processor.update(new Stroke(player2, StrokeType.FIRST_SERVE, false, false));
+					processor.update(new Stroke(player1, StrokeType.FOREHAND, false, true));
+				}
+			}
+		}
+	}
+
+	private List<SimplePoint> createPoints(Match match, int count) {
+		Player server = match.getCurrentGame().getServer();
+		Player receiver = server.getOpposingPlayer(match.getPlayers());
+		List<SimplePoint> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			points.add(new SimplePoint(server, receiver, i % 2 == 0 ? receiver : server));
+		}
+		return points;
+	}
+
+	private void assertSameScore(Match expected, Match actual) {
+		Assert.assertEquals(expected.getStatus(), actual.getStatus());
+		Assert.assertEquals(expected.getScore().toString(), actual.getScore().toString());
+		Assert.assertEquals(expected.getSets().size(), actual.getSets().size());
+		Assert.assertEquals(expected.getCurrentSet().getScore().toString(), actual.getCurrentSet().getScore().toString());
+		Assert.assertEquals(expected.getCurrentGame().getScore().toString(), actual.getCurrentGame().getScore().toString());
+		Assert.assertEquals(expected.getCurrentPoint().getStrokes().size(), actual.getCurrentPoint().getStrokes().size());
+	}
+
+	private static PlayerConfig createPlayerConfig() {
+		PlayerConfig playerConfig = new PlayerConfig();
+		playerConfig.setPlayers(new ArrayList<Player>());
+		playerConfig.getPlayers().add(new Player());
+		playerConfig.getPlayers().add(new Player());
+		playerConfig.setStartingServer(playerConfig.getPlayers().get(0));
+		playerConfig.setStartingReceiver(playerConfig.getPlayers().get(1));
+		return playerConfig;
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.BatchUpdateException;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.SynchronousMatchEventDispatcher;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.LatencyHistogram;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics.Level;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MatchMetrics.Outcome;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MeteredScoreCompletionHandlerResolver;
+import com.tonelope.tennis.scoreprocessor.processor.metrics.MetricsReporter;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchMetricsTest extends AbstractProcessingTests {
+
+	private final MatchMetrics metrics = new MatchMetrics();
+
+	private Match createInstrumentedMatch() {
+		Match match = this.createNewMatch(null, new SinglesMatchStrategy(
+				new MeteredScoreCompletionHandlerResolver(null, this.metrics), new SynchronousMatchEventDispatcher(this.metrics)));
+		this.matchProcessor.setMetrics(this.metrics);
+		return match;
+	}
+
+	@Test
+	public void t1_serviceGame_recordsUpdatesResolutionsAndEvents() {
+		Match match = this.createInstrumentedMatch();
+		Player player1 = match.getPlayers().get(0);
+		this.matchProcessor.registerEvent(MatchEventType.ON_POINT_COMPLETION, m -> {});
+		this.matchProcessor.registerEvent(MatchEventType.ON_GAME_COMPLETION, m -> {});
+		this.winServiceGame(match, player1);
+
+		Assert.assertEquals(4, this.metrics.getStrokeUpdates().getCount());
+		Assert.assertEquals(0, this.metrics.getPointUpdates().getCount());
+		Assert.assertEquals(0, this.metrics.getRejectedUpdates());
+		Assert.assertEquals(4, this.metrics.getResolutions(Level.POINT, Outcome.COMPLETED));
+		Assert.assertEquals(1, this.metrics.getResolutions(Level.GAME, Outcome.COMPLETED));
+		Assert.assertEquals(3, this.metrics.getResolutions(Level.GAME, Outcome.NOT_COMPLETED));
+		Assert.assertEquals(0, this.metrics.getResolutions(Level.MATCH, Outcome.COMPLETED));
+		Assert.assertEquals(4, this.metrics.getEventDurations(MatchEventType.ON_POINT_COMPLETION).getCount());
+		Assert.assertEquals(1, this.metrics.getEventDurations(MatchEventType.ON_GAME_COMPLETION).getCount());
+		Assert.assertEquals(0, this.metrics.getEventDurations(MatchEventType.ON_SET_COMPLETION).getCount());
+	}
+
+	@Test
+	public void t2_rejectedUpdate_counted() {
+		Match match = this.createInstrumentedMatch();
+		Player player2 = match.getPlayers().get(1);
+		try {
+			this.matchProcessor.update(new Stroke(player2, StrokeType.FOREHAND, false, false));
+			Assert.fail("Expected the stroke to be rejected.");
+		} catch (FrameworkException e) {
+			// expected
+		}
+		Assert.assertEquals(1, this.metrics.getRejectedUpdates());
+		Assert.assertEquals(0, this.metrics.getStrokeUpdates().getCount());
+	}
+
+	@Test
+	public void t3_failedEvent_counted() {
+		Match match = this.createInstrumentedMatch();
+		Player player1 = match.getPlayers().get(0);
+		this.matchProcessor.registerEvent(MatchEventType.ON_POINT_COMPLETION, m -> {
+			throw new IllegalStateException("consumer failure");
+		});
+		try {
+			this.hitFirstServeAce(match, player1);
+			Assert.fail("Expected the event to fail.");
+		} catch (FrameworkException e) {
+			Assert.assertEquals("Failed to execute an event", e.getMessage());
+		}
+		Assert.assertEquals(1, this.metrics.getEventFailures(MatchEventType.ON_POINT_COMPLETION));
+		Assert.assertEquals(0, this.metrics.getEventDurations(MatchEventType.ON_POINT_COMPLETION).getCount());
+		Assert.assertEquals(0, this.metrics.getRejectedUpdates());
+		Assert.assertEquals(1, this.metrics.getStrokeUpdates().getCount());
+	}
+
+	@Test
+	public void t4_report_exportsEveryMetric() {
+		Match match = this.createInstrumentedMatch();
+		this.winServiceGame(match, match.getPlayers().get(0));
+
+		Map<String, Object> reported = new LinkedHashMap<>();
+		this.metrics.report(new MetricsReporter() {
+
+			@Override
+			public void reportHistogram(String name, LatencyHistogram histogram) {
+				reported.put(name, histogram.getCount());
+			}
+
+			@Override
+			public void reportCounter(String name, long count) {
+				reported.put(name, count);
+			}
+		});
+
+		Assert.assertEquals("update.stroke", reported.keySet().iterator().next());
+		Assert.assertEquals(4L, reported.get("update.stroke"));
+		Assert.assertEquals(0L, reported.get("update.rejected"));
+		Assert.assertEquals(1L, reported.get("resolution.game.completed"));
+		Assert.assertEquals(0L, reported.get("resolution.set.failed"));
+		Assert.assertEquals(0L, reported.get("event.ON_POINT_COMPLETION"));
+		Assert.assertEquals(0L, reported.get("event.ON_MATCH_COMPLETION.failed"));
+		Assert.assertEquals(3 + 4 * 3 + MatchEventType.values().length * 2, reported.size());
+	}
+
+	@Test
+	public void t5_batchUpdate_recordsEachItem() {
+		Match match = this.createInstrumentedMatch();
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		this.matchProcessor.updatePoints(Arrays.asList(new SimplePoint(player1, player2, player1),
+				new SimplePoint(player1, player2, player1)));
+		Assert.assertEquals(2, this.metrics.getPointUpdates().getCount());
+
+		try {
+			this.matchProcessor.updateStrokes(Arrays.asList(new Stroke(player1, StrokeType.FIRST_SERVE, false, true),
+					new Stroke(player2, StrokeType.FOREHAND, false, false)));
+			Assert.fail("Expected the second stroke to be rejected.");
+		} catch (BatchUpdateException e) {
+			Assert.assertEquals(1, e.getResult().getApplied());
+		}
+		Assert.assertEquals(1, this.metrics.getStrokeUpdates().getCount());
+		Assert.assertEquals(1, this.metrics.getRejectedUpdates());
+	}
+
+	@Test
+	public void t6_histogram_percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		histogram.record(-5);
+
+		Assert.assertEquals(1001, histogram.getCount());
+		Assert.assertEquals(1000, histogram.getMaxNanos());
+		Assert.assertEquals(500500, histogram.getTotalNanos());
+		long median = histogram.getValueAtPercentile(50);
+		Assert.assertTrue("median " + median, median >= 500 && median <= 625);
+		long p99 = histogram.getValueAtPercentile(99);
+		Assert.assertTrue("p99 " + p99, p99 >= 990 && p99 <= 1000);
+		Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+		Assert.assertEquals(0, histogram.getValueAtPercentile(0));
+	}
+}
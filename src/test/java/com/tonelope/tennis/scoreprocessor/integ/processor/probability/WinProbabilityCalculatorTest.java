@@ -0,0 +1,141 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.probability;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.processor.probability.WinProbabilityCalculator;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class WinProbabilityCalculatorTest extends AbstractProcessingTests {
+
+	private static final double DELTA = 1e-9;
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void t1_holdProbability() {
+		MatchRules matchRules = new MatchRules();
+		Assert.assertEquals(0.7357292, WinProbabilityCalculator.of(matchRules, 0.6, 0.5).getHoldProbability(0), 1e-7);
+		Assert.assertEquals(0.5, WinProbabilityCalculator.of(matchRules, 0.6, 0.5).getHoldProbability(1), DELTA);
+
+		matchRules.setNoAdScoring(true);
+		double noAd = 0;
+		for (int k = 4; k <= 7; k++) {
+			noAd += binomial(7, k) * Math.pow(0.6, k) * Math.pow(0.4, 7 - k);
+		}
+		Assert.assertEquals(noAd, WinProbabilityCalculator.of(matchRules, 0.6, 0.5).getHoldProbability(0), DELTA);
+	}
+
+	@Test
+	public void t2_equalPlayers_evenMatch() {
+		for (MatchRules matchRules : allRules()) {
+			WinProbabilityCalculator calculator = WinProbabilityCalculator.of(matchRules, 0.62, 0.62);
+			for (int server = 0; server < 2; server++) {
+				Assert.assertEquals(matchRules.toString(), 0.5, calculator.getMatchWinProbability(ScoreState.initial(server), 0), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void t3_everyPoint_isConsistent() {
+		Random random = new Random(29);
+		for (MatchRules matchRules : allRules()) {
+			double serveWin0 = 0.55 + random.nextDouble() * 0.2;
+			double serveWin1 = 0.55 + random.nextDouble() * 0.2;
+			WinProbabilityCalculator calculator = WinProbabilityCalculator.of(matchRules, serveWin0, serveWin1);
+			Assert.assertSame(calculator, WinProbabilityCalculator.of(matchRules, serveWin0, serveWin1));
+
+			long state = ScoreState.initial(random.nextInt(2));
+			while (!ScoreState.isCompleted(state)) {
+				int server = ScoreState.getPointServer(state);
+				double pointWin = 0 == server ? serveWin0 : 1 - serveWin1;
+				long won = ScoreState.pointWonBy(state, 0, matchRules);
+				long lost = ScoreState.pointWonBy(state, 1, matchRules);
+				double expected = pointWin * calculator.getMatchWinProbability(won, 0)
+						+ (1 - pointWin) * calculator.getMatchWinProbability(lost, 0);
+				Assert.assertEquals(ScoreState.toString(state), expected, calculator.getMatchWinProbability(state, 0), DELTA);
+				// Favor the server so that sets and tiebreaks run long.
+				state = random.nextInt(100) < 80 ? (server == 0 ? won : lost) : (server == 0 ? lost : won);
+			}
+			Assert.assertEquals(1.0, calculator.getMatchWinProbability(state, ScoreState.getWinner(state)), 0);
+		}
+	}
+
+	@Test
+	public void t4_matchObjectGraph() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		WinProbabilityCalculator calculator = WinProbabilityCalculator.of(match.getMatchRules(), 0.64, 0.6);
+		double start = calculator.getMatchWinProbability(match, player1);
+		this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+
+		Assert.assertTrue(start > 0.5);
+		Assert.assertTrue(calculator.getMatchWinProbability(match, player1) > start);
+		Assert.assertEquals(1, calculator.getMatchWinProbability(match, player1) + calculator.getMatchWinProbability(match, player2),
+				DELTA);
+
+		this.thrown.expect(FrameworkException.class);
+		WinProbabilityCalculator.of(match.getMatchRules(), 1, 0.6);
+	}
+
+	private static MatchRules[] allRules() {
+		MatchRules[] rules = new MatchRules[16];
+		int i = 0;
+		for (int numberOfSets : new int[] { 3, 5 }) {
+			for (int numberOfGames : new int[] { 6, 4 }) {
+				for (boolean noAd : new boolean[] { false, true }) {
+					for (boolean finalSetTiebreakDisabled : new boolean[] { false, true }) {
+						MatchRules matchRules = new MatchRules();
+						matchRules.setNumberOfSets(numberOfSets);
+						matchRules.setNumberOfGamesPerSet(numberOfGames);
+						matchRules.setNoAdScoring(noAd);
+						matchRules.setFinalSetTiebreakDisabled(finalSetTiebreakDisabled);
+						rules[i++] = matchRules;
+					}
+				}
+			}
+		}
+		return rules;
+	}
+
+	private static double binomial(int n, int k) {
+		double result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+		}
+		return result;
+	}
+}
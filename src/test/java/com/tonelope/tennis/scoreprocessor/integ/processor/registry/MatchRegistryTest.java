@@ -0,0 +1,192 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PlayerConfig;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchRegistry;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchRegistryTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private final MatchRegistry registry = new MatchRegistry();
+	
+	@Test
+	public void t1_create_get_retire() {
+		MatchProcessor processor = this.registry.create("court-1", new MatchRules(), this.createPlayerConfig(), null);
+		
+		Assert.assertEquals("court-1", processor.getMatch().getId());
+		Assert.assertSame(processor, this.registry.get("court-1"));
+		Assert.assertEquals(1, this.registry.size());
+		Assert.assertSame(processor, this.registry.retire("court-1"));
+		Assert.assertNull(this.registry.get("court-1"));
+		Assert.assertEquals(0, this.registry.size());
+	}
+	
+	@Test
+	public void t2_create_generatesId() {
+		MatchProcessor processor = this.registry.create(new MatchRules(), this.createPlayerConfig());
+		
+		Assert.assertNotNull(processor.getMatch().getId());
+		Assert.assertSame(processor, this.registry.get(processor.getMatch().getId()));
+	}
+	
+	@Test
+	public void t3_create_duplicateId() {
+		this.registry.create("court-1", new MatchRules(), this.createPlayerConfig(), null);
+		
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("A match is already registered with id court-1");
+		this.registry.create("court-1", new MatchRules(), this.createPlayerConfig(), null);
+	}
+	
+	@Test
+	public void t4_listActive_evictCompleted() {
+		Match completed = this.registry.create("court-1", new MatchRules(), this.createPlayerConfig(), null).getMatch();
+		Match active = this.registry.create("court-2", new MatchRules(), this.createPlayerConfig(), null).getMatch();
+		this.playMatch("court-1", completed);
+		this.registry.update("court-2", new SimplePoint(active.getPlayers().get(0), active.getPlayers().get(1), active.getPlayers().get(0)));
+		
+		List<MatchSnapshot> snapshots = this.registry.listActive();
+		Assert.assertEquals(1, snapshots.size());
+		Assert.assertEquals("court-2", snapshots.get(0).getMatchId());
+		Assert.assertEquals(PointValue.FIFTEEN, snapshots.get(0).getPointValue(0));
+		Assert.assertEquals(1, this.registry.evictCompleted());
+		Assert.assertNull(this.registry.get("court-1"));
+		Assert.assertNotNull(this.registry.get("court-2"));
+	}
+	
+	@Test
+	public void t5_update_unknownId() {
+		Player player = new Player();
+		
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("No match is registered with id court-9");
+		this.registry.update("court-9", new SimplePoint(player, player, player));
+	}
+	
+	@Test
+	public void t6_concurrentMatches() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Match>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				final String id = "court-" + i;
+				results.add(executor.submit(() -> {
+					Match match = this.registry.create(id, new MatchRules(), this.createPlayerConfig(), null).getMatch();
+					this.playMatch(id, match);
+					return match;
+				}));
+			}
+			for (Future<Match> result : results) {
+				Assert.assertEquals(Status.COMPLETE, result.get(30, TimeUnit.SECONDS).getStatus());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		Assert.assertEquals(64, this.registry.size());
+		Assert.assertTrue(this.registry.listActive().isEmpty());
+		Assert.assertEquals(64, this.registry.evictCompleted());
+		Assert.assertEquals(0, this.registry.size());
+	}
+	
+	@Test
+	public void t7_evictCompleted_whileMatchesArePlayed() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(9);
+		AtomicBoolean playing = new AtomicBoolean(true);
+		AtomicInteger evicted = new AtomicInteger();
+		try {
+			// An incomplete match evicted by mistake fails its next update.
+			Future<?> evictor = executor.submit(() -> {
+				while (playing.get()) {
+					evicted.addAndGet(this.registry.evictCompleted());
+					this.registry.listActive();
+				}
+			});
+			List<Future<Match>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				final String id = "court-" + i;
+				results.add(executor.submit(() -> {
+					Match match = this.registry.create(id, new MatchRules(), this.createPlayerConfig(), null).getMatch();
+					this.playMatch(id, match);
+					return match;
+				}));
+			}
+			for (Future<Match> result : results) {
+				Assert.assertEquals(Status.COMPLETE, result.get(30, TimeUnit.SECONDS).getStatus());
+			}
+			playing.set(false);
+			evictor.get(30, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(64, evicted.get() + this.registry.evictCompleted());
+		Assert.assertEquals(0, this.registry.size());
+	}
+
+	private void playMatch(String id, Match match) {
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		while (!match.isCompleted()) {
+			Player server = match.getCurrentPoint().getServer();
+			Player receiver = server == player1 ? player2 : player1;
+			this.registry.update(id, new SimplePoint(server, receiver, player1));
+		}
+	}
+	
+	private PlayerConfig createPlayerConfig() {
+		PlayerConfig playerConfig = new PlayerConfig();
+		playerConfig.setPlayers(new ArrayList<Player>());
+		playerConfig.getPlayers().add(new Player());
+		playerConfig.getPlayers().add(new Player());
+		playerConfig.setStartingServer(playerConfig.getPlayers().get(0));
+		playerConfig.setStartingReceiver(playerConfig.getPlayers().get(1));
+		return playerConfig;
+	}
+}
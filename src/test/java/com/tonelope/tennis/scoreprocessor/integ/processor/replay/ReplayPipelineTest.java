@@ -0,0 +1,256 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.replay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PlayerConfig;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchJournalStore;
+import com.tonelope.tennis.scoreprocessor.processor.replay.MatchRecord;
+import com.tonelope.tennis.scoreprocessor.processor.replay.ReplayPipeline;
+import com.tonelope.tennis.scoreprocessor.processor.replay.ReplayReport;
+import com.tonelope.tennis.scoreprocessor.processor.replay.ReplayResult;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ReplayPipelineTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void t1_replayDirectory() throws Exception {
+		MatchJournalStore store = new MatchJournalStore(this.folder.getRoot().toPath());
+		Map<String, Match> archived = new HashMap<>();
+		Random random = new Random(3);
+		for (int i = 0; i < 20; i++) {
+			MatchProcessor processor = this.createProcessor("match-" + i, new MatchRules());
+			store.attach(processor);
+			this.play(processor, random, Integer.MAX_VALUE);
+			archived.put(processor.getMatch().getId(), processor.getMatch());
+		}
+		store.close();
+
+		Map<String, ReplayResult> results = new HashMap<>();
+		ReplayReport report = new ReplayPipeline(this::createProcessor, 3, 2).run(this.folder.getRoot().toPath(),
+				result -> results.put(result.getId(), result));
+
+		Assert.assertEquals(20, report.getMatches());
+		Assert.assertEquals(0, report.getFailures());
+		Assert.assertEquals(20, report.getRead().getItems());
+		Assert.assertEquals(20, report.getReplay().getItems());
+		Assert.assertEquals(20, report.getSink().getItems());
+		Assert.assertTrue(report.getReplay().getThroughput() > 0);
+		long updates = 0;
+		for (Match match : archived.values()) {
+			Match replayed = results.get(match.getId()).getProcessor().getMatch();
+			Assert.assertTrue(replayed.isCompleted());
+			Assert.assertEquals(match.getSlot(match.getWinningPlayer()), replayed.getSlot(replayed.getWinningPlayer()));
+			Assert.assertEquals(match.getScore().toString(), replayed.getScore().toString());
+			updates += results.get(match.getId()).getUpdates();
+		}
+		Assert.assertEquals(updates, report.getUpdates());
+	}
+
+	@Test
+	public void t2_failedRecord_continues() {
+		List<MatchRecord> records = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			records.add(new PointsRecord("match-" + i, 7 == i ? -1 : 30));
+		}
+		List<ReplayResult> results = new ArrayList<>();
+		ReplayReport report = new ReplayPipeline(this::createProcessor, 2, 1).run(records.iterator(), results::add);
+
+		Assert.assertEquals(10, report.getMatches());
+		Assert.assertEquals(1, report.getFailures());
+		Assert.assertEquals(9 * 30, report.getUpdates());
+		for (ReplayResult result : results) {
+			Assert.assertEquals("match-7".equals(result.getId()), result.isFailed());
+		}
+	}
+
+	@Test
+	public void t3_backpressure() {
+		AtomicInteger read = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		int[] sunk = new int[1];
+		Iterator<MatchRecord> source = new Iterator<MatchRecord>() {
+
+			@Override
+			public boolean hasNext() {
+				return read.get() < 200;
+			}
+
+			@Override
+			public MatchRecord next() {
+				return new PointsRecord("match-" + read.getAndIncrement(), 10);
+			}
+		};
+
+		ReplayReport report = new ReplayPipeline(this::createProcessor, 3, 4).run(source, result -> {
+			maxInFlight.accumulateAndGet(read.get() - sunk[0], Math::max);
+			sunk[0]++;
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		Assert.assertEquals(200, report.getMatches());
+		Assert.assertTrue("In flight: " + maxInFlight.get(), maxInFlight.get() <= 2 * 4 + 3 + 2);
+		Assert.assertTrue(report.getRead().getBlockedNanos() > 0);
+	}
+
+	@Test
+	public void t4_sinkFailure_aborts() {
+		List<MatchRecord> records = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			records.add(new PointsRecord("match-" + i, 10));
+		}
+
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Replay aborted: sink is full");
+		new ReplayPipeline(this::createProcessor, 2, 2).run(records.iterator(), result -> {
+			if ("match-5".equals(result.getId())) {
+				throw new IllegalStateException("sink is full");
+			}
+		});
+	}
+
+	@Test
+	public void t5_errorInRecord_reportedAsFailure() {
+		List<MatchRecord> records = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			records.add(new PointsRecord("match-" + i, 0 == i % 5 ? Integer.MIN_VALUE : 10));
+		}
+		List<ReplayResult> results = new ArrayList<>();
+		ReplayReport report = new ReplayPipeline(this::createProcessor, 2, 1).run(records.iterator(), results::add);
+
+		Assert.assertEquals(20, report.getMatches());
+		Assert.assertEquals(4, report.getFailures());
+		for (ReplayResult result : results) {
+			if (result.isFailed()) {
+				Assert.assertTrue(result.getError() instanceof StackOverflowError);
+			}
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void t6_sinkError_aborts() {
+		List<MatchRecord> records = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			records.add(new PointsRecord("match-" + i, 10));
+		}
+
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Replay aborted: sink is out of memory");
+		new ReplayPipeline(this::createProcessor, 2, 2).run(records.iterator(), result -> {
+			if ("match-5".equals(result.getId())) {
+				throw new OutOfMemoryError("sink is out of memory");
+			}
+		});
+	}
+
+	private MatchProcessor createProcessor(String id, MatchRules matchRules) {
+		PlayerConfig playerConfig = new PlayerConfig();
+		playerConfig.setPlayers(new ArrayList<Player>());
+		playerConfig.getPlayers().add(new Player());
+		playerConfig.getPlayers().add(new Player());
+		playerConfig.setStartingServer(playerConfig.getPlayers().get(0));
+		playerConfig.setStartingReceiver(playerConfig.getPlayers().get(1));
+		Match match = this.matchFactory.create(matchRules, playerConfig);
+		match.setId(id);
+		return new MatchProcessor(match);
+	}
+
+	private long play(MatchProcessor processor, Random random, int points) {
+		Match match = processor.getMatch();
+		int played = 0;
+		while (!match.isCompleted() && played < points) {
+			Player server = match.getCurrentPoint().getServer();
+			Player receiver = match.getOpposingPlayer(server);
+			processor.update(new SimplePoint(server, receiver, random.nextInt(100) < 65 ? server : receiver));
+			played++;
+		}
+		return played;
+	}
+
+	/**
+	 * <p>
+	 * An in memory record of <tt>points</tt> random points, or a record failing
+	 * to replay if <tt>points</tt> is negative. A record of
+	 * <tt>Integer.MIN_VALUE</tt> points fails with an <tt>Error</tt>.
+	 * </p>
+	 */
+	private class PointsRecord implements MatchRecord {
+
+		private final String id;
+		private final int points;
+
+		private PointsRecord(String id, int points) {
+			this.id = id;
+			this.points = points;
+		}
+
+		@Override
+		public String getId() {
+			return this.id;
+		}
+
+		@Override
+		public MatchRules getMatchRules() {
+			return new MatchRules();
+		}
+
+		@Override
+		public long replay(MatchProcessor processor) {
+			if (Integer.MIN_VALUE == this.points) {
+				throw new StackOverflowError("Corrupt record " + this.id);
+			}
+			if (this.points < 0) {
+				throw new FrameworkException("Corrupt record " + this.id);
+			}
+			return ReplayPipelineTest.this.play(processor, new Random(this.id.hashCode()), this.points);
+		}
+	}
+}
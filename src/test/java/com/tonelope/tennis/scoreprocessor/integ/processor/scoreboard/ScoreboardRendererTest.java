@@ -0,0 +1,142 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.scoreboard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+import com.tonelope.tennis.scoreprocessor.processor.scoreboard.ScoreboardRenderer;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ScoreboardRendererTest extends AbstractProcessingTests {
+
+	@Test
+	public void t1_render_matchesScoreModel() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		Match match = this.createNewMatch(matchRules);
+		ScoreboardRenderer renderer = new ScoreboardRenderer(this.matchProcessor);
+		Assert.assertEquals("0-0 0 - 0", renderer.render());
+
+		Random random = new Random(17);
+		while (!match.isCompleted()) {
+			Player server = match.getCurrentPoint().getServer();
+			Player winner = random.nextInt(100) < 70 ? server : match.getOpposingPlayer(server);
+			this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), winner));
+			Assert.assertEquals(expected(match), renderer.render());
+		}
+		Assert.assertEquals("", renderer.renderGames());
+		Assert.assertEquals(renderer.renderSets(), renderer.render());
+	}
+
+	@Test
+	public void t2_unchangedScore_isNotRenderedAgain() {
+		Match match = this.createNewMatch(null);
+		ScoreboardRenderer renderer = new ScoreboardRenderer(this.matchProcessor);
+		Player player1 = match.getPlayers().get(0);
+		this.winServiceGame(match, player1);
+		String score = renderer.render();
+		String games = renderer.renderGames();
+		Assert.assertEquals("1-0 0 - 0", score);
+		Assert.assertSame(score, renderer.render());
+
+		this.missFirstServe(match, match.getCurrentPoint().getServer());
+		Assert.assertSame(score, renderer.render());
+		this.missSecondServe(match, match.getCurrentPoint().getServer());
+		Assert.assertEquals("1-0 15 - 0", renderer.render());
+		Assert.assertSame(games, renderer.renderGames());
+	}
+
+	@Test
+	public void t3_renderTo_appendableAndByteBuffer() throws Exception {
+		Match match = this.createNewMatch(null);
+		ScoreboardRenderer renderer = new ScoreboardRenderer(this.matchProcessor);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		this.winSet(match, player1);
+		this.hitFirstServeAce(match, match.getCurrentPoint().getServer());
+
+		StringBuilder sb = new StringBuilder("score: ");
+		renderer.renderTo(sb);
+		Assert.assertEquals("score: 6-0, 0-0 15 - 0", sb.toString());
+
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		int written = renderer.renderTo(buffer);
+		Assert.assertEquals(written, buffer.position());
+		Assert.assertEquals("6-0, 0-0 15 - 0", new String(buffer.array(), 0, written, StandardCharsets.US_ASCII));
+		Assert.assertSame(player2, match.getOpposingPlayer(player1));
+	}
+
+	/**
+	 * Renders the score from the object tree, from the perspective of the
+	 * first player.
+	 */
+	private static String expected(Match match) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < match.getScore().getSetScores().size(); i++) {
+			SetScore setScore = match.getScore().getSetScores().get(i);
+			boolean flipped = match.getSlot(match.getSets().get(i).getStartingServer()) != 0;
+			sb.append(games(setScore, flipped));
+			TiebreakScore tiebreak = setScore.getTiebreakScore();
+			if (null != tiebreak) {
+				int winner = Math.max(tiebreak.getServerScore(), tiebreak.getReceiverScore());
+				int loser = Math.min(tiebreak.getServerScore(), tiebreak.getReceiverScore());
+				boolean firstWon = flipped ? setScore.getStartingReceiverScore() > setScore.getStartingServerScore()
+						: setScore.getStartingServerScore() > setScore.getStartingReceiverScore();
+				sb.append('(').append(firstWon ? winner : loser).append('-').append(firstWon ? loser : winner).append(')');
+			}
+			sb.append(", ");
+		}
+		if (match.isCompleted()) {
+			return sb.substring(0, sb.length() - 2);
+		}
+		boolean flipped = match.getSlot(match.getCurrentSet().getStartingServer()) != 0;
+		sb.append(games(match.getCurrentSet().getScore(), flipped)).append(' ');
+		String game = match.getCurrentGame().getScore().toString();
+		if (match.getSlot(match.getCurrentGame().getServer()) != 0) {
+			if (match.getCurrentGame() instanceof TiebreakGame) {
+				TiebreakScore score = (TiebreakScore) match.getCurrentGame().getScore();
+				game = "(" + score.getReceiverScore() + "-" + score.getServerScore() + ")";
+			} else {
+				String[] points = game.split(" - ");
+				game = points[1] + " - " + points[0];
+			}
+		}
+		return sb.append(game).toString();
+	}
+
+	private static String games(SetScore setScore, boolean flipped) {
+		return flipped ? setScore.getStartingReceiverScore() + "-" + setScore.getStartingServerScore()
+				: setScore.getStartingServerScore() + "-" + setScore.getStartingReceiverScore();
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.scoring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Winnable;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.CompiledScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandler;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class CompiledDispatchTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Match createCompiledMatch(MatchRules matchRules) {
+		return this.createNewMatch(matchRules, new SinglesMatchStrategy(new CompiledScoreCompletionStrategyHandler()));
+	}
+	
+	@Test
+	public void t1_winMatch_fromFinalSet_tiebreak() {
+		Match match = this.createCompiledMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		this.winSet(match, player1);
+		this.winSet(match, player2);
+		for(int i = 0; i < 6; i++) {
+			this.winServiceGame(match, player1);
+			this.winServiceGame(match, player2);
+		}
+		this.winTiebreak(match, player1);
+		
+		Assert.assertEquals("6-0, 0-6, 7-6(7-0)", match.getScore().toString());
+		Assert.assertEquals(13, match.getSets().get(2).getGames().size());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+	}
+	
+	@Test
+	public void t2_winMatch_fromFinalSet_winByTwo() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setFinalSetTiebreakDisabled(true);
+		Match match = this.createCompiledMatch(matchRules);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		this.winSet(match, player1);
+		this.winSet(match, player2);
+		for(int i = 0; i < 7; i++) {
+			this.winServiceGame(match, player1);
+			this.winServiceGame(match, player2);
+		}
+		this.winServiceGame(match, player1);
+		this.loseServiceGame(match, player2);
+		
+		Assert.assertEquals("6-0, 0-6, 9-7", match.getScore().toString());
+		Assert.assertEquals(16, match.getSets().get(2).getGames().size());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+	}
+	
+	@Test
+	public void t3_winGame_noAdScoring() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNoAdScoring(true);
+		Match match = this.createCompiledMatch(matchRules);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+		this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+		this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+		this.matchProcessor.update(new SimplePoint(player1, player2, player2));
+		this.matchProcessor.update(new SimplePoint(player1, player2, player2));
+		this.matchProcessor.update(new SimplePoint(player1, player2, player2));
+		this.matchProcessor.update(new SimplePoint(player1, player2, player2));
+		
+		Assert.assertEquals(2, match.getSets().get(0).getGames().size());
+		Assert.assertEquals(player2, match.getSets().get(0).getGames().get(0).getWinningPlayer());
+	}
+	
+	@Test
+	public void t4_handlersSelectedOnConstruction() {
+		AtomicInteger pointTests = new AtomicInteger();
+		Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> handlers = 
+				new DefaultScoreCompletionStrategyHandler().getScoreCompletionHandlers();
+		Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> countingHandlers = new HashMap<>(handlers);
+		List<ScoreCompletionHandler<Winnable>> pointHandlers = new ArrayList<>();
+		for (ScoreCompletionHandler<Winnable> handler : handlers.get(Point.class)) {
+			pointHandlers.add(new CountingHandler(handler, pointTests));
+		}
+		countingHandlers.put(Point.class, pointHandlers);
+		
+		CompiledScoreCompletionStrategyHandler resolver = new CompiledScoreCompletionStrategyHandler(countingHandlers);
+		int testsOnConstruction = pointTests.get();
+		Match match = this.createNewMatch(null, new SinglesMatchStrategy(resolver));
+		Player player1 = match.getPlayers().get(0);
+		this.winSet(match, player1);
+		this.winSet(match, match.getPlayers().get(1));
+		for (int i = 0; i < 6; i++) {
+			this.winServiceGame(match, player1);
+			this.winServiceGame(match, match.getPlayers().get(1));
+		}
+		this.winTiebreak(match, player1);
+		
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+		Assert.assertTrue(testsOnConstruction > 0);
+		Assert.assertEquals(testsOnConstruction, pointTests.get());
+	}
+	
+	@Test
+	public void t5_multipleHandlersAccepted() {
+		Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> handlers = 
+				new HashMap<>(new DefaultScoreCompletionStrategyHandler().getScoreCompletionHandlers());
+		List<ScoreCompletionHandler<Winnable>> pointHandlers = new ArrayList<>();
+		pointHandlers.add(new CountingHandler(handlers.get(Point.class).get(0), new AtomicInteger(), true));
+		pointHandlers.add(new CountingHandler(handlers.get(Point.class).get(1), new AtomicInteger(), true));
+		handlers.put(Point.class, pointHandlers);
+		
+		
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Expected to find only (1) score completion strategy but found 2");
+		new CompiledScoreCompletionStrategyHandler(handlers);
+	}
+	
+	@Test
+	public void t6_missingHandler_failsOnConstruction() {
+		Map<Class<?>, List<ScoreCompletionHandler<Winnable>>> handlers = 
+				new HashMap<>(new DefaultScoreCompletionStrategyHandler().getScoreCompletionHandlers());
+		// Without the no-ad handler, no game handler accepts games of no-ad matches.
+		handlers.put(Game.class, new ArrayList<>(handlers.get(Game.class).subList(0, 1)));
+		
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Failed to find score completion strategy");
+		new CompiledScoreCompletionStrategyHandler(handlers);
+	}
+	
+	private static class CountingHandler implements ScoreCompletionHandler<Winnable> {
+		
+		private final ScoreCompletionHandler<Winnable> delegate;
+		private final AtomicInteger tests;
+		private final boolean alwaysAccept;
+		
+		CountingHandler(ScoreCompletionHandler<Winnable> delegate, AtomicInteger tests) {
+			this(delegate, tests, false);
+		}
+		
+		CountingHandler(ScoreCompletionHandler<Winnable> delegate, AtomicInteger tests, boolean alwaysAccept) {
+			this.delegate = delegate;
+			this.tests = tests;
+			this.alwaysAccept = alwaysAccept;
+		}
+
+		@Override
+		public boolean test(Winnable scoringObject, Match match) {
+			this.tests.incrementAndGet();
+			return this.alwaysAccept || this.delegate.test(scoringObject, match);
+		}
+
+		@Override
+		public boolean apply(Winnable scoringObject, Match match) {
+			return this.delegate.apply(scoringObject, match);
+		}
+
+		@Override
+		public void updateScore(Winnable scoringObject, Match match, Player winningPlayer) {
+			this.delegate.updateScore(scoringObject, match, winningPlayer);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.processor.probability.WinProbabilityCalculator;
+import com.tonelope.tennis.scoreprocessor.processor.simulation.MatchSimulator;
+import com.tonelope.tennis.scoreprocessor.processor.simulation.SimulationResult;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchSimulatorTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void t1_sameSeed_sameResult_anyParallelism() {
+		MatchSimulator simulator = new MatchSimulator(new MatchRules(), 0.64, 0.6);
+		int matches = 5 * MatchSimulator.CHUNK_SIZE + 17;
+		ForkJoinPool single = new ForkJoinPool(1);
+		ForkJoinPool quad = new ForkJoinPool(4);
+		try {
+			SimulationResult expected = simulator.simulate(ScoreState.initial(0), matches, 11, single);
+			assertSameResult(expected, simulator.simulate(ScoreState.initial(0), matches, 11, quad));
+			assertSameResult(expected, simulator.simulate(matches, 11));
+			Assert.assertEquals(matches, expected.getMatches());
+			Assert.assertNotEquals(expected.getAveragePoints(), simulator.simulate(matches, 12).getAveragePoints(), 0);
+		} finally {
+			single.shutdown();
+			quad.shutdown();
+		}
+	}
+
+	@Test
+	public void t2_distributions() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		matchRules.setFinalSetTiebreakDisabled(true);
+		SimulationResult result = new MatchSimulator(matchRules, 0.65, 0.62).simulate(200000, 3);
+
+		double expected = WinProbabilityCalculator.of(matchRules, 0.65, 0.62).getMatchWinProbability(ScoreState.initial(0), 0);
+		Assert.assertEquals(expected, result.getWinProbability(0), 0.005);
+		Assert.assertEquals(result.getMatches(), result.getWins(0) + result.getWins(1));
+
+		long matchScores = 0;
+		for (int sets = 0; sets < 3; sets++) {
+			matchScores += result.getMatchScoreCount(3, sets) + result.getMatchScoreCount(sets, 3);
+		}
+		Assert.assertEquals(result.getMatches(), matchScores);
+		Assert.assertEquals(0, result.getMatchScoreCount(3, 3));
+
+		Assert.assertTrue(result.getSetScoreCount(6, 4) > 0);
+		Assert.assertTrue(result.getSetScoreCount(7, 6) > 0);
+		Assert.assertTrue(result.getSetScoreCount(10, 8) > 0);
+		Assert.assertEquals(0, result.getSetScoreCount(6, 5));
+		Assert.assertEquals(0, result.getSetScoreCount(8, 5));
+
+		long lengths = 0;
+		long points = 0;
+		for (int i = 0; i <= result.getMaxPoints(); i++) {
+			lengths += result.getPointsCount(i);
+			points += i * result.getPointsCount(i);
+		}
+		Assert.assertEquals(result.getMatches(), lengths);
+		Assert.assertEquals(result.getAveragePoints(), (double) points / result.getMatches(), 1e-9);
+		// The shortest best of five match is three love sets of love games.
+		Assert.assertEquals(0, result.getPointsCount(71));
+
+		long tiebreaks = 0;
+		for (int i = 0; i <= 4; i++) {
+			tiebreaks += result.getTiebreaksCount(i);
+		}
+		Assert.assertEquals(result.getMatches(), tiebreaks);
+		Assert.assertTrue(result.getAverageTiebreaks() > 0);
+	}
+
+	@Test
+	public void t3_fromMatch() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		for (int i = 0; i < 4 * 11; i++) {
+			this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+		}
+		SimulationResult result = new MatchSimulator(match.getMatchRules(), 0.6, 0.6).simulate(match, 1000, 5);
+
+		// Player 1 leads by a set and 5-0, only the sets from there on are recorded.
+		Assert.assertTrue(result.getSetScoreCount(6, 0) > 0);
+		Assert.assertEquals(0, result.getSetScoreCount(0, 6));
+		Assert.assertEquals(0, result.getMatchScoreCount(0, 2));
+		Assert.assertEquals(0, result.getPointsCount(3));
+		Assert.assertTrue(result.getPointsCount(4) > 0);
+		Assert.assertTrue(result.getWinProbability(0) > 0.9);
+
+		this.thrown.expect(FrameworkException.class);
+		new MatchSimulator(match.getMatchRules(), 0.6, 1);
+	}
+
+	@Test
+	public void t4_maxPoints() {
+		MatchSimulator simulator = new MatchSimulator(new MatchRules(), 0.64, 0.6);
+		ForkJoinPool quad = new ForkJoinPool(4);
+		try {
+			SimulationResult[] results = { simulator.simulate(1, 7),
+					simulator.simulate(ScoreState.initial(0), 3 * MatchSimulator.CHUNK_SIZE + 5, 7, quad) };
+			for (SimulationResult result : results) {
+				int maxPoints = result.getMaxPoints();
+				Assert.assertTrue(result.getPointsCount(maxPoints) > 0);
+				for (int i = maxPoints + 1; i <= 2 * maxPoints; i++) {
+					Assert.assertEquals(0, result.getPointsCount(i));
+				}
+			}
+		} finally {
+			quad.shutdown();
+		}
+	}
+
+	private static void assertSameResult(SimulationResult expected, SimulationResult actual) {
+		Assert.assertEquals(expected.getMatches(), actual.getMatches());
+		Assert.assertEquals(expected.getWins(0), actual.getWins(0));
+		Assert.assertEquals(expected.getMaxPoints(), actual.getMaxPoints());
+		for (int i = 0; i <= expected.getMaxPoints(); i++) {
+			Assert.assertEquals(expected.getPointsCount(i), actual.getPointsCount(i));
+			Assert.assertEquals(expected.getGamesCount(i), actual.getGamesCount(i));
+			Assert.assertEquals(expected.getTiebreaksCount(i), actual.getTiebreaksCount(i));
+		}
+		for (int games0 = 0; games0 < 20; games0++) {
+			for (int games1 = 0; games1 < 20; games1++) {
+				Assert.assertEquals(expected.getSetScoreCount(games0, games1), actual.getSetScoreCount(games0, games1));
+			}
+		}
+		for (int sets0 = 0; sets0 < 3; sets0++) {
+			for (int sets1 = 0; sets1 < 3; sets1++) {
+				Assert.assertEquals(expected.getMatchScoreCount(sets0, sets1), actual.getMatchScoreCount(sets0, sets1));
+			}
+		}
+	}
+}
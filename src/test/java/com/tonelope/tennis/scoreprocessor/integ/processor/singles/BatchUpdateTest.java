@@ -0,0 +1,242 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.singles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.Winnable;
+import com.tonelope.tennis.scoreprocessor.processor.BatchResult;
+import com.tonelope.tennis.scoreprocessor.processor.BatchUpdateException;
+import com.tonelope.tennis.scoreprocessor.processor.MatchUpdateListener;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.ScoreCompletionHandler;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BatchUpdateTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void t1_updateStrokes_stopsAtMatchCompletion() {
+		Match match = this.createNewMatch(null);
+		List<Stroke> strokes = this.createStraightSetsStrokes(match);
+		int needed = strokes.size();
+		strokes.addAll(this.createStraightSetsStrokes(match));
+
+		BatchResult result = this.matchProcessor.updateStrokes(strokes);
+
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+		Assert.assertSame(match.getPlayers().get(0), match.getWinningPlayer());
+		Assert.assertEquals(needed, result.getApplied());
+		Assert.assertTrue(result.isTruncated());
+		Assert.assertTrue(result.isMatchCompleted());
+	}
+
+	@Test
+	public void t2_updateStrokes_deferEvents() {
+		Match match = this.createNewMatch(null);
+		List<Status> statuses = new ArrayList<>();
+		List<PointCompletedEvent> points = new ArrayList<>();
+		this.matchProcessor.registerEvent(MatchEventType.ON_POINT_COMPLETION, m -> statuses.add(m.getStatus()));
+		this.matchProcessor.addEventListener(PointCompletedEvent.class, points::add);
+
+		BatchResult result = this.matchProcessor.updateStrokes(this.createStraightSetsStrokes(match), true);
+
+		Assert.assertFalse(result.isTruncated());
+		Assert.assertEquals(48, statuses.size());
+		Assert.assertEquals(48, points.size());
+		for (Status status : statuses) {
+			Assert.assertEquals(Status.COMPLETE, status);
+		}
+		Assert.assertEquals(1, points.get(47).getSetIndex());
+	}
+
+	@Test
+	public void t3_updatePoints_partialBatch() {
+		for (boolean packed : new boolean[] { false, true }) {
+			Match match = packed ? this.createNewMatch(null, new ScoreStateMatchStrategy()) : this.createNewMatch(null);
+			Player player1 = match.getPlayers().get(0);
+			Player player2 = match.getPlayers().get(1);
+			List<SimplePoint> points = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				points.add(i < 4 ? new SimplePoint(player1, player2, player1) : new SimplePoint(player2, player1, player1));
+			}
+
+			BatchResult result = this.matchProcessor.updatePoints(points);
+
+			Assert.assertEquals(6, result.getApplied());
+			Assert.assertFalse(result.isTruncated());
+			Assert.assertFalse(result.isMatchCompleted());
+			Assert.assertEquals(Status.IN_PROGRESS, match.getStatus());
+			if (!packed) {
+				this.validateSetScore(match.getCurrentSet(), 1, 0);
+				this.validateGameScore(match.getCurrentGame(), PointValue.LOVE, PointValue.THIRTY);
+			}
+		}
+	}
+
+	@Test
+	public void t4_completedMatch_rejectsBatch() {
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.updateStrokes(this.createStraightSetsStrokes(match));
+
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Updating score when match status is COMPLETE is not supported.");
+		this.matchProcessor.updateStrokes(this.createStraightSetsStrokes(match));
+	}
+
+	@Test
+	public void t5_rejectedStroke_deferredEventsFailing() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		List<Stroke> notified = this.collectStrokes();
+		int[] executed = new int[1];
+		this.matchProcessor.registerEvent(MatchEventType.ON_POINT_COMPLETION, m -> {
+			executed[0]++;
+			throw new IllegalStateException("consumer failure");
+		});
+		List<Stroke> strokes = new ArrayList<>();
+		strokes.add(new Stroke(player1, StrokeType.FIRST_SERVE, false, true));
+		strokes.add(new Stroke(player1, StrokeType.FIRST_SERVE, false, true));
+		strokes.add(new Stroke(player2, StrokeType.FIRST_SERVE, false, true));
+		strokes.add(new Stroke(player1, StrokeType.FIRST_SERVE, false, true));
+
+		try {
+			this.matchProcessor.updateStrokes(strokes, true);
+			Assert.fail("Expected the third stroke to be rejected.");
+		} catch (BatchUpdateException e) {
+			Assert.assertEquals(2, e.getResult().getApplied());
+			Assert.assertFalse(e.getCause() instanceof IllegalStateException);
+			Assert.assertEquals(2, e.getSuppressed().length);
+		}
+		Assert.assertEquals(2, executed[0]);
+		Assert.assertEquals(strokes.subList(0, 2), notified);
+		this.validateGameScore(match.getCurrentGame(), PointValue.THIRTY, PointValue.LOVE);
+	}
+
+	@Test
+	public void t6_completedBatch_deferredEventFailing() {
+		Match match = this.createNewMatch(null);
+		List<Stroke> notified = this.collectStrokes();
+		int[] executed = new int[1];
+		this.matchProcessor.registerEvent(MatchEventType.ON_POINT_COMPLETION, m -> {
+			executed[0]++;
+			throw new IllegalStateException("consumer failure");
+		});
+		List<Stroke> strokes = this.createStraightSetsStrokes(match).subList(0, 4);
+
+		try {
+			this.matchProcessor.updateStrokes(strokes, true);
+			Assert.fail("Expected the deferred events to fail.");
+		} catch (BatchUpdateException e) {
+			Assert.assertEquals("Failed to execute deferred events", e.getMessage());
+			Assert.assertEquals(4, e.getResult().getApplied());
+			Assert.assertEquals(3, e.getCause().getSuppressed().length);
+		}
+		Assert.assertEquals(4, executed[0]);
+		Assert.assertEquals(strokes, notified);
+		this.validateSetScore(match.getCurrentSet(), 1, 0);
+	}
+
+	@Test
+	public void t7_batch_selectsNoHandlerPerItem() {
+		int[] selections = new int[1];
+		DefaultScoreCompletionStrategyHandler resolver = new DefaultScoreCompletionStrategyHandler() {
+
+			@Override
+			protected ScoreCompletionHandler<Winnable> selectHandler(List<ScoreCompletionHandler<Winnable>> handlers,
+					Winnable scoringObject, Match match) {
+				selections[0]++;
+				return super.selectHandler(handlers, scoringObject, match);
+			}
+		};
+		Match match = this.createNewMatch(null, new SinglesMatchStrategy(resolver));
+		List<Stroke> strokes = this.createStraightSetsStrokes(match);
+
+		BatchResult result = this.matchProcessor.updateStrokes(strokes.subList(0, strokes.size() - 1));
+		Assert.assertEquals(strokes.size() - 1, result.getApplied());
+		Assert.assertEquals(0, selections[0]);
+
+		this.matchProcessor.update(strokes.get(strokes.size() - 1));
+		Assert.assertTrue(selections[0] > 0);
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+		Assert.assertSame(match.getPlayers().get(0), match.getWinningPlayer());
+	}
+
+	private List<Stroke> collectStrokes() {
+		List<Stroke> notified = new ArrayList<>();
+		this.matchProcessor.addUpdateListener(new MatchUpdateListener() {
+
+			@Override
+			public void onStroke(Match match, Stroke stroke) {
+				notified.add(stroke);
+			}
+
+			@Override
+			public void onPoint(Match match, Point point) {
+			}
+		});
+		return notified;
+	}
+
+	/**
+	 * Creates the strokes of a match won 6-0 6-0 by the starting server, who
+	 * serves aces and receives double faults.
+	 */
+	private List<Stroke> createStraightSetsStrokes(Match match) {
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		List<Stroke> strokes = new ArrayList<>();
+		for (int game = 0; game < 12; game++) {
+			for (int point = 0; point < 4; point++) {
+				if (game % 2 == 0) {
+					strokes.add(new Stroke(player1, StrokeType.FIRST_SERVE, false, true));
+				} else {
+					strokes.add(new Stroke(player2, StrokeType.FIRST_SERVE, true, false));
+					strokes.add(new Stroke(player2, StrokeType.SECOND_SERVE, true, false));
+				}
+			}
+		}
+		return strokes;
+	}
+}
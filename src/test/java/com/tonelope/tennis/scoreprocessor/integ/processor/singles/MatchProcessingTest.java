@@ -13,13 +13,20 @@
  */
 package com.tonelope.tennis.scoreprocessor.integ.processor.singles;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runners.MethodSorters;
 
 import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
 import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
 import com.tonelope.tennis.scoreprocessor.model.Player;
 import com.tonelope.tennis.scoreprocessor.model.Status;
 import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
@@ -32,6 +39,9 @@ import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class MatchProcessingTest extends AbstractProcessingTests {
 
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
 	@Test
 	public void t1_winMatch_perfect() {
 		MatchProcessor matchProcessor = this.createNewMatch();
@@ -141,4 +151,103 @@ public class MatchProcessingTest extends AbstractProcessingTests {
 		Assert.assertEquals(Status.COMPLETE, match.getSets().get(2).getStatus());
 		Assert.assertEquals(Status.COMPLETE, match.getStatus());
 	}
+	
+	@Test
+	public void t5_winMatch_fromFinalSet_longAdvantageSet() {
+		MatchProcessor matchProcessor = this.createNewMatch();
+		Match match = matchProcessor.getMatch();
+		match.getMatchRules().setFinalSetTiebreakDisabled(true);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		this.winSet(match, player1);
+		this.winSet(match, player2);
+		
+		for(int i = 0; i < 68; i++) {
+			this.winServiceGame(match, player1);
+			this.winServiceGame(match, player2);
+		}
+		this.winServiceGame(match, player1);
+		this.loseServiceGame(match, player2);
+		
+		Assert.assertEquals(3, match.getSets().size());
+		Assert.assertEquals(138, match.getSets().get(2).getGames().size());
+		Assert.assertEquals("6-0, 0-6, 70-68", match.getScore().toString());
+		Assert.assertEquals(player1, match.getSets().get(2).getWinningPlayer());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+	}
+	
+	@Test
+	public void t6_winMatch_bestOfFive() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		Match match = this.createNewMatch(matchRules);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		this.winSet(match, player1);
+		this.winSet(match, player2);
+		this.winSet(match, player1);
+		this.winSet(match, player2);
+		Assert.assertEquals(Status.IN_PROGRESS, match.getStatus());
+		this.winSet(match, player1);
+		
+		Assert.assertEquals(5, match.getSets().size());
+		Assert.assertEquals(3, match.getScore().getStartingServerSetsWon());
+		Assert.assertEquals(2, match.getScore().getStartingReceiverSetsWon());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+	}
+
+	@Test
+	public void t7_playerSlots() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		
+		Assert.assertEquals(0, match.getSlot(player1));
+		Assert.assertEquals(1, match.getSlot(player2));
+		Assert.assertSame(player2, match.getOpposingPlayer(player1));
+		Assert.assertSame(player1, match.getPlayer(Match.getOpposingSlot(1)));
+		Assert.assertSame(player1, player2.getOpposingPlayer(match.getPlayers()));
+	}
+
+	@Test
+	public void t8_playerSlots_doubles() {
+		List<Player> players = Arrays.asList(new Player("A", "1"), new Player("B", "1"), new Player("A", "2"), new Player("B", "2"));
+		Match match = new Match(players, new MatchRules(), false);
+
+		for (int i = 0; i < players.size(); i++) {
+			Assert.assertEquals(i, match.getPlayerIndex(players.get(i)));
+			Assert.assertEquals(i % Match.SLOTS, match.getSlot(players.get(i)));
+		}
+		Assert.assertSame(players.get(0), match.getPlayer(match.getSlot(players.get(2))));
+		Assert.assertSame(players.get(1), match.getPlayer(match.getSlot(players.get(3))));
+		Assert.assertSame(players.get(1), match.getOpposingPlayer(players.get(2)));
+		Assert.assertSame(players.get(0), match.getOpposingPlayer(players.get(3)));
+
+		this.thrown.expect(FrameworkException.class);
+		match.getSlot(new Player("A", "1"));
+	}
+
+	@Test
+	public void t9_winMatch_evenNumberOfSets() {
+		MatchRules matchRules = new MatchRules();
+		for (int numberOfSets = 1; numberOfSets <= 6; numberOfSets++) {
+			matchRules.setNumberOfSets(numberOfSets);
+			Assert.assertEquals((int) Math.ceil(numberOfSets / 2.0), matchRules.getNumberOfSetsToWin());
+		}
+
+		matchRules.setNumberOfSets(4);
+		Match match = this.createNewMatch(matchRules);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+
+		this.winSet(match, player1);
+		this.winSet(match, player2);
+		Assert.assertEquals(Status.IN_PROGRESS, match.getStatus());
+		this.winSet(match, player1);
+
+		Assert.assertEquals(3, match.getSets().size());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+	}
 }
@@ -0,0 +1,164 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.singles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot;
+import com.tonelope.tennis.scoreprocessor.processor.MatchSnapshot.CompletedSet;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchSnapshotTest extends AbstractProcessingTests {
+
+	@Test
+	public void t1_snapshot_followsMatch() {
+		MatchRules matchRules = new MatchRules();
+		matchRules.setNumberOfSets(5);
+		Match match = this.createNewMatch(matchRules);
+		MatchSnapshot initial = this.matchProcessor.getSnapshot();
+		Assert.assertEquals(Status.NOT_STARTED, initial.getStatus());
+		Assert.assertEquals("0-0 0-0", initial.toString());
+
+		Random random = new Random(11);
+		MatchSnapshot previous = initial;
+		while (!match.isCompleted()) {
+			this.playPoint(match, random);
+			MatchSnapshot snapshot = this.matchProcessor.getSnapshot();
+			Assert.assertEquals(ScoreState.fromMatch(match), snapshot.getState());
+			Assert.assertEquals(match.getScore().getSetScores().size(), snapshot.getCompletedSets().size());
+			if (previous.getCompletedSets().size() == snapshot.getCompletedSets().size()) {
+				Assert.assertSame(previous.getCompletedSets(), snapshot.getCompletedSets());
+			}
+			this.assertSameSets(match, snapshot);
+			previous = snapshot;
+		}
+		Assert.assertEquals(Status.NOT_STARTED, initial.getStatus());
+		Assert.assertEquals(match.getPlayers().indexOf(match.getWinningPlayer()), previous.getWinner());
+	}
+
+	@Test
+	public void t2_concurrentReaders_seeConsistentScores() throws Exception {
+		Match match = this.createNewMatch(null);
+		MatchProcessor processor = this.matchProcessor;
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<String> violation = new AtomicReference<>();
+		List<Thread> readers = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			Thread reader = new Thread(() -> {
+				while (!done.get() && null == violation.get()) {
+					MatchSnapshot snapshot = processor.getSnapshot();
+					int won = 0;
+					for (CompletedSet set : snapshot.getCompletedSets()) {
+						won += set.getWinner();
+					}
+					if (won != snapshot.getSetsWon(1) || snapshot.getCompletedSets().size() != snapshot.getSetsWon(0) + snapshot.getSetsWon(1)
+							|| snapshot.getGames(0) > 7 || snapshot.getGames(1) > 7) {
+						violation.set(snapshot.toString());
+					}
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+
+		Random random = new Random(5);
+		while (!match.isCompleted()) {
+			this.playPoint(match, random);
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		Assert.assertNull(violation.get());
+		Assert.assertTrue(processor.getSnapshot().isCompleted());
+	}
+
+	@Test
+	public void t3_scoreStateStrategy_batchesAndUndo() {
+		Random random = new Random(9);
+		Match reference = this.createNewMatch(null);
+		List<Point> points = new ArrayList<>();
+		List<Integer> winners = new ArrayList<>();
+		while (!reference.isCompleted()) {
+			int winner = this.playPoint(reference, random);
+			winners.add(winner);
+		}
+		MatchSnapshot expected = this.matchProcessor.getSnapshot();
+
+		Match match = this.createNewMatch(null, new ScoreStateMatchStrategy());
+		this.matchProcessor.setHistoryLimit(10);
+		List<Player> players = match.getPlayers();
+		for (int i = 0; i < winners.size(); i++) {
+			points.clear();
+			long state = this.matchProcessor.getSnapshot().getState();
+			Player server = players.get(ScoreState.getPointServer(state));
+			points.add(new SimplePoint(server, match.getOpposingPlayer(server), players.get(winners.get(i))));
+			this.matchProcessor.updatePoints(points);
+		}
+		for (int i = 0; i < 10; i++) {
+			this.matchProcessor.undo();
+		}
+		Assert.assertEquals(Status.IN_PROGRESS, this.matchProcessor.getSnapshot().getStatus());
+		while (this.matchProcessor.redo()) {
+		}
+		MatchSnapshot snapshot = this.matchProcessor.getSnapshot();
+		Assert.assertEquals(Status.COMPLETE, snapshot.getStatus());
+		Assert.assertEquals(expected.getWinner(), snapshot.getWinner());
+		Assert.assertEquals(expected.toString(), snapshot.toString());
+	}
+
+	/**
+	 * Plays a point favoring the server, so that some sets reach a tiebreak.
+	 */
+	private int playPoint(Match match, Random random) {
+		Player server = match.getCurrentPoint().getServer();
+		Player winner = random.nextInt(100) < 70 ? server : match.getOpposingPlayer(server);
+		this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), winner));
+		return match.getSlot(winner);
+	}
+
+	private void assertSameSets(Match match, MatchSnapshot snapshot) {
+		for (int i = 0; i < snapshot.getCompletedSets().size(); i++) {
+			CompletedSet set = snapshot.getCompletedSets().get(i);
+			int server = match.getSlot(match.getSets().get(i).getStartingServer());
+			Assert.assertEquals(match.getScore().getSetScores().get(i).getStartingServerScore(), set.getGames(server));
+			Assert.assertEquals(match.getScore().getSetScores().get(i).getStartingReceiverScore(), set.getGames(server ^ 1));
+			Assert.assertEquals(null != match.getScore().getSetScores().get(i).getTiebreakScore(), set.isTiebreak());
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.singles;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.PointSummary;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.RetentionPolicy;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchSnapshotCodec;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RetentionPolicyTest extends AbstractProcessingTests {
+
+	@Test
+	public void t1_collapsePoints() {
+		Match full = this.createNewMatch(null);
+		MatchProcessor fullProcessor = this.matchProcessor;
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setRetentionPolicy(RetentionPolicy.COLLAPSE_POINTS);
+		this.playBoth(fullProcessor, this.matchProcessor, new Random(3));
+
+		for (int s = 0; s < full.getSets().size(); s++) {
+			for (int g = 0; g < full.getSets().get(s).getGames().size(); g++) {
+				Game fullGame = full.getSets().get(s).getGames().get(g);
+				Game game = match.getSets().get(s).getGames().get(g);
+				Assert.assertEquals(fullGame.getPoints().size(), game.getPoints().size());
+				for (int p = 0; p < fullGame.getPoints().size(); p++) {
+					Point fullPoint = fullGame.getPoints().get(p);
+					PointSummary point = (PointSummary) game.getPoints().get(p);
+					Assert.assertEquals(full.getSlot(fullPoint.getWinningPlayer()), match.getSlot(point.getWinningPlayer()));
+					Assert.assertEquals(fullPoint.getStrokes().size(), point.getStrokeCount());
+					Assert.assertEquals(fullPoint.getCurrentStroke().getStrokeType(), point.getCurrentStroke().getStrokeType());
+					Assert.assertTrue(point.getStrokes().isEmpty());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void t2_collapseGames() {
+		Match full = this.createNewMatch(null);
+		MatchProcessor fullProcessor = this.matchProcessor;
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setRetentionPolicy(RetentionPolicy.COLLAPSE_GAMES);
+		this.playBoth(fullProcessor, this.matchProcessor, new Random(5));
+
+		Assert.assertEquals(full.getSlot(full.getWinningPlayer()), match.getSlot(match.getWinningPlayer()));
+		Assert.assertEquals(full.getScore().toString(), match.getScore().toString());
+		for (int s = 0; s < full.getSets().size(); s++) {
+			Set set = match.getSets().get(s);
+			Assert.assertEquals(full.getSets().get(s).getGames().size(), set.getGames().size());
+			for (int g = 0; g < set.getGames().size(); g++) {
+				Game fullGame = full.getSets().get(s).getGames().get(g);
+				Game game = set.getGames().get(g);
+				Assert.assertEquals(fullGame instanceof TiebreakGame, game instanceof TiebreakGame);
+				Assert.assertEquals(full.getSlot(fullGame.getWinningPlayer()), match.getSlot(game.getWinningPlayer()));
+				Assert.assertEquals(fullGame.getScore().toString(), game.getScore().toString());
+				Assert.assertEquals(1, game.getPoints().size());
+				Assert.assertTrue(game.getCurrentPoint() instanceof SimplePoint);
+			}
+		}
+	}
+
+	@Test
+	public void t3_collapsedMatch_snapshotRoundTrip() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		this.matchProcessor.setRetentionPolicy(RetentionPolicy.COLLAPSE_POINTS);
+		this.winServiceGame(match, player1);
+		this.hitDoubleFault(match, match.getPlayers().get(1));
+
+		MatchSnapshotCodec codec = new MatchSnapshotCodec();
+		Match decoded = codec.decode(codec.encode(match));
+		PointSummary point = (PointSummary) decoded.getCurrentGame().getPoints().get(0);
+		Assert.assertSame(decoded.getPlayers().get(0), point.getWinningPlayer());
+		Assert.assertEquals(2, point.getStrokeCount());
+		Assert.assertTrue(point.getFinalStroke().isDoubleFault());
+		Assert.assertTrue(decoded.getSets().get(0).getGames().get(0).getPoints().get(3) instanceof PointSummary);
+	}
+
+	/**
+	 * Plays a match on both processors with the same strokes. The server
+	 * holds with an ace 80 percent of the time, otherwise the receiver wins
+	 * with a return winner or a double fault.
+	 */
+	private void playBoth(MatchProcessor first, MatchProcessor second, Random random) {
+		while (!first.getMatch().isCompleted()) {
+			Match match = first.getMatch();
+			int server = match.getSlot(match.getCurrentPoint().getServer());
+			int chance = match.getCurrentGame() instanceof TiebreakGame ? 50 : 80;
+			int outcome = random.nextInt(100) < chance ? 0 : 1 + random.nextInt(2);
+			for (MatchProcessor processor : new MatchProcessor[] { first, second }) {
+				Player serverPlayer = processor.getMatch().getPlayer(server);
+				Player receiverPlayer = processor.getMatch().getOpposingPlayer(serverPlayer);
+				if (0 == outcome) {
+					processor.update(new Stroke(serverPlayer, StrokeType.FIRST_SERVE, false, true));
+				} else if (1 == outcome) {
+					processor.update(new Stroke(serverPlayer, StrokeType.FIRST_SERVE, false, false));
+					processor.update(new Stroke(receiverPlayer, StrokeType.FOREHAND, false, true));
+				} else {
+					processor.update(new Stroke(serverPlayer, StrokeType.FIRST_SERVE, true, false));
+					processor.update(new Stroke(serverPlayer, StrokeType.SECOND_SERVE, true, false));
+				}
+			}
+		}
+	}
+}
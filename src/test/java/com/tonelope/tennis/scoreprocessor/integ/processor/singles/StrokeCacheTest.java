@@ -0,0 +1,82 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.singles;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeCache;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class StrokeCacheTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void t1_processedStrokes_areShared() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		this.winServiceGame(match, player1);
+
+		Game game = match.getCurrentSet().getGames().get(0);
+		Stroke ace = game.getPoints().get(0).getCurrentStroke();
+		Assert.assertSame(ace, match.getStrokeCache().get(player1, StrokeType.FIRST_SERVE, false, true));
+		for (int i = 1; i < game.getPoints().size(); i++) {
+			Assert.assertSame(ace, game.getPoints().get(i).getCurrentStroke());
+		}
+	}
+
+	@Test
+	public void t2_get_bySlotAndPlayer() {
+		Match match = this.createNewMatch(null);
+		StrokeCache strokes = match.getStrokeCache();
+		Player player2 = match.getPlayers().get(1);
+
+		Stroke stroke = strokes.get(1, StrokeType.BACKHAND, true, false);
+		Assert.assertSame(player2, stroke.getPlayer());
+		Assert.assertTrue(stroke.isOutRallyShot());
+		Assert.assertTrue(stroke.isCompleted());
+		Assert.assertSame(stroke, strokes.get(player2, StrokeType.BACKHAND, true, false));
+		Assert.assertSame(stroke, strokes.intern(new Stroke(player2, StrokeType.BACKHAND, true, false)));
+		Assert.assertNotSame(stroke, strokes.get(player2, StrokeType.BACKHAND, false, false));
+	}
+
+	@Test
+	public void t3_get_unknownPlayer() {
+		Match match = this.createNewMatch(null);
+		Player other = new Player("Other", "Player");
+		Stroke stroke = new Stroke(other, StrokeType.FOREHAND, false, false);
+		Assert.assertSame(stroke, match.getStrokeCache().intern(stroke));
+
+		this.thrown.expect(FrameworkException.class);
+		match.getStrokeCache().get(other, StrokeType.FOREHAND, false, false);
+	}
+}
@@ -0,0 +1,374 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.singles;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.Point;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.RetentionPolicy;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.concurrent.AsyncMatchEventDispatcher;
+import com.tonelope.tennis.scoreprocessor.processor.event.MatchEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.PointCompletedEvent;
+import com.tonelope.tennis.scoreprocessor.processor.event.UpdateUndoneEvent;
+import com.tonelope.tennis.scoreprocessor.processor.journal.MatchSnapshotCodec;
+import com.tonelope.tennis.scoreprocessor.processor.journal.StrokeJournal;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.statistics.MatchStatistics;
+import com.tonelope.tennis.scoreprocessor.processor.statistics.Statistic;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class UndoRedoTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final MatchSnapshotCodec codec = new MatchSnapshotCodec();
+
+	@Test
+	public void t1_randomCorrections_matchReplayOfRemainingStrokes() throws Exception {
+		Random random = new Random(7);
+		for (int i = 0; i < 5; i++) {
+			MatchRules matchRules = new MatchRules();
+			matchRules.setNoAdScoring(random.nextBoolean());
+			Match match = this.createNewMatch(matchRules);
+			MatchProcessor processor = this.matchProcessor;
+			processor.setHistoryLimit(Integer.MAX_VALUE);
+			Path file = this.folder.newFile().toPath();
+			StrokeJournal journal = new StrokeJournal(file, matchRules);
+			processor.addUpdateListener(journal);
+
+			List<Stroke> applied = new ArrayList<>();
+			Deque<Stroke> undone = new ArrayDeque<>();
+			while (!match.isCompleted()) {
+				int action = random.nextInt(100);
+				if (action < 15) {
+					Assert.assertEquals(!applied.isEmpty(), processor.undo());
+					if (!applied.isEmpty()) {
+						undone.push(applied.remove(applied.size() - 1));
+					}
+				} else if (action < 25) {
+					Assert.assertEquals(!undone.isEmpty(), processor.redo());
+					if (!undone.isEmpty()) {
+						applied.add(undone.pop());
+					}
+				} else {
+					Stroke stroke = nextStroke(match, random);
+					processor.update(stroke);
+					applied.add(stroke);
+					undone.clear();
+				}
+				Assert.assertEquals(!applied.isEmpty(), processor.canUndo());
+				Assert.assertEquals(!undone.isEmpty(), processor.canRedo());
+			}
+			journal.close();
+
+			Assert.assertEquals(applied.size(), journal.getRecordCount());
+			Assert.assertArrayEquals(this.codec.encode(match), this.codec.encode(this.replay(match, applied)));
+			Match recovered = this.createNewMatch(matchRules);
+			StrokeJournal.replay(file, this.matchProcessor);
+			Assert.assertArrayEquals(this.codec.encode(match), this.codec.encode(recovered));
+		}
+	}
+
+	@Test
+	public void t2_undoTiebreakPoints_restoresServerRotation() {
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setHistoryLimit(100);
+		List<Player> players = match.getPlayers();
+		for (int game = 0; game < 12; game++) {
+			Player server = match.getCurrentPoint().getServer();
+			for (int point = 0; point < 4; point++) {
+				this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), server));
+			}
+		}
+		Assert.assertTrue(match.getCurrentGame() instanceof TiebreakGame);
+
+		List<Player> servers = new ArrayList<>();
+		List<byte[]> snapshots = new ArrayList<>();
+		for (int point = 0; point < 6; point++) {
+			Player server = match.getCurrentPoint().getServer();
+			servers.add(server);
+			snapshots.add(this.codec.encode(match));
+			this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), players.get(point % 2)));
+		}
+		for (int point = 5; point >= 0; point--) {
+			Assert.assertTrue(this.matchProcessor.undo());
+			Assert.assertSame(servers.get(point), match.getCurrentPoint().getServer());
+			Assert.assertArrayEquals(snapshots.get(point), this.codec.encode(match));
+		}
+
+		Assert.assertTrue(this.matchProcessor.undo());
+		Assert.assertFalse(match.getCurrentGame() instanceof TiebreakGame);
+		this.validateSetScore(match.getCurrentSet(), 6, 5);
+		while (this.matchProcessor.redo()) {
+		}
+		for (int point = 6; point < 10; point++) {
+			Player server = match.getCurrentPoint().getServer();
+			this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), players.get(0)));
+		}
+		Assert.assertEquals(1, match.getScore().getStartingServerSetsWon());
+		this.validateSetScore(match.getSets().get(0), 7, 6);
+	}
+
+	@Test
+	public void t3_undoMatchPoint_reopensMatch() {
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setHistoryLimit(1);
+		Player player1 = match.getPlayers().get(0);
+		while (!match.isCompleted()) {
+			Player server = match.getCurrentPoint().getServer();
+			this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), player1));
+		}
+
+		Assert.assertTrue(this.matchProcessor.undo());
+		Assert.assertEquals(Status.IN_PROGRESS, match.getStatus());
+		Assert.assertEquals(1, match.getScore().getStartingServerSetsWon());
+		Assert.assertEquals(1, match.getScore().getSetScores().size());
+		Assert.assertFalse(this.matchProcessor.undo());
+		Assert.assertTrue(this.matchProcessor.redo());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+		Assert.assertSame(player1, match.getWinningPlayer());
+	}
+
+	@Test
+	public void t4_batchUpdates_areUndoneOneByOne() {
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setHistoryLimit(10);
+		List<Point> points = new ArrayList<>();
+		Player server = match.getStartingServer();
+		for (int i = 0; i < 7; i++) {
+			points.add(new SimplePoint(server, match.getOpposingPlayer(server), match.getOpposingPlayer(server)));
+		}
+		this.matchProcessor.updatePoints(points);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(this.matchProcessor.undo());
+		}
+
+		Match reference = this.createNewMatch(null);
+		Player referenceServer = reference.getStartingServer();
+		for (int i = 0; i < 4; i++) {
+			this.matchProcessor.update(new SimplePoint(referenceServer, reference.getOpposingPlayer(referenceServer),
+					reference.getOpposingPlayer(referenceServer)));
+		}
+		Assert.assertArrayEquals(this.codec.encode(reference), this.codec.encode(match));
+	}
+
+	@Test
+	public void t5_scoreStateStrategy() {
+		ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+		Match match = this.createNewMatch(null, strategy);
+		this.matchProcessor.setHistoryLimit(1000);
+		Random random = new Random(3);
+		List<Long> states = new ArrayList<>();
+		while (!match.isCompleted()) {
+			states.add(strategy.getState());
+			Player server = match.getPlayers().get(ScoreState.getPointServer(strategy.getState()));
+			Player winner = random.nextInt(100) < 65 ? server : match.getOpposingPlayer(server);
+			this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), winner));
+		}
+		long end = strategy.getState();
+
+		for (int i = states.size() - 1; i >= 0; i--) {
+			Assert.assertTrue(this.matchProcessor.undo());
+			Assert.assertEquals(states.get(i).longValue(), strategy.getState());
+		}
+		Assert.assertEquals(Status.NOT_STARTED, match.getStatus());
+		while (this.matchProcessor.redo()) {
+		}
+		Assert.assertEquals(end, strategy.getState());
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+	}
+
+	@Test
+	public void t6_historyDisabled_byDefault() {
+		Match match = this.createNewMatch(null);
+		this.hitFirstServeAce(match, match.getStartingServer());
+		Assert.assertEquals(0, this.matchProcessor.getHistoryLimit());
+		Assert.assertFalse(this.matchProcessor.undo());
+		Assert.assertFalse(this.matchProcessor.redo());
+	}
+
+	@Test
+	public void t7_collapsingRetentionPolicy_rejected() {
+		this.createNewMatch(null);
+		this.matchProcessor.setHistoryLimit(10);
+
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("can not be used while undo history is enabled.");
+		this.matchProcessor.setRetentionPolicy(RetentionPolicy.COLLAPSE_POINTS);
+	}
+
+	@Test
+	public void t8_statistics_revertedOnUndo() {
+		Match match = this.createNewMatch(null);
+		Player player1 = match.getPlayers().get(0);
+		this.matchProcessor.setHistoryLimit(Integer.MAX_VALUE);
+		MatchStatistics statistics = MatchStatistics.attach(this.matchProcessor);
+		this.hitFirstServeAce(match, player1);
+		this.matchProcessor.undo();
+
+		Assert.assertEquals(ScoreState.fromMatch(match), statistics.getState());
+		Assert.assertEquals(0, statistics.get(Statistic.ACES, 0));
+		Assert.assertEquals(0, statistics.get(Statistic.POINTS_WON, 0, 0));
+		this.assertStatisticsRevertedOnUndo(match, statistics, new Random(11));
+	}
+
+	@Test
+	public void t9_statistics_boundedHistory() {
+		Match match = this.createNewMatch(null);
+		this.matchProcessor.setHistoryLimit(3);
+		MatchStatistics statistics = MatchStatistics.attach(this.matchProcessor);
+		this.assertStatisticsRevertedOnUndo(match, statistics, new Random(13));
+	}
+
+	@Test
+	public void t10_undo_publishesUndoEventAfterQueuedEvents() {
+		for (boolean packed : new boolean[] { false, true }) {
+			List<Runnable> pending = new ArrayList<>();
+			AsyncMatchEventDispatcher dispatcher = new AsyncMatchEventDispatcher(pending::add);
+			Match match = this.createNewMatch(null,
+					packed ? new ScoreStateMatchStrategy(dispatcher) : new SinglesMatchStrategy(null, dispatcher));
+			this.matchProcessor.setHistoryLimit(2);
+			List<MatchEvent> events = new ArrayList<>();
+			this.matchProcessor.addEventListener(PointCompletedEvent.class, events::add);
+			this.matchProcessor.addEventListener(UpdateUndoneEvent.class, events::add);
+			Player player1 = match.getPlayers().get(0);
+			while (!match.isCompleted()) {
+				Player server = match.getCurrentPoint().getServer();
+				this.matchProcessor.update(new SimplePoint(server, match.getOpposingPlayer(server), player1));
+			}
+			Assert.assertTrue(this.matchProcessor.undo());
+			Player server = match.getPlayer(this.matchProcessor.getSnapshot().getPointServer());
+			this.matchProcessor.update(new Stroke(server, StrokeType.FIRST_SERVE, true, false));
+			Assert.assertTrue(this.matchProcessor.undo());
+			Assert.assertTrue(events.isEmpty());
+			while (!pending.isEmpty()) {
+				pending.remove(0).run();
+			}
+
+			Assert.assertEquals(48 + 2, events.size());
+			PointCompletedEvent matchPoint = (PointCompletedEvent) events.get(47);
+			UpdateUndoneEvent undonePoint = (UpdateUndoneEvent) events.get(48);
+			UpdateUndoneEvent undoneStroke = (UpdateUndoneEvent) events.get(49);
+			Assert.assertEquals(MatchEventType.ON_UNDO, undonePoint.getType());
+			Assert.assertEquals(0, undonePoint.getWinner());
+			Assert.assertEquals(1, undonePoint.getSetIndex());
+			Assert.assertEquals(matchPoint.getScore(), undonePoint.getUndoneScore());
+			Assert.assertEquals(Status.IN_PROGRESS, undonePoint.getSnapshot().getStatus());
+			Assert.assertEquals(-1, undoneStroke.getWinner());
+			Assert.assertEquals(undonePoint.getScore(), undoneStroke.getScore());
+			Assert.assertSame(this.matchProcessor.getSnapshot(), undoneStroke.getSnapshot());
+		}
+	}
+
+	/**
+	 * Plays the match with random strokes, undoing and redoing some of them,
+	 * and compares <tt>statistics</tt> with those of a replay of the strokes
+	 * that remain applied.
+	 */
+	private void assertStatisticsRevertedOnUndo(Match match, MatchStatistics statistics, Random random) {
+		List<Stroke> applied = new ArrayList<>();
+		Deque<Stroke> undone = new ArrayDeque<>();
+		while (!match.isCompleted()) {
+			int action = random.nextInt(100);
+			if (action < 15 && this.matchProcessor.undo()) {
+				undone.push(applied.remove(applied.size() - 1));
+			} else if (action < 25 && this.matchProcessor.redo()) {
+				applied.add(undone.pop());
+			} else if (action >= 25) {
+				Stroke stroke = nextStroke(match, random);
+				this.matchProcessor.update(stroke);
+				applied.add(stroke);
+				undone.clear();
+			}
+			Assert.assertEquals(ScoreState.toString(ScoreState.fromMatch(match)), ScoreState.toString(statistics.getState()));
+		}
+
+		Match replayed = this.createNewMatch(null);
+		MatchStatistics expected = MatchStatistics.attach(this.matchProcessor);
+		for (Stroke stroke : applied) {
+			this.matchProcessor.update(new Stroke(replayed.getPlayers().get(match.getSlot(stroke.getPlayer())),
+					stroke.getStrokeType(), stroke.isOut(), stroke.isWinner()));
+		}
+		for (Statistic statistic : Statistic.values()) {
+			for (int slot = 0; slot < 2; slot++) {
+				Assert.assertEquals(statistic.name(), expected.get(statistic, slot), statistics.get(statistic, slot));
+				for (int set = 0; set < match.getMatchRules().getNumberOfSets(); set++) {
+					Assert.assertEquals(statistic.name(), expected.get(statistic, slot, set), statistics.get(statistic, slot, set));
+				}
+			}
+		}
+	}
+
+	private Match replay(Match source, List<Stroke> strokes) {
+		Match match = this.createNewMatch(source.getMatchRules());
+		for (Stroke stroke : strokes) {
+			Player player = match.getPlayers().get(source.getSlot(stroke.getPlayer()));
+			this.matchProcessor.update(new Stroke(player, stroke.getStrokeType(), stroke.isOut(), stroke.isWinner()));
+		}
+		return match;
+	}
+
+	/**
+	 * Creates a valid next stroke of the current point, ending it now and
+	 * then with a winner, an error or a double fault.
+	 */
+	private static Stroke nextStroke(Match match, Random random) {
+		Point point = match.getCurrentPoint();
+		Stroke last = point.getCurrentStroke();
+		int roll = random.nextInt(100);
+		if (null == last || point.isCompleted()) {
+			return new Stroke(point.getServer(), StrokeType.FIRST_SERVE, roll < 30, roll >= 90);
+		} else if (StrokeType.FIRST_SERVE.equals(last.getStrokeType()) && last.isOut()) {
+			return new Stroke(point.getServer(), StrokeType.SECOND_SERVE, roll < 15, roll >= 95);
+		}
+		return new Stroke(match.getOpposingPlayer(last.getPlayer()), roll < 50 ? StrokeType.FOREHAND : StrokeType.BACKHAND,
+				roll % 5 == 0, roll % 5 != 0 && roll % 7 == 0);
+	}
+}
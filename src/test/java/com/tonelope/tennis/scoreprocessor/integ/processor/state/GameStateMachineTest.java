@@ -0,0 +1,156 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.state;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.SinglesMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.CompiledScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.scoring.DefaultScoreCompletionStrategyHandler;
+import com.tonelope.tennis.scoreprocessor.processor.state.GameStateMachine;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class GameStateMachineTest extends AbstractProcessingTests {
+
+	private static final int MAX_POINTS = 30;
+	
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	@Test
+	public void t1_adTable_exhaustive() {
+		this.verify(GameStateMachine.AD, false, false);
+	}
+	
+	@Test
+	public void t2_noAdTable_exhaustive() {
+		this.verify(GameStateMachine.NO_AD, true, false);
+	}
+	
+	@Test
+	public void t3_tiebreakTable_exhaustive() {
+		this.verify(GameStateMachine.TIEBREAK, false, true);
+	}
+	
+	@Test
+	public void t4_stateMachineHandlers_matchDefaultHandlers() {
+		Random random = new Random(7);
+		for (boolean noAd : new boolean[] { false, true }) {
+			for (boolean finalSetTiebreakDisabled : new boolean[] { false, true }) {
+				MatchRules matchRules = new MatchRules();
+				matchRules.setNoAdScoring(noAd);
+				matchRules.setFinalSetTiebreakDisabled(finalSetTiebreakDisabled);
+				for (int i = 0; i < 5; i++) {
+					Match fsmMatch = this.createNewMatch(matchRules, new SinglesMatchStrategy(new CompiledScoreCompletionStrategyHandler(
+							DefaultScoreCompletionStrategyHandler.createStateMachineScoreCompletionHandlers())));
+					MatchProcessor fsmProcessor = this.matchProcessor;
+					Match match = this.createNewMatch(matchRules);
+					
+					while (!match.isCompleted()) {
+						List<Player> players = match.getPlayers();
+						int server = players.indexOf(match.getCurrentPoint().getServer());
+						int winner = random.nextInt(100) < 65 ? server : server ^ 1;
+						this.matchProcessor.update(new SimplePoint(players.get(server), players.get(server ^ 1), players.get(winner)));
+						List<Player> fsmPlayers = fsmMatch.getPlayers();
+						fsmProcessor.update(new SimplePoint(fsmPlayers.get(server), fsmPlayers.get(server ^ 1), fsmPlayers.get(winner)));
+						
+						Assert.assertEquals(match.getScore().toString(), fsmMatch.getScore().toString());
+						Assert.assertEquals(match.getCurrentGame().getScore().toString(), fsmMatch.getCurrentGame().getScore().toString());
+					}
+					Assert.assertTrue(fsmMatch.isCompleted());
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void t5_unreachableState_rejected() {
+		int state = GameStateMachine.NO_AD.getState(PointValue.ADVANTAGE.ordinal(), PointValue.FORTY.ordinal());
+		
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Game state 4-3 is not valid.");
+		GameStateMachine.NO_AD.transition(state, 0);
+	}
+	
+	/**
+	 * <p>
+	 * Walks every score reachable by counting raw points and checks the table
+	 * against the rules stated in terms of those counts.
+	 * </p>
+	 */
+	private void verify(GameStateMachine machine, boolean noAd, boolean tiebreak) {
+		int pointsNeeded = tiebreak ? 7 : 4;
+		for (int a = 0; a < MAX_POINTS; a++) {
+			for (int b = 0; b < MAX_POINTS; b++) {
+				if (this.isWon(a, b, pointsNeeded, noAd) || this.isWon(b, a, pointsNeeded, noAd)
+						|| (noAd && Math.max(a, b) >= pointsNeeded)) {
+					continue;
+				}
+				int state = this.toState(machine, a, b, tiebreak);
+				
+				int transition = machine.transition(state, 0);
+				Assert.assertEquals(a + "-" + b, this.isWon(a + 1, b, pointsNeeded, noAd), GameStateMachine.isGameWon(transition));
+				if (!GameStateMachine.isGameWon(transition)) {
+					Assert.assertEquals(a + "-" + b, this.toState(machine, a + 1, b, tiebreak), GameStateMachine.getNextState(transition));
+				}
+				
+				transition = machine.transition(state, 1);
+				Assert.assertEquals(a + "-" + b, this.isWon(b + 1, a, pointsNeeded, noAd), GameStateMachine.isGameWon(transition));
+				if (!GameStateMachine.isGameWon(transition)) {
+					Assert.assertEquals(a + "-" + b, this.toState(machine, a, b + 1, tiebreak), GameStateMachine.getNextState(transition));
+				}
+			}
+		}
+	}
+	
+	private boolean isWon(int points, int opponentPoints, int pointsNeeded, boolean noAd) {
+		if (noAd) {
+			return points >= pointsNeeded && points > opponentPoints;
+		}
+		return points >= pointsNeeded && points - opponentPoints > 1;
+	}
+	
+	private int toState(GameStateMachine machine, int a, int b, boolean tiebreak) {
+		if (tiebreak) {
+			return machine.getState(a, b);
+		}
+		if (a >= 3 && b >= 3) {
+			// 40-40, advantage a or advantage b.
+			int lead = a - b;
+			return machine.getState(3 + Math.max(lead, 0), 3 + Math.max(-lead, 0));
+		}
+		return machine.getState(a, b);
+	}
+}
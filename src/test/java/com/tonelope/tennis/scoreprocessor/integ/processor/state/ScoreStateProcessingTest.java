@@ -0,0 +1,243 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.FrameworkException;
+import com.tonelope.tennis.scoreprocessor.model.Game;
+import com.tonelope.tennis.scoreprocessor.model.GameScore;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.MatchEventType;
+import com.tonelope.tennis.scoreprocessor.model.MatchRules;
+import com.tonelope.tennis.scoreprocessor.model.MatchScore;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.PointValue;
+import com.tonelope.tennis.scoreprocessor.model.Set;
+import com.tonelope.tennis.scoreprocessor.model.SetScore;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Status;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakGame;
+import com.tonelope.tennis.scoreprocessor.model.TiebreakScore;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+
+/**
+ *
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ScoreStateProcessingTest extends AbstractProcessingTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void t1_matchesObjectGraph_allRules() {
+		Random random = new Random(42);
+		for (int numberOfSets : new int[] { 3, 5 }) {
+			for (int numberOfGames : new int[] { 6, 4 }) {
+				for (boolean noAd : new boolean[] { false, true }) {
+					for (boolean finalSetTiebreakDisabled : new boolean[] { false, true }) {
+						MatchRules matchRules = new MatchRules();
+						matchRules.setNumberOfSets(numberOfSets);
+						matchRules.setNumberOfGamesPerSet(numberOfGames);
+						matchRules.setNoAdScoring(noAd);
+						matchRules.setFinalSetTiebreakDisabled(finalSetTiebreakDisabled);
+						for (int i = 0; i < 5; i++) {
+							this.playAgainstObjectGraph(matchRules, random);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void t2_winMatch_byStrokes() {
+		ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+		Match match = this.createNewMatch(null, strategy);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+
+		while (!match.isCompleted()) {
+			Player server = match.getPlayers().get(ScoreState.getPointServer(strategy.getState()));
+			Player receiver = server.getOpposingPlayer(match.getPlayers());
+			if (player1 == server) {
+				this.matchProcessor.update(new Stroke(server, StrokeType.FIRST_SERVE, false, true));
+			} else {
+				this.matchProcessor.update(new Stroke(server, StrokeType.FIRST_SERVE, true, false));
+				this.matchProcessor.update(new Stroke(server, StrokeType.SECOND_SERVE, false, false));
+				this.matchProcessor.update(new Stroke(receiver, StrokeType.FOREHAND, false, false));
+				this.matchProcessor.update(new Stroke(server, StrokeType.BACKHAND, true, false));
+			}
+		}
+
+		Assert.assertEquals(Status.COMPLETE, match.getStatus());
+		Assert.assertEquals(0, ScoreState.getWinner(strategy.getState()));
+		Assert.assertEquals(2, ScoreState.getSetsWon(strategy.getState(), 0));
+		Assert.assertEquals(0, ScoreState.getSetsWon(strategy.getState(), 1));
+		Assert.assertSame(player2, match.getPlayers().get(1));
+	}
+
+	@Test
+	public void t3_deuceAndTiebreak() {
+		MatchRules matchRules = new MatchRules();
+		long state = ScoreState.initial(0);
+		for (int i = 0; i < 3; i++) {
+			state = ScoreState.pointWonBy(state, 0, matchRules);
+			state = ScoreState.pointWonBy(state, 1, matchRules);
+		}
+		Assert.assertEquals("0-0 0-0 40-40", ScoreState.toString(state));
+		state = ScoreState.pointWonBy(state, 1, matchRules);
+		Assert.assertEquals(PointValue.ADVANTAGE, ScoreState.getPointValue(state, 1));
+		state = ScoreState.pointWonBy(state, 0, matchRules);
+		Assert.assertEquals("0-0 0-0 40-40", ScoreState.toString(state));
+		state = ScoreState.pointWonBy(state, 0, matchRules);
+		state = ScoreState.pointWonBy(state, 0, matchRules);
+		Assert.assertEquals("0-0 1-0 0-0", ScoreState.toString(state));
+		Assert.assertEquals(1, ScoreState.getServer(state));
+
+		for (int game = 1; game < 12; game++) {
+			for (int point = 0; point < 4; point++) {
+				state = ScoreState.pointWonBy(state, game % 2, matchRules);
+			}
+		}
+		Assert.assertTrue(ScoreState.isTiebreak(state));
+		Assert.assertEquals("0-0 6-6 (0-0)", ScoreState.toString(state));
+		Assert.assertEquals(0, ScoreState.getPointServer(state));
+		state = ScoreState.pointWonBy(state, 1, matchRules);
+		Assert.assertEquals(1, ScoreState.getPointServer(state));
+		state = ScoreState.pointWonBy(state, 1, matchRules);
+		Assert.assertEquals(1, ScoreState.getPointServer(state));
+		state = ScoreState.pointWonBy(state, 1, matchRules);
+		Assert.assertEquals(0, ScoreState.getPointServer(state));
+
+		for (int i = 0; i < 6; i++) {
+			state = ScoreState.pointWonBy(state, 0, matchRules);
+		}
+		Assert.assertEquals("0-0 6-6 (6-3)", ScoreState.toString(state));
+		state = ScoreState.pointWonBy(state, 0, matchRules);
+		Assert.assertEquals("1-0 0-0 0-0", ScoreState.toString(state));
+		Assert.assertFalse(ScoreState.isTiebreak(state));
+	}
+
+	@Test
+	public void t4_events() {
+		ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+		Match match = this.createNewMatch(null, strategy);
+		List<MatchEventType> events = new ArrayList<>();
+		for (MatchEventType type : MatchEventType.values()) {
+			strategy.registerEvent(type, m -> events.add(type));
+		}
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+
+		for (int i = 0; i < 4; i++) {
+			this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+		}
+
+		Assert.assertEquals(5, events.size());
+		Assert.assertEquals(MatchEventType.ON_POINT_COMPLETION, events.get(3));
+		Assert.assertEquals(MatchEventType.ON_GAME_COMPLETION, events.get(4));
+	}
+
+	@Test
+	public void t5_completedMatch_rejectsUpdates() {
+		ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+		Match match = this.createNewMatch(null, strategy);
+		Player player1 = match.getPlayers().get(0);
+		Player player2 = match.getPlayers().get(1);
+		while (!match.isCompleted()) {
+			this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+		}
+
+		this.thrown.expect(FrameworkException.class);
+		this.thrown.expectMessage("Updating score when match status is COMPLETE is not supported.");
+		this.matchProcessor.update(new SimplePoint(player1, player2, player1));
+	}
+
+	private void playAgainstObjectGraph(MatchRules matchRules, Random random) {
+		ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+		Match packedMatch = this.createNewMatch(matchRules, strategy);
+		MatchProcessor packedProcessor = this.matchProcessor;
+		Match match = this.createNewMatch(matchRules);
+		List<Player> players = match.getPlayers();
+
+		while (!match.isCompleted()) {
+			long state = strategy.getState();
+			int server = ScoreState.getPointServer(state);
+			Assert.assertSame(match.getCurrentPoint().getServer(), players.get(server));
+
+			// Favor the server so that sets reach tiebreaks and long final sets.
+			int winner = random.nextInt(100) < 68 ? server : server ^ 1;
+			this.matchProcessor.update(new SimplePoint(players.get(server), players.get(server ^ 1), players.get(winner)));
+			packedProcessor.update(new SimplePoint(packedMatch.getPlayers().get(server),
+					packedMatch.getPlayers().get(server ^ 1), packedMatch.getPlayers().get(winner)));
+			this.assertSameScore(match, strategy.getState());
+		}
+		Assert.assertEquals(Status.COMPLETE, packedMatch.getStatus());
+		Assert.assertSame(match.getWinningPlayer(), players.get(ScoreState.getWinner(strategy.getState())));
+	}
+
+	private void assertSameScore(Match match, long state) {
+		String description = match.getMatchRules() + " " + matchToString(match) + " vs " + ScoreState.toString(state);
+		List<Player> players = match.getPlayers();
+		MatchScore matchScore = match.getScore();
+		Assert.assertEquals(description, match.getStatus(), ScoreState.getStatus(state));
+		Assert.assertEquals(description, matchScore.getStartingServerSetsWon(), ScoreState.getSetsWon(state, 0));
+		Assert.assertEquals(description, matchScore.getStartingReceiverSetsWon(), ScoreState.getSetsWon(state, 1));
+		if (match.isCompleted()) {
+			return;
+		}
+
+		Set set = match.getCurrentSet();
+		SetScore setScore = set.getScore();
+		int setServer = players.get(0) == set.getStartingServer() ? 0 : 1;
+		Assert.assertEquals(description, setScore.getStartingServerScore(), ScoreState.getGames(state, setServer));
+		Assert.assertEquals(description, setScore.getStartingReceiverScore(), ScoreState.getGames(state, setServer ^ 1));
+
+		Game game = set.getCurrentGame();
+		int gameServer = players.get(0) == game.getServer() ? 0 : 1;
+		Assert.assertEquals(description, gameServer, ScoreState.getServer(state));
+		Assert.assertEquals(description, game instanceof TiebreakGame, ScoreState.isTiebreak(state));
+		if (game instanceof TiebreakGame) {
+			TiebreakScore score = (TiebreakScore) game.getScore();
+			Assert.assertEquals(description, score.getServerScore(), ScoreState.getPoints(state, gameServer));
+			Assert.assertEquals(description, score.getReceiverScore(), ScoreState.getPoints(state, gameServer ^ 1));
+		} else {
+			GameScore score = (GameScore) game.getScore();
+			Assert.assertEquals(description, score.getServerScore(), ScoreState.getPointValue(state, gameServer));
+			Assert.assertEquals(description, score.getReceiverScore(), ScoreState.getPointValue(state, gameServer ^ 1));
+		}
+	}
+
+	private static String matchToString(Match match) {
+		return match.getScore() + " " + (match.isCompleted() ? "" : match.getCurrentGame().getScore());
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.tonelope.tennis.scoreprocessor.integ.processor.statistics;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.tonelope.tennis.scoreprocessor.integ.processor.AbstractProcessingTests;
+import com.tonelope.tennis.scoreprocessor.model.Match;
+import com.tonelope.tennis.scoreprocessor.model.Player;
+import com.tonelope.tennis.scoreprocessor.model.SimplePoint;
+import com.tonelope.tennis.scoreprocessor.model.Stroke;
+import com.tonelope.tennis.scoreprocessor.model.StrokeType;
+import com.tonelope.tennis.scoreprocessor.processor.MatchProcessor;
+import com.tonelope.tennis.scoreprocessor.processor.RetentionPolicy;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreState;
+import com.tonelope.tennis.scoreprocessor.processor.state.ScoreStateMatchStrategy;
+import com.tonelope.tennis.scoreprocessor.processor.statistics.MatchStatistics;
+import com.tonelope.tennis.scoreprocessor.processor.statistics.Statistic;
+
+/**
+ * 
+ * @author Tony Lopez
+ *
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MatchStatisticsTest extends AbstractProcessingTests {
+
+	@Test
+	public void t1_serveAndRallyCounters() {
+		Match match = this.createNewMatch(null);
+		MatchStatistics statistics = MatchStatistics.attach(this.matchProcessor);
+		Player server = match.getPlayers().get(0);
+		Player receiver = match.getPlayers().get(1);
+
+		this.hitFirstServeAce(match, server);
+		this.hitDoubleFault(match, server);
+		this.matchProcessor.update(new Stroke(server, StrokeType.FIRST_SERVE, true, false));
+		this.matchProcessor.update(new Stroke(server, StrokeType.SECOND_SERVE, false, false));
+		this.matchProcessor.update(new Stroke(receiver, StrokeType.FOREHAND, false, true));
+		this.matchProcessor.update(new Stroke(server, StrokeType.FIRST_SERVE, false, false));
+		this.matchProcessor.update(new Stroke(receiver, StrokeType.BACKHAND, false, false));
+		this.matchProcessor.update(new Stroke(server, StrokeType.FOREHAND, true, false));
+
+		Assert.assertEquals(1, statistics.get(Statistic.ACES, server));
+		Assert.assertEquals(1, statistics.get(Statistic.DOUBLE_FAULTS, server));
+		Assert.assertEquals(4, statistics.get(Statistic.FIRST_SERVES, server));
+		Assert.assertEquals(0.5, statistics.getFirstServePercentage(0), 0);
+		Assert.assertEquals(1, statistics.get(Statistic.WINNERS, receiver));
+		Assert.assertEquals(1, statistics.get(Statistic.UNFORCED_ERRORS, server));
+		Assert.assertEquals(1, statistics.get(Statistic.FIRST_SERVE_POINTS_WON, server));
+		Assert.assertEquals(4, statistics.get(Statistic.SERVICE_POINTS, server));
+		Assert.assertEquals(3, statistics.get(Statistic.POINTS_WON, receiver));
+		Assert.assertEquals(9 / 4.0, statistics.getAverageRallyLength(), 0);
+		Assert.assertEquals(3, statistics.get(Statistic.POINTS_WON, 1, 0));
+	}
+
+	@Test
+	public void t2_breakPoints() {
+		Match match = this.createNewMatch(null);
+		MatchStatistics statistics = MatchStatistics.attach(this.matchProcessor);
+		Player server = match.getPlayers().get(0);
+		Player receiver = match.getPlayers().get(1);
+		for (Player winner : new Player[] { receiver, receiver, receiver, server, server, server, receiver, receiver }) {
+			this.matchProcessor.update(new SimplePoint(server, receiver, winner));
+		}
+
+		Assert.assertEquals(4, statistics.get(Statistic.BREAK_POINTS_FACED, server));
+		Assert.assertEquals(3, statistics.get(Statistic.BREAK_POINTS_SAVED, server));
+		Assert.assertEquals(4, statistics.get(Statistic.BREAK_POINT_OPPORTUNITIES, receiver));
+		Assert.assertEquals(1, statistics.get(Statistic.BREAK_POINTS_CONVERTED, receiver));
+		Assert.assertEquals(0, statistics.get(Statistic.RALLIES, server));
+		Assert.assertEquals(1, match.getCurrentSet().getScore().getStartingReceiverScore());
+	}
+
+	@Test
+	public void t3_sameCountersForEveryEngine() {
+		Random random = new Random(17);
+		for (int i = 0; i < 5; i++) {
+			long seed = random.nextLong();
+			this.createNewMatch(null);
+			this.matchProcessor.setRetentionPolicy(RetentionPolicy.COLLAPSE_GAMES);
+			MatchStatistics statistics = this.play(this.matchProcessor, new Random(seed));
+			ScoreStateMatchStrategy strategy = new ScoreStateMatchStrategy();
+			this.createNewMatch(null, strategy);
+			MatchStatistics packed = this.play(this.matchProcessor, new Random(seed));
+
+			Assert.assertEquals(strategy.getState(), packed.getState());
+			Assert.assertEquals(strategy.getState(), statistics.getState());
+			for (Statistic statistic : Statistic.values()) {
+				for (int slot = 0; slot < Match.SLOTS; slot++) {
+					Assert.assertEquals(statistic.name(), statistics.get(statistic, slot), packed.get(statistic, slot));
+					int sum = 0;
+					for (int set = 0; set < 3; set++) {
+						sum += statistics.get(statistic, slot, set);
+					}
+					Assert.assertEquals(statistic.name(), statistics.get(statistic, slot), sum);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Plays a match with random serves and rallies until it is completed.
+	 */
+	private MatchStatistics play(MatchProcessor processor, Random random) {
+		MatchStatistics statistics = MatchStatistics.attach(processor);
+		Match match = processor.getMatch();
+		while (!match.isCompleted()) {
+			int points = pointsPlayed(statistics);
+			Player hitter = match.getPlayer(ScoreState.getPointServer(statistics.getState()));
+			if (random.nextInt(100) < 40) {
+				processor.update(new Stroke(hitter, StrokeType.FIRST_SERVE, true, false));
+				processor.update(new Stroke(hitter, StrokeType.SECOND_SERVE, random.nextInt(100) < 10, false));
+			} else {
+				processor.update(new Stroke(hitter, StrokeType.FIRST_SERVE, false, random.nextInt(100) < 15));
+			}
+			while (points == pointsPlayed(statistics)) {
+				hitter = match.getOpposingPlayer(hitter);
+				int outcome = random.nextInt(10);
+				processor.update(new Stroke(hitter, outcome < 6 ? StrokeType.FOREHAND : StrokeType.BACKHAND, 8 == outcome,
+						9 == outcome));
+			}
+		}
+		return statistics;
+	}
+
+	private static int pointsPlayed(MatchStatistics statistics) {
+		return statistics.get(Statistic.POINTS_WON, 0) + statistics.get(Statistic.POINTS_WON, 1);
+	}
+}